@@ -0,0 +1,32 @@
+package soot.asm;
+
+import java.io.ByteArrayInputStream;
+
+import soot.ClassSource;
+
+/**
+ * Factory for ASM class sources that read a class file from memory. The
+ * constructor of {@link AsmClassSource} is not visible outside of this
+ * package, but classes loaded from memory must be translated by the same
+ * frontend as the ones Soot loads from the classpath.
+ *
+ * @author Steven Arzt
+ *
+ */
+public class InMemoryAsmClassSource {
+
+	private InMemoryAsmClassSource() {
+		//
+	}
+
+	/**
+	 * Creates a class source for the given class file
+	 * @param className The name of the class
+	 * @param classFile The contents of the class file
+	 * @return The class source that translates the given class file with ASM
+	 */
+	public static ClassSource create(String className, byte[] classFile) {
+		return new AsmClassSource(className, new ByteArrayInputStream(classFile));
+	}
+
+}
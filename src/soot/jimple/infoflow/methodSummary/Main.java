@@ -2,7 +2,9 @@ package soot.jimple.infoflow.methodSummary;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
@@ -13,14 +15,25 @@ import javax.xml.stream.XMLStreamException;
 import soot.jimple.infoflow.methodSummary.data.summary.ClassSummaries;
 import soot.jimple.infoflow.methodSummary.data.summary.MethodSummaries;
 import soot.jimple.infoflow.methodSummary.generator.IClassSummaryHandler;
+import soot.jimple.infoflow.methodSummary.generator.JimpleBodyCache;
+import soot.jimple.infoflow.methodSummary.generator.SummaryCache;
 import soot.jimple.infoflow.methodSummary.generator.SummaryGenerator;
 import soot.jimple.infoflow.methodSummary.generator.SummaryGeneratorFactory;
+import soot.jimple.infoflow.methodSummary.xml.SummaryManifest;
+import soot.jimple.infoflow.methodSummary.xml.SummaryXMLException;
 import soot.jimple.infoflow.methodSummary.xml.XMLWriter;
 
 class Main {
 	final List<String> failedMethos = new LinkedList<>();
 	
-	public static void main(final String[] args) throws FileNotFoundException, XMLStreamException {
+	public static void main(final String[] args) throws IOException, XMLStreamException,
+			InterruptedException {
+		// Long-running mode that takes its jobs from a spool directory
+		if (args.length > 0 && args[0].equalsIgnoreCase("--daemon")) {
+			SummaryDaemon.main(Arrays.copyOfRange(args, 1, args.length));
+			return;
+		}
+		
 		// Check the parameters
 		if (args.length < 3 || args[0].contains("--") || args[1].contains("--")
 				|| args[2].contains("--")) {
@@ -32,6 +45,9 @@ class Main {
 		boolean loadFullJAR = false;
 		Set<String> excludes = new HashSet<>();
 		int repeatCount = 1;
+		String cacheDir = null;
+		long cacheSize = -1;
+		String bodyCacheDir = null;
 		
 		// Initialize the summary generator
 		SummaryGenerator generator = new SummaryGeneratorFactory().initSummaryGenerator();
@@ -54,6 +70,36 @@ class Main {
 					repeatCount = Integer.parseInt(args[i + 1]);
 					i++;
 				}
+				else if (args[i].equalsIgnoreCase("--cache")) {
+					cacheDir = args[i + 1];
+					i++;
+				}
+				else if (args[i].equalsIgnoreCase("--cacheSize")) {
+					cacheSize = Long.parseLong(args[i + 1]) * 1024 * 1024;
+					i++;
+				}
+				else if (args[i].equalsIgnoreCase("--bodyCache")) {
+					bodyCacheDir = args[i + 1];
+					i++;
+				}
+				else if (args[i].equalsIgnoreCase("--cacheClassFiles"))
+					generator.getConfig().setCacheClassFiles(true);
+				else if (args[i].equalsIgnoreCase("--classDepth")) {
+					generator.getConfig().setClassLoadingDepth(Integer.parseInt(args[i + 1]));
+					i++;
+				}
+				else if (args[i].equalsIgnoreCase("--adaptiveAP")) {
+					generator.getConfig().setMinAccessPathLength(Integer.parseInt(args[i + 1]));
+					i++;
+				}
+				else if (args[i].equalsIgnoreCase("--apTimeBudget")) {
+					generator.getConfig().setAccessPathTimeBudget(Integer.parseInt(args[i + 1]));
+					i++;
+				}
+				else if (args[i].equalsIgnoreCase("--propagationBudget")) {
+					generator.getConfig().setPropagationBudget(Long.parseLong(args[i + 1]));
+					i++;
+				}
 				else if (args[i].equalsIgnoreCase("--aliasFlowIns"))
 					generator.getConfig().setFlowSensitiveAliasing(false);
 				else if (args[i].equalsIgnoreCase("--novalidate"))
@@ -78,19 +124,48 @@ class Main {
 		generator.getConfig().setLoadFullJAR(loadFullJAR);
 		generator.getConfig().setExcludes(excludes);
 		generator.getConfig().setRepeatCount(repeatCount);
-		final boolean doForceOverwrite = forceOverwrite;
+		if (cacheDir != null)
+			generator.setSummaryCache(cacheSize < 0 ? new SummaryCache(new File(cacheDir))
+					: new SummaryCache(new File(cacheDir), cacheSize));
+		if (bodyCacheDir != null)
+			generator.setBodyCache(new JimpleBodyCache(new File(bodyCacheDir)));
 		ClassSummaries summaries = generator.createMethodSummaries(args[0],
-				classesToAnalyze, new IClassSummaryHandler() {
+				classesToAnalyze, createClassHandler(args[1], forceOverwrite));
+		
+		// Index the output directory so that providers do not need to parse
+		// every summary file at startup
+		writeManifest(args[1]);
+		
+		System.out.println("Done.");
+		if (summaries != null)
+			if (!summaries.getDependencies().isEmpty()) {
+				System.out.println("Dependencies:");
+				for (String className : summaries.getDependencies())
+					System.out.println("\t" + className);
+			}
+	}
+	
+	/**
+	 * Creates the handler that writes out the summaries of every class as
+	 * soon as the class has been analyzed
+	 * @param outputFolder The folder in which to place the summary files
+	 * @param forceOverwrite True if existing summary files shall be
+	 * overwritten, false if the respective classes shall be skipped
+	 * @return The new class summary handler
+	 */
+	static IClassSummaryHandler createClassHandler(final String outputFolder,
+			final boolean forceOverwrite) {
+		return new IClassSummaryHandler() {
 			
 			@Override
 			public boolean onBeforeAnalyzeClass(String className) {
 				// Are we forced to analyze all classes?
-				if (doForceOverwrite)
+				if (forceOverwrite)
 					return true;
 				
 				// If we already have a summary file for this class, we skip over it
 				String summaryFile = className + ".xml";
-				return !new File(args[1], summaryFile).exists();
+				return !new File(outputFolder, summaryFile).exists();
 			}
 			
 			@Override
@@ -102,19 +177,11 @@ class Main {
 			public void onClassFinished(String className, MethodSummaries summaries) {
 				// Write out the class
 				String summaryFile = className + ".xml";
-				write(summaries, summaryFile, args[1]);
+				write(summaries, summaryFile, outputFolder);
 				System.out.println("Class " + className + " done.");
 			}
 			
-		});
-		
-		System.out.println("Done.");
-		if (summaries != null)
-			if (!summaries.getDependencies().isEmpty()) {
-				System.out.println("Dependencies:");
-				for (String className : summaries.getDependencies())
-					System.out.println("\t" + className);
-			}
+		};
 	}
 	
 	/**
@@ -125,12 +192,37 @@ class Main {
 		System.out.println();
 		System.out.println("Incorrect arguments: [0] = JAR File, [1] = output folder "
 				+ "[2] = <list of classes>, [3] = <optional arguments>");
+		System.out.println("Daemon mode: --daemon <spool folder> <optional arguments>");
 		System.out.println();
 		System.out.println("Supported optional arguments:");
 		System.out.println("\t--forceOverwrite: Load all classes in the given JAR");
 		System.out.println("\t--loadFullJar: Load all classes in the given JAR");
 		System.out.println("\t--exclude: Exclude the given class or package");
 		System.out.println("\t--repeat n: Repeat the analysis of each class n times");
+		System.out.println("\t--cache dir: Reuse unchanged method summaries from the given cache");
+		System.out.println("\t--cacheSize n: Limit the summary cache to n megabytes");
+		System.out.println("\t--bodyCache dir: Keep the Jimple bodies of library classes in the given directory");
+		System.out.println("\t--cacheClassFiles: Keep the class files of the classpath in memory between the analyzed methods");
+		System.out.println("\t--classDepth n: Only load classes reachable within n calls from the analyzed method");
+		System.out.println("\t--adaptiveAP n: Start every method with access path length n and increase it while new flows appear");
+		System.out.println("\t--apTimeBudget s: Stop increasing the access path length of a method after s seconds");
+		System.out.println("\t--propagationBudget n: Approximate the summary of methods that propagate more than n edges");
+	}
+	
+	/**
+	 * Creates the summary manifest for the given folder
+	 * @param folder The folder containing the summary files
+	 */
+	static void writeManifest(String folder) {
+		File f = new File(folder);
+		if (!f.exists())
+			return;
+		
+		try {
+			SummaryManifest.create(f).write(f);
+		} catch (XMLStreamException | SummaryXMLException | IOException e) {
+			throw new RuntimeException(e);
+		}
 	}
 	
 	/**
@@ -139,7 +231,7 @@ class Main {
 	 * @param fileName The name of the file to be written
 	 * @param folder The folder in which to place the xml file
 	 */
-	private static void write(MethodSummaries flows, String fileName, String folder) {
+	static void write(MethodSummaries flows, String fileName, String folder) {
 		// Create the target folder if it does not exist
 		File f = new File(folder);
 		if(!f.exists())
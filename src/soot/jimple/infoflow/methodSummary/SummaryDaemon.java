@@ -0,0 +1,407 @@
+package soot.jimple.infoflow.methodSummary;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import soot.jimple.infoflow.methodSummary.data.summary.ClassSummaries;
+import soot.jimple.infoflow.methodSummary.data.summary.MethodSummaries;
+import soot.jimple.infoflow.methodSummary.generator.IClassSummaryHandler;
+import soot.jimple.infoflow.methodSummary.generator.JimpleBodyCache;
+import soot.jimple.infoflow.methodSummary.generator.SummaryCache;
+import soot.jimple.infoflow.methodSummary.generator.SummaryGenerator;
+import soot.jimple.infoflow.methodSummary.generator.SummaryGeneratorConfiguration;
+import soot.jimple.infoflow.methodSummary.generator.SummaryGeneratorFactory;
+
+/**
+ * Long-running summary generator that processes generation jobs from a spool
+ * directory. The generator, its caches and the JIT-compiled code stay alive
+ * between the jobs, so only the first job pays for the warm-up.
+ *
+ * A job is a properties file with the extension ".job". To avoid reading
+ * incomplete jobs, clients must write the file under a different name and
+ * then rename it. The following keys are supported:
+ * <ul>
+ * <li>classpath: The classpath containing the classes to summarize</li>
+ * <li>classes: The classes to summarize, separated by whitespace or
+ * commas</li>
+ * <li>output: The folder into which to write the summary files</li>
+ * <li>forceOverwrite, loadFullJar, aliasFlowIns, novalidate: Boolean flags
+ * with the same meaning as the respective command line options</li>
+ * <li>exclude: Classes and packages to exclude, separated by whitespace or
+ * commas</li>
+ * <li>repeat, classDepth, adaptiveAP, apTimeBudget, propagationBudget:
+ * Integer options with the same meaning as the respective command line
+ * options</li>
+ * </ul>
+ * While a job is running, it is renamed to ".running". Afterwards, it is
+ * renamed to ".done" with the job statistics appended, or to ".failed" with
+ * the error appended. Jobs that are still marked as running when the daemon
+ * starts were interrupted by a crash and are marked as failed.
+ *
+ * @author Steven Arzt
+ *
+ */
+public class SummaryDaemon {
+
+	private static final String JOB_EXTENSION = ".job";
+	private static final String RUNNING_EXTENSION = ".running";
+	private static final String DONE_EXTENSION = ".done";
+	private static final String FAILED_EXTENSION = ".failed";
+
+	private final File spoolDir;
+	private final SummaryGenerator generator;
+	private final SummaryGeneratorConfiguration baseConfig;
+
+	private volatile boolean running = true;
+	private int jobCount = 0;
+
+	/**
+	 * Creates a new instance of the SummaryDaemon class
+	 * @param spoolDir The directory from which to take the jobs
+	 * @param generator The summary generator to use for all jobs. The
+	 * configuration of this generator is the base configuration for every job.
+	 */
+	public SummaryDaemon(File spoolDir, SummaryGenerator generator) {
+		if (!spoolDir.isDirectory())
+			throw new RuntimeException("Spool directory " + spoolDir + " does not exist");
+		this.spoolDir = spoolDir;
+		this.generator = generator;
+		this.baseConfig = generator.getConfig();
+		generator.setKeepResourcesOpen(true);
+	}
+
+	/**
+	 * Processes jobs until stop() is called
+	 * @throws IOException Thrown if the spool directory cannot be watched
+	 * @throws InterruptedException Thrown if the daemon thread is interrupted
+	 */
+	public void run() throws IOException, InterruptedException {
+		failOrphanedJobs();
+		System.out.println("Summary daemon waiting for jobs in " + spoolDir);
+		WatchService watcher = FileSystems.getDefault().newWatchService();
+		try {
+			Path spoolPath = spoolDir.toPath();
+			spoolPath.register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+					StandardWatchEventKinds.ENTRY_MODIFY);
+
+			while (running) {
+				// Process everything that is waiting. We do not rely on the
+				// individual events, since they may overflow.
+				File job;
+				while (running && (job = nextJob()) != null)
+					processJob(job);
+
+				WatchKey key = watcher.poll(1, TimeUnit.SECONDS);
+				if (key != null) {
+					key.pollEvents();
+					if (!key.reset())
+						throw new IOException("Spool directory " + spoolDir + " is no longer accessible");
+				}
+			}
+		}
+		finally {
+			watcher.close();
+			generator.close();
+		}
+	}
+	
+	/**
+	 * Marks all jobs as failed that were left running by an earlier instance
+	 * of the daemon. Such a job may have crashed the daemon, so we do not
+	 * try it again.
+	 * @throws IOException Thrown if a job file could not be read or written
+	 */
+	private void failOrphanedJobs() throws IOException {
+		File[] orphans = spoolDir.listFiles(new FilenameFilter() {
+
+			@Override
+			public boolean accept(File dir, String name) {
+				return name.endsWith(RUNNING_EXTENSION);
+			}
+
+		});
+		if (orphans == null)
+			return;
+		for (File runningFile : orphans) {
+			String jobName = runningFile.getName().substring(0,
+					runningFile.getName().length() - RUNNING_EXTENSION.length());
+			System.err.println("Job " + jobName + " was interrupted, marking it as failed");
+			Properties job = readJob(runningFile);
+			job.setProperty("result.error", "The daemon terminated while the job was running");
+			writeResult(jobName, job, runningFile, new File(spoolDir, jobName + FAILED_EXTENSION));
+		}
+	}
+
+	/**
+	 * Stops the daemon after the current job
+	 */
+	public void stop() {
+		running = false;
+	}
+
+	/**
+	 * Gets the oldest job in the spool directory
+	 * @return The oldest job, or null if there is none
+	 */
+	private File nextJob() {
+		File[] jobs = spoolDir.listFiles(new FilenameFilter() {
+
+			@Override
+			public boolean accept(File dir, String name) {
+				return name.endsWith(JOB_EXTENSION);
+			}
+
+		});
+		if (jobs == null || jobs.length == 0)
+			return null;
+		Arrays.sort(jobs);
+		return jobs[0];
+	}
+
+	/**
+	 * Processes the given job
+	 * @param jobFile The job file
+	 */
+	private void processJob(File jobFile) throws IOException {
+		String jobName = jobFile.getName().substring(0,
+				jobFile.getName().length() - JOB_EXTENSION.length());
+		File runningFile = new File(spoolDir, jobName + RUNNING_EXTENSION);
+		if (!jobFile.renameTo(runningFile))
+			return;
+
+		System.out.println("Starting job " + jobName);
+		jobCount++;
+		long nanosBeforeJob = System.nanoTime();
+		final int[] methodCount = new int[1];
+		Properties job = new Properties();
+		Properties result = new Properties();
+		File resultFile;
+		try {
+			job = readJob(runningFile);
+			String classpath = getRequiredProperty(job, "classpath");
+			String output = getRequiredProperty(job, "output");
+			List<String> classes = splitList(getRequiredProperty(job, "classes"));
+
+			generator.setConfig(createConfig(job));
+			final IClassSummaryHandler writer = Main.createClassHandler(output,
+					Boolean.parseBoolean(job.getProperty("forceOverwrite")));
+			ClassSummaries summaries = generator.createMethodSummaries(classpath,
+					classes, new IClassSummaryHandler() {
+
+				@Override
+				public boolean onBeforeAnalyzeClass(String className) {
+					return writer.onBeforeAnalyzeClass(className);
+				}
+
+				@Override
+				public void onMethodFinished(String methodSignature,
+						MethodSummaries summaries) {
+					methodCount[0]++;
+					writer.onMethodFinished(methodSignature, summaries);
+				}
+
+				@Override
+				public void onClassFinished(String className,
+						MethodSummaries summaries) {
+					writer.onClassFinished(className, summaries);
+				}
+
+			});
+			Main.writeManifest(output);
+
+			double seconds = (System.nanoTime() - nanosBeforeJob) / 1E9;
+			result.setProperty("result.classes", Integer.toString(summaries.getClasses().size()));
+			result.setProperty("result.methods", Integer.toString(methodCount[0]));
+			result.setProperty("result.flows", Integer.toString(summaries.getAllFlows().size()));
+			result.setProperty("result.seconds", Double.toString(seconds));
+			result.setProperty("result.methodsPerSecond", Double.toString(methodCount[0] / seconds));
+			System.out.println("Job " + jobName + " done in " + seconds + " seconds, "
+					+ methodCount[0] + " methods (" + (methodCount[0] / seconds)
+					+ " methods/s), " + jobCount + " jobs since startup");
+			resultFile = new File(spoolDir, jobName + DONE_EXTENSION);
+		}
+		catch (Throwable t) {
+			// A single broken job must not take down the daemon. This includes
+			// errors such as a stack overflow in the analysis.
+			StringWriter sw = new StringWriter();
+			t.printStackTrace(new PrintWriter(sw));
+			result.setProperty("result.error", sw.toString());
+			System.err.println("Job " + jobName + " failed: " + t.getMessage());
+			resultFile = new File(spoolDir, jobName + FAILED_EXTENSION);
+			
+			// The caches may be in an inconsistent state after an error
+			generator.close();
+		}
+		finally {
+			generator.setConfig(baseConfig);
+		}
+
+		// Write the job together with its results
+		job.putAll(result);
+		writeResult(jobName, job, runningFile, resultFile);
+	}
+	
+	/**
+	 * Reads the given job file
+	 * @param jobFile The job file to read
+	 * @return The properties of the job
+	 * @throws IOException Thrown if the job file could not be read
+	 */
+	private Properties readJob(File jobFile) throws IOException {
+		Properties job = new Properties();
+		InputStream in = new FileInputStream(jobFile);
+		try {
+			job.load(in);
+		}
+		finally {
+			in.close();
+		}
+		return job;
+	}
+	
+	/**
+	 * Writes the given job together with its results and removes the running
+	 * marker of the job
+	 * @param jobName The name of the job
+	 * @param job The job properties including the results
+	 * @param runningFile The file of the job while it was running
+	 * @param resultFile The file into which to write the job
+	 * @throws IOException Thrown if the result file could not be written
+	 */
+	private void writeResult(String jobName, Properties job, File runningFile,
+			File resultFile) throws IOException {
+		OutputStream out = new FileOutputStream(resultFile);
+		try {
+			job.store(out, "Summary generation job " + jobName);
+		}
+		finally {
+			out.close();
+		}
+		runningFile.delete();
+	}
+
+	/**
+	 * Creates the generator configuration for the given job
+	 * @param job The job for which to create the configuration
+	 * @return The generator configuration for the given job
+	 */
+	private SummaryGeneratorConfiguration createConfig(Properties job) {
+		SummaryGeneratorConfiguration config = new SummaryGeneratorConfiguration();
+		config.merge(baseConfig);
+
+		config.setLoadFullJAR(Boolean.parseBoolean(job.getProperty("loadFullJar")));
+		if (Boolean.parseBoolean(job.getProperty("aliasFlowIns")))
+			config.setFlowSensitiveAliasing(false);
+		if (Boolean.parseBoolean(job.getProperty("novalidate")))
+			config.setValidateResults(false);
+		if (job.getProperty("repeat") != null)
+			config.setRepeatCount(Integer.parseInt(job.getProperty("repeat").trim()));
+		if (job.getProperty("classDepth") != null)
+			config.setClassLoadingDepth(Integer.parseInt(job.getProperty("classDepth").trim()));
+		if (job.getProperty("adaptiveAP") != null)
+			config.setMinAccessPathLength(Integer.parseInt(job.getProperty("adaptiveAP").trim()));
+		if (job.getProperty("apTimeBudget") != null)
+			config.setAccessPathTimeBudget(Integer.parseInt(job.getProperty("apTimeBudget").trim()));
+		if (job.getProperty("propagationBudget") != null)
+			config.setPropagationBudget(Long.parseLong(job.getProperty("propagationBudget").trim()));
+		if (job.getProperty("exclude") != null)
+			config.setExcludes(new HashSet<>(splitList(job.getProperty("exclude"))));
+		return config;
+	}
+
+	private static String getRequiredProperty(Properties job, String key) {
+		String value = job.getProperty(key);
+		if (value == null || value.trim().isEmpty())
+			throw new RuntimeException("Job does not specify " + key);
+		return value.trim();
+	}
+
+	private static List<String> splitList(String value) {
+		List<String> list = new ArrayList<>();
+		for (String element : value.split("[\\s,]+"))
+			if (!element.isEmpty())
+				list.add(element);
+		return list;
+	}
+
+	/**
+	 * Prints information on how the summary daemon can be used
+	 */
+	private static void printUsage() {
+		System.out.println("FlowDroid Summary Generator Daemon (c) Secure Software Engineering Group @ EC SPRIDE");
+		System.out.println();
+		System.out.println("Incorrect arguments: [0] = spool folder, [1] = <optional arguments>");
+		System.out.println();
+		System.out.println("Supported optional arguments:");
+		System.out.println("\t--cache dir: Reuse unchanged method summaries from the given cache");
+		System.out.println("\t--cacheSize n: Limit the summary cache to n megabytes");
+		System.out.println("\t--bodyCache dir: Keep the Jimple bodies of library classes in the given directory");
+		System.out.println("\t--classDepth n: Only load classes reachable within n calls from the analyzed method");
+	}
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		if (args.length < 1 || args[0].startsWith("--")) {
+			printUsage();
+			return;
+		}
+
+		SummaryGenerator generator = new SummaryGeneratorFactory().initSummaryGenerator();
+		String cacheDir = null;
+		long cacheSize = -1;
+		for (int i = 1; i < args.length; i++) {
+			if (args[i].equalsIgnoreCase("--cache"))
+				cacheDir = args[++i];
+			else if (args[i].equalsIgnoreCase("--cacheSize"))
+				cacheSize = Long.parseLong(args[++i]) * 1024 * 1024;
+			else if (args[i].equalsIgnoreCase("--bodyCache"))
+				generator.setBodyCache(new JimpleBodyCache(new File(args[++i])));
+			else if (args[i].equalsIgnoreCase("--classDepth"))
+				generator.getConfig().setClassLoadingDepth(Integer.parseInt(args[++i]));
+			else {
+				System.err.println("Invalid command line argument: " + args[i]);
+				return;
+			}
+		}
+		if (cacheDir != null)
+			generator.setSummaryCache(cacheSize < 0 ? new SummaryCache(new File(cacheDir))
+					: new SummaryCache(new File(cacheDir), cacheSize));
+
+		final SummaryDaemon daemon = new SummaryDaemon(new File(args[0]), generator);
+		final Thread worker = Thread.currentThread();
+		Runtime.getRuntime().addShutdownHook(new Thread() {
+
+			@Override
+			public void run() {
+				// Let the current job finish and write its result before the
+				// VM goes down
+				daemon.stop();
+				try {
+					worker.join();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+
+		});
+		daemon.run();
+	}
+
+}
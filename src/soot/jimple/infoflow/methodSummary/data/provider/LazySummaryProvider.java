@@ -1,29 +1,42 @@
 package soot.jimple.infoflow.methodSummary.data.provider;
 
 import java.io.File;
-import java.util.Arrays;
-import java.util.Collections;
+import java.io.IOException;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+import javax.xml.stream.XMLStreamException;
+
+import soot.jimple.infoflow.collect.ConcurrentHashSet;
 import soot.jimple.infoflow.methodSummary.data.summary.ClassSummaries;
 import soot.jimple.infoflow.methodSummary.data.summary.MethodFlow;
 import soot.jimple.infoflow.methodSummary.data.summary.MethodSummaries;
+import soot.jimple.infoflow.methodSummary.xml.SummaryManifest;
 import soot.jimple.infoflow.methodSummary.xml.XMLReader;
 
 
 /**
- * This class loads method summary xml files on demand.
+ * This class loads method summary xml files on demand. If a directory
+ * contains a summary manifest, queries for methods without flows are answered
+ * from the manifest without parsing the summary files. Summary files that are
+ * not listed in the manifest or whose size or modification time have changed
+ * since the manifest was written are loaded as if there were no manifest. The
+ * checksum of a summary file is only verified when the file is parsed. All
+ * queries may be issued concurrently.
  *
  */
 public class LazySummaryProvider implements IMethodSummaryProvider {
 
 	private XMLReader reader;
 	private ClassSummaries summaries = new ClassSummaries();
-	private Set<String> supportedClasses = new HashSet<String>();
-	private Set<String> loadableClasses = new HashSet<String>();
-	private Set<File> files;
+	private Set<String> supportedClasses = new ConcurrentHashSet<String>();
+	private Set<String> loadableClasses = new ConcurrentHashSet<String>();
+	private Map<String, File> classToFile = new ConcurrentHashMap<String, File>();
+	private Map<String, SummaryManifest.ClassEntry> manifestEntries =
+			new ConcurrentHashMap<String, SummaryManifest.ClassEntry>();
 
 	/**
 	 * Loads a file or all files in a dir (not recursively)
@@ -33,52 +46,98 @@ public class LazySummaryProvider implements IMethodSummaryProvider {
 		if (!source.exists())
 			throw new RuntimeException("Source directory " + source + " does not exist");
 		
-		if (source.isFile())
-			files = Collections.singleton(source);
-		else if (source.isDirectory()) {
-			File[] filesInDir = source.listFiles();
-			if (filesInDir == null)
-				throw new RuntimeException("Could not get files in directory " + source);
-			files = new HashSet<File>(Arrays.asList(filesInDir));
-		}
-		else
-			throw new RuntimeException("Invalid input file: " + source);
-		
-		init();
+		this.reader = new XMLReader();
+		addSource(source);
 	}
 
 	public LazySummaryProvider(List<File> files) {
-		this.files = new HashSet<File>();
+		this.reader = new XMLReader();
 		for(File f : files) {
 			// Check if the file exists
 			if (!f.exists())
 				throw new RuntimeException("Input file does not exist: " + f);
+			addSource(f);
+		}
+	}
+	
+	/**
+	 * Registers the summary file or the summary files in the given directory
+	 * @param source The summary file or directory
+	 */
+	private void addSource(File source) {
+		if (source.isFile())
+			addFile(source);
+		else if (source.isDirectory()) {
+			// Prefer the manifest over parsing the summary files
+			SummaryManifest manifest;
+			Set<String> staleClasses = null;
+			try {
+				manifest = SummaryManifest.read(source);
+				if (manifest != null)
+					staleClasses = new HashSet<String>(manifest.getStaleClasses(source));
+			} catch (XMLStreamException | IOException e) {
+				System.err.println("Could not read summary manifest in " + source
+						+ ", falling back to directory listing: " + e.getMessage());
+				manifest = null;
+			}
 			
-			// Distinguish between files and directories
-			if (f.isFile())
-				this.files.add(f);
-			else if (f.isDirectory()) {
-				File[] filesInDir = f.listFiles();
-				if (filesInDir == null)
-					throw new RuntimeException("Could not get files in directory " + f);
-				files.addAll(Arrays.asList(filesInDir));
+			// Entries whose summary files have changed since the manifest was
+			// written cannot be trusted
+			Set<String> listedClasses = new HashSet<String>();
+			if (manifest != null) {
+				for (String className : manifest.getClasses()) {
+					if (staleClasses.contains(className))
+						continue;
+					SummaryManifest.ClassEntry entry = manifest.getClassEntry(className);
+					classToFile.put(className, new File(source, entry.getFileName()));
+					manifestEntries.put(className, entry);
+					loadableClasses.add(className);
+					listedClasses.add(className);
+				}
 			}
-			else
-				throw new RuntimeException("Invalid input file: " + f);
+			
+			// Files that are not in the manifest or that are stale are
+			// registered without the manifest information
+			File[] filesInDir = source.listFiles();
+			if (filesInDir == null)
+				throw new RuntimeException("Could not get files in directory " + source);
+			for (File f : filesInDir)
+				if (!XMLReader.isSummaryFile(f)
+						|| !listedClasses.contains(XMLReader.getClassName(f)))
+					addFile(f);
 		}
-		
-		init();
+		else
+			throw new RuntimeException("Invalid input file: " + source);
 	}
-
-	private void init() {
-		this.reader = new XMLReader();
-		for (File f : files) {
-			if (f.isFile() && f.getName().endsWith(".xml")) {
-				loadableClasses.add(f.getName().replace(".xml", ""));
-			}
+	
+	/**
+	 * Registers the given summary file
+	 * @param f The summary file
+	 */
+	private void addFile(File f) {
+		if (XMLReader.isSummaryFile(f)) {
+			String className = XMLReader.getClassName(f);
+			classToFile.put(className, f);
+			loadableClasses.add(className);
 		}
 	}
 	
+	/**
+	 * Checks whether the given method in the given class may have flows. If
+	 * the class is described by a manifest, this check does not require the
+	 * summary file to be parsed.
+	 * @param className The name of the class
+	 * @param methodSignature The subsignature of the method
+	 * @return False if it is known that the given method has no flows,
+	 * otherwise true
+	 */
+	public boolean mayHaveFlows(String className, String methodSignature) {
+		SummaryManifest.ClassEntry entry = manifestEntries.get(className);
+		if (entry != null)
+			return entry.getFlowCount(methodSignature) > 0;
+		return supportsClass(className);
+	}
+	
 	@Override
 	public boolean supportsClass(String clazz) {
 		if (supportedClasses.contains(clazz))
@@ -91,42 +150,59 @@ public class LazySummaryProvider implements IMethodSummaryProvider {
 	@Override
 	public ClassSummaries getMethodFlows(Set<String> classes, String methodSignature) {
 		for (String className : classes)
-			if (loadableClasses.contains(className))
+			if (loadableClasses.contains(className)
+					&& mayHaveFlows(className, methodSignature))
 				loadClass(className);
-		return summaries.filterForMethod(classes, methodSignature);
+		synchronized (this) {
+			return summaries.filterForMethod(classes, methodSignature);
+		}
 	}
 	
 	@Override
 	public Set<MethodFlow> getMethodFlows(String className, String methodSignature) {
-		if (loadableClasses.contains(className))
+		if (loadableClasses.contains(className)) {
+			if (!mayHaveFlows(className, methodSignature))
+				return null;
 			loadClass(className);
-		MethodSummaries classSummaries = summaries.getClassSummaries(className);
-		return classSummaries == null ? null
-				: classSummaries.getFlowsForMethod(methodSignature);
+		}
+		synchronized (this) {
+			MethodSummaries classSummaries = summaries.getClassSummaries(className);
+			return classSummaries == null ? null
+					: classSummaries.getFlowsForMethod(methodSignature);
+		}
 	}
 	
-	private void loadClass(String clazz) {
+	/**
+	 * Parses the summary file of the given class. The summary objects are not
+	 * thread-safe, so all accesses to them are synchronized on this provider.
+	 * @param clazz The name of the class to load
+	 */
+	private synchronized void loadClass(String clazz) {
 		// Do not load classes more than once
 		if (supportedClasses.contains(clazz))
 			return;
 		
-		for (File f : files) {
-			if (fileToClass(f).equals(clazz)) {
-				try {
-					summaries.merge(clazz, reader.read(f));
-					loadableClasses.remove(clazz);
-					supportedClasses.add(clazz);
-					break;
-				} catch (Exception e) {
-					e.printStackTrace();
+		File f = classToFile.get(clazz);
+		if (f != null) {
+			try {
+				// The manifest data is only checked cheaply at startup, so we
+				// verify the checksum now that we read the file anyway
+				SummaryManifest.ClassEntry entry = manifestEntries.get(clazz);
+				if (entry != null && !SummaryManifest.computeChecksum(f).equals(
+						entry.getChecksum())) {
+					System.err.println("Summary file " + f + " does not match the "
+							+ "manifest, ignoring the manifest entry");
+					manifestEntries.remove(clazz);
 				}
+				
+				summaries.merge(clazz, reader.read(f));
+				loadableClasses.remove(clazz);
+				supportedClasses.add(clazz);
+			} catch (Exception e) {
+				e.printStackTrace();
 			}
 		}
 	}
-
-	private String fileToClass(File f) {
-		return f.getName().replace(".xml", "");
-	}
 	
 	@Override
 	public Set<String> getSupportedClasses() {
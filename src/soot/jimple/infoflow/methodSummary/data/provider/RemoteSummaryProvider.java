@@ -0,0 +1,165 @@
+package soot.jimple.infoflow.methodSummary.data.provider;
+
+import heros.solver.Pair;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import soot.jimple.infoflow.methodSummary.data.summary.ClassSummaries;
+import soot.jimple.infoflow.methodSummary.data.summary.MethodFlow;
+import soot.jimple.infoflow.methodSummary.data.summary.MethodSummaries;
+import soot.jimple.infoflow.methodSummary.server.SummaryProtocol;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Provider class that obtains method summaries from a summary server running
+ * on the local machine. Recent query results are kept in a small near-cache
+ * so that repeated queries do not hit the server.
+ *
+ * @author Steven Arzt
+ *
+ */
+public class RemoteSummaryProvider implements IMethodSummaryProvider {
+
+	private static final int DEFAULT_CACHE_SIZE = 1000;
+
+	private final Socket socket;
+	private final SummaryProtocol protocol;
+	private final Set<String> loadableClasses;
+
+	private final Cache<Pair<Set<String>, String>, ClassSummaries> nearCache;
+
+	/**
+	 * Creates a new instance of the RemoteSummaryProvider class and connects
+	 * to the summary server on the given port
+	 * @param port The port on which the summary server listens
+	 * @throws IOException Thrown if the connection to the server failed
+	 */
+	public RemoteSummaryProvider(int port) throws IOException {
+		this(port, DEFAULT_CACHE_SIZE);
+	}
+
+	/**
+	 * Creates a new instance of the RemoteSummaryProvider class and connects
+	 * to the summary server on the given port
+	 * @param port The port on which the summary server listens
+	 * @param cacheSize The maximum number of query results to keep in the
+	 * near-cache
+	 * @throws IOException Thrown if the connection to the server failed
+	 */
+	public RemoteSummaryProvider(int port, int cacheSize) throws IOException {
+		this.nearCache = CacheBuilder.newBuilder().maximumSize(cacheSize).build();
+
+		this.socket = new Socket(InetAddress.getLoopbackAddress(), port);
+		this.socket.setTcpNoDelay(true);
+		this.protocol = new SummaryProtocol(socket.getInputStream(),
+				socket.getOutputStream());
+
+		// Version handshake
+		protocol.writeInt(SummaryProtocol.PROTOCOL_VERSION);
+		protocol.flush();
+		int serverVersion = protocol.readInt();
+		if (serverVersion != SummaryProtocol.PROTOCOL_VERSION) {
+			socket.close();
+			throw new RuntimeException("Summary server uses protocol version "
+					+ serverVersion + ", expected " + SummaryProtocol.PROTOCOL_VERSION);
+		}
+
+		// Get the classes for which the server has summaries
+		protocol.writeOpcode(SummaryProtocol.OP_GET_CLASSES);
+		protocol.flush();
+		this.loadableClasses = Collections.unmodifiableSet(protocol.readStrings());
+	}
+
+	@Override
+	public Set<String> getLoadableClasses() {
+		return loadableClasses;
+	}
+
+	@Override
+	public Set<String> getSupportedClasses() {
+		return Collections.emptySet();
+	}
+
+	@Override
+	public boolean supportsClass(String clazz) {
+		return loadableClasses.contains(clazz);
+	}
+
+	@Override
+	public Set<MethodFlow> getMethodFlows(String className,
+			String methodSubSignature) {
+		if (!loadableClasses.contains(className))
+			return null;
+		MethodSummaries classSummaries = getMethodFlows(Collections.singleton(className),
+				methodSubSignature).getClassSummaries(className);
+		if (classSummaries == null)
+			return Collections.emptySet();
+		return classSummaries.getFlowsForMethod(methodSubSignature);
+	}
+
+	@Override
+	public ClassSummaries getMethodFlows(Set<String> classes,
+			String methodSignature) {
+		// Only ask the server for classes it actually has
+		Set<String> remoteClasses = new HashSet<>();
+		for (String className : classes)
+			if (loadableClasses.contains(className))
+				remoteClasses.add(className);
+		if (remoteClasses.isEmpty())
+			return new ClassSummaries();
+
+		Pair<Set<String>, String> key = new Pair<Set<String>, String>(remoteClasses,
+				methodSignature);
+		ClassSummaries summaries = nearCache.getIfPresent(key);
+		if (summaries == null) {
+			summaries = query(remoteClasses, methodSignature);
+			nearCache.put(key, summaries);
+		}
+		return summaries;
+	}
+
+	/**
+	 * Asks the server for the flows of the given method in the given classes
+	 * @param classes The classes in which to look for flow summaries
+	 * @param methodSignature The signature of the method for which to get the
+	 * flow summaries
+	 * @return The flow summaries returned by the server
+	 */
+	private synchronized ClassSummaries query(Set<String> classes,
+			String methodSignature) {
+		try {
+			protocol.writeOpcode(SummaryProtocol.OP_GET_METHOD_FLOWS);
+			protocol.writeStrings(classes);
+			protocol.writeString(methodSignature);
+			protocol.flush();
+
+			protocol.beginResponse();
+			return protocol.readClassSummaries();
+		} catch (IOException e) {
+			throw new RuntimeException("Could not query summary server", e);
+		}
+	}
+
+	/**
+	 * Closes the connection to the summary server
+	 */
+	public synchronized void close() {
+		try {
+			if (!socket.isClosed()) {
+				protocol.writeOpcode(SummaryProtocol.OP_CLOSE);
+				protocol.flush();
+				socket.close();
+			}
+		} catch (IOException e) {
+			// ignore, we are done with the server anyway
+		}
+	}
+
+}
@@ -13,6 +13,13 @@ import java.util.Set;
  */
 public class ClassSummaries {
 	
+	/**
+	 * Suffix that marks the union summaries of an interface or abstract class.
+	 * A union summary contains the flows of all implementors for the methods
+	 * declared in the interface or abstract class.
+	 */
+	public static final String UNION_SUFFIX = "#union";
+	
 	private final Map<String, MethodSummaries> summaries = new HashMap<>();
 	private final Set<String> dependencies = new HashSet<>();
 	
@@ -45,6 +52,34 @@ public class ClassSummaries {
 		return flows;
 	}
 	
+	/**
+	 * Gets a bit mask of the call positions at which a flow in the method with
+	 * the given signature can start in any of the classes
+	 * @param signature The signature of the method
+	 * @return The bit mask of possible flow sources
+	 * @see MethodSummaries#getSourcePositionMask(String)
+	 */
+	public long getSourcePositionMask(String signature) {
+		long mask = 0;
+		for (MethodSummaries methodSum : summaries.values())
+			mask |= methodSum.getSourcePositionMask(signature);
+		return mask;
+	}
+	
+	/**
+	 * Gets a bit mask of the call positions at which an alias flow in the
+	 * method with the given signature can end in any of the classes
+	 * @param signature The signature of the method
+	 * @return The bit mask of possible alias flow sinks
+	 * @see MethodSummaries#getAliasSinkPositionMask(String)
+	 */
+	public long getAliasSinkPositionMask(String signature) {
+		long mask = 0;
+		for (MethodSummaries methodSum : summaries.values())
+			mask |= methodSum.getAliasSinkPositionMask(signature);
+		return mask;
+	}
+	
 	/**
 	 * Gets all flows across all classes and methods
 	 * @return All flows registered in this data object
@@ -77,8 +112,19 @@ public class ClassSummaries {
 		ClassSummaries newSummaries = new ClassSummaries();
 		for (String className : classes) {
 			MethodSummaries methodSummaries = this.summaries.get(className);
-			if (methodSummaries != null && !methodSummaries.isEmpty())
+			if (methodSummaries != null && !methodSummaries.isEmpty()) {
 				newSummaries.merge(className, methodSummaries.getFlowsForMethod(signature));
+				
+				// Keep the metadata of the method as well
+				MethodSummaries filteredSummaries = newSummaries.getClassSummaries(className);
+				if (filteredSummaries != null) {
+					int accessPathLength = methodSummaries.getAccessPathLength(signature);
+					if (accessPathLength >= 0)
+						filteredSummaries.setAccessPathLength(signature, accessPathLength);
+					if (methodSummaries.isApproximated(signature))
+						filteredSummaries.markApproximated(signature);
+				}
+			}
 		}
 		return newSummaries;
 	}
@@ -187,6 +233,26 @@ public class ClassSummaries {
 		return this.dependencies;
 	}
 	
+	/**
+	 * Gets the name under which the union summaries of the given interface or
+	 * abstract class are stored
+	 * @param className The name of the interface or abstract class
+	 * @return The name of the union summaries
+	 */
+	public static String getUnionClassName(String className) {
+		return className + UNION_SUFFIX;
+	}
+	
+	/**
+	 * Checks whether the given name denotes union summaries instead of the
+	 * summaries of a real class
+	 * @param className The name to check
+	 * @return True if the given name denotes union summaries, otherwise false
+	 */
+	public static boolean isUnionClassName(String className) {
+		return className.endsWith(UNION_SUFFIX);
+	}
+	
 	/**
 	 * Clears all summaries from this data object
 	 */
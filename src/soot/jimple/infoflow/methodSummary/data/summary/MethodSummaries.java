@@ -12,6 +12,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import soot.Scene;
 import soot.SootMethod;
 import soot.jimple.infoflow.collect.ConcurrentHashSet;
+import soot.jimple.infoflow.methodSummary.data.sourceSink.AbstractFlowSinkSource;
 
 /**
  * Data class encapsulating a set of method summaries
@@ -20,9 +21,31 @@ import soot.jimple.infoflow.collect.ConcurrentHashSet;
  */
 public class MethodSummaries implements Iterable<MethodFlow> {
 	
+	/**
+	 * Position mask bit for the base object of a call
+	 */
+	public static final long POSITION_BASE = 1L;
+	/**
+	 * Position mask bit for the return value of a call
+	 */
+	public static final long POSITION_RETURN = 1L << 1;
+	/**
+	 * Position mask with all bits set. Bit 63 is never used by position masks.
+	 */
+	public static final long POSITION_ALL = Long.MAX_VALUE;
+	
+	private static final int POSITION_PARAM_OFFSET = 2;
+	private static final int POSITION_PARAM_MAX = 62;
+	
 	private final Map<String, Set<MethodFlow>> flows;
 	private final Map<Integer, GapDefinition> gaps;
 	
+	private final Map<String, Long> sourceMasks = new ConcurrentHashMap<>();
+	private final Map<String, Long> aliasSinkMasks = new ConcurrentHashMap<>();
+	
+	private final Map<String, Integer> accessPathLengths = new ConcurrentHashMap<>();
+	private final Set<String> approximatedMethods = new ConcurrentHashSet<>();
+	
 	public MethodSummaries() {
 		this(new ConcurrentHashMap<String, Set<MethodFlow>>());
 	}
@@ -66,6 +89,7 @@ public class MethodSummaries implements Iterable<MethodFlow> {
 	 * @param newFlows The new flows to be merged
 	 */
 	public void merge(Set<MethodFlow> newFlows) {
+		invalidatePositionMasks();
 		for (MethodFlow flow : newFlows) {
 			Set<MethodFlow> existingFlows = flows.get(flow.methodSig());
 			if (existingFlows == null) {
@@ -81,6 +105,7 @@ public class MethodSummaries implements Iterable<MethodFlow> {
 	 * @param newFlows The new flows to be merged
 	 */
 	public void merge(Map<String, Set<MethodFlow>> newFlows) {
+		invalidatePositionMasks();
 		for (String key : newFlows.keySet()) {
 			Set<MethodFlow> existingFlows = flows.get(key);
 			if (existingFlows != null)
@@ -97,6 +122,7 @@ public class MethodSummaries implements Iterable<MethodFlow> {
 	public void merge(MethodSummaries newFlows) {
 		if (newFlows == null)
 			return;
+		invalidatePositionMasks();
 		
 		// If some of the gaps have the same IDs as the old ones, we need to
 		// renumber the new ones or we'll overwrite data.
@@ -151,6 +177,18 @@ public class MethodSummaries implements Iterable<MethodFlow> {
 				gaps.put(replacedGap.getID(), replacedGap);
 			}
 		}
+		
+		mergeMetadata(newFlows);
+	}
+	
+	/**
+	 * Copies the recorded access path lengths and approximation markers of
+	 * the given summaries into this object. The flows are not copied.
+	 * @param summaries The summaries from which to copy the metadata
+	 */
+	public void mergeMetadata(MethodSummaries summaries) {
+		accessPathLengths.putAll(summaries.accessPathLengths);
+		approximatedMethods.addAll(summaries.approximatedMethods);
 	}
 	
 	/**
@@ -164,11 +202,55 @@ public class MethodSummaries implements Iterable<MethodFlow> {
 		return methFlows;
 	}
 	
+	/**
+	 * Records the maximum access path length with which the flows of the given
+	 * method were generated
+	 * @param methodSig The subsignature of the method
+	 * @param accessPathLength The maximum access path length used for the
+	 * given method
+	 */
+	public void setAccessPathLength(String methodSig, int accessPathLength) {
+		accessPathLengths.put(methodSig, accessPathLength);
+	}
+	
+	/**
+	 * Gets the maximum access path length with which the flows of the given
+	 * method were generated
+	 * @param methodSig The subsignature of the method
+	 * @return The maximum access path length used for the given method, or -1
+	 * if it has not been recorded
+	 */
+	public int getAccessPathLength(String methodSig) {
+		Integer accessPathLength = accessPathLengths.get(methodSig);
+		return accessPathLength == null ? -1 : accessPathLength;
+	}
+	
+	/**
+	 * Marks the flows of the given method as a coarse over-approximation
+	 * instead of the result of a complete analysis
+	 * @param methodSig The subsignature of the method
+	 */
+	public void markApproximated(String methodSig) {
+		approximatedMethods.add(methodSig);
+	}
+	
+	/**
+	 * Gets whether the flows of the given method are a coarse
+	 * over-approximation instead of the result of a complete analysis
+	 * @param methodSig The subsignature of the method
+	 * @return True if the flows of the given method are approximated,
+	 * otherwise false
+	 */
+	public boolean isApproximated(String methodSig) {
+		return approximatedMethods.contains(methodSig);
+	}
+	
 	/**
 	 * Adds a new flow for a method to this summary object
 	 * @param flow The flow to add
 	 */
 	public boolean addFlow(MethodFlow flow) {
+		invalidatePositionMasks();
 		Set<MethodFlow> methodFlows = flows.get(flow.methodSig());
 		if (methodFlows == null) {
 			methodFlows = new ConcurrentHashSet<MethodFlow>();
@@ -255,6 +337,7 @@ public class MethodSummaries implements Iterable<MethodFlow> {
 
 			@Override
 			public void remove() {
+				invalidatePositionMasks();
 				curMethodIt.remove();
 				if (flows.get(curMethod).isEmpty()) {
 					flowIt.remove();
@@ -322,10 +405,13 @@ public class MethodSummaries implements Iterable<MethodFlow> {
 	 * Clears all flows from this method summary
 	 */
 	public void clear() {
+		invalidatePositionMasks();
 		if (this.flows != null)
 			this.flows.clear();
 		if (this.gaps != null)
 			this.gaps.clear();
+		this.accessPathLengths.clear();
+		this.approximatedMethods.clear();
 	}
 	
 	/**
@@ -449,6 +535,7 @@ public class MethodSummaries implements Iterable<MethodFlow> {
 	 * @param toRemove The flow summary to remove
 	 */
 	public void remove(MethodFlow toRemove) {
+		invalidatePositionMasks();
 		Set<MethodFlow> flowsForMethod = flows.get(toRemove.methodSig());
 		if (flowsForMethod != null) {
 			flowsForMethod.remove(toRemove);
@@ -478,4 +565,89 @@ public class MethodSummaries implements Iterable<MethodFlow> {
 		return this.flows == null || this.flows.isEmpty();
 	}
 	
+	/**
+	 * Gets the position mask bit for the given parameter index. Parameters
+	 * beyond the capacity of the mask share the highest bit.
+	 * @param paramIdx The index of the parameter
+	 * @return The position mask bit for the given parameter
+	 */
+	public static long getParameterPosition(int paramIdx) {
+		return 1L << Math.min(paramIdx + POSITION_PARAM_OFFSET, POSITION_PARAM_MAX);
+	}
+	
+	/**
+	 * Gets the position mask bits at which the given source or sink is
+	 * located in a call
+	 * @param sourceSink The source or sink definition
+	 * @return The position mask bits of the given source or sink
+	 */
+	private static long getPosition(AbstractFlowSinkSource sourceSink) {
+		switch (sourceSink.getType()) {
+		case Parameter:
+			return getParameterPosition(sourceSink.getParameterIndex());
+		case Field:
+		case GapBaseObject:
+			return POSITION_BASE;
+		case Return:
+			return POSITION_RETURN;
+		default:
+			return POSITION_ALL;
+		}
+	}
+	
+	/**
+	 * Gets a bit mask of the call positions (parameters, base object, return
+	 * value) at which a flow in the given method can start. Flows that start
+	 * inside a gap are not considered, because a taint at the call site can
+	 * never match them directly.
+	 * @param methodSig The signature of the method
+	 * @return The bit mask of possible flow sources in the given method, 0 if
+	 * there is no such flow
+	 */
+	public long getSourcePositionMask(String methodSig) {
+		Long mask = sourceMasks.get(methodSig);
+		if (mask == null) {
+			long m = 0;
+			Set<MethodFlow> methodFlows = flows.get(methodSig);
+			if (methodFlows != null)
+				for (MethodFlow flow : methodFlows)
+					if (flow.source().getGap() == null)
+						m |= getPosition(flow.source());
+			mask = m;
+			sourceMasks.put(methodSig, mask);
+		}
+		return mask;
+	}
+	
+	/**
+	 * Gets a bit mask of the call positions at which an alias flow in the
+	 * given method can end. These are the positions from which an alias
+	 * query can apply the flow in reverse.
+	 * @param methodSig The signature of the method
+	 * @return The bit mask of possible alias flow sinks in the given method, 0
+	 * if there is no such flow
+	 */
+	public long getAliasSinkPositionMask(String methodSig) {
+		Long mask = aliasSinkMasks.get(methodSig);
+		if (mask == null) {
+			long m = 0;
+			Set<MethodFlow> methodFlows = flows.get(methodSig);
+			if (methodFlows != null)
+				for (MethodFlow flow : methodFlows)
+					if (flow.isAlias() && flow.sink().getGap() == null)
+						m |= getPosition(flow.sink());
+			mask = m;
+			aliasSinkMasks.put(methodSig, mask);
+		}
+		return mask;
+	}
+	
+	/**
+	 * Discards the cached position masks after the flows have changed
+	 */
+	private void invalidatePositionMasks() {
+		sourceMasks.clear();
+		aliasSinkMasks.clear();
+	}
+	
 }
@@ -0,0 +1,558 @@
+package soot.jimple.infoflow.methodSummary.generator;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Computes the classes that a method can reach, directly on the class files
+ * and without loading anything into Soot. Starting at the target method, all
+ * methods that are called up to a given call depth are scanned. The result
+ * contains the classes declaring these methods and all classes they
+ * reference.
+ *
+ * Calls are resolved against the declared target and its superclasses.
+ * Overriding methods in subclasses that are not referenced otherwise are not
+ * part of the result.
+ *
+ * @author Steven Arzt
+ *
+ */
+public class ClassDependencyAnalysis {
+
+	private static final String CONSTRUCTOR_NAME = "<init>";
+	private static final String STATIC_INITIALIZER_NAME = "<clinit>";
+
+	private static final int CONSTANT_UTF8 = 1;
+	private static final int CONSTANT_CLASS = 7;
+	private static final int CONSTANT_FIELDREF = 9;
+	private static final int CONSTANT_METHODREF = 10;
+	private static final int CONSTANT_INTERFACE_METHODREF = 11;
+	private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+	private final ClassFileReader reader;
+
+	/**
+	 * Parsed class files. Classes that are not on the classpath map to null.
+	 */
+	private final Map<String, ClassInfo> classes = new HashMap<>();
+
+	/**
+	 * The relevant parts of a class file
+	 */
+	private static class ClassInfo {
+
+		private String superClass;
+		private final Map<String, MethodInfo> methods = new HashMap<>();
+
+		private String getSuperClass() {
+			return superClass;
+		}
+
+	}
+
+	/**
+	 * The classes and methods referenced from the code of a method
+	 */
+	private static class MethodInfo {
+
+		private final String name;
+		private final Set<String> referencedClasses = new HashSet<>();
+		private final Set<MethodRef> calledMethods = new HashSet<>();
+
+		public MethodInfo(String name) {
+			this.name = name;
+		}
+
+	}
+
+	/**
+	 * Reference to a method in a class
+	 */
+	private static class MethodRef {
+
+		private final String className;
+		private final String subSignature;
+
+		public MethodRef(String className, String subSignature) {
+			this.className = className;
+			this.subSignature = subSignature;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * className.hashCode() + subSignature.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (obj == null || getClass() != obj.getClass())
+				return false;
+			MethodRef other = (MethodRef) obj;
+			return className.equals(other.className)
+					&& subSignature.equals(other.subSignature);
+		}
+
+	}
+
+	/**
+	 * Creates a new instance of the ClassDependencyAnalysis class
+	 * @param classpath The classpath from which to read the class files
+	 */
+	public ClassDependencyAnalysis(String classpath) {
+		try {
+			this.reader = new ClassFileReader(classpath);
+		}
+		catch (IOException e) {
+			throw new RuntimeException("Could not open classpath " + classpath, e);
+		}
+	}
+
+	/**
+	 * Checks whether this analysis can still be used for the given classpath
+	 * @param classpath The classpath from which to read the class files
+	 * @return True if this analysis was created for the given classpath and
+	 * none of the class files it has read has changed since, otherwise false
+	 */
+	public boolean isValidFor(String classpath) {
+		return classpath.equals(reader.getClasspath()) && reader.isUpToDate();
+	}
+
+	/**
+	 * Gets the classes that are required for analyzing the given method
+	 * @param methodSig The signature of the method to analyze
+	 * @param entryClasses Additional classes that are instantiated by the
+	 * entry point. The constructors of these classes are analyzed as well.
+	 * @param maxDepth The maximum call depth up to which to scan the called
+	 * methods. With a depth of 0, only the classes referenced by the target
+	 * method itself are returned.
+	 * @return The names of all classes that are required for analyzing the
+	 * given method
+	 */
+	public synchronized Set<String> getRequiredClasses(String methodSig,
+			Collection<String> entryClasses, int maxDepth) {
+		String className = methodSig.substring(1, methodSig.indexOf(":"));
+		String subSig = methodSig.substring(methodSig.indexOf(":") + 2,
+				methodSig.length() - 1);
+
+		Set<String> requiredClasses = new TreeSet<>();
+		Set<MethodRef> doneMethods = new HashSet<>();
+		List<MethodRef> workList = new ArrayList<>();
+		List<MethodRef> nextWorkList = new ArrayList<>();
+
+		workList.add(new MethodRef(className, subSig));
+		Set<String> rootClasses = new HashSet<>(entryClasses);
+		rootClasses.add(className);
+		for (String rootClass : rootClasses) {
+			requiredClasses.add(rootClass);
+			ClassInfo ci = getClassInfo(rootClass);
+			if (ci != null)
+				for (String methodSubSig : ci.methods.keySet())
+					if (ci.methods.get(methodSubSig).name.equals(CONSTRUCTOR_NAME)
+							|| ci.methods.get(methodSubSig).name.equals(STATIC_INITIALIZER_NAME))
+						workList.add(new MethodRef(rootClass, methodSubSig));
+		}
+
+		for (int depth = 0; depth <= maxDepth && !workList.isEmpty(); depth++) {
+			for (MethodRef ref : workList) {
+				if (!doneMethods.add(ref))
+					continue;
+
+				// Find the class that actually declares the method
+				String declaringClass = ref.className;
+				MethodInfo mi = null;
+				while (declaringClass != null) {
+					ClassInfo ci = getClassInfo(declaringClass);
+					if (ci == null)
+						break;
+					mi = ci.methods.get(ref.subSignature);
+					if (mi != null)
+						break;
+					declaringClass = ci.getSuperClass();
+				}
+				if (mi == null)
+					continue;
+
+				requiredClasses.add(declaringClass);
+				for (String refClass : mi.referencedClasses)
+					if (requiredClasses.add(refClass))
+						nextWorkList.add(new MethodRef(refClass,
+								"void " + STATIC_INITIALIZER_NAME + "()"));
+				nextWorkList.addAll(mi.calledMethods);
+			}
+
+			workList = nextWorkList;
+			nextWorkList = new ArrayList<>();
+		}
+
+		// Soot needs the superclasses of all required classes anyway
+		for (String requiredClass : new ArrayList<>(requiredClasses)) {
+			ClassInfo ci = getClassInfo(requiredClass);
+			while (ci != null && ci.getSuperClass() != null) {
+				requiredClasses.add(ci.getSuperClass());
+				ci = getClassInfo(ci.getSuperClass());
+			}
+		}
+		return requiredClasses;
+	}
+
+	/**
+	 * Gets the packages of the given classes in the notation used by Soot's
+	 * include and exclude options, e.g. "java.util.*"
+	 * @param classNames The names of the classes
+	 * @return The packages of the given classes
+	 */
+	public static Set<String> getPackages(Collection<String> classNames) {
+		Set<String> packages = new TreeSet<>();
+		for (String className : classNames) {
+			int pos = className.lastIndexOf('.');
+			if (pos > 0)
+				packages.add(className.substring(0, pos) + ".*");
+		}
+		return packages;
+	}
+
+	private ClassInfo getClassInfo(String className) {
+		if (classes.containsKey(className))
+			return classes.get(className);
+
+		ClassInfo ci = null;
+		try {
+			byte[] classFile = reader.readClassFile(className);
+			if (classFile != null)
+				ci = parseClassFile(classFile);
+		}
+		catch (IOException e) {
+			System.err.println("Could not read class file of " + className + ": "
+					+ e.getMessage());
+		}
+		classes.put(className, ci);
+		return ci;
+	}
+
+	/**
+	 * Parses the given class file
+	 * @param classFile The contents of the class file
+	 * @return The relevant parts of the class file
+	 * @throws IOException Thrown if the class file is invalid
+	 */
+	private ClassInfo parseClassFile(byte[] classFile) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(classFile));
+		if (in.readInt() != 0xCAFEBABE)
+			throw new IOException("Invalid class file");
+		in.readUnsignedShort();		// minor version
+		in.readUnsignedShort();		// major version
+
+		// Read the constant pool
+		int poolSize = in.readUnsignedShort();
+		int[] tags = new int[poolSize];
+		int[] first = new int[poolSize];
+		int[] second = new int[poolSize];
+		String[] utf8 = new String[poolSize];
+		for (int i = 1; i < poolSize; i++) {
+			int tag = in.readUnsignedByte();
+			tags[i] = tag;
+			switch (tag) {
+			case CONSTANT_UTF8:
+				utf8[i] = in.readUTF();
+				break;
+			case CONSTANT_CLASS:
+				first[i] = in.readUnsignedShort();
+				break;
+			case CONSTANT_FIELDREF:
+			case CONSTANT_METHODREF:
+			case CONSTANT_INTERFACE_METHODREF:
+			case CONSTANT_NAME_AND_TYPE:
+				first[i] = in.readUnsignedShort();
+				second[i] = in.readUnsignedShort();
+				break;
+			case 8:		// String
+			case 16:	// MethodType
+			case 19:	// Module
+			case 20:	// Package
+				in.skipBytes(2);
+				break;
+			case 15:	// MethodHandle
+				in.skipBytes(3);
+				break;
+			case 3:		// Integer
+			case 4:		// Float
+			case 17:	// Dynamic
+			case 18:	// InvokeDynamic
+				in.skipBytes(4);
+				break;
+			case 5:		// Long
+			case 6:		// Double
+				in.skipBytes(8);
+				i++;
+				break;
+			default:
+				throw new IOException("Invalid constant pool tag " + tag);
+			}
+		}
+
+		ClassInfo ci = new ClassInfo();
+		in.readUnsignedShort();		// access flags
+		in.readUnsignedShort();		// this class
+		int superIdx = in.readUnsignedShort();
+		if (superIdx != 0)
+			ci.superClass = getClassName(utf8[first[superIdx]]);
+		in.skipBytes(2 * in.readUnsignedShort());	// interfaces
+
+		// Skip the fields
+		int fieldCount = in.readUnsignedShort();
+		for (int i = 0; i < fieldCount; i++) {
+			in.skipBytes(6);
+			skipAttributes(in);
+		}
+
+		// Read the methods
+		int methodCount = in.readUnsignedShort();
+		for (int i = 0; i < methodCount; i++) {
+			in.readUnsignedShort();		// access flags
+			String name = utf8[in.readUnsignedShort()];
+			String descriptor = utf8[in.readUnsignedShort()];
+			MethodInfo mi = new MethodInfo(name);
+			ci.methods.put(toSubSignature(name, descriptor), mi);
+
+			int attributeCount = in.readUnsignedShort();
+			for (int j = 0; j < attributeCount; j++) {
+				String attributeName = utf8[in.readUnsignedShort()];
+				int length = in.readInt();
+				if (!"Code".equals(attributeName)) {
+					in.skipBytes(length);
+					continue;
+				}
+
+				in.skipBytes(4);	// max stack, max locals
+				byte[] code = new byte[in.readInt()];
+				in.readFully(code);
+				in.skipBytes(length - 8 - code.length);
+				scanCode(code, mi, tags, first, second, utf8);
+			}
+		}
+		return ci;
+	}
+
+	private static void skipAttributes(DataInputStream in) throws IOException {
+		int attributeCount = in.readUnsignedShort();
+		for (int i = 0; i < attributeCount; i++) {
+			in.skipBytes(2);
+			in.skipBytes(in.readInt());
+		}
+	}
+
+	/**
+	 * Collects the classes and methods referenced by the given bytecode
+	 */
+	private void scanCode(byte[] code, MethodInfo mi, int[] tags, int[] first,
+			int[] second, String[] utf8) {
+		int pc = 0;
+		while (pc < code.length) {
+			int opcode = code[pc] & 0xff;
+			int length;
+			switch (opcode) {
+			case 0x12:	// ldc
+				addConstant(code[pc + 1] & 0xff, mi, tags, first, second, utf8);
+				length = 2;
+				break;
+			case 0x13:	// ldc_w
+			case 0xb2:	// getstatic
+			case 0xb3:	// putstatic
+			case 0xb4:	// getfield
+			case 0xb5:	// putfield
+			case 0xb6:	// invokevirtual
+			case 0xb7:	// invokespecial
+			case 0xb8:	// invokestatic
+			case 0xbb:	// new
+			case 0xbd:	// anewarray
+			case 0xc0:	// checkcast
+			case 0xc1:	// instanceof
+				addConstant(readU2(code, pc + 1), mi, tags, first, second, utf8);
+				length = 3;
+				break;
+			case 0xb9:	// invokeinterface
+				addConstant(readU2(code, pc + 1), mi, tags, first, second, utf8);
+				length = 5;
+				break;
+			case 0xc5:	// multianewarray
+				addConstant(readU2(code, pc + 1), mi, tags, first, second, utf8);
+				length = 4;
+				break;
+			case 0xaa: {	// tableswitch
+				int pos = pc + 1 + (3 - (pc % 4));
+				int low = readS4(code, pos + 4);
+				int high = readS4(code, pos + 8);
+				length = pos - pc + 12 + (high - low + 1) * 4;
+				break;
+			}
+			case 0xab: {	// lookupswitch
+				int pos = pc + 1 + (3 - (pc % 4));
+				int pairCount = readS4(code, pos + 4);
+				length = pos - pc + 8 + pairCount * 8;
+				break;
+			}
+			case 0xc4:	// wide
+				length = (code[pc + 1] & 0xff) == 0x84 ? 6 : 4;
+				break;
+			default:
+				length = getInstructionLength(opcode);
+				break;
+			}
+			pc += length;
+		}
+	}
+
+	/**
+	 * Gets the length of an instruction with a fixed length
+	 * @param opcode The opcode of the instruction
+	 * @return The length of the instruction in bytes
+	 */
+	private static int getInstructionLength(int opcode) {
+		if (opcode == 0x10 || (opcode >= 0x15 && opcode <= 0x19)
+				|| (opcode >= 0x36 && opcode <= 0x3a) || opcode == 0xa9
+				|| opcode == 0xbc)
+			return 2;	// bipush, loads, stores, ret, newarray
+		if (opcode == 0x11 || opcode == 0x14 || opcode == 0x84
+				|| (opcode >= 0x99 && opcode <= 0xa8)
+				|| opcode == 0xc6 || opcode == 0xc7)
+			return 3;	// sipush, ldc2_w, iinc, branches
+		if (opcode == 0xba || opcode == 0xc8 || opcode == 0xc9)
+			return 5;	// invokedynamic, goto_w, jsr_w
+		return 1;
+	}
+
+	/**
+	 * Records the class or member referenced by the given constant pool entry
+	 */
+	private void addConstant(int idx, MethodInfo mi, int[] tags, int[] first,
+			int[] second, String[] utf8) {
+		switch (tags[idx]) {
+		case CONSTANT_CLASS:
+			String className = getClassName(utf8[first[idx]]);
+			if (className != null)
+				mi.referencedClasses.add(className);
+			break;
+		case CONSTANT_FIELDREF:
+		case CONSTANT_METHODREF:
+		case CONSTANT_INTERFACE_METHODREF:
+			String owner = getClassName(utf8[first[first[idx]]]);
+			if (owner == null)
+				break;
+			mi.referencedClasses.add(owner);
+			if (tags[idx] != CONSTANT_FIELDREF) {
+				int nameAndType = second[idx];
+				mi.calledMethods.add(new MethodRef(owner, toSubSignature(
+						utf8[first[nameAndType]], utf8[second[nameAndType]])));
+			}
+			break;
+		}
+	}
+
+	private static int readU2(byte[] code, int pos) {
+		return ((code[pos] & 0xff) << 8) | (code[pos + 1] & 0xff);
+	}
+
+	private static int readS4(byte[] code, int pos) {
+		return ((code[pos] & 0xff) << 24) | ((code[pos + 1] & 0xff) << 16)
+				| ((code[pos + 2] & 0xff) << 8) | (code[pos + 3] & 0xff);
+	}
+
+	/**
+	 * Converts an internal class name into a Java class name. Arrays are
+	 * mapped to their element type.
+	 * @param internalName The internal class name, e.g. "java/lang/String"
+	 * @return The Java class name, or null for arrays of primitive types
+	 */
+	private static String getClassName(String internalName) {
+		int dim = 0;
+		while (internalName.charAt(dim) == '[')
+			dim++;
+		if (dim == 0)
+			return internalName.replace('/', '.');
+		if (internalName.charAt(dim) != 'L')
+			return null;
+		return internalName.substring(dim + 1, internalName.length() - 1).replace('/', '.');
+	}
+
+	/**
+	 * Converts a method name and a JVM descriptor into a Soot sub-signature
+	 * @param name The name of the method
+	 * @param descriptor The descriptor of the method, e.g.
+	 * "(Ljava/lang/String;I)V"
+	 * @return The sub-signature, e.g. "void foo(java.lang.String,int)"
+	 */
+	static String toSubSignature(String name, String descriptor) {
+		StringBuilder params = new StringBuilder();
+		int pos = 1;
+		while (descriptor.charAt(pos) != ')') {
+			if (pos > 1)
+				params.append(',');
+			pos = appendType(descriptor, pos, params);
+		}
+
+		StringBuilder sb = new StringBuilder();
+		appendType(descriptor, pos + 1, sb);
+		sb.append(' ').append(name).append('(').append(params).append(')');
+		return sb.toString();
+	}
+
+	/**
+	 * Appends the Java notation of the type at the given position of a
+	 * descriptor
+	 * @return The position after the type
+	 */
+	private static int appendType(String descriptor, int pos, StringBuilder sb) {
+		int dim = 0;
+		while (descriptor.charAt(pos) == '[') {
+			dim++;
+			pos++;
+		}
+
+		char c = descriptor.charAt(pos);
+		if (c == 'L') {
+			int end = descriptor.indexOf(';', pos);
+			sb.append(descriptor.substring(pos + 1, end).replace('/', '.'));
+			pos = end + 1;
+		}
+		else {
+			switch (c) {
+			case 'B': sb.append("byte"); break;
+			case 'C': sb.append("char"); break;
+			case 'D': sb.append("double"); break;
+			case 'F': sb.append("float"); break;
+			case 'I': sb.append("int"); break;
+			case 'J': sb.append("long"); break;
+			case 'S': sb.append("short"); break;
+			case 'Z': sb.append("boolean"); break;
+			case 'V': sb.append("void"); break;
+			default:
+				throw new RuntimeException("Invalid descriptor " + descriptor);
+			}
+			pos++;
+		}
+
+		for (int i = 0; i < dim; i++)
+			sb.append("[]");
+		return pos;
+	}
+
+	/**
+	 * Closes the classpath and releases the parsed class files
+	 */
+	public synchronized void close() {
+		classes.clear();
+		reader.close();
+	}
+
+}
@@ -0,0 +1,157 @@
+package soot.jimple.infoflow.methodSummary.generator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Reads class files directly from a classpath without going through Soot
+ *
+ * @author Steven Arzt
+ *
+ */
+public class ClassFileReader {
+
+	private String classpath;
+	private final Set<String> entries = new HashSet<>();
+	private final List<ZipFile> jarFiles = new ArrayList<>();
+	private final List<File> classDirs = new ArrayList<>();
+	private final Map<File, Long> timestamps = new HashMap<>();
+
+	/**
+	 * Creates a new instance of the ClassFileReader class and opens all
+	 * entries of the given classpath
+	 * @param classpath The classpath from which to read the class files
+	 * @throws IOException Thrown if a JAR file on the classpath could not be
+	 * opened
+	 */
+	public ClassFileReader(String classpath) throws IOException {
+		this.classpath = classpath;
+		openEntries(classpath);
+	}
+	
+	/**
+	 * Opens the entries of the given classpath that this reader does not know
+	 * yet. Classes are still looked up in the original classpath first.
+	 * @param classpath The additional classpath entries
+	 * @throws IOException Thrown if a JAR file on the classpath could not be
+	 * opened
+	 */
+	public synchronized void addClasspath(String classpath) throws IOException {
+		if (openEntries(classpath))
+			this.classpath = this.classpath + File.pathSeparator + classpath;
+	}
+	
+	/**
+	 * Opens all entries of the given classpath that have not been opened before
+	 * @param classpath The classpath to open
+	 * @return True if at least one new entry was opened, otherwise false
+	 * @throws IOException Thrown if a JAR file on the classpath could not be
+	 * opened
+	 */
+	private boolean openEntries(String classpath) throws IOException {
+		boolean added = false;
+		for (String entry : classpath.split(File.pathSeparator)) {
+			File f = new File(entry);
+			if (!entries.add(f.getAbsolutePath()))
+				continue;
+			if (f.isDirectory())
+				classDirs.add(f);
+			else if (f.exists()) {
+				jarFiles.add(new ZipFile(f));
+				timestamps.put(f, f.lastModified());
+			}
+			added = true;
+		}
+		return added;
+	}
+
+	/**
+	 * Reads the class file of the given class from the classpath
+	 * @param className The name of the class to read
+	 * @return The contents of the class file, or null if the class is not on
+	 * the classpath
+	 * @throws IOException Thrown if the class file could not be read
+	 */
+	public synchronized byte[] readClassFile(String className) throws IOException {
+		String fileName = className.replace('.', '/') + ".class";
+		for (File dir : classDirs) {
+			File f = new File(dir, fileName);
+			if (f.exists()) {
+				timestamps.put(f, f.lastModified());
+				return readFully(new FileInputStream(f));
+			}
+		}
+		for (ZipFile jar : jarFiles) {
+			ZipEntry entry = jar.getEntry(fileName);
+			if (entry != null)
+				return readFully(jar.getInputStream(entry));
+		}
+		return null;
+	}
+
+	private static byte[] readFully(InputStream in) throws IOException {
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			int len;
+			while ((len = in.read(buffer)) > 0)
+				out.write(buffer, 0, len);
+			return out.toByteArray();
+		}
+		finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Checks whether the JAR files on the classpath and the class files read
+	 * from directories are still the same as when they were opened or read.
+	 * Components that keep information about the class files across runs
+	 * must reopen the classpath if this is not the case.
+	 * @return True if none of the opened files has been modified, otherwise
+	 * false
+	 */
+	public synchronized boolean isUpToDate() {
+		for (Entry<File, Long> entry : timestamps.entrySet())
+			if (entry.getKey().lastModified() != entry.getValue())
+				return false;
+		return true;
+	}
+
+	/**
+	 * Gets the classpath from which this reader loads the class files
+	 * @return The classpath of this reader
+	 */
+	public synchronized String getClasspath() {
+		return classpath;
+	}
+
+	/**
+	 * Closes all JAR files opened by this reader
+	 */
+	public synchronized void close() {
+		for (ZipFile jar : jarFiles)
+			try {
+				jar.close();
+			} catch (IOException e) {
+				// ignore
+			}
+		jarFiles.clear();
+		classDirs.clear();
+		entries.clear();
+		timestamps.clear();
+	}
+
+}
@@ -1,10 +1,10 @@
 package soot.jimple.infoflow.methodSummary.generator;
 
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import soot.Local;
 import soot.SootMethod;
@@ -13,6 +13,7 @@ import soot.jimple.DefinitionStmt;
 import soot.jimple.InstanceInvokeExpr;
 import soot.jimple.InvokeExpr;
 import soot.jimple.Stmt;
+import soot.jimple.infoflow.collect.ConcurrentHashSet;
 import soot.jimple.infoflow.data.Abstraction;
 import soot.jimple.infoflow.methodSummary.data.summary.GapDefinition;
 import soot.jimple.infoflow.methodSummary.data.summary.MethodSummaries;
@@ -20,14 +21,17 @@ import soot.jimple.infoflow.solver.cfg.IInfoflowCFG;
 
 /**
  * Class that manages the creation of gaps during the taint propagation and the
- * summary generation
+ * summary generation. The gap manager is scoped to the analysis of a single
+ * method, call {@link #reset()} before reusing it for the next method.
  * 
  * @author Steven Arzt
  *
  */
 public class GapManager {
 
-	private final Map<Stmt, GapDefinition> gaps = new HashMap<Stmt, GapDefinition>();
+	private final Map<Stmt, GapDefinition> gaps = new ConcurrentHashMap<Stmt, GapDefinition>();
+	private final Map<Local, Set<GapDefinition>> localUses = new ConcurrentHashMap<Local, Set<GapDefinition>>();
+	private final Map<Local, Set<GapDefinition>> localDefs = new ConcurrentHashMap<Local, Set<GapDefinition>>();
 	private int lastGapID = 0;
 	
 	/**
@@ -48,9 +52,54 @@ public class GapManager {
 			gd = flows.getOrCreateGap(lastGapID++,
 					gapCall.getInvokeExpr().getMethod().getSignature());
 			this.gaps.put(gapCall, gd);
+			indexGap(gapCall, gd);
 		}
 		return gd;
 	}
+	
+	/**
+	 * Registers the locals used and defined by the given gap call in the
+	 * lookup indices
+	 * @param gapCall The call into the gap method
+	 * @param gd The gap definition created for the given call
+	 */
+	private void indexGap(Stmt gapCall, GapDefinition gd) {
+		for (ValueBox vb : gapCall.getUseBoxes())
+			if (vb.getValue() instanceof Local)
+				addToIndex(localUses, (Local) vb.getValue(), gd);
+		if (gapCall instanceof DefinitionStmt) {
+			DefinitionStmt defStmt = (DefinitionStmt) gapCall;
+			if (defStmt.getLeftOp() instanceof Local)
+				addToIndex(localDefs, (Local) defStmt.getLeftOp(), gd);
+		}
+	}
+	
+	/**
+	 * Adds the given gap to the set of gaps referencing the given local
+	 * @param index The index to which to add the gap
+	 * @param local The local that is referenced by the gap
+	 * @param gd The gap definition to add
+	 */
+	private void addToIndex(Map<Local, Set<GapDefinition>> index, Local local,
+			GapDefinition gd) {
+		Set<GapDefinition> gapsForLocal = index.get(local);
+		if (gapsForLocal == null) {
+			gapsForLocal = new ConcurrentHashSet<GapDefinition>();
+			index.put(local, gapsForLocal);
+		}
+		gapsForLocal.add(gd);
+	}
+	
+	/**
+	 * Clears all gaps and local references recorded so far. Gap IDs are not
+	 * reused, so that summaries of different methods can still be merged
+	 * without renumbering their gaps.
+	 */
+	public synchronized void reset() {
+		this.gaps.clear();
+		this.localUses.clear();
+		this.localDefs.clear();
+	}
 
 	/**
 	 * Gets the data object of the given call into a gap method
@@ -69,16 +118,8 @@ public class GapManager {
 	 * @return True if the given local is referenced in at least one gap,
 	 * otherwise false
 	 */
-	public synchronized boolean isLocalReferencedInGap(Local local) {
-		for (Stmt stmt : gaps.keySet()) {
-			for (ValueBox vb : stmt.getUseBoxes())
-				if (vb.getValue() == local)
-					return true;
-			if (stmt instanceof DefinitionStmt)
-				if (((DefinitionStmt) stmt).getLeftOp() == local)
-					return true;
-		}
-		return false;
+	public boolean isLocalReferencedInGap(Local local) {
+		return localUses.containsKey(local) || localDefs.containsKey(local);
 	}
 	
 	/**
@@ -88,17 +129,8 @@ public class GapManager {
 	 * @return The gaps that reference the given local
 	 */
 	public Set<GapDefinition> getGapDefinitionsForLocalUse(Local local) {
-		Set<GapDefinition> res = null;
-		stmt : for (Stmt stmt : gaps.keySet()) {
-			for (ValueBox vb : stmt.getUseBoxes())
-				if (vb.getValue() == local) {
-					if (res == null)
-						res = new HashSet<>();
-					res.add(gaps.get(stmt));
-					continue stmt;
-				}
-		}
-		return res;
+		Set<GapDefinition> res = localUses.get(local);
+		return res == null ? null : Collections.unmodifiableSet(res);
  	}
 	
 	/**
@@ -107,17 +139,8 @@ public class GapManager {
 	 * @return The gaps that reference the given local
 	 */
 	public Set<GapDefinition> getGapDefinitionsForLocalDef(Local local) {
-		Set<GapDefinition> res = null;
-		stmt : for (Stmt stmt : gaps.keySet()) {
-			if (stmt instanceof DefinitionStmt)
-				if (((DefinitionStmt) stmt).getLeftOp() == local) {
-					if (res == null)
-						res = new HashSet<>();
-					res.add(gaps.get(stmt));
-					continue stmt;
-				}
-		}
-		return res;
+		Set<GapDefinition> res = localDefs.get(local);
+		return res == null ? null : Collections.unmodifiableSet(res);
  	}
 	
 	/**
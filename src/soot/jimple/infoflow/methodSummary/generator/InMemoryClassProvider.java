@@ -0,0 +1,148 @@
+package soot.jimple.infoflow.methodSummary.generator;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import soot.ClassProvider;
+import soot.ClassSource;
+import soot.JimpleClassProvider;
+import soot.Scene;
+import soot.SourceLocator;
+import soot.asm.AsmClassProvider;
+import soot.asm.InMemoryAsmClassSource;
+import soot.options.Options;
+
+/**
+ * Soot class provider that keeps the class files of the classpath in memory.
+ * Soot is reset for every method under summarization and would otherwise
+ * reopen the JAR files, parse their central directories and inflate the same
+ * class files again in every run. This provider opens the classpath once and
+ * keeps every class file it has served. This includes the library classes
+ * on Soot's classpath such as rt.jar or android.jar.
+ *
+ * Class files are translated with ASM, just like the classes that are not
+ * on the classpath of this provider and that are passed on to Soot's default
+ * class providers.
+ *
+ * @author Steven Arzt
+ *
+ */
+public class InMemoryClassProvider implements ClassProvider {
+
+	/**
+	 * Marker for classes that are not on the classpath
+	 */
+	private static final byte[] NOT_FOUND = new byte[0];
+
+	private final String classpath;
+	private final ClassFileReader reader;
+	private final Map<String, byte[]> classFiles = new ConcurrentHashMap<>();
+
+	private final AtomicInteger hits = new AtomicInteger();
+	private final AtomicInteger misses = new AtomicInteger();
+
+	/**
+	 * Creates a new instance of the InMemoryClassProvider class
+	 * @param classpath The classpath from which to load the class files
+	 */
+	public InMemoryClassProvider(String classpath) {
+		this.classpath = classpath;
+		try {
+			this.reader = new ClassFileReader(classpath);
+		}
+		catch (IOException e) {
+			throw new RuntimeException("Could not open classpath " + classpath, e);
+		}
+	}
+
+	@Override
+	public ClassSource find(String className) {
+		byte[] classFile = classFiles.get(className);
+		if (classFile == null) {
+			misses.incrementAndGet();
+			try {
+				classFile = reader.readClassFile(className);
+			}
+			catch (IOException e) {
+				throw new RuntimeException("Could not read class file of " + className, e);
+			}
+			if (classFile == null)
+				classFile = NOT_FOUND;
+			classFiles.put(className, classFile);
+		}
+		else
+			hits.incrementAndGet();
+
+		if (classFile == NOT_FOUND)
+			return null;
+		return InMemoryAsmClassSource.create(className, classFile);
+	}
+
+	/**
+	 * Installs this provider into Soot. This must be called after every Soot
+	 * reset, once the source precedence has been configured. Jimple files
+	 * take precedence over this provider if Soot is configured to prefer
+	 * them.
+	 */
+	public void install() {
+		// The library classes are on Soot's classpath, but not necessarily on
+		// the classpath we were created for
+		try {
+			reader.addClasspath(Scene.v().getSootClassPath());
+		}
+		catch (IOException e) {
+			throw new RuntimeException("Could not open Soot classpath", e);
+		}
+
+		List<ClassProvider> providers = new ArrayList<>();
+		if (Options.v().src_prec() == Options.src_prec_jimple)
+			providers.add(new JimpleClassProvider());
+		providers.add(this);
+
+		// Everything that is not on our classpath is loaded as usual
+		providers.add(new AsmClassProvider());
+		if (Options.v().src_prec() != Options.src_prec_jimple)
+			providers.add(new JimpleClassProvider());
+		SourceLocator.v().setClassProviders(providers);
+	}
+
+	/**
+	 * Checks whether this provider can still be used for the given classpath
+	 * @param classpath The classpath from which to load the class files
+	 * @return True if this provider was created for the given classpath and
+	 * none of the class files it has served has changed since, otherwise
+	 * false
+	 */
+	public boolean isValidFor(String classpath) {
+		return this.classpath.equals(classpath) && reader.isUpToDate();
+	}
+
+	/**
+	 * Gets the number of class lookups that were served from memory
+	 * @return The number of class lookups that were served from memory
+	 */
+	public int getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * Gets the number of class lookups that required reading the classpath
+	 * @return The number of class lookups that required reading the classpath
+	 */
+	public int getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * Releases the class files and closes the classpath
+	 */
+	public void close() {
+		classFiles.clear();
+		reader.close();
+	}
+
+}
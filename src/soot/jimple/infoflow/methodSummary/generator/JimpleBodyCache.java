@@ -0,0 +1,446 @@
+package soot.jimple.infoflow.methodSummary.generator;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import soot.Body;
+import soot.MethodSource;
+import soot.Modifier;
+import soot.Printer;
+import soot.Scene;
+import soot.SootClass;
+import soot.SootField;
+import soot.SootMethod;
+import soot.jimple.parser.JimpleAST;
+import soot.options.Options;
+
+/**
+ * Persistent cache of Jimple bodies. Every summary generation run resets
+ * Soot, so all library bodies would otherwise be converted from bytecode to
+ * Jimple again for every method under summarization.
+ *
+ * The cache captures the bodies right after the jb phase, before the data
+ * flow analysis modifies them, and writes complete classes as Jimple files
+ * into the cache directory. In the following runs, the cache directory is
+ * put in front of the classpath and Soot prefers the Jimple files over the
+ * class files. Every cached class is keyed by the hash of its class file, so
+ * classes that change on the classpath are dropped from the cache.
+ *
+ * The Jimple files depend on the Soot options of the jb phase. If these
+ * options change, the cache directory must be cleared.
+ *
+ * @author Steven Arzt
+ *
+ */
+public class JimpleBodyCache {
+
+	private static final String INDEX_FILE_NAME = "bodies.index";
+	private static final String JIMPLE_EXTENSION = ".jimple";
+	private static final String DIGEST_ALGORITHM = "SHA-256";
+
+	private final File cacheDir;
+
+	private ClassFileReader classFileReader = null;
+	private String configId = null;
+
+	/**
+	 * Hashes of the class files of all classes in the cache
+	 */
+	private final Map<String, String> index = new TreeMap<>();
+
+	/**
+	 * Classes whose bodies are being captured in the current run
+	 */
+	private final Map<SootClass, String> capturedClasses = new HashMap<>();
+
+	/**
+	 * Jimple code of the captured bodies in the current run
+	 */
+	private final Map<SootMethod, String> capturedBodies = new ConcurrentHashMap<>();
+
+	/**
+	 * Classes that could not be cached because some of their bodies were
+	 * created outside of the cache
+	 */
+	private final Set<String> uncachableClasses = new HashSet<>();
+
+	/**
+	 * Method source that records the Jimple code of every body it creates
+	 */
+	private class CapturingMethodSource implements MethodSource {
+
+		private final MethodSource source;
+
+		public CapturingMethodSource(MethodSource source) {
+			this.source = source;
+		}
+
+		@Override
+		public Body getBody(SootMethod m, String phaseName) {
+			Body b = source.getBody(m, phaseName);
+			if (b != null) {
+				StringWriter sw = new StringWriter();
+				PrintWriter pw = new PrintWriter(sw);
+				Printer.v().printTo(b, pw);
+				pw.flush();
+				capturedBodies.put(m, sw.toString());
+			}
+			return b;
+		}
+
+	}
+
+	/**
+	 * Creates a new instance of the JimpleBodyCache class
+	 * @param cacheDir The directory in which to store the Jimple files
+	 */
+	public JimpleBodyCache(File cacheDir) {
+		if (!cacheDir.exists() && !cacheDir.mkdirs())
+			throw new RuntimeException("Could not create cache directory " + cacheDir);
+		this.cacheDir = cacheDir;
+	}
+
+	/**
+	 * Opens the cache for the given classpath. All cached classes whose class
+	 * files have changed are removed from the cache. Calling this method again
+	 * with the same, unmodified classpath does nothing.
+	 * @param classpath The classpath from which the classes are loaded
+	 * @param configId An identifier of the Soot configuration. If it differs
+	 * from the one with which the cache was written, the cache is cleared.
+	 */
+	public synchronized void open(String classpath, String configId) {
+		if (classFileReader != null && classpath.equals(classFileReader.getClasspath())
+				&& classFileReader.isUpToDate() && configId.equals(this.configId))
+			return;
+
+		try {
+			close();
+			classFileReader = new ClassFileReader(classpath);
+			this.configId = configId;
+
+			readIndex();
+			int oldSize = index.size();
+			for (Iterator<Entry<String, String>> entryIt = index.entrySet().iterator();
+					entryIt.hasNext(); ) {
+				Entry<String, String> entry = entryIt.next();
+				if (!entry.getValue().equals(computeHash(entry.getKey()))) {
+					getJimpleFile(entry.getKey()).delete();
+					entryIt.remove();
+				}
+			}
+			if (index.size() != oldSize)
+				writeIndex();
+			System.out.println("Jimple body cache contains " + index.size() + " classes, "
+					+ (oldSize - index.size()) + " outdated classes removed");
+		}
+		catch (IOException e) {
+			throw new RuntimeException("Could not open Jimple body cache", e);
+		}
+	}
+
+	/**
+	 * Gets the directory that must be put in front of the Soot classpath
+	 * @return The directory containing the Jimple files
+	 */
+	public File getCacheDirectory() {
+		return cacheDir;
+	}
+
+	/**
+	 * Configures Soot to prefer the cached Jimple files over the class files
+	 * @param options The Soot options to modify
+	 */
+	public void setSootOptions(Options options) {
+		options.set_src_prec(Options.src_prec_jimple);
+	}
+
+	/**
+	 * Starts capturing the bodies of all classes that are not yet cached.
+	 * This must be called after Soot has loaded the classes, but before any
+	 * bodies are created.
+	 */
+	public synchronized void captureBodies() {
+		capturedClasses.clear();
+		capturedBodies.clear();
+
+		for (Iterator<SootClass> scIt = Scene.v().getClasses().snapshotIterator();
+				scIt.hasNext(); ) {
+			SootClass sc = scIt.next();
+			if (sc.isPhantom() || sc.resolvingLevel() < SootClass.BODIES
+					|| index.containsKey(sc.getName())
+					|| uncachableClasses.contains(sc.getName()))
+				continue;
+
+			String hash;
+			try {
+				hash = computeHash(sc.getName());
+			}
+			catch (IOException e) {
+				hash = null;
+			}
+			if (hash == null) {
+				uncachableClasses.add(sc.getName());
+				continue;
+			}
+
+			for (SootMethod sm : sc.getMethods())
+				if (sm.isConcrete() && !sm.hasActiveBody() && sm.getSource() != null)
+					sm.setSource(new CapturingMethodSource(sm.getSource()));
+			capturedClasses.put(sc, hash);
+		}
+	}
+
+	/**
+	 * Writes all classes whose bodies have been captured in the current run
+	 * into the cache. Bodies that have not been needed by the analysis are
+	 * created here, so that the cached classes are complete.
+	 */
+	public synchronized void storeBodies() {
+		int storedClasses = 0;
+		for (Entry<SootClass, String> entry : capturedClasses.entrySet()) {
+			SootClass sc = entry.getKey();
+			if (!completeBodies(sc)) {
+				uncachableClasses.add(sc.getName());
+				continue;
+			}
+
+			try {
+				if (writeClass(sc)) {
+					index.put(sc.getName(), entry.getValue());
+					storedClasses++;
+				}
+				else
+					uncachableClasses.add(sc.getName());
+			}
+			catch (IOException e) {
+				System.err.println("Could not cache Jimple code of class " + sc.getName()
+						+ ": " + e.getMessage());
+				uncachableClasses.add(sc.getName());
+			}
+		}
+		capturedClasses.clear();
+		capturedBodies.clear();
+
+		if (storedClasses > 0)
+			try {
+				writeIndex();
+			}
+			catch (IOException e) {
+				throw new RuntimeException("Could not write Jimple body cache index", e);
+			}
+	}
+
+	/**
+	 * Makes sure that the Jimple code of all concrete methods in the given
+	 * class has been captured
+	 * @param sc The class to check
+	 * @return True if the Jimple code of all methods is available, false if
+	 * some bodies have been created without the cache
+	 */
+	private boolean completeBodies(SootClass sc) {
+		for (SootMethod sm : sc.getMethods()) {
+			if (!sm.isConcrete() || capturedBodies.containsKey(sm))
+				continue;
+
+			// If the body was created outside of the cache, the analysis
+			// might have modified it already
+			if (sm.hasActiveBody() || !(sm.getSource() instanceof CapturingMethodSource))
+				return false;
+			try {
+				sm.retrieveActiveBody();
+			}
+			catch (RuntimeException ex) {
+				return false;
+			}
+			if (!capturedBodies.containsKey(sm))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Writes the captured Jimple code of the given class into the cache
+	 * @param sc The class to write
+	 * @return True if the class was written successfully, false if Soot
+	 * cannot read back the generated Jimple code
+	 * @throws IOException Thrown if the Jimple file could not be written
+	 */
+	private boolean writeClass(SootClass sc) throws IOException {
+		File jimpleFile = getJimpleFile(sc.getName());
+		File tempFile = new File(cacheDir, sc.getName() + ".tmp");
+
+		PrintWriter out = new PrintWriter(new OutputStreamWriter(
+				new FileOutputStream(tempFile), StandardCharsets.UTF_8));
+		try {
+			// Same layout as Soot's own Jimple printer, but with the original
+			// bodies
+			String classPrefix = Modifier.toString(sc.getModifiers());
+			if (!sc.isInterface())
+				classPrefix = (classPrefix + " class").trim();
+			out.print(classPrefix + " " + Scene.v().quotedNameOf(sc.getName()));
+			if (sc.hasSuperclass())
+				out.print(" extends " + Scene.v().quotedNameOf(sc.getSuperclass().getName()));
+
+			Iterator<SootClass> interfaceIt = sc.getInterfaces().iterator();
+			if (interfaceIt.hasNext()) {
+				out.print(" implements " + Scene.v().quotedNameOf(interfaceIt.next().getName()));
+				while (interfaceIt.hasNext())
+					out.print(", " + Scene.v().quotedNameOf(interfaceIt.next().getName()));
+			}
+			out.println();
+			out.println("{");
+
+			for (SootField sf : sc.getFields())
+				if (!sf.isPhantom())
+					out.println("    " + sf.getDeclaration() + ";");
+
+			for (SootMethod sm : sc.getMethods()) {
+				out.println();
+				if (sm.isConcrete())
+					out.print(capturedBodies.get(sm));
+				else
+					out.println("    " + sm.getDeclaration() + ";");
+			}
+			out.println("}");
+		}
+		finally {
+			out.close();
+		}
+
+		// Make sure that Soot is able to read back the file
+		InputStream in = new FileInputStream(tempFile);
+		try {
+			new JimpleAST(in);
+		}
+		catch (Exception e) {
+			tempFile.delete();
+			return false;
+		}
+		finally {
+			in.close();
+		}
+
+		if (jimpleFile.exists())
+			jimpleFile.delete();
+		if (!tempFile.renameTo(jimpleFile)) {
+			tempFile.delete();
+			return false;
+		}
+		return true;
+	}
+
+	private File getJimpleFile(String className) {
+		return new File(cacheDir, className + JIMPLE_EXTENSION);
+	}
+
+	/**
+	 * Computes the hash of the class file of the given class
+	 * @param className The name of the class
+	 * @return The hex-encoded hash of the class file, or null if the class is
+	 * not on the classpath
+	 * @throws IOException Thrown if the class file could not be read
+	 */
+	private String computeHash(String className) throws IOException {
+		byte[] classFile = classFileReader.readClassFile(className);
+		if (classFile == null)
+			return null;
+
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+		StringBuilder sb = new StringBuilder();
+		for (byte b : digest.digest(classFile))
+			sb.append(String.format("%02x", b & 0xff));
+		return sb.toString();
+	}
+
+	/**
+	 * Reads the index of the cache. The first line contains the identifier of
+	 * the Soot configuration, every further line a class name and the hash of
+	 * its class file.
+	 */
+	private void readIndex() throws IOException {
+		index.clear();
+		File indexFile = new File(cacheDir, INDEX_FILE_NAME);
+		if (!indexFile.exists())
+			return;
+
+		BufferedReader reader = new BufferedReader(new InputStreamReader(
+				new FileInputStream(indexFile), StandardCharsets.UTF_8));
+		try {
+			String line = reader.readLine();
+			if (configId.equals(line)) {
+				while ((line = reader.readLine()) != null) {
+					int pos = line.indexOf(' ');
+					if (pos > 0)
+						index.put(line.substring(0, pos), line.substring(pos + 1));
+				}
+				return;
+			}
+		}
+		finally {
+			reader.close();
+		}
+
+		// The cache was written with a different configuration
+		for (File f : cacheDir.listFiles())
+			if (f.getName().endsWith(JIMPLE_EXTENSION))
+				f.delete();
+		indexFile.delete();
+	}
+
+	private void writeIndex() throws IOException {
+		File tempFile = new File(cacheDir, INDEX_FILE_NAME + ".tmp");
+		PrintWriter out = new PrintWriter(new OutputStreamWriter(
+				new FileOutputStream(tempFile), StandardCharsets.UTF_8));
+		try {
+			out.println(configId);
+			for (Entry<String, String> entry : index.entrySet())
+				out.println(entry.getKey() + " " + entry.getValue());
+		}
+		finally {
+			out.close();
+		}
+
+		File indexFile = new File(cacheDir, INDEX_FILE_NAME);
+		indexFile.delete();
+		if (!tempFile.renameTo(indexFile))
+			throw new IOException("Could not replace " + indexFile);
+	}
+
+	/**
+	 * Closes the classpath opened by this cache
+	 */
+	public synchronized void close() {
+		if (classFileReader != null) {
+			classFileReader.close();
+			classFileReader = null;
+		}
+		configId = null;
+		uncachableClasses.clear();
+	}
+
+}
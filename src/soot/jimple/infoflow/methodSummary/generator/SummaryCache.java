@@ -0,0 +1,507 @@
+package soot.jimple.infoflow.methodSummary.generator;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.xml.stream.XMLStreamException;
+
+import soot.jimple.infoflow.InfoflowConfiguration;
+import soot.jimple.infoflow.methodSummary.data.summary.MethodSummaries;
+import soot.jimple.infoflow.methodSummary.xml.SummaryManifest;
+import soot.jimple.infoflow.methodSummary.xml.SummaryXMLException;
+import soot.jimple.infoflow.methodSummary.xml.XMLConstants;
+import soot.jimple.infoflow.methodSummary.xml.XMLReader;
+import soot.jimple.infoflow.methodSummary.xml.XMLWriter;
+
+/**
+ * Content-addressed on-disk cache for generated method summaries. The key of
+ * a method summary is a hash over the code that can influence the summary
+ * and over the generator configuration. If the key matches, the summary can
+ * be taken from the cache without starting Soot.
+ *
+ * The code that is hashed is the class file of the class declaring the
+ * method together with all class files that are transitively referenced
+ * from its constant pool. This is coarser than the method body itself, but
+ * does not require a callgraph. Virtual calls into subclasses that are never
+ * referenced by name are not covered.
+ *
+ * The cache is bounded by the total size of its entries. If the limit is
+ * exceeded, the least recently used entries are deleted.
+ *
+ * @author Steven Arzt
+ *
+ */
+public class SummaryCache {
+
+	/**
+	 * Version of the key format. Increment this whenever the generator changes
+	 * in a way that affects the generated summaries.
+	 */
+	private static final String KEY_VERSION = "2";
+
+	private static final String DIGEST_ALGORITHM = "SHA-256";
+	private static final long DEFAULT_MAX_SIZE = 512L * 1024 * 1024;
+
+	private final File cacheDir;
+	private final long maxSize;
+	private long currentSize = -1;
+
+	private SummaryManifest calleeSummaries = null;
+
+	private ClassFileReader classFileReader = null;
+
+	private final Map<String, byte[]> classDigests = new HashMap<>();
+	private final Map<String, Set<String>> classReferences = new HashMap<>();
+	private final Map<Set<String>, String> closureDigests = new HashMap<>();
+
+	private int hits = 0;
+	private int misses = 0;
+
+	/**
+	 * Creates a new instance of the SummaryCache class
+	 * @param cacheDir The directory in which to store the cached summaries
+	 */
+	public SummaryCache(File cacheDir) {
+		this(cacheDir, DEFAULT_MAX_SIZE);
+	}
+
+	/**
+	 * Creates a new instance of the SummaryCache class
+	 * @param cacheDir The directory in which to store the cached summaries
+	 * @param maxSize The maximum size of all cache entries in bytes
+	 */
+	public SummaryCache(File cacheDir, long maxSize) {
+		if (!cacheDir.exists() && !cacheDir.mkdirs())
+			throw new RuntimeException("Could not create cache directory " + cacheDir);
+		this.cacheDir = cacheDir;
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Sets the summaries of the callees that are used during summary
+	 * generation. The checksums of these summaries become part of the cache
+	 * key, so that a change in a callee summary invalidates all methods that
+	 * may use it.
+	 * @param calleeSummaries The manifest of the callee summaries
+	 */
+	public void setCalleeSummaries(SummaryManifest calleeSummaries) {
+		this.calleeSummaries = calleeSummaries;
+	}
+
+	/**
+	 * Computes the cache key for the given method
+	 * @param classpath The classpath from which the method is loaded
+	 * @param methodSig The signature of the method to summarize
+	 * @param parentClass The class on which the method is invoked
+	 * @param substitutedWith The substitution classes used by the entry point
+	 * creator
+	 * @param config The configuration of the summary generator
+	 * @param taintWrapperId An identifier of the taint wrapper used for
+	 * library calls, or null if there is none
+	 * @param sootConfigId An identifier of the Soot configuration used for
+	 * loading the classes
+	 * @return The hex-encoded cache key
+	 */
+	public synchronized String computeKey(String classpath, String methodSig, String parentClass,
+			Collection<String> substitutedWith, SummaryGeneratorConfiguration config,
+			String taintWrapperId, String sootConfigId) {
+		try {
+			openClasspath(classpath);
+
+			// The classes from which the analysis starts
+			Set<String> roots = new TreeSet<>();
+			roots.add(methodSig.substring(1, methodSig.indexOf(":")));
+			if (parentClass != null && !parentClass.isEmpty())
+				roots.add(parentClass);
+			roots.addAll(substitutedWith);
+
+			MessageDigest digest = newDigest();
+			update(digest, KEY_VERSION);
+			update(digest, methodSig);
+			update(digest, parentClass);
+			for (String root : roots)
+				update(digest, root);
+			update(digest, getConfigString(config));
+			update(digest, taintWrapperId);
+			update(digest, sootConfigId);
+			update(digest, getClosureDigest(roots));
+			return toHex(digest.digest());
+		}
+		catch (IOException e) {
+			throw new RuntimeException("Could not compute cache key for " + methodSig, e);
+		}
+	}
+
+	/**
+	 * Gets the options of the generator configuration that influence the
+	 * generated summaries
+	 * @param config The configuration of the summary generator
+	 * @return A string representation of the relevant configuration options
+	 */
+	private String getConfigString(SummaryGeneratorConfiguration config) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("apLength=").append(InfoflowConfiguration.getAccessPathLength());
+		sb.append(";minAPLength=").append(config.getMinAccessPathLength());
+		sb.append(";apTimeBudget=").append(config.getAccessPathTimeBudget());
+		sb.append(";propagationBudget=").append(config.getPropagationBudget());
+		sb.append(";recursiveAPs=").append(InfoflowConfiguration.getUseRecursiveAccessPaths());
+		sb.append(";mergeNeighbors=").append(InfoflowConfiguration.getMergeNeighbors());
+		sb.append(";flowSensitiveAliasing=").append(config.getFlowSensitiveAliasing());
+		sb.append(";aliasing=").append(config.getAliasingAlgorithm());
+		sb.append(";exceptions=").append(config.getEnableExceptionTracking());
+		sb.append(";implicitFlows=").append(config.getEnableImplicitFlows());
+		sb.append(";staticFields=").append(config.getEnableStaticFieldTracking());
+		sb.append(";arraySizes=").append(config.getEnableArraySizeTainting());
+		sb.append(";typeChecking=").append(config.getEnableTypeChecking());
+		sb.append(";codeElimination=").append(config.getCodeEliminationMode());
+		sb.append(";ignoreSystemPackages=").append(config.getIgnoreFlowsInSystemPackages());
+		sb.append(";stopAfterFirstFlow=").append(config.getStopAfterFirstFlow());
+		sb.append(";loadFullJAR=").append(config.getLoadFullJAR());
+		sb.append(";classLoadingDepth=").append(config.getClassLoadingDepth());
+		sb.append(";cacheClassFiles=").append(config.getCacheClassFiles());
+		sb.append(";validate=").append(config.getValidateResults());
+		sb.append(";excludes=");
+		if (config.getExcludes() != null)
+			sb.append(new TreeSet<>(config.getExcludes()));
+		return sb.toString();
+	}
+
+	/**
+	 * Computes the digest over all class files that are transitively
+	 * referenced from the given root classes
+	 * @param roots The classes from which to start
+	 * @return The digest over the referenced class files
+	 */
+	private String getClosureDigest(Set<String> roots) throws IOException {
+		String closureDigest = closureDigests.get(roots);
+		if (closureDigest != null)
+			return closureDigest;
+
+		Set<String> closure = new TreeSet<>();
+		List<String> workList = new ArrayList<>(roots);
+		while (!workList.isEmpty()) {
+			String className = workList.remove(workList.size() - 1);
+			if (closure.add(className)) {
+				loadClass(className);
+				workList.addAll(classReferences.get(className));
+			}
+		}
+
+		MessageDigest digest = newDigest();
+		for (String className : closure) {
+			update(digest, className);
+			byte[] classDigest = classDigests.get(className);
+			if (classDigest != null)
+				digest.update(classDigest);
+
+			// Include the summaries that may be used in place of the code
+			if (calleeSummaries != null) {
+				SummaryManifest.ClassEntry entry = calleeSummaries.getClassEntry(className);
+				if (entry != null)
+					update(digest, entry.getChecksum());
+			}
+		}
+		closureDigest = toHex(digest.digest());
+		closureDigests.put(new HashSet<>(roots), closureDigest);
+		return closureDigest;
+	}
+
+	/**
+	 * Loads the class file of the given class from the classpath, computes its
+	 * digest and collects the classes it references. Classes that are not on
+	 * the classpath, e.g. those of the runtime library, have no digest and no
+	 * references.
+	 * @param className The name of the class to load
+	 */
+	private void loadClass(String className) throws IOException {
+		if (classReferences.containsKey(className))
+			return;
+
+		byte[] classFile = classFileReader.readClassFile(className);
+		if (classFile == null) {
+			classReferences.put(className, Collections.<String>emptySet());
+			return;
+		}
+
+		classDigests.put(className, newDigest().digest(classFile));
+		classReferences.put(className, getReferencedClasses(classFile));
+	}
+
+	/**
+	 * Gets the names of all classes referenced from the constant pool of the
+	 * given class file
+	 * @param classFile The contents of the class file
+	 * @return The names of the referenced classes
+	 */
+	static Set<String> getReferencedClasses(byte[] classFile) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(classFile));
+		if (in.readInt() != 0xCAFEBABE)
+			throw new IOException("Invalid class file");
+		in.readUnsignedShort();		// minor version
+		in.readUnsignedShort();		// major version
+
+		int poolSize = in.readUnsignedShort();
+		String[] utf8 = new String[poolSize];
+		int[] classNameIndices = new int[poolSize];
+		int classCount = 0;
+		for (int i = 1; i < poolSize; i++) {
+			int tag = in.readUnsignedByte();
+			switch (tag) {
+			case 1:		// Utf8
+				utf8[i] = in.readUTF();
+				break;
+			case 7:		// Class
+				classNameIndices[classCount++] = in.readUnsignedShort();
+				break;
+			case 8:		// String
+			case 16:	// MethodType
+			case 19:	// Module
+			case 20:	// Package
+				in.skipBytes(2);
+				break;
+			case 15:	// MethodHandle
+				in.skipBytes(3);
+				break;
+			case 3:		// Integer
+			case 4:		// Float
+			case 9:		// Fieldref
+			case 10:	// Methodref
+			case 11:	// InterfaceMethodref
+			case 12:	// NameAndType
+			case 17:	// Dynamic
+			case 18:	// InvokeDynamic
+				in.skipBytes(4);
+				break;
+			case 5:		// Long
+			case 6:		// Double
+				in.skipBytes(8);
+				i++;
+				break;
+			default:
+				throw new IOException("Invalid constant pool tag " + tag);
+			}
+		}
+
+		Set<String> classes = new HashSet<>(classCount);
+		for (int i = 0; i < classCount; i++) {
+			String name = utf8[classNameIndices[i]];
+
+			// Arrays reference their element type
+			int dim = 0;
+			while (name.charAt(dim) == '[')
+				dim++;
+			if (dim > 0) {
+				if (name.charAt(dim) != 'L')
+					continue;
+				name = name.substring(dim + 1, name.length() - 1);
+			}
+			classes.add(name.replace('/', '.'));
+		}
+		return classes;
+	}
+
+	/**
+	 * Opens the entries of the given classpath. If the classpath or any of
+	 * its files has changed since the last call, all cached class information
+	 * is discarded.
+	 * @param classpath The classpath to open
+	 */
+	private void openClasspath(String classpath) throws IOException {
+		if (classFileReader != null && classpath.equals(classFileReader.getClasspath())
+				&& classFileReader.isUpToDate())
+			return;
+
+		close();
+		classFileReader = new ClassFileReader(classpath);
+	}
+
+	/**
+	 * Gets the cached summaries for the given key
+	 * @param key The cache key as returned by computeKey()
+	 * @return The cached summaries, or null if there is no cache entry for
+	 * the given key
+	 */
+	public synchronized MethodSummaries get(String key) {
+		File f = getEntryFile(key);
+		if (!f.exists()) {
+			misses++;
+			return null;
+		}
+
+		try {
+			// Empty files denote methods without flows
+			MethodSummaries summaries = f.length() == 0 ? new MethodSummaries()
+					: new XMLReader().read(f);
+
+			// Remember that the entry was used for the LRU eviction
+			f.setLastModified(System.currentTimeMillis());
+			hits++;
+			return summaries;
+		}
+		catch (XMLStreamException | SummaryXMLException | IOException e) {
+			// A broken entry is not fatal, we just generate the summary again
+			System.err.println("Dropping invalid cache entry " + f + ": " + e.getMessage());
+			f.delete();
+			misses++;
+			return null;
+		}
+	}
+
+	/**
+	 * Stores the given summaries in the cache
+	 * @param key The cache key as returned by computeKey()
+	 * @param summaries The summaries to store
+	 */
+	public synchronized void put(String key, MethodSummaries summaries) {
+		File f = getEntryFile(key);
+		File tempFile = new File(cacheDir, key + ".tmp");
+		try {
+			// The writer skips empty summaries, so we create an empty file
+			// for methods without flows
+			if (summaries.isEmpty()) {
+				if (!tempFile.createNewFile() && tempFile.length() > 0)
+					throw new IOException("Stale temporary file " + tempFile);
+			}
+			else {
+				XMLWriter writer = new XMLWriter();
+				writer.setCompressOutput(true);
+				writer.write(tempFile, summaries);
+			}
+
+			// Other generator instances may share the cache directory, so we
+			// only publish complete entries
+			if (f.exists())
+				f.delete();
+			if (!tempFile.renameTo(f)) {
+				tempFile.delete();
+				return;
+			}
+		}
+		catch (XMLStreamException | IOException e) {
+			tempFile.delete();
+			throw new RuntimeException("Could not write cache entry " + f, e);
+		}
+
+		if (currentSize < 0)
+			currentSize = computeSize();
+		else
+			currentSize += f.length();
+		if (currentSize > maxSize)
+			evict();
+	}
+
+	private File getEntryFile(String key) {
+		return new File(cacheDir, key + XMLConstants.FILE_EXTENSION_COMPRESSED);
+	}
+
+	private File[] getEntryFiles() {
+		File[] files = cacheDir.listFiles();
+		List<File> entries = new ArrayList<>(files.length);
+		for (File f : files)
+			if (f.getName().endsWith(XMLConstants.FILE_EXTENSION_COMPRESSED))
+				entries.add(f);
+		return entries.toArray(new File[entries.size()]);
+	}
+
+	private long computeSize() {
+		long size = 0;
+		for (File f : getEntryFiles())
+			size += f.length();
+		return size;
+	}
+
+	/**
+	 * Deletes the least recently used entries until the cache is at most 90
+	 * percent full
+	 */
+	private void evict() {
+		File[] entries = getEntryFiles();
+		Arrays.sort(entries, new Comparator<File>() {
+
+			@Override
+			public int compare(File o1, File o2) {
+				return Long.compare(o1.lastModified(), o2.lastModified());
+			}
+
+		});
+
+		long size = computeSize();
+		long targetSize = maxSize / 10 * 9;
+		for (File f : entries) {
+			if (size <= targetSize)
+				break;
+			long len = f.length();
+			if (f.delete())
+				size -= len;
+		}
+		currentSize = size;
+	}
+
+	/**
+	 * Gets the number of cache hits
+	 * @return The number of cache hits
+	 */
+	public int getHits() {
+		return hits;
+	}
+
+	/**
+	 * Gets the number of cache misses
+	 * @return The number of cache misses
+	 */
+	public int getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Closes the classpath entries opened by this cache
+	 */
+	public synchronized void close() {
+		if (classFileReader != null) {
+			classFileReader.close();
+			classFileReader = null;
+		}
+		classDigests.clear();
+		classReferences.clear();
+		closureDigests.clear();
+	}
+
+	private static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance(DIGEST_ALGORITHM);
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static void update(MessageDigest digest, String value) {
+		if (value != null)
+			digest.update(value.getBytes(StandardCharsets.UTF_8));
+		digest.update((byte) 0);
+	}
+
+	private static String toHex(byte[] bytes) {
+		StringBuilder sb = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes)
+			sb.append(String.format("%02x", b & 0xff));
+		return sb.toString();
+	}
+
+}
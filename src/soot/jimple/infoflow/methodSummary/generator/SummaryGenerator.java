@@ -15,9 +15,12 @@ import java.util.Map.Entry;
 import java.util.Set;
 
 import soot.G;
+import soot.RefLikeType;
 import soot.Scene;
 import soot.SootClass;
 import soot.SootMethod;
+import soot.Type;
+import soot.VoidType;
 import soot.jimple.Stmt;
 import soot.jimple.infoflow.Infoflow;
 import soot.jimple.infoflow.InfoflowConfiguration;
@@ -33,9 +36,13 @@ import soot.jimple.infoflow.handlers.PreAnalysisHandler;
 import soot.jimple.infoflow.handlers.ResultsAvailableHandler;
 import soot.jimple.infoflow.methodSummary.DefaultSummaryConfig;
 import soot.jimple.infoflow.methodSummary.data.factory.SourceSinkFactory;
+import soot.jimple.infoflow.methodSummary.data.sourceSink.FlowSink;
+import soot.jimple.infoflow.methodSummary.data.sourceSink.FlowSource;
 import soot.jimple.infoflow.methodSummary.data.summary.ClassSummaries;
+import soot.jimple.infoflow.methodSummary.data.summary.GapDefinition;
 import soot.jimple.infoflow.methodSummary.data.summary.MethodFlow;
 import soot.jimple.infoflow.methodSummary.data.summary.MethodSummaries;
+import soot.jimple.infoflow.methodSummary.data.summary.SourceSinkType;
 import soot.jimple.infoflow.methodSummary.handler.SummaryTaintPropagationHandler;
 import soot.jimple.infoflow.methodSummary.postProcessor.InfoflowResultPostProcessor;
 import soot.jimple.infoflow.methodSummary.postProcessor.SummaryFlowCompactor;
@@ -44,6 +51,7 @@ import soot.jimple.infoflow.nativ.INativeCallHandler;
 import soot.jimple.infoflow.results.InfoflowResults;
 import soot.jimple.infoflow.solver.cfg.IInfoflowCFG;
 import soot.jimple.infoflow.taintWrappers.ITaintPropagationWrapper;
+import soot.jimple.infoflow.util.SootMethodRepresentationParser;
 import soot.options.Options;
 
 /**
@@ -61,6 +69,12 @@ public class SummaryGenerator {
 	protected INativeCallHandler nativeCallHandler;
 	protected IInfoflowConfig sootConfig;
 	protected SummaryGeneratorConfiguration config = new SummaryGeneratorConfiguration();
+	protected SummaryCache summaryCache = null;
+	protected JimpleBodyCache bodyCache = null;
+	protected InMemoryClassProvider classProvider = null;
+	protected ClassDependencyAnalysis dependencyAnalysis = null;
+	protected Set<String> requiredClasses = null;
+	protected boolean keepResourcesOpen = false;
 	
 	protected List<String> substitutedWith = new LinkedList<String>();
 	
@@ -177,51 +191,77 @@ public class SummaryGenerator {
 		// Make sure that we don't have any strange leftovers
 		G.reset();
 		
-		// We share one gap manager across all method analyses
+		// We share one gap manager across all method analyses. It is reset after
+		// every method, but keeps handing out fresh gap IDs.
 		final GapManager gapManager = new GapManager();
 
+		// Every method analysis resets Soot, so we keep the class files in
+		// memory instead of reading them from the classpath again
+		if (classProvider != null && (!config.getCacheClassFiles()
+				|| !classProvider.isValidFor(classpath)))
+			closeClassProvider();
+		if (config.getCacheClassFiles() && classProvider == null)
+			classProvider = new InMemoryClassProvider(classpath);
+		
 		// Do the actual analysis
 		ClassSummaries summaries = new ClassSummaries();
-		for (Entry<String, Collection<String>> entry : methodsToAnalyze
-				.entrySet()) {
-			// Check if we really need to analyze this class
-			if (handler != null)
-				if (!handler.onBeforeAnalyzeClass(entry.getKey())) {
-					System.out.println("Skipping over class " + entry.getKey());
-					continue;
-				}
+		try {
+			for (Entry<String, Collection<String>> entry : methodsToAnalyze
+					.entrySet()) {
+				// Check if we really need to analyze this class
+				if (handler != null)
+					if (!handler.onBeforeAnalyzeClass(entry.getKey())) {
+						System.out.println("Skipping over class " + entry.getKey());
+						continue;
+					}
 			
-			MethodSummaries curSummaries = null;
-			for (int i = 0; i < config.getRepeatCount(); i++) {
-				// Clean up the memory so that we don't get any remnants from the last run
-				System.gc();
-				long nanosBeforeClass = System.nanoTime();
-				System.out.println("Analyzing class " + entry.getKey());
+				MethodSummaries curSummaries = null;
+				for (int i = 0; i < config.getRepeatCount(); i++) {
+					// Clean up the memory so that we don't get any remnants from the last run
+					System.gc();
+					long nanosBeforeClass = System.nanoTime();
+					System.out.println("Analyzing class " + entry.getKey());
 				
-				curSummaries = new MethodSummaries();
-				for (String methodSig : entry.getValue()) {
-					MethodSummaries newSums = createMethodSummary(classpath,
-							methodSig, entry.getKey(), gapManager);
-					if (handler != null)
-						handler.onMethodFinished(methodSig, curSummaries);
-					curSummaries.merge(newSums);
-				}
+					curSummaries = new MethodSummaries();
+					for (String methodSig : entry.getValue()) {
+						MethodSummaries newSums = createMethodSummary(classpath,
+								methodSig, entry.getKey(), gapManager);
+						if (handler != null)
+							handler.onMethodFinished(methodSig, curSummaries);
+						curSummaries.merge(newSums);
+					}
 				
-				System.out.println("Class summaries for " + entry.getKey() + " done in "
-						+ (System.nanoTime() - nanosBeforeClass) / 1E9 + " seconds for "
-						+ curSummaries.getFlowCount() + " summaries");
-			}
+					System.out.println("Class summaries for " + entry.getKey() + " done in "
+							+ (System.nanoTime() - nanosBeforeClass) / 1E9 + " seconds for "
+							+ curSummaries.getFlowCount() + " summaries");
+				}
 			
-			// Notify the handler that we're done
-			if (handler != null)
-				handler.onClassFinished(entry.getKey(), curSummaries);
-			summaries.merge(entry.getKey(), curSummaries);
+				// Notify the handler that we're done
+				if (handler != null)
+					handler.onClassFinished(entry.getKey(), curSummaries);
+				summaries.merge(entry.getKey(), curSummaries);
 			
-			// Remove duplicate summaries on alias flows. We need to re-do this
-			// as we might have created new duplicates during the merge.
-			new SummaryFlowCompactor(curSummaries).compact();
+				// Remove duplicate summaries on alias flows. We need to re-do this
+				// as we might have created new duplicates during the merge.
+				new SummaryFlowCompactor(curSummaries).compact();
+			}
 		}
-				
+		finally {
+			// The shared executor is not needed anymore after the last method
+			String executorStats = config.getExecutorStatistics();
+			if (executorStats != null)
+				System.out.println("Executor statistics: " + executorStats);
+			config.shutdownExecutor();
+			if (summaryCache != null)
+				System.out.println("Summary cache: " + summaryCache.getHits() + " hits, "
+						+ summaryCache.getMisses() + " misses");
+			if (classProvider != null)
+				System.out.println("Class files: " + classProvider.getHits() + " served from memory, "
+						+ classProvider.getMisses() + " read from the classpath");
+			if (!keepResourcesOpen)
+				close();
+		}
+		
 		// Calculate the dependencies
 		calculateDependencies(summaries);
 		
@@ -333,9 +373,51 @@ public class SummaryGenerator {
 	 * @return summary of method m
 	 */
 	public MethodSummaries createMethodSummary(String classpath, String methodSig) {
-		return createMethodSummary(classpath, methodSig,
-				"",
-				new GapManager());
+		try {
+			return createMethodSummary(classpath, methodSig,
+					"",
+					new GapManager());
+		}
+		finally {
+			config.shutdownExecutor();
+			if (!keepResourcesOpen)
+				closeDependencyAnalysis();
+		}
+	}
+	
+	/**
+	 * Releases the class files parsed for computing the classes required by
+	 * the analyzed methods
+	 */
+	private void closeDependencyAnalysis() {
+		if (dependencyAnalysis != null) {
+			dependencyAnalysis.close();
+			dependencyAnalysis = null;
+		}
+	}
+	
+	/**
+	 * Releases the class files kept in memory across the analyzed methods
+	 */
+	private void closeClassProvider() {
+		if (classProvider != null) {
+			classProvider.close();
+			classProvider = null;
+		}
+	}
+	
+	/**
+	 * Closes the caches and releases all class files this generator has
+	 * opened. The generator can still be used afterwards, but needs to open
+	 * the classpath again.
+	 */
+	public void close() {
+		if (summaryCache != null)
+			summaryCache.close();
+		if (bodyCache != null)
+			bodyCache.close();
+		closeClassProvider();
+		closeDependencyAnalysis();
 	}
 
 	/**
@@ -361,24 +443,187 @@ public class SummaryGenerator {
 	private MethodSummaries createMethodSummary(String classpath,
 			final String methodSig, final String parentClass,
 			final GapManager gapManager) {
+		// If nothing has changed since the last run, we can take the summary
+		// from the cache
+		String cacheKey = null;
+		if (summaryCache != null) {
+			cacheKey = summaryCache.computeKey(classpath, methodSig, parentClass,
+					substitutedWith, config, taintWrapper == null ? null
+							: taintWrapper.getClass().getName(),
+					sootConfig == null ? DefaultSummaryConfig.class.getName()
+							: sootConfig.getClass().getName());
+			MethodSummaries cachedSummaries = summaryCache.get(cacheKey);
+			if (cachedSummaries != null) {
+				System.out.println("Method summary for " + methodSig + " taken from cache");
+				return cachedSummaries;
+			}
+		}
+		
 		System.out.println("Computing method summary for " + methodSig);
-		long nanosBeforeMethod = System.nanoTime();
+		final long nanosBeforeMethod = System.nanoTime();
+		
+		final MethodSummaries summaries;
+		if (config.getMinAccessPathLength() < 0)
+			summaries = computeMethodSummary(classpath, methodSig, parentClass,
+					gapManager, nanosBeforeMethod);
+		else
+			summaries = computeAdaptiveMethodSummary(classpath, methodSig,
+					parentClass, gapManager, nanosBeforeMethod);
+		
+		System.out.println("Method summary for " + methodSig + " done in "
+				+ (System.nanoTime() - nanosBeforeMethod) / 1E9 + " seconds");
+		
+		if (cacheKey != null)
+			summaryCache.put(cacheKey, summaries);
+		return summaries;
+	}
+	
+	/**
+	 * Creates a method summary for the given method, starting with a short
+	 * maximum access path length. The length is increased as long as this
+	 * uncovers new distinct flows, until the global maximum access path length
+	 * or the time budget is reached. The chosen length is recorded in the
+	 * summary.
+	 * @param classpath The classpath containing the classes to summarize
+	 * @param methodSig The method for which a summary will be created
+	 * @param parentClass The parent class on which the method to be analyzed
+	 * shall be invoked
+	 * @param gapManager The gap manager to be used for creating new gaps
+	 * @param nanosBeforeMethod The time at which the analysis of the method
+	 * was started
+	 * @return The summary of the given method
+	 */
+	private MethodSummaries computeAdaptiveMethodSummary(String classpath,
+			String methodSig, String parentClass, GapManager gapManager,
+			long nanosBeforeMethod) {
+		final String subSig = SootMethodRepresentationParser.v()
+				.parseSootMethodString(methodSig).getSubSignature();
+		final int maxAccessPathLength = InfoflowConfiguration.getAccessPathLength();
+		MethodSummaries summaries = null;
+		Set<MethodFlow> normalizedFlows = null;
+		int accessPathLength = Math.min(config.getMinAccessPathLength(),
+				maxAccessPathLength);
+		try {
+			for (int curLength = accessPathLength; curLength <= maxAccessPathLength; curLength++) {
+				InfoflowConfiguration.setAccessPathLength(curLength);
+				MethodSummaries newSummaries = computeMethodSummary(classpath,
+						methodSig, parentClass, gapManager, System.nanoTime());
+				
+				// If the method exceeded the propagation budget, longer access
+				// paths will not help
+				if (newSummaries.isApproximated(subSig)) {
+					if (summaries == null) {
+						summaries = newSummaries;
+						accessPathLength = curLength;
+					}
+					break;
+				}
+				
+				// If the longer access paths did not produce any new flows,
+				// we keep the shorter ones
+				Set<MethodFlow> newNormalizedFlows = getNormalizedFlows(newSummaries);
+				if (normalizedFlows != null && normalizedFlows.containsAll(newNormalizedFlows))
+					break;
+				summaries = newSummaries;
+				normalizedFlows = newNormalizedFlows;
+				accessPathLength = curLength;
+				
+				if (config.getAccessPathTimeBudget() >= 0
+						&& System.nanoTime() - nanosBeforeMethod > config.getAccessPathTimeBudget() * 1E9) {
+					System.out.println("Time budget for " + methodSig + " exhausted");
+					break;
+				}
+			}
+		}
+		finally {
+			InfoflowConfiguration.setAccessPathLength(maxAccessPathLength);
+		}
+		
+		System.out.println("Using access path length " + accessPathLength + " for " + methodSig);
+		summaries.setAccessPathLength(subSig, accessPathLength);
+		return summaries;
+	}
+	
+	/**
+	 * Gets the flows in the given summaries with all gap IDs set to zero.
+	 * Every run of the data flow analysis creates new gaps, so flows from
+	 * different runs can only be compared after this normalization.
+	 * @param summaries The summaries whose flows to normalize
+	 * @return The normalized flows
+	 */
+	private Set<MethodFlow> getNormalizedFlows(MethodSummaries summaries) {
+		Map<Integer, GapDefinition> normalizedGaps = new HashMap<>();
+		for (MethodFlow flow : summaries) {
+			if (flow.source().getGap() != null)
+				normalizedGaps.put(flow.source().getGap().getID(),
+						flow.source().getGap().renumber(0));
+			if (flow.sink().getGap() != null)
+				normalizedGaps.put(flow.sink().getGap().getID(),
+						flow.sink().getGap().renumber(0));
+		}
 		
+		Set<MethodFlow> flows = new HashSet<>(summaries.getFlowCount());
+		for (MethodFlow flow : summaries)
+			flows.add(flow.replaceGaps(normalizedGaps));
+		return flows;
+	}
+	
+	/**
+	 * Runs the data flow analysis on the given method with the current
+	 * maximum access path length
+	 * @param classpath The classpath containing the classes to summarize
+	 * @param methodSig The method for which a summary will be created
+	 * @param parentClass The parent class on which the method to be analyzed
+	 * shall be invoked
+	 * @param gapManager The gap manager to be used for creating new gaps
+	 * @param nanosBeforeRun The time at which this run was started
+	 * @return The summary of the given method
+	 */
+	private MethodSummaries computeMethodSummary(String classpath,
+			final String methodSig, final String parentClass,
+			final GapManager gapManager, final long nanosBeforeRun) {
 		final SourceSinkFactory sourceSinkFactory = new SourceSinkFactory(
 				InfoflowConfiguration.getAccessPathLength());
 		final SummarySourceSinkManager manager = new SummarySourceSinkManager(
 				methodSig, parentClass, sourceSinkFactory);
 		final MethodSummaries summaries = new MethodSummaries();
 		
+		// Load the Jimple bodies from previous runs instead of the bytecode
+		String analysisClasspath = classpath;
+		if (bodyCache != null) {
+			bodyCache.open(classpath, sootConfig == null ? DefaultSummaryConfig.class.getName()
+					: sootConfig.getClass().getName());
+			analysisClasspath = bodyCache.getCacheDirectory().getAbsolutePath()
+					+ File.pathSeparator + classpath;
+		}
+		
+		// Only load the classes the method can actually reach
+		requiredClasses = null;
+		if (config.getClassLoadingDepth() >= 0) {
+			if (dependencyAnalysis != null && !dependencyAnalysis.isValidFor(classpath))
+				closeDependencyAnalysis();
+			if (dependencyAnalysis == null)
+				dependencyAnalysis = new ClassDependencyAnalysis(classpath);
+			List<String> entryClasses = new ArrayList<String>(substitutedWith);
+			if (parentClass != null && !parentClass.isEmpty())
+				entryClasses.add(parentClass);
+			requiredClasses = dependencyAnalysis.getRequiredClasses(methodSig,
+					entryClasses, config.getClassLoadingDepth());
+		}
+		
 		final Infoflow infoflow = initInfoflow(summaries, gapManager);
 		
 		final SummaryTaintPropagationHandler listener = new SummaryTaintPropagationHandler(
 				methodSig, parentClass, gapManager);
+		listener.setPropagationBudget(config.getPropagationBudget());
 		infoflow.setTaintPropagationHandler(listener);
 		infoflow.setPreProcessors(Collections.singleton(new PreAnalysisHandler() {
 			
 			@Override
 			public void onBeforeCallgraphConstruction() {
+				reportClassLoading(methodSig, nanosBeforeRun);
+				if (bodyCache != null)
+					bodyCache.captureBodies();
 			}
 			
 			@Override
@@ -392,6 +637,15 @@ public class SummaryGenerator {
 			@Override
 			public void onResultsAvailable(IInfoflowCFG cfg,
 					InfoflowResults results) {
+				// If the propagation was cut off, the results are incomplete
+				// and cannot be used
+				if (listener.isBudgetExceeded()) {
+					System.out.println("Propagation budget for " + methodSig + " exceeded after "
+							+ listener.getPropagatedEdgeCount() + " edges, approximating the summary");
+					createApproximatedSummary(methodSig, parentClass, summaries);
+					return;
+				}
+				
 				InfoflowResultPostProcessor processor = new InfoflowResultPostProcessor(
 						listener.getResult(), cfg, methodSig, sourceSinkFactory,
 						gapManager, config);
@@ -400,20 +654,125 @@ public class SummaryGenerator {
 		});
 
 		try {
-			infoflow.computeInfoflow(null, classpath, createEntryPoint(
+			infoflow.computeInfoflow(null, analysisClasspath, createEntryPoint(
 					Collections.singletonList(methodSig), parentClass), manager);
+			if (bodyCache != null)
+				bodyCache.storeBodies();
 		}
 		catch (Exception e) {
 			System.err.println("Could not generate summary for method " + methodSig);
 			e.printStackTrace();
 			throw e;
 		}
-		
-		System.out.println("Method summary for " + methodSig + " done in "
-				+ (System.nanoTime() - nanosBeforeMethod) / 1E9 + " seconds");
+		finally {
+			// The statements of this run are gone after the next Soot reset,
+			// so there is no point in keeping their gaps around
+			gapManager.reset();
+		}
 		return summaries;
 	}
 	
+	/**
+	 * Creates a coarse, but sound summary for the given method. Every
+	 * parameter and the base object may flow into the return value and into
+	 * the fields of the base object and of all parameters of reference type,
+	 * including themselves. The gaps that the cut-off analysis has already
+	 * found are kept: every source may flow into the base object and the
+	 * parameters of every gap, and the return value, the base object and the
+	 * reference parameters of every gap may flow back into every sink. Calls
+	 * that the analysis did not reach before the budget was exceeded do not
+	 * get a gap, so callbacks through these calls are not modeled. Static
+	 * fields are not modeled either, which is why methods cannot be
+	 * approximated when static field tracking is enabled. This method must be
+	 * called while Soot is still initialized.
+	 * @param methodSig The method for which to create the summary
+	 * @param parentClass The parent class on which the method is invoked, or
+	 * an empty string if the method is invoked on its declaring class
+	 * @param summaries The summary object that receives the flows. All
+	 * existing flows are removed.
+	 */
+	protected void createApproximatedSummary(String methodSig, String parentClass,
+			MethodSummaries summaries) {
+		if (config.getEnableStaticFieldTracking())
+			throw new RuntimeException("Cannot approximate the summary for "
+					+ methodSig + " with static field tracking enabled");
+		
+		SootMethod sm = Scene.v().getMethod(methodSig);
+		String subSig = sm.getSubSignature();
+		String baseType = parentClass == null || parentClass.isEmpty()
+				? sm.getDeclaringClass().getName() : parentClass;
+		
+		// Collect the sources and sinks of the method
+		List<FlowSource> sources = new ArrayList<>();
+		List<FlowSink> sinks = new ArrayList<>();
+		for (int i = 0; i < sm.getParameterCount(); i++) {
+			Type paramType = sm.getParameterType(i);
+			sources.add(new FlowSource(SourceSinkType.Parameter, i, paramType.toString()));
+			if (paramType instanceof RefLikeType)
+				sinks.add(new FlowSink(SourceSinkType.Parameter, i, paramType.toString(), true));
+		}
+		if (!sm.isStatic()) {
+			sources.add(new FlowSource(SourceSinkType.Field, baseType));
+			sinks.add(new FlowSink(SourceSinkType.Field, -1, baseType, true));
+		}
+		if (!(sm.getReturnType() instanceof VoidType))
+			sinks.add(new FlowSink(SourceSinkType.Return, -1,
+					sm.getReturnType().toString(), true));
+		
+		// Keep the gaps that were found before the analysis was cut off
+		List<GapDefinition> oldGaps = new ArrayList<>(summaries.getAllGaps());
+		summaries.clear();
+		for (GapDefinition oldGap : oldGaps) {
+			GapDefinition gap = summaries.getOrCreateGap(oldGap.getID(),
+					oldGap.getSignature());
+			SootMethod gapMethod = Scene.v().grabMethod(gap.getSignature());
+			if (gapMethod == null)
+				continue;
+			
+			for (int i = 0; i < gapMethod.getParameterCount(); i++) {
+				Type paramType = gapMethod.getParameterType(i);
+				sinks.add(new FlowSink(SourceSinkType.Parameter, i,
+						paramType.toString(), true, gap));
+				if (paramType instanceof RefLikeType)
+					sources.add(new FlowSource(SourceSinkType.Parameter, i,
+							paramType.toString(), gap));
+			}
+			if (!gapMethod.isStatic()) {
+				String gapBaseType = gapMethod.getDeclaringClass().getName();
+				sources.add(new FlowSource(SourceSinkType.Field, gapBaseType, gap));
+				sinks.add(new FlowSink(SourceSinkType.Field, -1, gapBaseType, true, gap));
+			}
+			if (!(gapMethod.getReturnType() instanceof VoidType))
+				sources.add(new FlowSource(SourceSinkType.Return,
+						gapMethod.getReturnType().toString(), gap));
+		}
+		
+		for (FlowSource source : sources)
+			for (FlowSink sink : sinks)
+				summaries.addFlow(new MethodFlow(subSig, source, sink, false));
+		summaries.markApproximated(subSig);
+	}
+	
+	/**
+	 * Prints the time and memory that was required for setting up Soot and
+	 * loading the classes for analyzing the given method
+	 * @param methodSig The method that is being analyzed
+	 * @param nanosBeforeMethod The time at which the analysis of the method
+	 * was started
+	 */
+	private void reportClassLoading(String methodSig, long nanosBeforeMethod) {
+		int bodyClasses = 0;
+		for (SootClass sc : Scene.v().getClasses())
+			if (sc.resolvingLevel() >= SootClass.BODIES)
+				bodyClasses++;
+		Runtime runtime = Runtime.getRuntime();
+		System.out.println("Class loading for " + methodSig + " done in "
+				+ (System.nanoTime() - nanosBeforeMethod) / 1E9 + " seconds, "
+				+ Scene.v().getClasses().size() + " classes (" + bodyClasses
+				+ " with bodies), " + (runtime.totalMemory() - runtime.freeMemory()) / (1024 * 1024)
+				+ " MB in use");
+	}
+	
 	private BaseEntryPointCreator createEntryPoint(
 			Collection<String> entryPoints, String parentClass) {
 		SequentialEntryPointCreator dEntryPointCreater = new SequentialEntryPointCreator(
@@ -545,10 +904,33 @@ public class SummaryGenerator {
 		}
 		
 		// Set the Soot configuration
-		if (sootConfig == null)
-			iFlow.setSootConfig(new DefaultSummaryConfig());
+		final IInfoflowConfig baseConfig = sootConfig == null
+				? new DefaultSummaryConfig() : sootConfig;
+		if (bodyCache == null && classProvider == null && requiredClasses == null)
+			iFlow.setSootConfig(baseConfig);
 		else
-			iFlow.setSootConfig(sootConfig);
+			iFlow.setSootConfig(new IInfoflowConfig() {
+				
+				@Override
+				public void setSootOptions(Options options) {
+					baseConfig.setSootOptions(options);
+					if (requiredClasses != null) {
+						// Only the required classes get bodies. All other
+						// classes in their packages are excluded.
+						List<String> classes = new ArrayList<String>(requiredClasses);
+						options.set_include(classes);
+						options.set_dynamic_class(classes);
+						options.set_exclude(new ArrayList<String>(
+								ClassDependencyAnalysis.getPackages(requiredClasses)));
+						options.set_no_bodies_for_excluded(true);
+					}
+					if (bodyCache != null)
+						bodyCache.setSootOptions(options);
+					if (classProvider != null)
+						classProvider.install();
+				}
+				
+			});
 		
 		return iFlow;
 	}
@@ -573,6 +955,58 @@ public class SummaryGenerator {
 		this.substitutedWith = substitutedWith;
 	}
 	
+	/**
+	 * Sets the cache from which to take summaries that have already been
+	 * generated in an earlier run
+	 * @param summaryCache The summary cache to use, or null to always
+	 * generate all summaries from scratch
+	 */
+	public void setSummaryCache(SummaryCache summaryCache) {
+		this.summaryCache = summaryCache;
+	}
+	
+	/**
+	 * Gets the cache from which to take summaries that have already been
+	 * generated in an earlier run
+	 * @return The summary cache, or null if no cache is used
+	 */
+	public SummaryCache getSummaryCache() {
+		return summaryCache;
+	}
+	
+	/**
+	 * Sets the cache in which to keep the Jimple bodies of library classes
+	 * across the Soot resets between the analyzed methods
+	 * @param bodyCache The Jimple body cache to use, or null to convert all
+	 * bodies from bytecode in every run
+	 */
+	public void setBodyCache(JimpleBodyCache bodyCache) {
+		this.bodyCache = bodyCache;
+	}
+	
+	/**
+	 * Gets the cache in which to keep the Jimple bodies of library classes
+	 * across the Soot resets between the analyzed methods
+	 * @return The Jimple body cache, or null if no cache is used
+	 */
+	public JimpleBodyCache getBodyCache() {
+		return bodyCache;
+	}
+	
+	/**
+	 * Sets whether the caches and class files shall be kept open after the
+	 * summaries have been generated. This avoids reopening the classpath when
+	 * the same generator is used for many runs. Resources for a classpath
+	 * that has changed in between are reopened automatically. If this option
+	 * is enabled, the caller must call close() once the generator is no
+	 * longer needed.
+	 * @param keepResourcesOpen True if the caches and class files shall be
+	 * kept open between runs, false to release them after every run
+	 */
+	public void setKeepResourcesOpen(boolean keepResourcesOpen) {
+		this.keepResourcesOpen = keepResourcesOpen;
+	}
+	
 	/**
 	 * Gets the configuration for this summary generator
 	 * @return The current configuration for this summary generator
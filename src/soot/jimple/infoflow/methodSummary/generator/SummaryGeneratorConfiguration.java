@@ -2,7 +2,14 @@ package soot.jimple.infoflow.methodSummary.generator;
 
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import heros.solver.CountingThreadPoolExecutor;
 import soot.jimple.infoflow.InfoflowConfiguration;
 
 /**
@@ -16,9 +23,78 @@ public class SummaryGeneratorConfiguration extends InfoflowConfiguration {
 	private boolean loadFullJAR = false;
 	private Set<String> excludes = null;
 	private boolean validateResults = true;
+	private boolean cacheClassFiles = false;
+	private int classLoadingDepth = -1;
+	private int minAccessPathLength = -1;
+	private int accessPathTimeBudget = -1;
+	private long propagationBudget = -1;
 	
 	private int repeatCount = 1;
 	
+	private int executorThreadCount = Runtime.getRuntime().availableProcessors();
+	private int executorQueueSize = Integer.MAX_VALUE;
+	private String executorThreadName = "summary-worker";
+	private SummaryThreadPoolExecutor executor = null;
+	
+	/**
+	 * Executor for the parallel stages of the summary generation. If the work
+	 * queue is full, tasks are run on the submitting thread. This avoids
+	 * deadlocks when worker threads submit new tasks themselves, as the path
+	 * builder does.
+	 * 
+	 * @author Steven Arzt
+	 */
+	private static class SummaryThreadPoolExecutor extends CountingThreadPoolExecutor {
+		
+		public SummaryThreadPoolExecutor(int threadCount, int queueSize,
+				final String threadName) {
+			super(threadCount, threadCount, 30, TimeUnit.SECONDS,
+					new LinkedBlockingQueue<Runnable>(queueSize));
+			allowCoreThreadTimeOut(true);
+			setThreadFactory(new ThreadFactory() {
+				
+				private final AtomicInteger threadNum = new AtomicInteger();
+				
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, threadName + "-" + threadNum.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}
+				
+			});
+			setRejectedExecutionHandler(new RejectedExecutionHandler() {
+				
+				@Override
+				public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+					// The task is dropped, but it has already been counted
+					// when it was submitted, so we must still finish it.
+					// Otherwise, awaitCompletion() would wait forever.
+					if (executor.isShutdown()) {
+						afterExecute(r, null);
+						return;
+					}
+					
+					// Run the task here, but make sure that it is still
+					// counted as finished
+					Throwable error = null;
+					try {
+						r.run();
+					}
+					catch (RuntimeException | Error ex) {
+						error = ex;
+						throw ex;
+					}
+					finally {
+						afterExecute(r, error);
+					}
+				}
+				
+			});
+		}
+		
+	}
+	
 	static {
 		SummaryGeneratorConfiguration.setMergeNeighbors(true);
 	}
@@ -46,7 +122,15 @@ public class SummaryGeneratorConfiguration extends InfoflowConfiguration {
 			this.excludes = summaryConfig.excludes == null || summaryConfig.excludes.isEmpty()
 					? null : new HashSet<>(summaryConfig.excludes);
 			this.validateResults = summaryConfig.validateResults;
+			this.cacheClassFiles = summaryConfig.cacheClassFiles;
+			this.classLoadingDepth = summaryConfig.classLoadingDepth;
+			this.minAccessPathLength = summaryConfig.minAccessPathLength;
+			this.accessPathTimeBudget = summaryConfig.accessPathTimeBudget;
+			this.propagationBudget = summaryConfig.propagationBudget;
 			this.repeatCount = summaryConfig.repeatCount;
+			this.executorThreadCount = summaryConfig.executorThreadCount;
+			this.executorQueueSize = summaryConfig.executorQueueSize;
+			this.executorThreadName = summaryConfig.executorThreadName;
 		}
 	}
 	
@@ -130,4 +214,203 @@ public class SummaryGeneratorConfiguration extends InfoflowConfiguration {
 		return this.validateResults;
 	}
 	
+	/**
+	 * Sets whether the class files of the classpath shall be kept in memory
+	 * across the Soot resets between the analyzed methods
+	 * @param cacheClassFiles True if the class files shall be kept in memory,
+	 * false if Soot shall read them from the classpath in every run
+	 */
+	public void setCacheClassFiles(boolean cacheClassFiles) {
+		this.cacheClassFiles = cacheClassFiles;
+	}
+	
+	/**
+	 * Gets whether the class files of the classpath shall be kept in memory
+	 * across the Soot resets between the analyzed methods
+	 * @return True if the class files shall be kept in memory, false if Soot
+	 * shall read them from the classpath in every run
+	 */
+	public boolean getCacheClassFiles() {
+		return this.cacheClassFiles;
+	}
+	
+	/**
+	 * Sets the call depth up to which the classes referenced by the method
+	 * under analysis are loaded with bodies. Classes outside of this set are
+	 * only loaded with their signatures. This replaces the fixed set of
+	 * packages in the default Soot configuration.
+	 * @param classLoadingDepth The maximum call depth, or -1 to use the
+	 * packages of the Soot configuration
+	 */
+	public void setClassLoadingDepth(int classLoadingDepth) {
+		this.classLoadingDepth = classLoadingDepth;
+	}
+	
+	/**
+	 * Gets the call depth up to which the classes referenced by the method
+	 * under analysis are loaded with bodies
+	 * @return The maximum call depth, or -1 if the packages of the Soot
+	 * configuration are used
+	 */
+	public int getClassLoadingDepth() {
+		return this.classLoadingDepth;
+	}
+	
+	/**
+	 * Sets the access path length with which the analysis of every method
+	 * starts. If this option is set, every method is first analyzed with this
+	 * length. The length is then increased as long as the longer access paths
+	 * produce new distinct flows, up to the global maximum access path length
+	 * in {@link InfoflowConfiguration#getAccessPathLength()}.
+	 * @param minAccessPathLength The initial access path length, or -1 to
+	 * always use the global maximum access path length
+	 */
+	public void setMinAccessPathLength(int minAccessPathLength) {
+		this.minAccessPathLength = minAccessPathLength;
+	}
+	
+	/**
+	 * Gets the access path length with which the analysis of every method
+	 * starts
+	 * @return The initial access path length, or -1 if the global maximum
+	 * access path length is always used
+	 */
+	public int getMinAccessPathLength() {
+		return this.minAccessPathLength;
+	}
+	
+	/**
+	 * Sets the time after which the access path length of a method is no
+	 * longer increased. A run that has already been started is always
+	 * completed.
+	 * @param accessPathTimeBudget The time budget in seconds per method, or -1
+	 * for no limit
+	 */
+	public void setAccessPathTimeBudget(int accessPathTimeBudget) {
+		this.accessPathTimeBudget = accessPathTimeBudget;
+	}
+	
+	/**
+	 * Gets the time after which the access path length of a method is no
+	 * longer increased
+	 * @return The time budget in seconds per method, or -1 for no limit
+	 */
+	public int getAccessPathTimeBudget() {
+		return this.accessPathTimeBudget;
+	}
+	
+	/**
+	 * Sets the maximum number of edges the data flow solver may propagate
+	 * when analyzing a single method. If a method exceeds this budget, the
+	 * analysis is stopped and a coarse, but sound summary is generated
+	 * instead. Such summaries are marked as approximated.
+	 * @param propagationBudget The maximum number of propagated edges per
+	 * method, or -1 for no limit
+	 */
+	public void setPropagationBudget(long propagationBudget) {
+		this.propagationBudget = propagationBudget;
+	}
+	
+	/**
+	 * Gets the maximum number of edges the data flow solver may propagate
+	 * when analyzing a single method
+	 * @return The maximum number of propagated edges per method, or -1 for no
+	 * limit
+	 */
+	public long getPropagationBudget() {
+		return this.propagationBudget;
+	}
+	
+	/**
+	 * Sets the number of threads to use for the parallel stages of the summary
+	 * generation such as the path reconstruction
+	 * @param executorThreadCount The number of worker threads
+	 */
+	public void setExecutorThreadCount(int executorThreadCount) {
+		this.executorThreadCount = executorThreadCount;
+	}
+	
+	/**
+	 * Gets the number of threads to use for the parallel stages of the summary
+	 * generation such as the path reconstruction
+	 * @return The number of worker threads
+	 */
+	public int getExecutorThreadCount() {
+		return this.executorThreadCount;
+	}
+	
+	/**
+	 * Sets the maximum number of tasks that may wait for a worker thread. If
+	 * the queue is full, new tasks are run on the thread that submits them.
+	 * @param executorQueueSize The maximum number of waiting tasks
+	 */
+	public void setExecutorQueueSize(int executorQueueSize) {
+		this.executorQueueSize = executorQueueSize;
+	}
+	
+	/**
+	 * Gets the maximum number of tasks that may wait for a worker thread
+	 * @return The maximum number of waiting tasks
+	 */
+	public int getExecutorQueueSize() {
+		return this.executorQueueSize;
+	}
+	
+	/**
+	 * Sets the prefix for the names of the worker threads
+	 * @param executorThreadName The prefix for the names of the worker threads
+	 */
+	public void setExecutorThreadName(String executorThreadName) {
+		this.executorThreadName = executorThreadName;
+	}
+	
+	/**
+	 * Gets the prefix for the names of the worker threads
+	 * @return The prefix for the names of the worker threads
+	 */
+	public String getExecutorThreadName() {
+		return this.executorThreadName;
+	}
+	
+	/**
+	 * Gets the executor that is shared by all parallel stages of the summary
+	 * generation. The executor is created on first use and lives until
+	 * {@link #shutdownExecutor()} is called. The usual ThreadPoolExecutor
+	 * getters provide the pool utilization.
+	 * @return The shared executor
+	 */
+	public synchronized CountingThreadPoolExecutor getExecutor() {
+		if (executor == null || executor.isShutdown())
+			executor = new SummaryThreadPoolExecutor(executorThreadCount,
+					executorQueueSize, executorThreadName);
+		return executor;
+	}
+	
+	/**
+	 * Shuts down the shared executor if it has been created. Tasks that are
+	 * still running are allowed to finish.
+	 */
+	public synchronized void shutdownExecutor() {
+		if (executor != null) {
+			executor.shutdown();
+			executor = null;
+		}
+	}
+	
+	/**
+	 * Gets a short textual description of the utilization of the shared
+	 * executor
+	 * @return The utilization of the shared executor, or null if no executor
+	 * has been created
+	 */
+	public synchronized String getExecutorStatistics() {
+		if (executor == null)
+			return null;
+		return String.format("%d tasks completed, %d of %d threads active, "
+				+ "at most %d threads, %d tasks queued",
+				executor.getCompletedTaskCount(), executor.getActiveCount(),
+				executor.getPoolSize(), executor.getLargestPoolSize(),
+				executor.getQueue().size());
+	}
+	
 }
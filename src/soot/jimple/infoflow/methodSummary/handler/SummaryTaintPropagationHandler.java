@@ -4,6 +4,10 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import soot.Scene;
 import soot.SootMethod;
@@ -33,6 +37,12 @@ public class SummaryTaintPropagationHandler implements TaintPropagationHandler {
 	private boolean followReturnsPastSeeds = false;
 	
 	private ConcurrentHashMultiMap<Abstraction, Stmt> result = new ConcurrentHashMultiMap<>();
+	private final ConcurrentMap<Abstraction, Abstraction> canonicalAbstractions = new ConcurrentHashMap<>();
+	private final AtomicInteger neighborMerges = new AtomicInteger();
+	
+	private long propagationBudget = -1;
+	private final AtomicLong propagatedEdges = new AtomicLong();
+	private volatile boolean budgetExceeded = false;
 	
 	/**
 	 * Creates a new instance of the SummaryTaintPropagationHandler class
@@ -138,8 +148,10 @@ public class SummaryTaintPropagationHandler implements TaintPropagationHandler {
 						isReturned = true;
 						break;
 					}
-				if (!isReturned)
+				if (!isReturned) {
 					absIt.remove();
+					canonicalAbstractions.remove(abs);
+				}
 			}		
 		}
 	}
@@ -190,15 +202,17 @@ public class SummaryTaintPropagationHandler implements TaintPropagationHandler {
 	 * @param stmt The statement at which the abstraction was collected
 	 */
 	protected void addResult(Abstraction abs, Stmt stmt) {
+		// Get the representative under which equal abstractions are stored
+		Abstraction representative = canonicalAbstractions.putIfAbsent(abs, abs);
+		if (representative == null)
+			representative = abs;
+		
 		// Add the abstraction to the map. If we already have an equal
 		// abstraction, we must add the current one as a neighbor.
-		if (!this.result.put(abs, stmt)) {
-			for (Abstraction abs2 : result.keySet()) {
-				if (abs.equals(abs2)) {
-					abs2.addNeighbor(abs);
-					break;
-				}
-			}
+		if (!this.result.put(representative, stmt)) {
+			representative.addNeighbor(abs);
+			if (representative != abs)
+				neighborMerges.incrementAndGet();
 		}
 	}
 
@@ -218,6 +232,15 @@ public class SummaryTaintPropagationHandler implements TaintPropagationHandler {
 				&& sm == method)
 			return Collections.emptySet();
 		
+		// Once the budget is used up, we kill all taints so that the solver
+		// terminates. The results are incomplete from now on.
+		if (propagationBudget >= 0 && outgoing != null && !outgoing.isEmpty()) {
+			if (budgetExceeded || propagatedEdges.addAndGet(outgoing.size()) > propagationBudget) {
+				budgetExceeded = true;
+				return Collections.emptySet();
+			}
+		}
+		
 		return outgoing;
 	}
 	
@@ -226,6 +249,45 @@ public class SummaryTaintPropagationHandler implements TaintPropagationHandler {
 		return result;
 	}
 	
+	/**
+	 * Gets the number of times an incoming abstraction was merged as a neighbor
+	 * into an equal abstraction that had already been recorded
+	 * @return The number of neighbor merges performed so far
+	 */
+	public int getNeighborMergeCount() {
+		return this.neighborMerges.get();
+	}
+	
+	/**
+	 * Sets the maximum number of edges that may be propagated during the
+	 * analysis of the method. If this budget is exceeded, the propagation is
+	 * stopped and the collected results are incomplete.
+	 * @param propagationBudget The maximum number of propagated edges, or -1
+	 * for no limit
+	 */
+	public void setPropagationBudget(long propagationBudget) {
+		this.propagationBudget = propagationBudget;
+	}
+	
+	/**
+	 * Gets whether the propagation was stopped because the propagation budget
+	 * was exceeded
+	 * @return True if the propagation budget was exceeded and the collected
+	 * results are incomplete, otherwise false
+	 */
+	public boolean isBudgetExceeded() {
+		return this.budgetExceeded;
+	}
+	
+	/**
+	 * Gets the number of edges propagated so far. Edges are only counted if a
+	 * propagation budget has been set.
+	 * @return The number of edges propagated so far
+	 */
+	public long getPropagatedEdgeCount() {
+		return this.propagatedEdges.get();
+	}
+	
 	public GapManager getGapManager() {
 		return this.gapManager;
 	}
@@ -0,0 +1,560 @@
+package soot.jimple.infoflow.methodSummary.linker;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.stream.XMLStreamException;
+
+import soot.G;
+import soot.Scene;
+import soot.SootClass;
+import soot.jimple.infoflow.InfoflowConfiguration;
+import soot.jimple.infoflow.data.SootMethodAndClass;
+import soot.jimple.infoflow.methodSummary.data.provider.IMethodSummaryProvider;
+import soot.jimple.infoflow.methodSummary.data.provider.MemorySummaryProvider;
+import soot.jimple.infoflow.methodSummary.data.sourceSink.AbstractFlowSinkSource;
+import soot.jimple.infoflow.methodSummary.data.sourceSink.FlowSink;
+import soot.jimple.infoflow.methodSummary.data.summary.ClassSummaries;
+import soot.jimple.infoflow.methodSummary.data.summary.GapDefinition;
+import soot.jimple.infoflow.methodSummary.data.summary.MethodFlow;
+import soot.jimple.infoflow.methodSummary.data.summary.MethodSummaries;
+import soot.jimple.infoflow.methodSummary.data.summary.SourceSinkType;
+import soot.jimple.infoflow.methodSummary.xml.SummaryXMLException;
+import soot.jimple.infoflow.methodSummary.xml.XMLReader;
+import soot.jimple.infoflow.methodSummary.xml.XMLWriter;
+import soot.jimple.infoflow.util.SootMethodRepresentationParser;
+import soot.options.Options;
+
+/**
+ * Offline linker for method summaries. If a gap in a summary references a
+ * method for which we have a gap-free summary, the linker composes the flows
+ * into the gap, the flows inside the gap target, and the flows out of the gap
+ * into closed-form flows and removes the gap. Gaps for which we have no
+ * summary are real callbacks and are kept. The result can be loaded by the
+ * SummaryTaintWrapper without any changes.
+ *
+ * The composition follows the rules that the SummaryTaintWrapper applies when
+ * resolving gaps at analysis time. Like the taint wrapper, the linker applies
+ * the flows of the gap target and of all its summarized subclasses, since the
+ * call may be dispatched to any of them. The subclasses must be supplied when
+ * creating the linker. Type compatibility is not checked during linking. The
+ * taint wrapper still checks the types when applying the linked flows.
+ *
+ * @author Steven Arzt
+ *
+ */
+public class SummaryLinker {
+
+	/**
+	 * The maximum number of linking rounds. Every round can close gaps whose
+	 * targets have been closed in the previous round.
+	 */
+	private static final int MAX_ROUNDS = 10;
+
+	/**
+	 * Taint that is propagated through the flows during linking
+	 */
+	private static class LinkTaint {
+
+		private final FlowSink sink;
+		private final boolean alias;
+
+		public LinkTaint(FlowSink sink, boolean alias) {
+			this.sink = sink;
+			this.alias = alias;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * sink.hashCode() + (alias ? 1 : 0);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (obj == null || getClass() != obj.getClass())
+				return false;
+			LinkTaint other = (LinkTaint) obj;
+			return alias == other.alias && sink.equals(other.sink);
+		}
+
+	}
+
+	private final Map<String, Set<String>> subclasses;
+
+	private int inlinedGaps = 0;
+	private int keptGaps = 0;
+
+	/**
+	 * Creates a new instance of the SummaryLinker class
+	 * @param subclasses The summarized direct and indirect subclasses and
+	 * implementors of the summarized classes. Classes that are not contained
+	 * in this map are assumed to have no summarized subclasses.
+	 */
+	public SummaryLinker(Map<String, Set<String>> subclasses) {
+		this.subclasses = subclasses;
+	}
+
+	/**
+	 * Gets the summarized direct and indirect subclasses and implementors of
+	 * all summarized classes. This method requires a Soot scene that contains
+	 * the class hierarchy of the summarized classes.
+	 * @param summaries The summaries of the individual classes
+	 * @return A mapping from every class to its summarized subclasses
+	 */
+	public static Map<String, Set<String>> getSummarizedSubclasses(ClassSummaries summaries) {
+		Map<String, Set<String>> subclasses = new HashMap<>();
+		for (String className : summaries.getClasses()) {
+			if (ClassSummaries.isUnionClassName(className))
+				continue;
+			SootClass sc = Scene.v().getSootClassUnsafe(className);
+			if (sc == null || sc.isPhantom())
+				continue;
+
+			// Register the class with all of its super types
+			Set<SootClass> doneSet = new HashSet<>();
+			List<SootClass> workList = new ArrayList<>();
+			workList.addAll(sc.getInterfaces());
+			if (sc.hasSuperclass())
+				workList.add(sc.getSuperclass());
+			while (!workList.isEmpty()) {
+				SootClass curClass = workList.remove(0);
+				if (!doneSet.add(curClass))
+					continue;
+
+				Set<String> classSubclasses = subclasses.get(curClass.getName());
+				if (classSubclasses == null) {
+					classSubclasses = new HashSet<>();
+					subclasses.put(curClass.getName(), classSubclasses);
+				}
+				classSubclasses.add(className);
+
+				workList.addAll(curClass.getInterfaces());
+				if (curClass.hasSuperclass())
+					workList.add(curClass.getSuperclass());
+			}
+		}
+		return subclasses;
+	}
+
+	/**
+	 * Links all summaries in the given set until no more gaps can be closed.
+	 * The given object is not modified.
+	 * @param summaries The summaries to link
+	 * @return The linked summaries
+	 */
+	public ClassSummaries link(ClassSummaries summaries) {
+		inlinedGaps = 0;
+		keptGaps = 0;
+
+		ClassSummaries current = summaries;
+		for (int round = 0; round < MAX_ROUNDS; round++) {
+			IMethodSummaryProvider provider = new MemorySummaryProvider(current);
+			ClassSummaries linked = new ClassSummaries();
+			int inlinedBefore = inlinedGaps;
+			keptGaps = 0;
+			for (String className : current.getClasses())
+				linked.merge(className, link(current.getClassSummaries(className), provider));
+			current = linked;
+
+			// If we did not inline anything new, we have reached a fixed point
+			if (inlinedGaps == inlinedBefore)
+				break;
+		}
+		return current;
+	}
+
+	/**
+	 * Links the summaries of a single class against the summaries available
+	 * from the given provider. The given object is not modified. Methods into
+	 * which an approximated summary is inlined are marked as approximated as
+	 * well.
+	 * @param summaries The summaries of a single class to link
+	 * @param provider The provider from which to take the summaries of gap
+	 * targets
+	 * @return The linked summaries
+	 */
+	public MethodSummaries link(MethodSummaries summaries,
+			IMethodSummaryProvider provider) {
+		// Find the gaps that we can close
+		Map<GapDefinition, Set<MethodFlow>> closedGaps = new HashMap<>();
+		Set<GapDefinition> approximatedGaps = new HashSet<>();
+		for (GapDefinition gap : summaries.getAllGaps()) {
+			if (gap.getSignature() == null || hasCustomFlows(summaries, gap))
+				continue;
+			SootMethodAndClass smac = SootMethodRepresentationParser.v()
+					.parseSootMethodString(gap.getSignature());
+			Set<String> targetClasses = new HashSet<>();
+			targetClasses.add(smac.getClassName());
+			Set<String> targetSubclasses = subclasses.get(smac.getClassName());
+			if (targetSubclasses != null)
+				targetClasses.addAll(targetSubclasses);
+			ClassSummaries targetSummaries = provider.getMethodFlows(targetClasses,
+					smac.getSubSignature());
+
+			// The declared target must be summarized, its subclasses may
+			// inherit the method
+			MethodSummaries declaredSummaries = targetSummaries.getClassSummaries(
+					smac.getClassName());
+			if (declaredSummaries == null || getClosedFormFlows(
+					declaredSummaries.getFlowsForMethod(smac.getSubSignature())) == null)
+				continue;
+
+			// The call can be dispatched to any of the target classes, so we
+			// can only close the gap if all of them have closed-form flows
+			Set<MethodFlow> targetFlows = new HashSet<>();
+			boolean approximated = false;
+			for (String className : targetSummaries.getClasses()) {
+				MethodSummaries classSummaries = targetSummaries.getClassSummaries(className);
+				Set<MethodFlow> classFlows = classSummaries.getFlowsForMethod(
+						smac.getSubSignature());
+				if (classFlows == null || classFlows.isEmpty())
+					continue;
+				if (getClosedFormFlows(classFlows) == null) {
+					targetFlows = null;
+					break;
+				}
+				targetFlows.addAll(classFlows);
+				approximated |= classSummaries.isApproximated(smac.getSubSignature());
+			}
+			if (targetFlows != null) {
+				closedGaps.put(gap, targetFlows);
+				if (approximated)
+					approximatedGaps.add(gap);
+			}
+		}
+
+		// Index the flows out of the closed gaps
+		Map<GapDefinition, Set<MethodFlow>> outFlows = new HashMap<>();
+		for (GapDefinition gap : closedGaps.keySet())
+			outFlows.put(gap, summaries.getOutFlowsForGap(gap));
+
+		MethodSummaries linked = new MethodSummaries();
+		linked.mergeMetadata(summaries);
+		for (MethodFlow flow : summaries) {
+			// A method is only as precise as the callees we inline into it
+			if (approximatedGaps.contains(flow.source().getGap())
+					|| approximatedGaps.contains(flow.sink().getGap()))
+				linked.markApproximated(flow.methodSig());
+
+			// Flows out of closed gaps are replaced by the composed flows
+			if (flow.source().getGap() != null
+					&& closedGaps.containsKey(flow.source().getGap()))
+				continue;
+
+			// Flows that do not enter a closed gap are retained
+			if (flow.sink().getGap() == null
+					|| !closedGaps.containsKey(flow.sink().getGap())) {
+				linked.addFlow(flow);
+				continue;
+			}
+
+			// Compose the flow with the gap target and the outgoing flows
+			for (LinkTaint result : propagate(flow, closedGaps, outFlows))
+				linked.addFlow(new MethodFlow(flow.methodSig(), flow.source(),
+						result.sink, result.alias));
+		}
+
+		// Only keep the gaps that are still open
+		for (GapDefinition gap : summaries.getAllGaps()) {
+			if (closedGaps.containsKey(gap))
+				inlinedGaps++;
+			else {
+				linked.getGaps().put(gap.getID(), gap);
+				keptGaps++;
+			}
+		}
+		return linked;
+	}
+
+	/**
+	 * Checks whether the given flows of the target method of a gap are in
+	 * closed form, i.e., do not contain any gaps or custom flows themselves
+	 * @param targetFlows The flows of the gap target
+	 * @return The flows of the gap target if they exist and are closed, null
+	 * otherwise
+	 */
+	private Set<MethodFlow> getClosedFormFlows(Set<MethodFlow> targetFlows) {
+		if (targetFlows == null || targetFlows.isEmpty())
+			return null;
+
+		for (MethodFlow flow : targetFlows)
+			if (flow.isCustom()
+					|| flow.source().getGap() != null
+					|| flow.sink().getGap() != null)
+				return null;
+		return targetFlows;
+	}
+
+	/**
+	 * Checks whether any flow that enters or leaves the given gap is a custom
+	 * flow. Such flows cannot be linked.
+	 * @param summaries The summaries in which to look for the flows
+	 * @param gap The gap to check
+	 * @return True if there is a custom flow at the given gap, otherwise false
+	 */
+	private boolean hasCustomFlows(MethodSummaries summaries, GapDefinition gap) {
+		for (MethodFlow flow : summaries)
+			if (flow.isCustom()
+					&& (gap.equals(flow.source().getGap()) || gap.equals(flow.sink().getGap())))
+				return true;
+		return false;
+	}
+
+	/**
+	 * Propagates the sink of the given flow through all closed gaps until it
+	 * either reaches the end of the method or an open gap
+	 * @param flow The flow that enters a closed gap
+	 * @param closedGaps The closed gaps with the flows of their target methods
+	 * @param outFlows The flows out of the closed gaps in the current method
+	 * @return The sinks at which the taint finally arrives
+	 */
+	private Set<LinkTaint> propagate(MethodFlow flow,
+			Map<GapDefinition, Set<MethodFlow>> closedGaps,
+			Map<GapDefinition, Set<MethodFlow>> outFlows) {
+		Set<LinkTaint> results = new HashSet<>();
+		Set<LinkTaint> doneSet = new HashSet<>();
+		List<LinkTaint> workList = new ArrayList<>();
+
+		LinkTaint initialTaint = new LinkTaint(flow.sink(), flow.isAlias());
+		workList.add(initialTaint);
+		doneSet.add(initialTaint);
+
+		while (!workList.isEmpty()) {
+			LinkTaint curTaint = workList.remove(0);
+			GapDefinition gap = curTaint.sink.getGap();
+
+			// Taints that leave the method or enter an open gap are done
+			if (gap == null || !closedGaps.containsKey(gap)) {
+				results.add(curTaint);
+				continue;
+			}
+
+			// Apply the flows inside the gap target. The results are taints
+			// at the gap from which we continue inside the current method.
+			for (MethodFlow targetFlow : closedGaps.get(gap)) {
+				if (!matchesInCallee(curTaint.sink, targetFlow.source()))
+					continue;
+				FlowSink atGap = applySink(targetFlow.source(), targetFlow.sink(),
+						curTaint.sink, gap);
+
+				for (MethodFlow outFlow : outFlows.get(gap)) {
+					if (outFlow.isCustom() || !matchesAtGap(atGap, outFlow.source()))
+						continue;
+					FlowSink newSink = applySink(outFlow.source(), outFlow.sink(),
+							atGap, outFlow.sink().getGap());
+					LinkTaint newTaint = new LinkTaint(newSink, curTaint.alias
+							&& targetFlow.isAlias() && outFlow.isAlias());
+					if (doneSet.add(newTaint))
+						workList.add(newTaint);
+				}
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * Checks whether a taint that enters a gap matches the source of a flow
+	 * inside the gap target
+	 * @param taint The taint that enters the gap
+	 * @param flowSource The source of the flow in the gap target
+	 * @return True if the flow can be applied to the taint, otherwise false
+	 */
+	private boolean matchesInCallee(FlowSink taint, AbstractFlowSinkSource flowSource) {
+		if (flowSource.isParameter())
+			return taint.isParameter()
+					&& taint.getParameterIndex() == flowSource.getParameterIndex()
+					&& compareFields(taint, flowSource);
+		if (flowSource.isField())
+			return (taint.isField() || taint.isGapBaseObject())
+					&& compareFields(taint, flowSource);
+
+		// Flows from the return value are only applied in reverse for aliases
+		return false;
+	}
+
+	/**
+	 * Checks whether a taint that leaves a gap matches the source of a flow
+	 * from that gap in the current method
+	 * @param taint The taint that leaves the gap
+	 * @param flowSource The source of the flow out of the gap
+	 * @return True if the flow can be applied to the taint, otherwise false
+	 */
+	private boolean matchesAtGap(FlowSink taint, AbstractFlowSinkSource flowSource) {
+		if (flowSource.isParameter())
+			return taint.isParameter()
+					&& taint.getParameterIndex() == flowSource.getParameterIndex()
+					&& compareFields(taint, flowSource);
+		if (flowSource.isField())
+			return (taint.isField() || taint.isGapBaseObject())
+					&& compareFields(taint, flowSource);
+		if (flowSource.isReturn())
+			return compareFields(taint, flowSource);
+		return false;
+	}
+
+	/**
+	 * Checks whether the fields of the given taint correspond to those of the
+	 * given flow source
+	 * @param taint The taint to check
+	 * @param flowSource The flow source with which to compare the taint
+	 * @return True if the taint references the same fields as the flow
+	 * source, otherwise false
+	 */
+	private boolean compareFields(FlowSink taint, AbstractFlowSinkSource flowSource) {
+		// If a is tainted, the summary must match a. If a.* is tainted, the
+		// summary can also be a.b.
+		if (taint.getFieldCount() == 0)
+			return !flowSource.isField() || taint.taintSubFields();
+
+		if (taint.getFieldCount() < flowSource.getAccessPathLength()
+				&& !taint.taintSubFields())
+			return false;
+
+		for (int i = 0; i < taint.getFieldCount()
+				&& i < flowSource.getAccessPathLength(); i++)
+			if (!flowSource.getAccessPath()[i].equals(taint.getAccessPath()[i]))
+				return false;
+		return true;
+	}
+
+	/**
+	 * Computes the taint at the sink of a flow that is applied to the given
+	 * taint
+	 * @param flowSource The source of the flow to apply
+	 * @param flowSink The sink of the flow to apply
+	 * @param taint The taint to which the flow is applied
+	 * @param gap The gap at which the new taint holds
+	 * @return The taint at the sink of the flow
+	 */
+	private FlowSink applySink(AbstractFlowSinkSource flowSource, FlowSink flowSink,
+			FlowSink taint, GapDefinition gap) {
+		String[] fields = append(flowSink.getAccessPath(),
+				getRemaining(flowSource, taint.getAccessPath()));
+		String[] fieldTypes = append(flowSink.getAccessPathTypes(),
+				getRemaining(flowSource, taint.getAccessPathTypes()));
+
+		// If we enter a gap with a type "GapBaseObject", we need to convert
+		// it to a regular field
+		SourceSinkType type = flowSink.getType();
+		if (type == SourceSinkType.GapBaseObject && fields != null && fields.length > 0)
+			type = SourceSinkType.Field;
+
+		// If the access path gets truncated, we must taint all sub-fields
+		boolean taintSubFields = flowSink.taintSubFields() || taint.taintSubFields()
+				|| (fields != null && fields.length > InfoflowConfiguration.getAccessPathLength());
+
+		return new FlowSink(type, flowSink.getParameterIndex(), flowSink.getBaseType(),
+				fields, fieldTypes, taintSubFields, gap);
+	}
+
+	/**
+	 * Gets the elements of the given taint access path that are not covered
+	 * by the given flow source
+	 * @param flowSource The flow source
+	 * @param taintElements The fields or field types of the taint
+	 * @return The elements that are not covered by the flow source
+	 */
+	private String[] getRemaining(AbstractFlowSinkSource flowSource,
+			String[] taintElements) {
+		if (!flowSource.hasAccessPath() || taintElements == null)
+			return taintElements;
+
+		int cnt = taintElements.length - flowSource.getAccessPathLength();
+		if (cnt <= 0)
+			return null;
+
+		String[] remaining = new String[cnt];
+		System.arraycopy(taintElements, flowSource.getAccessPathLength(),
+				remaining, 0, cnt);
+		return remaining;
+	}
+
+	/**
+	 * Concatenates the two given arrays
+	 * @param first The first array
+	 * @param second The second array
+	 * @return The concatenation of both arrays
+	 */
+	private String[] append(String[] first, String[] second) {
+		if (first == null)
+			return second;
+		if (second == null)
+			return first;
+
+		String[] appended = new String[first.length + second.length];
+		System.arraycopy(first, 0, appended, 0, first.length);
+		System.arraycopy(second, 0, appended, first.length, second.length);
+		return appended;
+	}
+
+	/**
+	 * Gets the number of gaps that have been closed by the last linking run
+	 * @return The number of closed gaps
+	 */
+	public int getInlinedGaps() {
+		return inlinedGaps;
+	}
+
+	/**
+	 * Gets the number of gaps that have been kept open by the last linking
+	 * run, because they represent real callbacks
+	 * @return The number of open gaps
+	 */
+	public int getKeptGaps() {
+		return keptGaps;
+	}
+
+	public static void main(String[] args) throws XMLStreamException,
+			SummaryXMLException, IOException {
+		if (args.length != 3) {
+			System.out.println("Usage: java soot.jimple.infoflow.methodSummary.linker.SummaryLinker "
+					+ "<input directory> <output directory> <classpath>");
+			return;
+		}
+
+		File inputDir = new File(args[0]);
+		File outputDir = new File(args[1]);
+		File[] inputFiles = inputDir.listFiles();
+		if (inputFiles == null)
+			throw new RuntimeException("Could not get files in directory " + inputDir);
+		if (!outputDir.exists() && !outputDir.mkdirs())
+			throw new RuntimeException("Could not create output directory " + outputDir);
+
+		// Load the summaries. The types are not validated against the scene.
+		XMLReader reader = new XMLReader();
+		reader.setValidateSummariesOnRead(false);
+		ClassSummaries summaries = new ClassSummaries();
+		for (File f : inputFiles)
+			if (XMLReader.isSummaryFile(f))
+				summaries.merge(XMLReader.getClassName(f), reader.read(f));
+
+		// Load the class hierarchy
+		G.reset();
+		Options.v().set_src_prec(Options.src_prec_class);
+		Options.v().set_output_format(Options.output_format_none);
+		Options.v().set_soot_classpath(args[2]);
+		Options.v().set_whole_program(false);
+		Options.v().set_allow_phantom_refs(true);
+		for (String className : summaries.getClasses())
+			if (!ClassSummaries.isUnionClassName(className))
+				Scene.v().addBasicClass(className, SootClass.HIERARCHY);
+		Scene.v().loadNecessaryClasses();
+
+		SummaryLinker linker = new SummaryLinker(getSummarizedSubclasses(summaries));
+		ClassSummaries linked = linker.link(summaries);
+		new XMLWriter().write(outputDir, linked);
+
+		System.out.println("Linked " + linked.getClasses().size() + " classes, closed "
+				+ linker.getInlinedGaps() + " gaps, kept " + linker.getKeptGaps()
+				+ " open gaps");
+	}
+
+}
@@ -0,0 +1,279 @@
+package soot.jimple.infoflow.methodSummary.linker;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.stream.XMLStreamException;
+
+import soot.G;
+import soot.Scene;
+import soot.SootClass;
+import soot.SootMethod;
+import soot.jimple.infoflow.methodSummary.data.summary.ClassSummaries;
+import soot.jimple.infoflow.methodSummary.data.summary.GapDefinition;
+import soot.jimple.infoflow.methodSummary.data.summary.MethodFlow;
+import soot.jimple.infoflow.methodSummary.data.summary.MethodSummaries;
+import soot.jimple.infoflow.methodSummary.xml.SummaryXMLException;
+import soot.jimple.infoflow.methodSummary.xml.XMLReader;
+import soot.jimple.infoflow.methodSummary.xml.XMLWriter;
+import soot.options.Options;
+import soot.util.HashMultiMap;
+import soot.util.MultiMap;
+
+/**
+ * Offline builder for union summaries. For every interface or abstract class
+ * with at least two summarized implementors, the builder merges the flows of
+ * all implementors for the methods declared in the interface or abstract
+ * class into one deduplicated summary. The SummaryTaintWrapper uses these
+ * union summaries for calls on receivers declared with that type instead of
+ * applying the summaries of every implementor separately.
+ *
+ * The builder requires a Soot scene that contains the class hierarchy of the
+ * summarized classes.
+ *
+ * @author Steven Arzt
+ *
+ */
+public class UnionSummaryBuilder {
+
+	private final Set<String> targetTypes;
+
+	/**
+	 * Creates a new instance of the UnionSummaryBuilder class that builds
+	 * union summaries for all interfaces and abstract classes
+	 */
+	public UnionSummaryBuilder() {
+		this(null);
+	}
+
+	/**
+	 * Creates a new instance of the UnionSummaryBuilder class
+	 * @param targetTypes The names of the interfaces and abstract classes for
+	 * which to build union summaries. If this parameter is null, union
+	 * summaries are built for all interfaces and abstract classes.
+	 */
+	public UnionSummaryBuilder(Set<String> targetTypes) {
+		this.targetTypes = targetTypes;
+	}
+
+	/**
+	 * Builds the union summaries for the given summaries
+	 * @param summaries The summaries of the individual classes
+	 * @return The union summaries, stored under the names obtained from
+	 * ClassSummaries.getUnionClassName()
+	 */
+	public ClassSummaries buildUnions(ClassSummaries summaries) {
+		// Collect the summarized implementors of each abstract type
+		MultiMap<SootClass, String> implementors = new HashMultiMap<>();
+		for (String className : summaries.getClasses()) {
+			if (ClassSummaries.isUnionClassName(className))
+				continue;
+			SootClass sc = Scene.v().getSootClassUnsafe(className);
+			if (sc == null || sc.isPhantom())
+				continue;
+			for (SootClass superType : getAbstractSuperTypes(sc))
+				if (targetTypes == null || targetTypes.contains(superType.getName()))
+					implementors.put(superType, className);
+		}
+
+		ClassSummaries unions = new ClassSummaries();
+		for (SootClass superType : implementors.keySet()) {
+			// A single implementor does not need a union
+			Set<String> classNames = implementors.get(superType);
+			if (classNames.size() < 2)
+				continue;
+
+			MethodSummaries union = buildUnion(superType, classNames, summaries);
+			if (!union.isEmpty())
+				unions.merge(ClassSummaries.getUnionClassName(superType.getName()), union);
+		}
+		return unions;
+	}
+
+	/**
+	 * Gets all interfaces and abstract classes that the given class extends or
+	 * implements, including the class itself if it is abstract
+	 * @param sc The class for which to get the abstract super types
+	 * @return The abstract super types of the given class
+	 */
+	private Set<SootClass> getAbstractSuperTypes(SootClass sc) {
+		Set<SootClass> superTypes = new HashSet<>();
+		Set<SootClass> doneSet = new HashSet<>();
+		List<SootClass> workList = new ArrayList<>();
+		workList.add(sc);
+		while (!workList.isEmpty()) {
+			SootClass curClass = workList.remove(0);
+			if (!doneSet.add(curClass))
+				continue;
+
+			if (curClass.isInterface() || curClass.isAbstract())
+				superTypes.add(curClass);
+			workList.addAll(curClass.getInterfaces());
+			if (curClass.hasSuperclass())
+				workList.add(curClass.getSuperclass());
+		}
+		return superTypes;
+	}
+
+	/**
+	 * Gets the subsignatures of all methods that can be called on a receiver
+	 * of the given type
+	 * @param superType The type of the receiver
+	 * @return The subsignatures of all methods declared in the given type or
+	 * one of its super types
+	 */
+	private Set<String> getCallableSubSignatures(SootClass superType) {
+		Set<String> subSigs = new HashSet<>();
+		Set<SootClass> doneSet = new HashSet<>();
+		List<SootClass> workList = new ArrayList<>();
+		workList.add(superType);
+		while (!workList.isEmpty()) {
+			SootClass curClass = workList.remove(0);
+			if (!doneSet.add(curClass))
+				continue;
+
+			if (curClass.resolvingLevel() < SootClass.SIGNATURES && !curClass.isPhantom())
+				Scene.v().forceResolve(curClass.getName(), SootClass.SIGNATURES);
+			for (SootMethod sm : curClass.getMethods())
+				subSigs.add(sm.getSubSignature());
+
+			workList.addAll(curClass.getInterfaces());
+			if (curClass.hasSuperclass())
+				workList.add(curClass.getSuperclass());
+		}
+		return subSigs;
+	}
+
+	/**
+	 * Builds the union summary for the given abstract type
+	 * @param superType The interface or abstract class
+	 * @param classNames The names of the summarized implementors
+	 * @param summaries The summaries of the individual classes
+	 * @return The deduplicated union of the flows of all implementors for the
+	 * methods that can be called on the given type
+	 */
+	private MethodSummaries buildUnion(SootClass superType, Set<String> classNames,
+			ClassSummaries summaries) {
+		Set<String> subSigs = getCallableSubSignatures(superType);
+		MethodSummaries union = new MethodSummaries();
+		int nextGapID = 0;
+
+		for (String className : classNames) {
+			MethodSummaries classSummaries = summaries.getClassSummaries(className);
+
+			// Gap IDs are only unique within a class, so we need to renumber
+			// them for the union
+			Map<Integer, GapDefinition> gapMap = new HashMap<>();
+			for (GapDefinition gap : classSummaries.getAllGaps())
+				gapMap.put(gap.getID(), union.getOrCreateGap(nextGapID++, gap.getSignature()));
+
+			for (String subSig : classSummaries.getFlows().keySet()) {
+				if (!subSigs.contains(subSig))
+					continue;
+				for (MethodFlow flow : classSummaries.getFlowsForMethod(subSig))
+					addFlow(union, flow.replaceGaps(gapMap));
+			}
+		}
+
+		removeSubsumedFlows(union);
+		removeUnusedGaps(union);
+		return union;
+	}
+
+	/**
+	 * Adds the given flow to the union. If an equal flow already exists, the
+	 * flow that is an alias flow is kept.
+	 * @param union The union summary
+	 * @param flow The flow to add
+	 */
+	private void addFlow(MethodSummaries union, MethodFlow flow) {
+		if (union.addFlow(flow) || !flow.isAlias())
+			return;
+		union.remove(flow);
+		union.addFlow(flow);
+	}
+
+	/**
+	 * Removes all flows that are subsumed by a coarser flow in the same method
+	 * @param union The union summary
+	 */
+	private void removeSubsumedFlows(MethodSummaries union) {
+		List<MethodFlow> toRemove = new ArrayList<>();
+		for (Set<MethodFlow> methodFlows : union.getFlows().values())
+			for (MethodFlow flow : methodFlows)
+				for (MethodFlow flow2 : methodFlows)
+					if (flow != flow2 && !flow2.equals(flow)
+							&& flow2.isCoarserThan(flow)
+							&& (flow2.isAlias() || !flow.isAlias())) {
+						toRemove.add(flow);
+						break;
+					}
+		for (MethodFlow flow : toRemove)
+			union.remove(flow);
+	}
+
+	/**
+	 * Removes all gaps that are no longer referenced by any flow
+	 * @param union The union summary
+	 */
+	private void removeUnusedGaps(MethodSummaries union) {
+		for (Iterator<GapDefinition> gapIt = union.getGaps().values().iterator();
+				gapIt.hasNext(); ) {
+			GapDefinition gap = gapIt.next();
+			if (union.getInFlowsForGap(gap).isEmpty()
+					&& union.getOutFlowsForGap(gap).isEmpty())
+				gapIt.remove();
+		}
+	}
+
+	public static void main(String[] args) throws XMLStreamException,
+			SummaryXMLException, IOException {
+		if (args.length < 2) {
+			System.out.println("Usage: java soot.jimple.infoflow.methodSummary.linker.UnionSummaryBuilder "
+					+ "<summary directory> <classpath> [<interface or abstract class> ...]");
+			return;
+		}
+
+		File summaryDir = new File(args[0]);
+		File[] summaryFiles = summaryDir.listFiles();
+		if (summaryFiles == null)
+			throw new RuntimeException("Could not get files in directory " + summaryDir);
+		Set<String> targetTypes = args.length > 2
+				? new HashSet<>(Arrays.asList(args).subList(2, args.length)) : null;
+
+		// Load the summaries
+		XMLReader reader = new XMLReader();
+		reader.setValidateSummariesOnRead(false);
+		ClassSummaries summaries = new ClassSummaries();
+		for (File f : summaryFiles)
+			if (XMLReader.isSummaryFile(f)) {
+				String className = XMLReader.getClassName(f);
+				if (!ClassSummaries.isUnionClassName(className))
+					summaries.merge(className, reader.read(f));
+			}
+
+		// Load the class hierarchy
+		G.reset();
+		Options.v().set_src_prec(Options.src_prec_class);
+		Options.v().set_output_format(Options.output_format_none);
+		Options.v().set_soot_classpath(args[1]);
+		Options.v().set_whole_program(false);
+		Options.v().set_allow_phantom_refs(true);
+		for (String className : summaries.getClasses())
+			Scene.v().addBasicClass(className, SootClass.HIERARCHY);
+		Scene.v().loadNecessaryClasses();
+
+		ClassSummaries unions = new UnionSummaryBuilder(targetTypes).buildUnions(summaries);
+		new XMLWriter().write(summaryDir, unions);
+		System.out.println("Created union summaries for " + unions.getClasses().size() + " types");
+	}
+
+}
@@ -1,10 +1,8 @@
 package soot.jimple.infoflow.methodSummary.postProcessor;
 
 import java.util.Collection;
-import java.util.Collections;
+import java.util.HashSet;
 import java.util.Set;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -82,18 +80,17 @@ public class InfoflowResultPostProcessor {
 		
 		// Create a context-sensitive path builder. Without context-sensitivity,
 		// we get quite some false positives here.
-		CountingThreadPoolExecutor executor = new CountingThreadPoolExecutor(
-				Runtime.getRuntime().availableProcessors(),
-				Integer.MAX_VALUE,
-				30, TimeUnit.SECONDS,
-				new LinkedBlockingQueue<Runnable>());
+		CountingThreadPoolExecutor executor = config.getExecutor();
 		SummaryPathBuilder pathBuilder = new SummaryPathBuilder(cfg, executor);
 		
 		int analyzedPaths = 0;
 		int abstractionCount = 0;
+		
+		// Abstractions that directly are source abstractions do not need path
+		// reconstruction. For all others, we reconstruct the paths in one
+		// batch and tag the results with the abstraction at the sink.
+		Set<AbstractionAtSink> sinks = new HashSet<>();
 		for (Abstraction a : collectedAbstractions.keySet()) {
-			// If this abstraction is directly the source abstraction, we do not
-			// need to construct paths
 			if (a.getSourceContext() != null) {
 				for (Stmt stmt : collectedAbstractions.get(a)) {
 					processFlowSource(flows, m, a.getAccessPath(), stmt,
@@ -106,61 +103,60 @@ public class InfoflowResultPostProcessor {
 									false));
 				}
 			}
-			else {
-				// Get the source info and process the flow
-				pathBuilder.clear();
-				pathBuilder.computeTaintPaths(Collections.singleton(
-						new AbstractionAtSink(a, a.getCurrentStmt())));
-				
-				// Wait for the executor to complete all of its tasks
-				try {
-					executor.awaitCompletion();
-				} catch (InterruptedException e) {
-					logger.error("Could not wait for executor termination", e);
-				}
-				
-				logger.info("Obtained {} source-to-sink connections.",
-						pathBuilder.getResultInfos().size());
+			else
+				sinks.add(new AbstractionAtSink(a, a.getCurrentStmt()));
+		}
+		
+		if (!sinks.isEmpty()) {
+			pathBuilder.computeTaintPaths(sinks);
+			
+			// Wait for the executor to complete all of its tasks
+			try {
+				executor.awaitCompletion();
+			} catch (InterruptedException e) {
+				logger.error("Could not wait for executor termination", e);
+			}
+			
+			logger.info("Obtained {} source-to-sink connections for {} abstractions.",
+					pathBuilder.getResultInfos().size(), sinks.size());
+		}
+		
+		// Reconstruct the sources
+		for (AbstractionAtSink sink : sinks) {
+			final Abstraction a = sink.getAbstraction();
+			final Set<SummaryResultInfo> resultInfos = pathBuilder.getResultInfos(a);
+			
+			for (Stmt stmt : collectedAbstractions.get(a)) {
+				abstractionCount++;
 				
-				// Reconstruct the sources
-				for (Stmt stmt : collectedAbstractions.get(a)) {
-					abstractionCount++;
+				for (SummaryResultInfo si : resultInfos) {
+					final AccessPath sourceAP = si.getSourceInfo().getAccessPath();
+					final AccessPath sinkAP = si.getSinkInfo().getAccessPath();
+					final Stmt sourceStmt = si.getSourceInfo().getSource();
 					
-					// If this abstraction is directly the source abstraction, we do not
-					// need to construct paths
-					if (a.getSourceContext() != null) {
-						continue;
-					}
+					// Check that we don't get any weird results
+					if (sourceAP == null || sinkAP == null)
+						throw new RuntimeException("Invalid access path");
 					
-					for (SummaryResultInfo si : pathBuilder.getResultInfos()) {
-						final AccessPath sourceAP = si.getSourceInfo().getAccessPath();
-						final AccessPath sinkAP = si.getSinkInfo().getAccessPath();
-						final Stmt sourceStmt = si.getSourceInfo().getSource();
-						
-						// Check that we don't get any weird results
-						if (sourceAP == null || sinkAP == null)
-							throw new RuntimeException("Invalid access path");
-						
-						// We only take flows which are not identity flows.
-						// If we have a flow from a gap parameter to the original
-						// method parameter, the access paths are equal, but that's
-						// ok in the case of aliasing.
-						boolean isAliasedField = gapManager.getGapForCall(sourceStmt) != null
-								&& isAliasedField(sinkAP, sourceAP, sourceStmt)
-								&& si.getSourceInfo().getIsAlias();
-						if (!sinkAP.equals(sourceAP) || isAliasedField) {
-							// Process the flow from this source
-							processFlowSource(flows, m, sinkAP, stmt, si.getSourceInfo());
-							analyzedPaths++;
-						}
+					// We only take flows which are not identity flows.
+					// If we have a flow from a gap parameter to the original
+					// method parameter, the access paths are equal, but that's
+					// ok in the case of aliasing.
+					boolean isAliasedField = gapManager.getGapForCall(sourceStmt) != null
+							&& isAliasedField(sinkAP, sourceAP, sourceStmt)
+							&& si.getSourceInfo().getIsAlias();
+					if (!sinkAP.equals(sourceAP) || isAliasedField) {
+						// Process the flow from this source
+						processFlowSource(flows, m, sinkAP, stmt, si.getSourceInfo());
+						analyzedPaths++;
 					}
 				}
-				
-				// Free some memory
-				pathBuilder.clear();
 			}
 		}
 		
+		// Free some memory
+		pathBuilder.clear();
+		
 		// Compact the flow set to remove paths that are over-approximations of
 		// other flows
 		new SummaryFlowCompactor(flows).compact();
@@ -8,7 +8,6 @@ import java.util.Set;
 import heros.solver.CountingThreadPoolExecutor;
 import soot.SootMethod;
 import soot.jimple.Stmt;
-import soot.jimple.infoflow.collect.ConcurrentHashSet;
 import soot.jimple.infoflow.data.Abstraction;
 import soot.jimple.infoflow.data.AbstractionAtSink;
 import soot.jimple.infoflow.data.AccessPath;
@@ -20,6 +19,8 @@ import soot.jimple.infoflow.results.ResultSinkInfo;
 import soot.jimple.infoflow.results.ResultSourceInfo;
 import soot.jimple.infoflow.solver.cfg.IInfoflowCFG;
 import soot.jimple.infoflow.source.SourceInfo;
+import soot.util.ConcurrentHashMultiMap;
+import soot.util.MultiMap;
 
 /**
  * Extended path reconstruction algorithm for StubDroid
@@ -28,8 +29,9 @@ import soot.jimple.infoflow.source.SourceInfo;
  */
 class SummaryPathBuilder extends ContextSensitivePathBuilder {
 	
-	private Set<SummaryResultInfo> resultInfos = new ConcurrentHashSet<SummaryResultInfo>();
-	private Set<Abstraction> visitedAbstractions = Collections.newSetFromMap(new IdentityHashMap<Abstraction,Boolean>());
+	private MultiMap<Abstraction, SummaryResultInfo> resultInfos = new ConcurrentHashMultiMap<>();
+	private Set<Abstraction> visitedAbstractions = Collections.synchronizedSet(
+			Collections.newSetFromMap(new IdentityHashMap<Abstraction,Boolean>()));
 	
 	/**
 	 * Extended version of the {@link SourceInfo} class that also allows to
@@ -213,7 +215,8 @@ class SummaryPathBuilder extends ContextSensitivePathBuilder {
 				scap.getAccessPath(),
 				scap.getStmt());
 		
-		this.resultInfos.add(new SummaryResultInfo(ssi, rsi));
+		this.resultInfos.put(sscap.getSinkAbstraction(),
+				new SummaryResultInfo(ssi, rsi));
 		return true;
 	}
 	
@@ -233,7 +236,19 @@ class SummaryPathBuilder extends ContextSensitivePathBuilder {
 	 * propagation paths
 	 */
 	public Set<SummaryResultInfo> getResultInfos() {
-		return this.resultInfos;
+		return this.resultInfos.values();
+	}
+	
+	/**
+	 * Gets the source information and the reconstructed paths for the given
+	 * abstraction at the sink
+	 * @param sinkAbs The abstraction at which the path reconstruction was
+	 * started
+	 * @return The found source-to-sink connections that end at the given
+	 * abstraction
+	 */
+	public Set<SummaryResultInfo> getResultInfos(Abstraction sinkAbs) {
+		return this.resultInfos.get(sinkAbs);
 	}
 	
 	@Override
@@ -248,7 +263,8 @@ class SummaryPathBuilder extends ContextSensitivePathBuilder {
 				abs.getSinkStmt(),
 				AliasUtils.canAccessPathHaveAliases(abs.getAbstraction().getAccessPath()),
 				abs.getAbstraction().getAccessPath(),
-				new ArrayList<SootMethod>());
+				new ArrayList<SootMethod>(),
+				abs.getAbstraction());
 		scap = scap.extendPath(abs.getAbstraction());
 		
 		if (scap != null) {
@@ -46,26 +46,31 @@ class SummarySourceContextAndPath extends SourceContextAndPath {
 	private AccessPath curAP;
 	private int depth;
 	private final List<SootMethod> callees;
+	private final Abstraction sinkAbstraction;
 	
 	public SummarySourceContextAndPath(IInfoflowCFG cfg,
 			AccessPath value, Stmt stmt, boolean isAlias,
-			AccessPath curAP, List<SootMethod> callees) {
+			AccessPath curAP, List<SootMethod> callees,
+			Abstraction sinkAbstraction) {
 		super(value, stmt);
 		this.cfg = cfg;
 		this.isAlias = isAlias;
 		this.curAP = curAP;
 		this.callees = callees;
+		this.sinkAbstraction = sinkAbstraction;
 	}
 	
 	public SummarySourceContextAndPath(IInfoflowCFG cfg,
 			AccessPath value, Stmt stmt, AccessPath curAP, boolean isAlias,
-			int depth, List<SootMethod> callees, Object userData) {
+			int depth, List<SootMethod> callees, Object userData,
+			Abstraction sinkAbstraction) {
 		super(value, stmt, userData);
 		this.cfg = cfg;
 		this.isAlias = isAlias;
 		this.curAP = curAP;
 		this.callees = new ArrayList<SootMethod>(callees);
 		this.depth = depth;
+		this.sinkAbstraction = sinkAbstraction;
 	}
 	
 	@Override
@@ -484,7 +489,7 @@ class SummarySourceContextAndPath extends SourceContextAndPath {
 	public synchronized SummarySourceContextAndPath clone() {
 		final SummarySourceContextAndPath scap = new SummarySourceContextAndPath(
 				cfg, getAccessPath(), getStmt(), curAP, isAlias, depth,
-				new ArrayList<>(callees), getUserData());
+				new ArrayList<>(callees), getUserData(), sinkAbstraction);
 		if (callStack != null)
 			scap.callStack = new ArrayList<Stmt>(callStack);
 		if (path != null)
@@ -500,6 +505,7 @@ class SummarySourceContextAndPath extends SourceContextAndPath {
 		result = prime * result + ((cfg == null) ? 0 : cfg.hashCode());
 		result = prime * result + ((curAP == null) ? 0 : curAP.hashCode());
 		result = prime * result + (isAlias ? 1231 : 1237);
+		result = prime * result + System.identityHashCode(sinkAbstraction);
 		
 		// We deliberately ignore the depth to avoid infinite progression into
 		// recursive method calls
@@ -534,6 +540,10 @@ class SummarySourceContextAndPath extends SourceContextAndPath {
 		if (isAlias != other.isAlias)
 			return false;
 		
+		// Paths started at different sinks are reconstructed independently
+		if (sinkAbstraction != other.sinkAbstraction)
+			return false;
+		
 		// We deliberately ignore the depth to avoid infinite progression into
 		// recursive method calls
 		
@@ -551,5 +561,14 @@ class SummarySourceContextAndPath extends SourceContextAndPath {
 	public int getDepth() {
 		return this.depth;
 	}
+	
+	/**
+	 * Gets the abstraction at the sink from which the reconstruction of this
+	 * path was started
+	 * @return The abstraction at which this path ends
+	 */
+	public Abstraction getSinkAbstraction() {
+		return this.sinkAbstraction;
+	}
 		
 }
@@ -0,0 +1,276 @@
+package soot.jimple.infoflow.methodSummary.server;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import soot.jimple.infoflow.methodSummary.data.sourceSink.AbstractFlowSinkSource;
+import soot.jimple.infoflow.methodSummary.data.sourceSink.FlowSink;
+import soot.jimple.infoflow.methodSummary.data.sourceSink.FlowSource;
+import soot.jimple.infoflow.methodSummary.data.summary.ClassSummaries;
+import soot.jimple.infoflow.methodSummary.data.summary.GapDefinition;
+import soot.jimple.infoflow.methodSummary.data.summary.MethodFlow;
+import soot.jimple.infoflow.methodSummary.data.summary.MethodSummaries;
+import soot.jimple.infoflow.methodSummary.data.summary.SourceSinkType;
+
+/**
+ * Binary protocol between the summary server and its clients. Every message
+ * starts with an opcode. Strings are written only once per message and are
+ * afterwards referenced by their index in the message's string table.
+ *
+ * @author Steven Arzt
+ *
+ */
+public class SummaryProtocol {
+
+	public static final int PROTOCOL_VERSION = 1;
+	public static final int DEFAULT_PORT = 47110;
+
+	/**
+	 * Closes the connection
+	 */
+	public static final byte OP_CLOSE = 0;
+
+	/**
+	 * Requests the names of all classes for which the server has summaries
+	 */
+	public static final byte OP_GET_CLASSES = 1;
+
+	/**
+	 * Requests the flows of a method in a set of classes
+	 */
+	public static final byte OP_GET_METHOD_FLOWS = 2;
+
+	private static final int NULL_STRING = -1;
+	private static final int NEW_STRING = -2;
+	private static final int BUFFER_SIZE = 16 * 1024;
+
+	private final DataInputStream in;
+	private final DataOutputStream out;
+
+	private final Map<String, Integer> writeTable = new HashMap<>();
+	private final List<String> readTable = new ArrayList<>();
+
+	public SummaryProtocol(InputStream in, OutputStream out) {
+		this.in = new DataInputStream(new BufferedInputStream(in, BUFFER_SIZE));
+		this.out = new DataOutputStream(new BufferedOutputStream(out, BUFFER_SIZE));
+	}
+
+	/**
+	 * Starts a new message. This resets the string tables.
+	 */
+	private void beginMessage() {
+		writeTable.clear();
+		readTable.clear();
+	}
+
+	/**
+	 * Writes the given opcode and starts a new outgoing message
+	 * @param opcode The opcode to write
+	 * @throws IOException Thrown if the data could not be written
+	 */
+	public void writeOpcode(byte opcode) throws IOException {
+		beginMessage();
+		out.writeByte(opcode);
+	}
+
+	/**
+	 * Reads the next opcode and starts a new incoming message
+	 * @return The opcode that was read
+	 * @throws IOException Thrown if the data could not be read
+	 */
+	public byte readOpcode() throws IOException {
+		beginMessage();
+		return in.readByte();
+	}
+
+	/**
+	 * Starts a new response message
+	 */
+	public void beginResponse() {
+		beginMessage();
+	}
+
+	/**
+	 * Sends all buffered data to the other side
+	 * @throws IOException Thrown if the data could not be written
+	 */
+	public void flush() throws IOException {
+		out.flush();
+	}
+
+	public void writeInt(int value) throws IOException {
+		out.writeInt(value);
+	}
+
+	public int readInt() throws IOException {
+		return in.readInt();
+	}
+
+	public void writeString(String value) throws IOException {
+		if (value == null) {
+			out.writeInt(NULL_STRING);
+			return;
+		}
+
+		Integer idx = writeTable.get(value);
+		if (idx != null)
+			out.writeInt(idx);
+		else {
+			out.writeInt(NEW_STRING);
+			out.writeUTF(value);
+			writeTable.put(value, writeTable.size());
+		}
+	}
+
+	public String readString() throws IOException {
+		int idx = in.readInt();
+		if (idx == NULL_STRING)
+			return null;
+		if (idx == NEW_STRING) {
+			String value = in.readUTF();
+			readTable.add(value);
+			return value;
+		}
+		return readTable.get(idx);
+	}
+
+	public void writeStrings(Collection<String> values) throws IOException {
+		out.writeInt(values.size());
+		for (String value : values)
+			writeString(value);
+	}
+
+	public Set<String> readStrings() throws IOException {
+		int size = in.readInt();
+		Set<String> values = new HashSet<>(size);
+		for (int i = 0; i < size; i++)
+			values.add(readString());
+		return values;
+	}
+
+	private void writeStringArray(String[] values) throws IOException {
+		if (values == null) {
+			out.writeInt(-1);
+			return;
+		}
+		out.writeInt(values.length);
+		for (String value : values)
+			writeString(value);
+	}
+
+	private String[] readStringArray() throws IOException {
+		int size = in.readInt();
+		if (size < 0)
+			return null;
+		String[] values = new String[size];
+		for (int i = 0; i < size; i++)
+			values[i] = readString();
+		return values;
+	}
+
+	/**
+	 * Writes the given class summaries
+	 * @param summaries The summaries to write
+	 * @throws IOException Thrown if the data could not be written
+	 */
+	public void writeClassSummaries(ClassSummaries summaries) throws IOException {
+		out.writeInt(summaries.getClasses().size());
+		for (String className : summaries.getClasses()) {
+			writeString(className);
+			Set<MethodFlow> flows = summaries.getClassSummaries(className).getAllFlows();
+			out.writeInt(flows.size());
+			for (MethodFlow flow : flows) {
+				writeString(flow.methodSig());
+				out.writeBoolean(flow.isAlias());
+				writeSourceSink(flow.source());
+				writeSourceSink(flow.sink());
+				out.writeBoolean(flow.sink().taintSubFields());
+			}
+		}
+	}
+
+	private void writeSourceSink(AbstractFlowSinkSource sourceSink) throws IOException {
+		out.writeByte(sourceSink.getType().ordinal());
+		out.writeInt(sourceSink.getParameterIndex());
+		writeString(sourceSink.getBaseType());
+		writeStringArray(sourceSink.getAccessPath());
+		writeStringArray(sourceSink.getAccessPathTypes());
+
+		GapDefinition gap = sourceSink.getGap();
+		out.writeInt(gap == null ? -1 : gap.getID());
+		if (gap != null)
+			writeString(gap.getSignature());
+	}
+
+	/**
+	 * Reads class summaries
+	 * @return The class summaries that were read
+	 * @throws IOException Thrown if the data could not be read
+	 */
+	public ClassSummaries readClassSummaries() throws IOException {
+		ClassSummaries summaries = new ClassSummaries();
+		int classCount = in.readInt();
+		for (int i = 0; i < classCount; i++) {
+			String className = readString();
+			MethodSummaries ms = new MethodSummaries();
+			int flowCount = in.readInt();
+			for (int j = 0; j < flowCount; j++) {
+				String methodSig = readString();
+				boolean isAlias = in.readBoolean();
+				FlowSource source = readSource(ms);
+				FlowSink sink = readSink(ms);
+				ms.addFlow(new MethodFlow(methodSig, source, sink, isAlias));
+			}
+			summaries.merge(className, ms);
+		}
+		return summaries;
+	}
+
+	private FlowSource readSource(MethodSummaries ms) throws IOException {
+		SourceSinkType type = SourceSinkType.values()[in.readByte()];
+		int paramIdx = in.readInt();
+		String baseType = readString();
+		String[] accessPath = readStringArray();
+		String[] accessPathTypes = readStringArray();
+		GapDefinition gap = readGap(ms);
+		return new FlowSource(type, paramIdx, baseType, accessPath, accessPathTypes, gap);
+	}
+
+	private FlowSink readSink(MethodSummaries ms) throws IOException {
+		SourceSinkType type = SourceSinkType.values()[in.readByte()];
+		int paramIdx = in.readInt();
+		String baseType = readString();
+		String[] accessPath = readStringArray();
+		String[] accessPathTypes = readStringArray();
+		GapDefinition gap = readGap(ms);
+		boolean taintSubFields = in.readBoolean();
+
+		// Access paths that are truncated on the client side must taint the
+		// sub-fields
+		if (type == SourceSinkType.Field || type == SourceSinkType.Return)
+			return new FlowSink(type, baseType, accessPath, accessPathTypes,
+					taintSubFields, gap);
+		return new FlowSink(type, paramIdx, baseType, accessPath, accessPathTypes,
+				taintSubFields, gap);
+	}
+
+	private GapDefinition readGap(MethodSummaries ms) throws IOException {
+		int gapID = in.readInt();
+		if (gapID < 0)
+			return null;
+		return ms.getOrCreateGap(gapID, readString());
+	}
+
+}
@@ -0,0 +1,244 @@
+package soot.jimple.infoflow.methodSummary.server;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import javax.xml.stream.XMLStreamException;
+
+import soot.jimple.infoflow.InfoflowConfiguration;
+import soot.jimple.infoflow.methodSummary.data.provider.IMethodSummaryProvider;
+import soot.jimple.infoflow.methodSummary.data.provider.MemorySummaryProvider;
+import soot.jimple.infoflow.methodSummary.data.summary.ClassSummaries;
+import soot.jimple.infoflow.methodSummary.xml.SummaryXMLException;
+import soot.jimple.infoflow.methodSummary.xml.XMLReader;
+
+/**
+ * Server that keeps a single copy of the method summaries in memory and
+ * answers queries from analysis processes on the same machine. The server
+ * only listens on the loopback interface. Since the summaries are never
+ * modified after loading, the connections are served without locking.
+ *
+ * @author Steven Arzt
+ *
+ */
+public class SummaryServer {
+
+	private final IMethodSummaryProvider provider;
+	private final Set<String> classes;
+	private final int port;
+
+	private ServerSocket serverSocket;
+	private ExecutorService executor;
+	private final Set<Socket> connections =
+			Collections.synchronizedSet(new HashSet<Socket>());
+
+	/**
+	 * Creates a new instance of the SummaryServer class
+	 * @param summaries The summaries to serve
+	 * @param port The port on which to listen. Pass 0 to use an arbitrary
+	 * free port.
+	 */
+	public SummaryServer(ClassSummaries summaries, int port) {
+		this.provider = new MemorySummaryProvider(summaries);
+		this.classes = new HashSet<>(summaries.getClasses());
+		this.port = port;
+	}
+
+	/**
+	 * Starts accepting client connections
+	 * @throws IOException Thrown if the server socket could not be opened
+	 */
+	public synchronized void start() throws IOException {
+		if (serverSocket != null)
+			throw new RuntimeException("Server is already running");
+
+		serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+		executor = Executors.newCachedThreadPool(new ThreadFactory() {
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "SummaryServer");
+				t.setDaemon(true);
+				return t;
+			}
+
+		});
+		executor.execute(new Runnable() {
+
+			@Override
+			public void run() {
+				acceptConnections();
+			}
+
+		});
+	}
+
+	/**
+	 * Stops the server and closes all open connections
+	 */
+	public synchronized void stop() {
+		if (serverSocket == null)
+			return;
+
+		try {
+			serverSocket.close();
+		} catch (IOException e) {
+			// ignore, we are shutting down anyway
+		}
+		synchronized (connections) {
+			for (Socket socket : connections)
+				closeQuietly(socket);
+			connections.clear();
+		}
+		executor.shutdownNow();
+		serverSocket = null;
+	}
+
+	/**
+	 * Gets the port on which this server listens
+	 * @return The port on which this server listens, or -1 if the server is
+	 * not running
+	 */
+	public synchronized int getPort() {
+		return serverSocket == null ? -1 : serverSocket.getLocalPort();
+	}
+
+	private void acceptConnections() {
+		ServerSocket ss = serverSocket;
+		while (!ss.isClosed()) {
+			try {
+				final Socket socket = ss.accept();
+				socket.setTcpNoDelay(true);
+				connections.add(socket);
+				executor.execute(new Runnable() {
+
+					@Override
+					public void run() {
+						try {
+							serve(socket);
+						} catch (EOFException | SocketException e) {
+							// Client went away
+						} catch (IOException e) {
+							System.err.println("Could not serve summary client: " + e.getMessage());
+						} finally {
+							connections.remove(socket);
+							closeQuietly(socket);
+						}
+					}
+
+				});
+			} catch (SocketException e) {
+				// Server socket was closed
+				return;
+			} catch (IOException e) {
+				System.err.println("Could not accept summary client: " + e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Answers the requests of a single client until the client closes the
+	 * connection
+	 * @param socket The socket connected to the client
+	 * @throws IOException Thrown if the communication with the client failed
+	 */
+	private void serve(Socket socket) throws IOException {
+		SummaryProtocol protocol = new SummaryProtocol(socket.getInputStream(),
+				socket.getOutputStream());
+
+		// Version handshake
+		int clientVersion = protocol.readInt();
+		protocol.writeInt(SummaryProtocol.PROTOCOL_VERSION);
+		protocol.flush();
+		if (clientVersion != SummaryProtocol.PROTOCOL_VERSION)
+			return;
+
+		while (true) {
+			byte opcode = protocol.readOpcode();
+			switch (opcode) {
+			case SummaryProtocol.OP_CLOSE:
+				return;
+			case SummaryProtocol.OP_GET_CLASSES:
+				protocol.beginResponse();
+				protocol.writeStrings(classes);
+				break;
+			case SummaryProtocol.OP_GET_METHOD_FLOWS:
+				Set<String> requestedClasses = protocol.readStrings();
+				String subSig = protocol.readString();
+				protocol.beginResponse();
+				protocol.writeClassSummaries(provider.getMethodFlows(requestedClasses, subSig));
+				break;
+			default:
+				throw new IOException("Unknown opcode: " + opcode);
+			}
+			protocol.flush();
+		}
+	}
+
+	private static void closeQuietly(Socket socket) {
+		try {
+			socket.close();
+		} catch (IOException e) {
+			// ignore
+		}
+	}
+
+	/**
+	 * Loads all summary files in the given directories
+	 * @param dirs The directories from which to load the summaries
+	 * @return The summaries that were loaded
+	 */
+	public static ClassSummaries loadSummaries(String... dirs) throws XMLStreamException,
+			SummaryXMLException, IOException {
+		XMLReader reader = new XMLReader();
+		ClassSummaries summaries = new ClassSummaries();
+		for (String dir : dirs) {
+			File fdir = new File(dir);
+			File[] files = fdir.isDirectory() ? fdir.listFiles() : new File[] { fdir };
+			for (File f : files)
+				if (XMLReader.isSummaryFile(f))
+					summaries.merge(XMLReader.getClassName(f), reader.read(f));
+		}
+		return summaries;
+	}
+
+	public static void main(String[] args) throws XMLStreamException,
+			SummaryXMLException, IOException, InterruptedException {
+		if (args.length < 2) {
+			System.out.println("Usage: java " + SummaryServer.class.getName()
+					+ " <port> <summary dir> [<summary dir> ...]");
+			return;
+		}
+
+		// Keep the full access paths, every client truncates them according
+		// to its own configuration
+		InfoflowConfiguration.setAccessPathLength(Integer.MAX_VALUE);
+
+		long beforeLoad = System.nanoTime();
+		String[] dirs = new String[args.length - 1];
+		System.arraycopy(args, 1, dirs, 0, dirs.length);
+		ClassSummaries summaries = loadSummaries(dirs);
+		System.out.println("Loaded summaries for " + summaries.getClasses().size()
+				+ " classes in " + ((System.nanoTime() - beforeLoad) / 1E9) + " seconds");
+
+		int port = Integer.parseInt(args[0]);
+		SummaryServer server = new SummaryServer(summaries, port);
+		server.start();
+		System.out.println("Summary server listening on port " + server.getPort());
+
+		// The worker threads are daemons, keep the process alive
+		Thread.currentThread().join();
+	}
+
+}
@@ -5,17 +5,27 @@ import heros.solver.Pair;
 import heros.solver.PathEdge;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import soot.ArrayType;
 import soot.FastHierarchy;
 import soot.Hierarchy;
 import soot.Local;
+import soot.MethodOrMethodContext;
 import soot.PrimType;
 import soot.RefType;
 import soot.Scene;
@@ -41,6 +51,7 @@ import soot.jimple.infoflow.methodSummary.data.sourceSink.AbstractFlowSinkSource
 import soot.jimple.infoflow.methodSummary.data.summary.ClassSummaries;
 import soot.jimple.infoflow.methodSummary.data.summary.GapDefinition;
 import soot.jimple.infoflow.methodSummary.data.summary.MethodFlow;
+import soot.jimple.infoflow.methodSummary.data.summary.MethodSummaries;
 import soot.jimple.infoflow.methodSummary.data.summary.SourceSinkType;
 import soot.jimple.infoflow.solver.IFollowReturnsPastSeedsHandler;
 import soot.jimple.infoflow.taintWrappers.ITaintPropagationWrapper;
@@ -50,7 +61,9 @@ import soot.jimple.infoflow.util.TypeUtils;
 import soot.util.ConcurrentHashMultiMap;
 import soot.util.MultiMap;
 
+import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
 import com.google.common.cache.LoadingCache;
 
 /**
@@ -61,31 +74,82 @@ import com.google.common.cache.LoadingCache;
  *
  */
 public class SummaryTaintWrapper implements ITaintPropagationWrapper {
+	
+	/**
+	 * Marker bit in the call site masks denoting that there are summaries for
+	 * the call site at all. Position masks never use this bit.
+	 */
+	private static final long MASK_HAS_FLOWS = Long.MIN_VALUE;
+	
+	private static final Set<String> PRIMITIVE_TYPES = new HashSet<>(Arrays.asList(
+			"boolean", "byte", "char", "short", "int", "long", "float", "double", "void"));
+	
 	private InfoflowManager manager;
 	private AtomicInteger wrapperHits = new AtomicInteger();
 	private AtomicInteger wrapperMisses = new AtomicInteger();
+	private AtomicInteger negativeHits = new AtomicInteger();
+	private AtomicInteger taintQueries = new AtomicInteger();
+	private final SummaryTaintWrapperMetrics metrics = new SummaryTaintWrapperMetrics();
+	private final TypeCompatibilityCache typeCompatibilityCache = new TypeCompatibilityCache();
 	private boolean reportMissingSummaries = false;
+	private int parallelFlowApplicationThreshold = 0;
+	private ForkJoinPool flowApplicationPool = null;
 	private ITaintPropagationWrapper fallbackWrapper = null;
+	private boolean eagerClassLoading = false;
+	private long initializationTime = 0;
+	private int loadedClassCount = 0;
 	
 	protected IMethodSummaryProvider flows;
 	
 	private Hierarchy hierarchy;
 	private FastHierarchy fastHierarchy;
 	
-	private MultiMap<Pair<Abstraction, SootMethod>, AccessPathPropagator> userCodeTaints
-			= new ConcurrentHashMultiMap<>();
+	/**
+	 * Propagators that have been passed into user code, indexed by the context
+	 * abstraction with which the analysis was spawned into the callee. The
+	 * contexts are looked up by equality, so they must be strongly referenced:
+	 * an equal abstraction may still reach the return edge after the instance
+	 * with which the taint was registered is gone. The map is cleared when the
+	 * wrapper is initialized for a new run.
+	 */
+	private final ConcurrentMap<Abstraction, MultiMap<SootMethod, AccessPathPropagator>> userCodeTaints
+			= new ConcurrentHashMap<>();
 	
-	protected final LoadingCache<Pair<Set<String>, String>, ClassSummaries> methodToFlows =
-			IDESolver.DEFAULT_CACHE_BUILDER.build(new CacheLoader<Pair<Set<String>, String>, ClassSummaries>() {
-				@Override
-				public ClassSummaries load(Pair<Set<String>, String> method) throws Exception {
-					final Set<String> classes = method.getO1();
-					final String methodSig = method.getO2();
-					
-					// Get the flows in the target method
-					return flows.getMethodFlows(classes, methodSig);
-				}
-			});
+	private final Map<Stmt, Long> callSiteSourceMasks = new ConcurrentHashMap<>();
+	private final Map<Stmt, Long> callSiteAliasMasks = new ConcurrentHashMap<>();
+	
+	/**
+	 * Negative index of the methods for which we know that there are no
+	 * summaries. A pair (class, subsignature) in this map means that neither
+	 * the class nor any of its child classes has flows for the subsignature.
+	 */
+	private final MultiMap<String, String> methodsWithoutFlows = new ConcurrentHashMultiMap<>();
+	
+	/**
+	 * Cache of the flows for a given method subsignature in a given class and
+	 * all of its child classes. The set of child classes is only computed when
+	 * the flows are not yet in the cache.
+	 */
+	protected final LoadingCache<Pair<SootClass, String>, ClassSummaries> methodToFlows;
+	
+	/**
+	 * Cache of the precomputed union summaries for a given method subsignature
+	 * in a given interface or abstract class
+	 */
+	private final Map<Pair<SootClass, String>, ClassSummaries> unionSummaries = new ConcurrentHashMap<>();
+	
+	/**
+	 * Cache of the number of summarized classes that are covered by the union
+	 * summaries of a given interface or abstract class
+	 */
+	private final Map<SootClass, Integer> unionClassCounts = new ConcurrentHashMap<>();
+	
+	/**
+	 * Cache of the merged summaries for call sites at which the callgraph
+	 * gives callees in more than one summarized class, indexed by the call
+	 * site and the subsignature of the callee
+	 */
+	private final Map<Pair<Stmt, String>, ClassSummaries> mergedCallSiteSummaries = new ConcurrentHashMap<>();
 	
 	/**
 	 * Handler that is used for injecting taints from callbacks implemented in
@@ -194,25 +258,229 @@ public class SummaryTaintWrapper implements ITaintPropagationWrapper {
 	 * @param flows The flows loaded from disk
 	 */
 	public SummaryTaintWrapper(IMethodSummaryProvider flows) {
+		this(flows, null);
+	}
+	
+	/**
+	 * Creates a new instance of the {@link SummaryTaintWrapper} class
+	 * @param flows The flows loaded from disk
+	 * @param cacheSpec The specification of the cache for method summaries in
+	 * the format of Guava's CacheBuilderSpec, e.g.
+	 * "maximumSize=10000,expireAfterAccess=10m,recordStats". If this parameter
+	 * is null, the default cache configuration of the IFDS solver is used.
+	 */
+	public SummaryTaintWrapper(IMethodSummaryProvider flows, String cacheSpec) {
 		this.flows = flows;
+		
+		CacheBuilder<Object, Object> cacheBuilder = cacheSpec == null
+				? IDESolver.DEFAULT_CACHE_BUILDER : CacheBuilder.from(cacheSpec);
+		this.methodToFlows = cacheBuilder.build(new CacheLoader<Pair<SootClass, String>, ClassSummaries>() {
+			@Override
+			public ClassSummaries load(Pair<SootClass, String> method) throws Exception {
+				final Set<String> classes = getAllChildClasses(method.getO1());
+				final String methodSig = method.getO2();
+				
+				// Get the flows in the target method
+				long beforeLoad = System.nanoTime();
+				ClassSummaries summaries = SummaryTaintWrapper.this.flows.getMethodFlows(
+						classes, methodSig);
+				metrics.recordProviderLoad(System.nanoTime() - beforeLoad);
+				return summaries;
+			}
+		});
 	}
 	
 	@Override
 	public void initialize(InfoflowManager manager) {
+		long beforeInit = System.nanoTime();
 		this.manager = manager;
 		
-		// Load all classes for which we have summaries to signatures
-		for (String className : flows.getLoadableClasses())
-			loadClass(className);
-		for (String className : flows.getSupportedClasses())
-			loadClass(className);
+		// The call site masks are only valid for one callgraph, the cached
+		// flows are keyed by the classes of the previous scene
+		callSiteSourceMasks.clear();
+		callSiteAliasMasks.clear();
+		methodToFlows.invalidateAll();
+		unionSummaries.clear();
+		unionClassCounts.clear();
+		mergedCallSiteSummaries.clear();
+		
+		// The callbacks of the previous run can never be reached again
+		userCodeTaints.clear();
+		metrics.resetUserCodeTaints();
+		metrics.resetMethodQueries();
+		
+		// Type numbers and the hierarchy are specific to the scene
+		typeCompatibilityCache.clear();
+		
+		// The worker threads of the previous run are no longer needed
+		shutdownFlowApplicationPool();
+		
+		// Load the classes for which we have summaries. This must happen
+		// before the solver starts, because the Soot resolver and the
+		// hierarchies must not change while the solver threads use them.
+		loadedClassCount = 0;
+		if (eagerClassLoading) {
+			for (String className : flows.getLoadableClasses())
+				loadClass(className);
+			for (String className : flows.getSupportedClasses())
+				loadClass(className);
+		}
+		else
+			loadReachableClasses();
 		
-		// Get the hierarchy
+		// Get the hierarchy. The classes we have loaded are not yet part of
+		// the hierarchy that has been used for building the callgraph.
+		Scene.v().releaseActiveHierarchy();
+		Scene.v().releaseFastHierarchy();
 		this.hierarchy = Scene.v().getActiveHierarchy();
 		this.fastHierarchy = Scene.v().getOrMakeFastHierarchy();
 		
+		// Precompute the negative index for the summaries we already have
+		initializeMethodsWithoutFlows();
+		
 		// Register the taint propagation handler
 		manager.getForwardSolver().setFollowReturnsPastSeedsHandler(new SummaryFRPSHandler());
+		
+		initializationTime = System.nanoTime() - beforeInit;
+	}
+	
+	/**
+	 * Fills the negative index with all methods in supported leaf classes for
+	 * which there are no summaries. Classes that are only loadable are added
+	 * to the index on demand once their summaries have been queried.
+	 */
+	private void initializeMethodsWithoutFlows() {
+		methodsWithoutFlows.clear();
+		for (String className : flows.getSupportedClasses()) {
+			SootClass sc = Scene.v().getSootClassUnsafe(className);
+			if (sc == null
+					|| sc.isPhantom()
+					|| sc.isInterface()
+					|| sc.resolvingLevel() < SootClass.SIGNATURES)
+				continue;
+			
+			// If the class has children, the flows may be defined there
+			if (!fastHierarchy.getSubclassesOf(sc).isEmpty())
+				continue;
+			
+			for (SootMethod sm : sc.getMethods()) {
+				Set<MethodFlow> flowsInMethod = flows.getMethodFlows(className,
+						sm.getSubSignature());
+				if (flowsInMethod == null || flowsInMethod.isEmpty())
+					methodsWithoutFlows.put(className, sm.getSubSignature());
+			}
+		}
+	}
+	
+	/**
+	 * Loads the summary classes that the analysis can reach. These are the
+	 * classes called in the reachable code, the classes referenced by the
+	 * gaps in their summaries, and all child classes of these classes that
+	 * are known to the scene. Types used in the summaries are loaded as
+	 * well. Summarized classes that are neither referenced by the program
+	 * nor by any reachable summary are not loaded. Use eager class loading if
+	 * such classes shall be considered as possible callees as well.
+	 */
+	private void loadReachableClasses() {
+		List<Pair<String, String>> workList = new ArrayList<>();
+		
+		// Collect the methods called in the reachable code
+		for (Iterator<MethodOrMethodContext> mIt = Scene.v().getReachableMethods().listener();
+				mIt.hasNext(); ) {
+			SootMethod sm = mIt.next().method();
+			if (!sm.hasActiveBody())
+				continue;
+			for (Unit u : sm.getActiveBody().getUnits()) {
+				Stmt stmt = (Stmt) u;
+				if (!stmt.containsInvokeExpr())
+					continue;
+				
+				SootMethod method = stmt.getInvokeExpr().getMethod();
+				String subSig = method.getSubSignature();
+				workList.add(new Pair<>(method.getDeclaringClass().getName(), subSig));
+				String targetClass = getTargetClass(stmt, method).getName();
+				workList.add(new Pair<>(targetClass, subSig));
+				workList.add(new Pair<>(ClassSummaries.getUnionClassName(targetClass), subSig));
+				for (SootMethod callee : manager.getICFG().getCalleesOfCallAt(stmt))
+					workList.add(new Pair<>(callee.getDeclaringClass().getName(), subSig));
+			}
+		}
+		
+		Set<Pair<String, String>> doneSet = new HashSet<>();
+		while (!workList.isEmpty()) {
+			// Load the summaries and follow their gaps
+			while (!workList.isEmpty()) {
+				Pair<String, String> method = workList.remove(workList.size() - 1);
+				if (!doneSet.add(method))
+					continue;
+				
+				String className = method.getO1();
+				if (!flows.supportsClass(className))
+					continue;
+				loadClass(className);
+				
+				Set<MethodFlow> flowsInMethod = flows.getMethodFlows(className, method.getO2());
+				if (flowsInMethod != null)
+					for (MethodFlow flow : flowsInMethod) {
+						loadReferencedClasses(flow.source(), workList);
+						loadReferencedClasses(flow.sink(), workList);
+					}
+			}
+			
+			// The flows of the child classes are applied at the same call
+			// sites. Loading classes may have added new children.
+			Scene.v().releaseActiveHierarchy();
+			this.hierarchy = Scene.v().getActiveHierarchy();
+			for (Pair<String, String> method : doneSet) {
+				SootClass sc = Scene.v().getSootClassUnsafe(method.getO1());
+				if (sc == null)
+					continue;
+				for (String childClass : getAllChildClasses(sc)) {
+					Pair<String, String> childMethod = new Pair<>(childClass, method.getO2());
+					if (!doneSet.contains(childMethod))
+						workList.add(childMethod);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Loads the classes of the types referenced by the given source or sink
+	 * and adds the method called in its gap to the work list
+	 * @param sourceSink The source or sink definition
+	 * @param workList The list of methods whose summaries still need to be
+	 * processed
+	 */
+	private void loadReferencedClasses(AbstractFlowSinkSource sourceSink,
+			List<Pair<String, String>> workList) {
+		loadTypeClass(sourceSink.getBaseType());
+		if (sourceSink.getAccessPathTypes() != null)
+			for (String fieldType : sourceSink.getAccessPathTypes())
+				loadTypeClass(fieldType);
+		if (sourceSink.getAccessPath() != null)
+			for (String fieldSig : sourceSink.getAccessPath())
+				loadTypeClass(fieldSig.substring(1, fieldSig.indexOf(":")));
+		
+		GapDefinition gap = sourceSink.getGap();
+		if (gap != null) {
+			SootMethodAndClass smac = SootMethodRepresentationParser.v()
+					.parseSootMethodString(gap.getSignature());
+			workList.add(new Pair<>(smac.getClassName(), smac.getSubSignature()));
+		}
+	}
+	
+	/**
+	 * Makes sure that the class of the given type exists in the scene
+	 * @param typeName The name of the type
+	 */
+	private void loadTypeClass(String typeName) {
+		if (typeName == null || typeName.isEmpty())
+			return;
+		while (typeName.endsWith("[]"))
+			typeName = typeName.substring(0, typeName.length() - 2);
+		if (!PRIMITIVE_TYPES.contains(typeName)
+				&& !Scene.v().containsClass(typeName))
+			loadClass(typeName);
 	}
 	
 	/**
@@ -221,14 +489,21 @@ public class SummaryTaintWrapper implements ITaintPropagationWrapper {
 	 * @param className The name of the class to load
 	 */
 	private void loadClass(String className) {
+		// Union summaries do not belong to a class of their own
+		if (ClassSummaries.isUnionClassName(className))
+			return;
+		
 		SootClass sc = Scene.v().getSootClassUnsafe(className);
 		if (sc == null) {
 			sc = new SootClass(className);
 			sc.setPhantom(true);
 			Scene.v().addClass(sc);
+			loadedClassCount++;
 		}
-		else if (sc.resolvingLevel() < SootClass.HIERARCHY)
+		else if (sc.resolvingLevel() < SootClass.HIERARCHY && !sc.isPhantom()) {
 			Scene.v().forceResolve(className, SootClass.HIERARCHY);
+			loadedClassCount++;
+		}
 	}
 		
 	/**
@@ -483,9 +758,78 @@ public class SummaryTaintWrapper implements ITaintPropagationWrapper {
 		if (!stmt.containsInvokeExpr())
 			return Collections.singleton(taintedAbs);
 		
-		if (stmt.toString().equals("specialinvoke $r3.<java.lang.StringBuilder: void <init>(java.lang.String)>($r4)"))
-			System.out.println("x");
+		long beforeQuery = System.nanoTime();
+		try {
+			return getTaintsForCallSite(stmt, d1, taintedAbs);
+		}
+		finally {
+			metrics.recordTaintQuery(stmt.getInvokeExpr().getMethod(),
+					System.nanoTime() - beforeQuery);
+		}
+	}
+	
+	/**
+	 * Computes the taints for the given call site and incoming abstraction
+	 * @param stmt The call site
+	 * @param d1 The context of the incoming taint
+	 * @param taintedAbs The incoming taint
+	 * @return The outgoing taints, or null if the call site is not covered by
+	 * any summary or the fallback wrapper
+	 */
+	private Set<Abstraction> getTaintsForCallSite(Stmt stmt, Abstraction d1,
+			Abstraction taintedAbs) {
+		taintQueries.incrementAndGet();
+		
+		// Methods for which we know that we have no summaries can directly be
+		// passed on to the fallback wrapper
+		if (isKnownWithoutFlows(stmt)) {
+			negativeHits.incrementAndGet();
+			wrapperMisses.incrementAndGet();
+			if (fallbackWrapper == null)
+				return null;
+			else
+				return fallbackWrapper.getTaintsForMethod(stmt, d1, taintedAbs);
+		}
 		
+		// Check whether any summary flow can start at the position of the
+		// incoming taint. If not, we do not need to apply any summaries.
+		Set<Abstraction> resAbs = null;
+		long taintMask = getTaintPositionMask(stmt, taintedAbs.getAccessPath(), false);
+		if ((getCallSiteSourceMask(stmt) & taintMask) != 0)
+			resAbs = computeTaintsForCallSite(stmt, d1, taintedAbs);
+		
+		// If we have no data flows, we can abort early
+		if (resAbs == null || resAbs.isEmpty()) {
+			wrapperMisses.incrementAndGet();
+			SootMethod method = stmt.getInvokeExpr().getMethod();
+			
+			if (reportMissingSummaries 
+					&& SystemClassHandler.isClassInSystemPackage(method.getDeclaringClass().getName()))
+				System.out.println("Missing summary for " + method.getSignature());
+			
+			if (fallbackWrapper == null)
+				return null;
+			else {
+				Set<Abstraction> fallbackTaints = fallbackWrapper.getTaintsForMethod(stmt, d1, taintedAbs);
+				return fallbackTaints;
+			}
+		}
+		
+		// We always retain the incoming abstraction
+		resAbs.add(taintedAbs);
+		return resAbs;
+	}
+	
+	/**
+	 * Computes library taints for all callees at the given call site
+	 * @param stmt The call site to which to apply the library summaries
+	 * @param d1 The context of the incoming taint
+	 * @param taintedAbs The incoming taint
+	 * @return The artificial taints coming from the library model if any,
+	 * otherwise null
+	 */
+	private Set<Abstraction> computeTaintsForCallSite(Stmt stmt, Abstraction d1,
+			Abstraction taintedAbs) {
 		Set<Abstraction> resAbs = null;
 		Collection<SootMethod> callees = manager.getICFG().getCalleesOfCallAt(stmt);
 		if (callees.isEmpty()) {
@@ -520,27 +864,105 @@ public class SummaryTaintWrapper implements ITaintPropagationWrapper {
 				}
 			}
 		}
-		
-		// If we have no data flows, we can abort early
-		if (resAbs == null || resAbs.isEmpty()) {
-			wrapperMisses.incrementAndGet();
-			SootMethod method = stmt.getInvokeExpr().getMethod();
-			
-			if (reportMissingSummaries 
-					&& SystemClassHandler.isClassInSystemPackage(method.getDeclaringClass().getName()))
-				System.out.println("Missing summary for " + method.getSignature());
-			
-			if (fallbackWrapper == null)
-				return null;
-			else {
-				Set<Abstraction> fallbackTaints = fallbackWrapper.getTaintsForMethod(stmt, d1, taintedAbs);
-				return fallbackTaints;
-			}
+		return resAbs;
+	}
+	
+	/**
+	 * Gets the bit mask of the call positions at which a summary flow can
+	 * start for any callee of the given call site
+	 * @param stmt The call site
+	 * @return The bit mask of possible flow sources, 0 if there are no summaries
+	 * for the given call site
+	 */
+	private long getCallSiteSourceMask(Stmt stmt) {
+		Long mask = callSiteSourceMasks.get(stmt);
+		if (mask == null) {
+			long m = 0;
+			Collection<SootMethod> callees = manager.getICFG().getCalleesOfCallAt(stmt);
+			if (callees.isEmpty())
+				m = getSourceMask(stmt, stmt.getInvokeExpr().getMethod());
+			else
+				for (SootMethod method : callees)
+					if (!method.isNative() && !method.isStaticInitializer())
+						m |= getSourceMask(stmt, method);
+			mask = m;
+			callSiteSourceMasks.put(stmt, mask);
+		}
+		return mask;
+	}
+	
+	/**
+	 * Gets the bit mask of the call positions at which a summary flow in the
+	 * given callee can start
+	 * @param stmt The call site
+	 * @param method The callee
+	 * @return The bit mask of possible flow sources, 0 if there are no summaries
+	 * for the given callee
+	 */
+	private long getSourceMask(Stmt stmt, SootMethod method) {
+		ClassSummaries flowsInCallees = getFlowSummariesForMethod(stmt, method);
+		if (flowsInCallees == null || flowsInCallees.isEmpty())
+			return 0;
+		return MASK_HAS_FLOWS | flowsInCallees.getSourcePositionMask(method.getSubSignature());
+	}
+	
+	/**
+	 * Gets the bit mask of the call positions at which an alias flow can end
+	 * for the given call site
+	 * @param stmt The call site
+	 * @return The bit mask of possible alias flow sinks, 0 if there are no
+	 * summaries for the given call site
+	 */
+	private long getCallSiteAliasMask(Stmt stmt) {
+		Long mask = callSiteAliasMasks.get(stmt);
+		if (mask == null) {
+			long m = 0;
+			final SootMethod method = stmt.getInvokeExpr().getMethod();
+			ClassSummaries flowsInCallees = getFlowSummariesForMethod(stmt, method);
+			if (flowsInCallees != null && !flowsInCallees.isEmpty())
+				m = MASK_HAS_FLOWS | flowsInCallees.getAliasSinkPositionMask(
+						method.getSubSignature());
+			mask = m;
+			callSiteAliasMasks.put(stmt, mask);
 		}
+		return mask;
+	}
+	
+	/**
+	 * Gets the bit mask of the call positions at which the given access path
+	 * enters the given call site. This is the allocation-free counterpart of
+	 * createTaintFromAccessPathOnCall().
+	 * @param stmt The call site
+	 * @param ap The access path that reaches the call site
+	 * @param matchReturnedValues True if the left side of an assignment that
+	 * captures the return value shall be matched as well, otherwise false
+	 * @return The bit mask of call positions referenced by the given access
+	 * path, 0 if the access path is not used by the call
+	 */
+	private long getTaintPositionMask(Stmt stmt, AccessPath ap,
+			boolean matchReturnedValues) {
+		long mask = 0;
 		
-		// We always retain the incoming abstraction
-		resAbs.add(taintedAbs);
-		return resAbs;
+		// Check the base object
+		Value base = getMethodBase(stmt);
+		if (base != null
+				&& base == ap.getPlainValue()
+				&& (ap.isLocal() || ap.isInstanceFieldRef())
+				&& !manager.getICFG().getMethodOf(stmt).isStatic())
+			mask |= MethodSummaries.POSITION_BASE;
+		
+		// Check the parameters
+		int paramIdx = getParameterIndex(stmt, ap);
+		if (paramIdx >= 0)
+			mask |= MethodSummaries.getParameterPosition(paramIdx);
+		
+		// Check the return value
+		if (matchReturnedValues
+				&& stmt instanceof DefinitionStmt
+				&& ((DefinitionStmt) stmt).getLeftOp() == ap.getPlainValue())
+			mask |= MethodSummaries.POSITION_RETURN;
+		
+		return mask;
 	}
 	
 	/**
@@ -562,29 +984,218 @@ public class SummaryTaintWrapper implements ITaintPropagationWrapper {
 		if (flowsInCallees.isEmpty())
 			return null;
 		
-		Set<AccessPath> res = null;
-		for (String className : flowsInCallees.getClasses()) {
-			// Create a level-0 propagator for the initially tainted access path
-			List<AccessPathPropagator> workList = new ArrayList<AccessPathPropagator>();
-			Set<Taint> taintsFromAP = createTaintFromAccessPathOnCall(
-					taintedAbs.getAccessPath(), stmt, false);
-			if (taintsFromAP == null || taintsFromAP.isEmpty())
-				return Collections.emptySet();
-			for (Taint taint : taintsFromAP)
-				workList.add(new AccessPathPropagator(taint, null, null, stmt, d1, taintedAbs));
-			
-			// Get the flows in this class
-			Set<MethodFlow> flowsInCallee = flowsInCallees.getClassSummaries(className).getAllFlows();
+		Set<Taint> taintsFromAP = createTaintFromAccessPathOnCall(
+				taintedAbs.getAccessPath(), stmt, false);
+		if (taintsFromAP == null || taintsFromAP.isEmpty())
+			return Collections.emptySet();
+		
+		return applyFlowsToClasses(flowsInCallees, taintsFromAP, stmt, d1,
+				taintedAbs, false);
+	}
+	
+	/**
+	 * Applies the flows of all classes in the given summary object to the
+	 * given taints. If the number of classes reaches the configured threshold,
+	 * the classes are processed in parallel.
+	 * @param flowsInCallees The flow summaries of the possible callees
+	 * @param taintsFromAP The taints at the call site
+	 * @param stmt The call site
+	 * @param d1 The context of the incoming taint
+	 * @param taintedAbs The incoming taint
+	 * @param aliasingQuery True if this query is for aliases, false if it is
+	 * for normal taint propagation.
+	 * @return The access paths obtained by applying the flows, or null if no
+	 * flow applies
+	 */
+	private Set<AccessPath> applyFlowsToClasses(ClassSummaries flowsInCallees,
+			Set<Taint> taintsFromAP, Stmt stmt, Abstraction d1,
+			Abstraction taintedAbs, boolean aliasingQuery) {
+		List<String> classNames = new ArrayList<>(flowsInCallees.getClasses());
+		if (parallelFlowApplicationThreshold <= 0
+				|| classNames.size() < parallelFlowApplicationThreshold)
+			return new FlowApplicationTask(flowsInCallees, classNames,
+					taintsFromAP, stmt, d1, taintedAbs, aliasingQuery).compute();
+		
+		// Flows through gaps query the summary provider and may spawn the
+		// solver into client code. We only hand the classes without gaps to
+		// the pool and process the others on the solver thread that issued
+		// the query.
+		List<String> parallelClasses = new ArrayList<>();
+		List<String> localClasses = new ArrayList<>();
+		for (String className : classNames) {
+			if (hasGapFlows(flowsInCallees.getClassSummaries(className)))
+				localClasses.add(className);
+			else
+				parallelClasses.add(className);
+		}
+		if (parallelClasses.size() < parallelFlowApplicationThreshold) {
+			localClasses.addAll(parallelClasses);
+			parallelClasses.clear();
+		}
+		
+		ForkJoinTask<Set<AccessPath>> parallelTask = null;
+		if (!parallelClasses.isEmpty()) {
+			try {
+				parallelTask = getFlowApplicationPool().submit(new FlowApplicationTask(
+						flowsInCallees, parallelClasses, taintsFromAP, stmt, d1,
+						taintedAbs, aliasingQuery));
+			}
+			catch (RejectedExecutionException ex) {
+				// The pool was shut down by a concurrent call to close() or
+				// initialize(), so we do all the work ourselves
+				localClasses.addAll(parallelClasses);
+			}
+		}
+		FlowApplicationTask localTask = new FlowApplicationTask(flowsInCallees,
+				localClasses, taintsFromAP, stmt, d1, taintedAbs, aliasingQuery);
+		Set<AccessPath> res = localTask.compute();
+		if (parallelTask != null)
+			res = localTask.merge(res, parallelTask.join());
+		return res;
+	}
+	
+	/**
+	 * Checks whether any of the given flows starts or ends in a gap
+	 * @param summaries The flows to check
+	 * @return True if at least one of the given flows starts or ends in a
+	 * gap, otherwise false
+	 */
+	private boolean hasGapFlows(MethodSummaries summaries) {
+		for (MethodFlow flow : summaries)
+			if (flow.source().getGap() != null || flow.sink().getGap() != null)
+				return true;
+		return false;
+	}
+	
+	/**
+	 * Applies the flows of the given class to the given taints
+	 * @param flowsInCallees The flow summaries of the possible callees
+	 * @param className The class whose flows shall be applied
+	 * @param taintsFromAP The taints at the call site
+	 * @param stmt The call site
+	 * @param d1 The context of the incoming taint
+	 * @param taintedAbs The incoming taint
+	 * @param aliasingQuery True if this query is for aliases, false if it is
+	 * for normal taint propagation.
+	 * @return The access paths obtained by applying the flows, or null if no
+	 * flow applies
+	 */
+	private Set<AccessPath> applyFlowsToClass(ClassSummaries flowsInCallees,
+			String className, Set<Taint> taintsFromAP, Stmt stmt,
+			Abstraction d1, Abstraction taintedAbs, boolean aliasingQuery) {
+		// Create a level-0 propagator for the initially tainted access path
+		List<AccessPathPropagator> workList = new ArrayList<AccessPathPropagator>();
+		for (Taint taint : taintsFromAP)
+			workList.add(new AccessPathPropagator(taint, null, null, stmt, d1,
+					taintedAbs, aliasingQuery));
+		
+		// Get the flows in this class
+		Set<MethodFlow> flowsInCallee = flowsInCallees.getClassSummaries(className).getAllFlows();
+		
+		// Apply the data flows until we reach a fixed point
+		return applyFlowsIterative(flowsInCallee, workList);
+	}
+	
+	/**
+	 * Task for applying the flows of a list of classes. Lists with more than
+	 * one class are split in halves that are processed in parallel when the
+	 * task runs inside a fork/join pool.
+	 * 
+	 * @author Steven Arzt
+	 *
+	 */
+	private class FlowApplicationTask extends RecursiveTask<Set<AccessPath>> {
+		
+		private static final long serialVersionUID = -3420911458237541917L;
+		
+		private final ClassSummaries flowsInCallees;
+		private final List<String> classNames;
+		private final Set<Taint> taintsFromAP;
+		private final Stmt stmt;
+		private final Abstraction d1;
+		private final Abstraction taintedAbs;
+		private final boolean aliasingQuery;
+		
+		public FlowApplicationTask(ClassSummaries flowsInCallees,
+				List<String> classNames, Set<Taint> taintsFromAP, Stmt stmt,
+				Abstraction d1, Abstraction taintedAbs, boolean aliasingQuery) {
+			this.flowsInCallees = flowsInCallees;
+			this.classNames = classNames;
+			this.taintsFromAP = taintsFromAP;
+			this.stmt = stmt;
+			this.d1 = d1;
+			this.taintedAbs = taintedAbs;
+			this.aliasingQuery = aliasingQuery;
+		}
+		
+		@Override
+		protected Set<AccessPath> compute() {
+			// Outside of a pool or for single classes, we work sequentially
+			if (classNames.size() > 1 && inForkJoinPool()) {
+				int mid = classNames.size() / 2;
+				FlowApplicationTask left = new FlowApplicationTask(flowsInCallees,
+						classNames.subList(0, mid), taintsFromAP, stmt, d1,
+						taintedAbs, aliasingQuery);
+				FlowApplicationTask right = new FlowApplicationTask(flowsInCallees,
+						classNames.subList(mid, classNames.size()), taintsFromAP,
+						stmt, d1, taintedAbs, aliasingQuery);
+				left.fork();
+				return merge(right.compute(), left.join());
+			}
 			
-			// Apply the data flows until we reach a fixed point
-			Set<AccessPath> resCallee = applyFlowsIterative(flowsInCallee, workList);
+			Set<AccessPath> res = null;
+			for (String className : classNames)
+				res = merge(res, applyFlowsToClass(flowsInCallees, className,
+						taintsFromAP, stmt, d1, taintedAbs, aliasingQuery));
+			return res;
+		}
+		
+		/**
+		 * Merges two sets of access paths
+		 * @param res The first set, may be modified
+		 * @param resCallee The second set
+		 * @return The union of both sets, or null if both sets are empty
+		 */
+		private Set<AccessPath> merge(Set<AccessPath> res, Set<AccessPath> resCallee) {
 			if (resCallee != null && !resCallee.isEmpty()) {
 				if (res == null)
 					res = new HashSet<>();
 				res.addAll(resCallee);
 			}
+			return res;
+		}
+		
+	}
+	
+	/**
+	 * Gets the fork/join pool for parallel flow application. The pool is
+	 * created on first use and lives until the taint wrapper is re-initialized
+	 * or closed.
+	 * @return The fork/join pool for parallel flow application
+	 */
+	private synchronized ForkJoinPool getFlowApplicationPool() {
+		if (flowApplicationPool == null)
+			flowApplicationPool = new ForkJoinPool();
+		return flowApplicationPool;
+	}
+	
+	/**
+	 * Shuts down the fork/join pool for parallel flow application if it has
+	 * been created
+	 */
+	private synchronized void shutdownFlowApplicationPool() {
+		if (flowApplicationPool != null) {
+			flowApplicationPool.shutdown();
+			flowApplicationPool = null;
 		}
-		return res;
+	}
+	
+	/**
+	 * Releases the threads of this taint wrapper. The taint wrapper can still
+	 * be used afterwards, but will create new threads if needed.
+	 */
+	public void close() {
+		shutdownFlowApplicationPool();
 	}
 	
 	/**
@@ -602,7 +1213,9 @@ public class SummaryTaintWrapper implements ITaintPropagationWrapper {
 			List<AccessPathPropagator> workList) {
 		Set<AccessPath> res = null;
 		Set<AccessPathPropagator> doneSet = new HashSet<AccessPathPropagator>(workList);
+		int maxWorklistSize = 0;
 		while (!workList.isEmpty()) {
+			maxWorklistSize = Math.max(maxWorklistSize, workList.size());
 			final AccessPathPropagator curPropagator = workList.remove(0);
 			final GapDefinition curGap = curPropagator.getGap();
 			
@@ -685,6 +1298,7 @@ public class SummaryTaintWrapper implements ITaintPropagationWrapper {
 					}
 				}
 		}
+		metrics.recordFlowApplication(maxWorklistSize);
 		return res;
 	}
 	
@@ -714,6 +1328,8 @@ public class SummaryTaintWrapper implements ITaintPropagationWrapper {
 	 */
 	private Set<AccessPathPropagator> spawnAnalysisIntoClientCode(SootMethod implementor,
 			AccessPathPropagator propagator) {
+		metrics.recordClientCodeSpawn();
+		
 		// If the implementor has not yet been loaded, we must do this now
 		if (!implementor.hasActiveBody()) {
 			synchronized (implementor) {
@@ -767,7 +1383,7 @@ public class SummaryTaintWrapper implements ITaintPropagationWrapper {
 		}
 						
 		// Register the new context so that we can get the taints back
-		this.userCodeTaints.put(new Pair<>(abs, implementor), propagator);
+		addUserCodeTaint(abs, implementor, propagator);
 		return null;
 	}
 
@@ -848,30 +1464,213 @@ public class SummaryTaintWrapper implements ITaintPropagationWrapper {
 			}
 		}
 		
+		// For receivers declared as an interface or abstract class, we can
+		// use the precomputed union of all implementors
+		final String subSig = method.getSubSignature();
+		if (stmt != null) {
+			ClassSummaries summaries = getUnionSummaries(stmt, method, subSig);
+			if (summaries != null)
+				return summaries;
+		}
+		
 		// Check the callgraph
 		if (stmt != null) {
-			Set<String> classes = new HashSet<>();
-			for (SootMethod callee : manager.getICFG().getCalleesOfCallAt(stmt))
-				classes.addAll(getAllChildClasses(callee.getDeclaringClass()));
-			if (!classes.isEmpty()) {
-				Pair<Set<String>, String> query = new Pair<>(classes, method.getSubSignature());
-				ClassSummaries summaries = methodToFlows.getUnchecked(query);
-				if (summaries != null && !summaries.isEmpty())
-					return summaries;
+			// Merging the summaries of multiple callee classes is expensive,
+			// so we only do it once per call site
+			Pair<Stmt, String> mergeKey = new Pair<>(stmt, subSig);
+			ClassSummaries summaries = mergedCallSiteSummaries.get(mergeKey);
+			if (summaries != null)
+				return summaries;
+			
+			Collection<SootMethod> callees = manager.getICFG().getCalleesOfCallAt(stmt);
+			List<ClassSummaries> calleeSummariesList = new ArrayList<>();
+			Set<String> coveredClasses = new HashSet<>();
+			SootClass lastClass = null;
+			for (SootMethod callee : callees) {
+				// Callees are frequently declared in the same class
+				SootClass calleeClass = callee.getDeclaringClass();
+				if (calleeClass == lastClass)
+					continue;
+				lastClass = calleeClass;
+				
+				ClassSummaries calleeSummaries = getCachedFlows(calleeClass, subSig);
+				if (calleeSummaries == null || calleeSummaries.isEmpty())
+					continue;
+				if (coveredClasses.containsAll(calleeSummaries.getClasses()))
+					continue;
+				coveredClasses.addAll(calleeSummaries.getClasses());
+				calleeSummariesList.add(calleeSummaries);
+			}
+			if (calleeSummariesList.size() == 1)
+				return calleeSummariesList.get(0);
+			if (!calleeSummariesList.isEmpty()) {
+				// Do not modify the cached objects
+				summaries = mergeSummaries(calleeSummariesList);
+				mergedCallSiteSummaries.put(mergeKey, summaries);
+				return summaries;
 			}
+			
+			// None of the callees has flows for this method
+			for (SootMethod callee : callees)
+				methodsWithoutFlows.put(callee.getDeclaringClass().getName(), subSig);
 		}
 		
 		// As a last resort, check all possible callees
-		SootClass targetClass = method.getDeclaringClass();
-		if (stmt != null && stmt.getInvokeExpr() instanceof InstanceInvokeExpr)
-			targetClass = ((RefType) ((InstanceInvokeExpr) stmt.getInvokeExpr()).getBase().getType()).getSootClass();
-		Set<String> classes = getAllChildClasses(targetClass);
-		Pair<Set<String>, String> query = new Pair<>(classes, method.getSubSignature());
-		return methodToFlows.getUnchecked(query);
+		SootClass targetClass = getTargetClass(stmt, method);
+		ClassSummaries summaries = getCachedFlows(targetClass, subSig);
+		if (summaries == null || summaries.isEmpty())
+			methodsWithoutFlows.put(targetClass.getName(), subSig);
+		return summaries;
 		
 		// TODO: Scan up?
 	}
 	
+	/**
+	 * Gets the precomputed union summaries for the given call site. Union
+	 * summaries are only used if the static type of the base object is an
+	 * interface or abstract class and the callgraph either gives no callees
+	 * at all or callees in at least as many classes as the union covers.
+	 * Otherwise, the flows of the individual callees are more precise than
+	 * the union.
+	 * @param stmt The invocation statement
+	 * @param method The method that is called
+	 * @param subSig The subsignature of the method that is called
+	 * @return The union summaries for the given call site if they exist,
+	 * otherwise null
+	 */
+	private ClassSummaries getUnionSummaries(Stmt stmt, SootMethod method,
+			String subSig) {
+		if (!(stmt.getInvokeExpr() instanceof InstanceInvokeExpr))
+			return null;
+		SootClass targetClass = getTargetClass(stmt, method);
+		if (!targetClass.isInterface() && !targetClass.isAbstract())
+			return null;
+		
+		String unionName = ClassSummaries.getUnionClassName(targetClass.getName());
+		if (!flows.supportsClass(unionName))
+			return null;
+		
+		// Check whether the callgraph narrows the call down to fewer classes
+		// than the union covers
+		Set<SootClass> calleeClasses = new HashSet<>();
+		for (SootMethod callee : manager.getICFG().getCalleesOfCallAt(stmt))
+			calleeClasses.add(callee.getDeclaringClass());
+		if (calleeClasses.size() == 1 || (!calleeClasses.isEmpty()
+				&& calleeClasses.size() < getUnionClassCount(targetClass)))
+			return null;
+		
+		Pair<SootClass, String> key = new Pair<>(targetClass, subSig);
+		ClassSummaries summaries = unionSummaries.get(key);
+		if (summaries == null) {
+			summaries = new ClassSummaries();
+			summaries.merge(unionName, flows.getMethodFlows(unionName, subSig));
+			unionSummaries.put(key, summaries);
+		}
+		return summaries.isEmpty() ? null : summaries;
+	}
+	
+	/**
+	 * Gets the number of summarized classes that are covered by the union
+	 * summaries of the given interface or abstract class
+	 * @param targetClass The interface or abstract class
+	 * @return The number of summarized classes that implement or extend the
+	 * given class
+	 */
+	private int getUnionClassCount(SootClass targetClass) {
+		Integer count = unionClassCounts.get(targetClass);
+		if (count == null) {
+			int c = 0;
+			for (String className : getAllChildClasses(targetClass))
+				if (flows.supportsClass(className))
+					c++;
+			count = c;
+			unionClassCounts.put(targetClass, count);
+		}
+		return count;
+	}
+	
+	/**
+	 * Gets the flows for the given method subsignature in the given class and
+	 * all of its child classes from the cache
+	 * @param sc The class in which to look for flows
+	 * @param subSig The subsignature of the method for which to get the flows
+	 * @return The flows for the given method in the given class and its child
+	 * classes
+	 */
+	private ClassSummaries getCachedFlows(SootClass sc, String subSig) {
+		metrics.recordCacheRequest();
+		return methodToFlows.getUnchecked(new Pair<>(sc, subSig));
+	}
+	
+	/**
+	 * Creates a new summary object that contains the flows from all of the
+	 * given summary objects. The given objects are left unchanged.
+	 * @param summaries The summary objects to merge
+	 * @return The union of the given summary objects
+	 */
+	private ClassSummaries mergeSummaries(List<ClassSummaries> summaries) {
+		ClassSummaries merged = new ClassSummaries();
+		for (ClassSummaries curSummaries : summaries)
+			for (String className : curSummaries.getClasses())
+				merged.merge(className, curSummaries.getClassSummaries(className).getAllFlows());
+		return merged;
+	}
+	
+	/**
+	 * Gets the class in which to look for summaries of the given method if
+	 * the callgraph does not provide any better information
+	 * @param stmt (Optional) The invocation statement at which the given method
+	 * is called
+	 * @param method The method for which to get the flow summaries
+	 * @return The static type of the base object if the given statement is an
+	 * instance invocation, otherwise the declaring class of the given method
+	 */
+	private SootClass getTargetClass(Stmt stmt, SootMethod method) {
+		if (stmt != null && stmt.getInvokeExpr() instanceof InstanceInvokeExpr) {
+			Type baseType = ((InstanceInvokeExpr) stmt.getInvokeExpr()).getBase().getType();
+			if (baseType instanceof RefType)
+				return ((RefType) baseType).getSootClass();
+		}
+		return method.getDeclaringClass();
+	}
+	
+	/**
+	 * Checks whether the negative index states that there are no summaries
+	 * for any of the callees at the given call site
+	 * @param stmt The call site to check
+	 * @return True if it is known that there are no summaries for the given
+	 * call site, false if there might be summaries
+	 */
+	private boolean isKnownWithoutFlows(Stmt stmt) {
+		Collection<SootMethod> callees = manager.getICFG().getCalleesOfCallAt(stmt);
+		if (callees.isEmpty())
+			return isKnownWithoutFlows(stmt, stmt.getInvokeExpr().getMethod());
+		for (SootMethod callee : callees)
+			if (!callee.isNative() && !callee.isStaticInitializer())
+				if (!isKnownWithoutFlows(stmt, callee))
+					return false;
+		return true;
+	}
+	
+	/**
+	 * Checks whether the negative index states that a lookup of the given
+	 * method at the given call site cannot return any summaries. This mirrors
+	 * the classes queried by getFlowSummariesForMethod().
+	 * @param stmt The call site at which the given method is called
+	 * @param method The method to check
+	 * @return True if it is known that there are no summaries for the given
+	 * method, false if there might be summaries
+	 */
+	private boolean isKnownWithoutFlows(Stmt stmt, SootMethod method) {
+		final String subSig = method.getSubSignature();
+		if (!methodsWithoutFlows.contains(getTargetClass(stmt, method).getName(), subSig))
+			return false;
+		for (SootMethod callee : manager.getICFG().getCalleesOfCallAt(stmt))
+			if (!methodsWithoutFlows.contains(callee.getDeclaringClass().getName(), subSig))
+				return false;
+		return true;
+	}
+	
 	/**
 	 * Gets all methods that implement the given abstract method. These are all
 	 * concrete methods with the same signature in all derived classes.
@@ -1059,10 +1858,18 @@ public class SummaryTaintWrapper implements ITaintPropagationWrapper {
 			return checkType instanceof RefType;
 		if (checkType == Scene.v().getObjectType())
 			return baseType instanceof RefType;
+		if (baseType == checkType)
+			return true;
+		
+		// The same type pairs are checked over and over again
+		int cached = typeCompatibilityCache.lookup(baseType, checkType);
+		if (cached != TypeCompatibilityCache.UNKNOWN)
+			return cached == 1;
 		
-		return baseType == checkType
-				|| fastHierarchy.canStoreType(baseType, checkType)
+		boolean compatible = fastHierarchy.canStoreType(baseType, checkType)
 				|| fastHierarchy.canStoreType(checkType, baseType);
+		typeCompatibilityCache.store(baseType, checkType, compatible);
+		return compatible;
 	}
 	
 	/**
@@ -1157,6 +1964,8 @@ public class SummaryTaintWrapper implements ITaintPropagationWrapper {
 		String className = fieldSig.substring(1);
 		className = className.substring(0, className.indexOf(":"));
 		SootClass sc = Scene.v().getSootClassUnsafe(className);
+		if (sc == null)
+			return null;
 		if (sc.resolvingLevel() < SootClass.SIGNATURES
 				&& !sc.isPhantom()) {
 			System.err.println("WARNING: Class not loaded: " + sc);
@@ -1472,7 +2281,38 @@ public class SummaryTaintWrapper implements ITaintPropagationWrapper {
 	 * given context. If no such propagators exist, null is returned.
 	 */
 	Set<AccessPathPropagator> getUserCodeTaints(Abstraction abs, SootMethod callee) {
-		return this.userCodeTaints.get(new Pair<>(abs, callee));
+		MultiMap<SootMethod, AccessPathPropagator> callees = this.userCodeTaints.get(abs);
+		return callees == null ? null : callees.get(callee);
+	}
+	
+	/**
+	 * Registers a propagator that has been passed into user code
+	 * @param abs The context abstraction with which the taint was passed into
+	 * the callee
+	 * @param callee The callee into which the taint was passed
+	 * @param propagator The propagator that was passed into the callee
+	 */
+	private void addUserCodeTaint(Abstraction abs, SootMethod callee,
+			AccessPathPropagator propagator) {
+		MultiMap<SootMethod, AccessPathPropagator> callees = userCodeTaints.get(abs);
+		if (callees == null) {
+			callees = new ConcurrentHashMultiMap<>();
+			MultiMap<SootMethod, AccessPathPropagator> oldCallees = userCodeTaints.putIfAbsent(
+					abs, callees);
+			if (oldCallees != null)
+				callees = oldCallees;
+		}
+		if (callees.put(callee, propagator))
+			metrics.recordUserCodeTaint();
+	}
+	
+	/**
+	 * Gets the number of contexts for which taints have been passed into user
+	 * code in the current solver run
+	 * @return The number of user code contexts
+	 */
+	public int getUserCodeTaintContextCount() {
+		return userCodeTaints.size();
 	}
 
 	@Override
@@ -1484,6 +2324,63 @@ public class SummaryTaintWrapper implements ITaintPropagationWrapper {
 	public int getWrapperMisses() {
 		return wrapperMisses.get();
 	}
+	
+	/**
+	 * Gets the number of queries that were answered by the negative index,
+	 * i.e., for which it was known beforehand that there are no summaries
+	 * @return The number of queries answered by the negative index
+	 */
+	public int getNegativeCacheHits() {
+		return negativeHits.get();
+	}
+	
+	/**
+	 * Gets the share of taint propagation queries that were answered by the
+	 * negative index. Both counts are per call site query, independent of the
+	 * number of callees at the call site.
+	 * @return The negative hit rate between 0 and 1
+	 */
+	public double getNegativeCacheHitRate() {
+		int total = taintQueries.get();
+		return total == 0 ? 0 : (double) negativeHits.get() / total;
+	}
+	
+	/**
+	 * Gets the number of type compatibility checks that were answered from
+	 * the cache in the current analysis, i.e., the number of hierarchy queries
+	 * that were saved
+	 * @return The number of cached type compatibility checks
+	 */
+	public long getSavedTypeChecks() {
+		return typeCompatibilityCache.getHits();
+	}
+	
+	/**
+	 * Gets the number of type compatibility checks that had to be computed
+	 * using the class hierarchy in the current analysis
+	 * @return The number of computed type compatibility checks
+	 */
+	public long getComputedTypeChecks() {
+		return typeCompatibilityCache.getMisses();
+	}
+	
+	/**
+	 * Gets the statistics of the method summary cache. The statistics are only
+	 * recorded if the cache has been configured with "recordStats".
+	 * @return The statistics of the method summary cache
+	 */
+	public CacheStats getCacheStats() {
+		return methodToFlows.stats();
+	}
+	
+	/**
+	 * Gets the runtime metrics of this taint wrapper. Call registerMBean() on
+	 * the returned object to publish the metrics via JMX.
+	 * @return The runtime metrics of this taint wrapper
+	 */
+	public SummaryTaintWrapperMetrics getMetrics() {
+		return metrics;
+	}
 
 	@Override
 	public Set<Abstraction> getAliasesForMethod(Stmt stmt, Abstraction d1,
@@ -1492,41 +2389,54 @@ public class SummaryTaintWrapper implements ITaintPropagationWrapper {
 		if (!stmt.containsInvokeExpr())
 			return Collections.singleton(taintedAbs);
 		
-		// Get the cached data flows
-		final SootMethod method = stmt.getInvokeExpr().getMethod();
-		ClassSummaries flowsInCallees = getFlowSummariesForMethod(stmt, method);
-		
+		long beforeQuery = System.nanoTime();
+		try {
+			return getAliasesForCallSite(stmt, d1, taintedAbs);
+		}
+		finally {
+			metrics.recordAliasQuery(stmt.getInvokeExpr().getMethod(),
+					System.nanoTime() - beforeQuery);
+		}
+	}
+	
+	/**
+	 * Computes the aliases for the given call site and incoming abstraction
+	 * @param stmt The call site
+	 * @param d1 The context of the incoming taint
+	 * @param taintedAbs The incoming taint
+	 * @return The aliases of the incoming taint, or null if the call site is
+	 * not covered by any summary or the fallback wrapper
+	 */
+	private Set<Abstraction> getAliasesForCallSite(Stmt stmt, Abstraction d1,
+			Abstraction taintedAbs) {
 		// If we have no data flows, we can abort early
-		if (flowsInCallees.isEmpty()) {
+		final SootMethod method = stmt.getInvokeExpr().getMethod();
+		long callSiteMask = isKnownWithoutFlows(stmt, method) ? 0
+				: getCallSiteAliasMask(stmt);
+		if (callSiteMask == 0) {
 			if (fallbackWrapper == null)
 				return null;
 			else
 				return fallbackWrapper.getAliasesForMethod(stmt, d1, taintedAbs);
 		}
 		
-		Set<AccessPath> res = null;
-		for (String className : flowsInCallees.getClasses()) {
-			// Create a level-0 propagator for the initially tainted access path
-			List<AccessPathPropagator> workList = new ArrayList<AccessPathPropagator>();
-			Set<Taint> taintsFromAP = createTaintFromAccessPathOnCall(
-					taintedAbs.getAccessPath(), stmt, true);
-			if (taintsFromAP == null || taintsFromAP.isEmpty())
-				return Collections.emptySet();
-			for (Taint taint : taintsFromAP)
-				workList.add(new AccessPathPropagator(taint, null, null, stmt, d1,
-						taintedAbs, true));
-			
-			// Get the flows in this class
-			Set<MethodFlow> flowsInCallee = flowsInCallees.getClassSummaries(className).getAllFlows();
-			
-			// Apply the data flows until we reach a fixed point
-			Set<AccessPath> resCallee = applyFlowsIterative(flowsInCallee, workList);
-			if (resCallee != null && !resCallee.isEmpty()) {
-				if (res == null)
-					res = new HashSet<>();
-				res.addAll(resCallee);
-			}
-		}
+		// If the taint is not used by the call or no alias flow can be
+		// applied in reverse to it, there is nothing to do
+		long taintMask = getTaintPositionMask(stmt, taintedAbs.getAccessPath(), true);
+		if (taintMask == 0)
+			return Collections.emptySet();
+		if ((callSiteMask & taintMask) == 0)
+			return Collections.singleton(taintedAbs);
+		
+		// Get the cached data flows
+		ClassSummaries flowsInCallees = getFlowSummariesForMethod(stmt, method);
+		
+		Set<Taint> taintsFromAP = createTaintFromAccessPathOnCall(
+				taintedAbs.getAccessPath(), stmt, true);
+		if (taintsFromAP == null || taintsFromAP.isEmpty())
+			return Collections.emptySet();
+		Set<AccessPath> res = applyFlowsToClasses(flowsInCallees, taintsFromAP,
+				stmt, d1, taintedAbs, true);
 		
 		// We always retain the incoming taint
 		if (res == null || res.isEmpty())
@@ -1550,6 +2460,69 @@ public class SummaryTaintWrapper implements ITaintPropagationWrapper {
 		this.reportMissingSummaries = report;
 	}
 	
+	/**
+	 * Sets the minimum number of receiver classes at a call site from which on
+	 * the flows of the individual classes are applied in parallel. This helps
+	 * on megamorphic library calls such as Collection.addAll().
+	 * @param threshold The minimum number of classes for parallel flow
+	 * application. A value of zero disables parallel flow application.
+	 * Classes whose flows contain gaps are always processed on the calling
+	 * thread.
+	 */
+	public void setParallelFlowApplicationThreshold(int threshold) {
+		this.parallelFlowApplicationThreshold = threshold;
+	}
+	
+	/**
+	 * Gets the minimum number of receiver classes at a call site from which on
+	 * the flows of the individual classes are applied in parallel
+	 * @return The minimum number of classes for parallel flow application, or
+	 * zero if parallel flow application is disabled
+	 */
+	public int getParallelFlowApplicationThreshold() {
+		return this.parallelFlowApplicationThreshold;
+	}
+	
+	/**
+	 * Gets the time it took to initialize this taint wrapper for the last
+	 * solver run
+	 * @return The initialization time in milliseconds
+	 */
+	public long getInitializationTime() {
+		return initializationTime / 1000000;
+	}
+	
+	/**
+	 * Gets the number of classes that were loaded into the scene or resolved
+	 * further when this taint wrapper was initialized for the last solver run
+	 * @return The number of classes loaded during initialization
+	 */
+	public int getLoadedClassCount() {
+		return loadedClassCount;
+	}
+	
+	/**
+	 * Sets whether all classes for which there are summaries shall be loaded
+	 * into the scene when the taint wrapper is initialized. By default, only
+	 * the classes that are referenced by reachable call sites or by the gaps
+	 * in their summaries are loaded.
+	 * @param eagerClassLoading True if all summary classes shall be loaded,
+	 * false to only load the classes the analysis can reach
+	 */
+	public void setEagerClassLoading(boolean eagerClassLoading) {
+		this.eagerClassLoading = eagerClassLoading;
+	}
+	
+	/**
+	 * Gets whether all classes for which there are summaries are loaded into
+	 * the scene when the taint wrapper is initialized
+	 * @return True if all summary classes are loaded, false if only the
+	 * classes the analysis can reach are loaded
+	 */
+	public boolean getEagerClassLoading() {
+		return this.eagerClassLoading;
+	}
+	
 	/**
 	 * Sets the fallback taint wrapper to be used if there is no StubDroid summary
 	 * for a certain class
@@ -0,0 +1,604 @@
+package soot.jimple.infoflow.methodSummary.taintWrappers;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import soot.SootMethod;
+
+/**
+ * Runtime metrics of the {@link SummaryTaintWrapper}. The metrics can either
+ * be read programmatically through {@link #snapshot()} or be published as a
+ * JMX MBean through {@link #registerMBean(String)}.
+ *
+ * @author Steven Arzt
+ *
+ */
+public class SummaryTaintWrapperMetrics implements SummaryTaintWrapperMetricsMBean {
+
+	/**
+	 * The JMX domain under which the metrics are registered
+	 */
+	public static final String JMX_DOMAIN = "soot.jimple.infoflow.methodSummary";
+
+	private static final int DEFAULT_TOP_METHODS = 20;
+
+	/**
+	 * Concurrent histogram with power-of-two buckets. Bucket i contains all
+	 * values v with 2^(i-1) <= v < 2^i, bucket 0 contains the value 0.
+	 *
+	 * @author Steven Arzt
+	 *
+	 */
+	public static class Histogram {
+
+		private static final int NUM_BUCKETS = 64;
+
+		private final AtomicLongArray buckets = new AtomicLongArray(NUM_BUCKETS);
+		private final AtomicLong count = new AtomicLong();
+		private final AtomicLong sum = new AtomicLong();
+		private final AtomicLong max = new AtomicLong();
+
+		/**
+		 * Records the given value
+		 * @param value The value to record. Negative values are treated as 0.
+		 */
+		public void record(long value) {
+			if (value < 0)
+				value = 0;
+			buckets.incrementAndGet(NUM_BUCKETS - Long.numberOfLeadingZeros(value));
+			count.incrementAndGet();
+			sum.addAndGet(value);
+
+			long curMax = max.get();
+			while (value > curMax && !max.compareAndSet(curMax, value))
+				curMax = max.get();
+		}
+
+		/**
+		 * Gets the number of recorded values
+		 * @return The number of recorded values
+		 */
+		public long getCount() {
+			return count.get();
+		}
+
+		/**
+		 * Gets the sum of all recorded values
+		 * @return The sum of all recorded values
+		 */
+		public long getSum() {
+			return sum.get();
+		}
+
+		/**
+		 * Gets the average of all recorded values
+		 * @return The average of all recorded values, 0 if no value has been
+		 * recorded yet
+		 */
+		public double getMean() {
+			long c = count.get();
+			return c == 0 ? 0 : (double) sum.get() / c;
+		}
+
+		/**
+		 * Gets the largest recorded value
+		 * @return The largest recorded value
+		 */
+		public long getMax() {
+			return max.get();
+		}
+
+		/**
+		 * Gets an upper bound for the given percentile. The result is the
+		 * upper limit of the bucket in which the percentile falls.
+		 * @param percentile The percentile to compute between 0 and 1
+		 * @return The upper bound of the given percentile
+		 */
+		public long getPercentile(double percentile) {
+			long c = count.get();
+			if (c == 0)
+				return 0;
+			long threshold = (long) Math.ceil(c * percentile);
+			long seen = 0;
+			for (int i = 0; i < NUM_BUCKETS; i++) {
+				seen += buckets.get(i);
+				if (seen >= threshold)
+					return Math.min(i == 0 ? 0 : (1L << i) - 1, max.get());
+			}
+			return max.get();
+		}
+
+		/**
+		 * Gets the number of values per bucket
+		 * @return The number of values per bucket
+		 */
+		public long[] getBuckets() {
+			long[] res = new long[NUM_BUCKETS];
+			for (int i = 0; i < NUM_BUCKETS; i++)
+				res[i] = buckets.get(i);
+			return res;
+		}
+
+		/**
+		 * Resets this histogram
+		 */
+		public void reset() {
+			for (int i = 0; i < NUM_BUCKETS; i++)
+				buckets.set(i, 0);
+			count.set(0);
+			sum.set(0);
+			max.set(0);
+		}
+
+	}
+
+	/**
+	 * Immutable point-in-time copy of the metrics
+	 *
+	 * @author Steven Arzt
+	 *
+	 */
+	public static class Snapshot {
+
+		private final long taintQueries;
+		private final long aliasQueries;
+		private final double taintLatencyMeanMicros;
+		private final long taintLatencyP99Micros;
+		private final long taintLatencyMaxMicros;
+		private final double aliasLatencyMeanMicros;
+		private final long aliasLatencyP99Micros;
+		private final long aliasLatencyMaxMicros;
+		private final long cacheRequests;
+		private final double cacheHitRate;
+		private final long providerLoads;
+		private final long providerLoadTimeMillis;
+		private final long clientCodeSpawns;
+		private final long userCodeTaints;
+		private final long flowApplications;
+		private final double worklistSizeMean;
+		private final long worklistSizeMax;
+		private final Map<String, Long> methodQueries;
+
+		private Snapshot(SummaryTaintWrapperMetrics metrics) {
+			this.taintQueries = metrics.getTaintQueries();
+			this.aliasQueries = metrics.getAliasQueries();
+			this.taintLatencyMeanMicros = metrics.getTaintLatencyMeanMicros();
+			this.taintLatencyP99Micros = metrics.getTaintLatencyP99Micros();
+			this.taintLatencyMaxMicros = metrics.getTaintLatencyMaxMicros();
+			this.aliasLatencyMeanMicros = metrics.getAliasLatencyMeanMicros();
+			this.aliasLatencyP99Micros = metrics.getAliasLatencyP99Micros();
+			this.aliasLatencyMaxMicros = metrics.getAliasLatencyMaxMicros();
+			this.cacheRequests = metrics.getCacheRequests();
+			this.cacheHitRate = metrics.getCacheHitRate();
+			this.providerLoads = metrics.getProviderLoads();
+			this.providerLoadTimeMillis = metrics.getProviderLoadTimeMillis();
+			this.clientCodeSpawns = metrics.getClientCodeSpawns();
+			this.userCodeTaints = metrics.getUserCodeTaints();
+			this.flowApplications = metrics.getFlowApplications();
+			this.worklistSizeMean = metrics.getWorklistSizeMean();
+			this.worklistSizeMax = metrics.getWorklistSizeMax();
+			this.methodQueries = Collections.unmodifiableMap(metrics.getMethodQueries());
+		}
+
+		public long getTaintQueries() {
+			return taintQueries;
+		}
+
+		public long getAliasQueries() {
+			return aliasQueries;
+		}
+
+		public double getTaintLatencyMeanMicros() {
+			return taintLatencyMeanMicros;
+		}
+
+		public long getTaintLatencyP99Micros() {
+			return taintLatencyP99Micros;
+		}
+
+		public long getTaintLatencyMaxMicros() {
+			return taintLatencyMaxMicros;
+		}
+
+		public double getAliasLatencyMeanMicros() {
+			return aliasLatencyMeanMicros;
+		}
+
+		public long getAliasLatencyP99Micros() {
+			return aliasLatencyP99Micros;
+		}
+
+		public long getAliasLatencyMaxMicros() {
+			return aliasLatencyMaxMicros;
+		}
+
+		public long getCacheRequests() {
+			return cacheRequests;
+		}
+
+		public double getCacheHitRate() {
+			return cacheHitRate;
+		}
+
+		public long getProviderLoads() {
+			return providerLoads;
+		}
+
+		public long getProviderLoadTimeMillis() {
+			return providerLoadTimeMillis;
+		}
+
+		public long getClientCodeSpawns() {
+			return clientCodeSpawns;
+		}
+
+		public long getUserCodeTaints() {
+			return userCodeTaints;
+		}
+
+		public long getFlowApplications() {
+			return flowApplications;
+		}
+
+		public double getWorklistSizeMean() {
+			return worklistSizeMean;
+		}
+
+		public long getWorklistSizeMax() {
+			return worklistSizeMax;
+		}
+
+		/**
+		 * Gets the number of queries per method signature
+		 * @return A mapping from method signatures to query counts in
+		 * descending order of the query count
+		 */
+		public Map<String, Long> getMethodQueries() {
+			return methodQueries;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("Summary taint wrapper: %d taint queries (mean %.1f us, "
+					+ "p99 %d us, max %d us), %d alias queries (mean %.1f us, p99 %d us, "
+					+ "max %d us), %d cache requests (hit rate %.2f), %d provider loads "
+					+ "(%d ms), %d client code spawns, %d user code taints, %d flow applications "
+					+ "(worklist mean %.1f, max %d)",
+					taintQueries, taintLatencyMeanMicros, taintLatencyP99Micros,
+					taintLatencyMaxMicros, aliasQueries, aliasLatencyMeanMicros,
+					aliasLatencyP99Micros, aliasLatencyMaxMicros, cacheRequests,
+					cacheHitRate, providerLoads, providerLoadTimeMillis,
+					clientCodeSpawns, userCodeTaints, flowApplications, worklistSizeMean,
+					worklistSizeMax);
+		}
+
+	}
+
+	private final Histogram taintLatency = new Histogram();
+	private final Histogram aliasLatency = new Histogram();
+	private final Histogram worklistSizes = new Histogram();
+	private final ConcurrentMap<String, AtomicLong> methodQueries = new ConcurrentHashMap<>();
+
+	private final AtomicLong cacheRequests = new AtomicLong();
+	private final AtomicLong providerLoads = new AtomicLong();
+	private final AtomicLong providerLoadTime = new AtomicLong();
+	private final AtomicLong clientCodeSpawns = new AtomicLong();
+	private final AtomicLong userCodeTaints = new AtomicLong();
+
+	private ObjectName objectName = null;
+
+	/**
+	 * Records a forward taint query
+	 * @param callee The method invoked at the call site
+	 * @param nanos The time taken to answer the query in nanoseconds
+	 */
+	void recordTaintQuery(SootMethod callee, long nanos) {
+		taintLatency.record(nanos / 1000);
+		countMethodQuery(callee);
+	}
+
+	/**
+	 * Records an alias query
+	 * @param callee The method invoked at the call site
+	 * @param nanos The time taken to answer the query in nanoseconds
+	 */
+	void recordAliasQuery(SootMethod callee, long nanos) {
+		aliasLatency.record(nanos / 1000);
+		countMethodQuery(callee);
+	}
+
+	private void countMethodQuery(SootMethod callee) {
+		// We must not keep the methods of old scenes alive
+		String signature = callee.getSignature();
+		AtomicLong counter = methodQueries.get(signature);
+		if (counter == null) {
+			counter = new AtomicLong();
+			AtomicLong oldCounter = methodQueries.putIfAbsent(signature, counter);
+			if (oldCounter != null)
+				counter = oldCounter;
+		}
+		counter.incrementAndGet();
+	}
+
+	/**
+	 * Records a lookup in the method-to-flows cache
+	 */
+	void recordCacheRequest() {
+		cacheRequests.incrementAndGet();
+	}
+
+	/**
+	 * Records a query to the summary provider
+	 * @param nanos The time taken by the summary provider in nanoseconds
+	 */
+	void recordProviderLoad(long nanos) {
+		providerLoads.incrementAndGet();
+		providerLoadTime.addAndGet(nanos);
+	}
+
+	/**
+	 * Records that the analysis was spawned into user code
+	 */
+	void recordClientCodeSpawn() {
+		clientCodeSpawns.incrementAndGet();
+	}
+
+	/**
+	 * Records that a propagator has been registered for the return from user
+	 * code
+	 */
+	void recordUserCodeTaint() {
+		userCodeTaints.incrementAndGet();
+	}
+
+	/**
+	 * Resets the number of registered user code propagators at the start of a
+	 * new solver run
+	 */
+	void resetUserCodeTaints() {
+		userCodeTaints.set(0);
+	}
+
+	/**
+	 * Resets the per-method query counts at the start of a new solver run
+	 */
+	void resetMethodQueries() {
+		methodQueries.clear();
+	}
+
+	/**
+	 * Records a completed fixed-point iteration over summary flows
+	 * @param maxWorklistSize The largest size of the worklist during the
+	 * iteration
+	 */
+	void recordFlowApplication(int maxWorklistSize) {
+		worklistSizes.record(maxWorklistSize);
+	}
+
+	@Override
+	public long getTaintQueries() {
+		return taintLatency.getCount();
+	}
+
+	@Override
+	public long getAliasQueries() {
+		return aliasLatency.getCount();
+	}
+
+	@Override
+	public double getTaintLatencyMeanMicros() {
+		return taintLatency.getMean();
+	}
+
+	@Override
+	public long getTaintLatencyP99Micros() {
+		return taintLatency.getPercentile(0.99);
+	}
+
+	@Override
+	public long getTaintLatencyMaxMicros() {
+		return taintLatency.getMax();
+	}
+
+	@Override
+	public double getAliasLatencyMeanMicros() {
+		return aliasLatency.getMean();
+	}
+
+	@Override
+	public long getAliasLatencyP99Micros() {
+		return aliasLatency.getPercentile(0.99);
+	}
+
+	@Override
+	public long getAliasLatencyMaxMicros() {
+		return aliasLatency.getMax();
+	}
+
+	@Override
+	public long getCacheRequests() {
+		return cacheRequests.get();
+	}
+
+	@Override
+	public double getCacheHitRate() {
+		long requests = cacheRequests.get();
+		if (requests == 0)
+			return 0;
+		return Math.max(0, 1 - (double) providerLoads.get() / requests);
+	}
+
+	@Override
+	public long getProviderLoads() {
+		return providerLoads.get();
+	}
+
+	@Override
+	public long getProviderLoadTimeMillis() {
+		return providerLoadTime.get() / 1000000;
+	}
+
+	@Override
+	public long getClientCodeSpawns() {
+		return clientCodeSpawns.get();
+	}
+
+	@Override
+	public long getUserCodeTaints() {
+		return userCodeTaints.get();
+	}
+
+	@Override
+	public long getFlowApplications() {
+		return worklistSizes.getCount();
+	}
+
+	@Override
+	public double getWorklistSizeMean() {
+		return worklistSizes.getMean();
+	}
+
+	@Override
+	public long getWorklistSizeMax() {
+		return worklistSizes.getMax();
+	}
+
+	/**
+	 * Gets the latency histogram of forward taint queries in microseconds
+	 * @return The latency histogram of getTaintsForMethod()
+	 */
+	public Histogram getTaintLatency() {
+		return taintLatency;
+	}
+
+	/**
+	 * Gets the latency histogram of alias queries in microseconds
+	 * @return The latency histogram of getAliasesForMethod()
+	 */
+	public Histogram getAliasLatency() {
+		return aliasLatency;
+	}
+
+	/**
+	 * Gets the histogram of the peak worklist sizes in the fixed-point
+	 * iterations over summary flows
+	 * @return The histogram of peak worklist sizes
+	 */
+	public Histogram getWorklistSizes() {
+		return worklistSizes;
+	}
+
+	/**
+	 * Gets the number of queries per method signature
+	 * @return A mapping from method signatures to query counts in descending
+	 * order of the query count
+	 */
+	public Map<String, Long> getMethodQueries() {
+		List<Entry<String, AtomicLong>> entries = new ArrayList<>(methodQueries.entrySet());
+		final Map<String, Long> counts = new ConcurrentHashMap<>(entries.size());
+		for (Entry<String, AtomicLong> entry : entries)
+			counts.put(entry.getKey(), entry.getValue().get());
+		Collections.sort(entries, new Comparator<Entry<String, AtomicLong>>() {
+
+			@Override
+			public int compare(Entry<String, AtomicLong> o1,
+					Entry<String, AtomicLong> o2) {
+				return Long.compare(counts.get(o2.getKey()), counts.get(o1.getKey()));
+			}
+
+		});
+
+		Map<String, Long> res = new LinkedHashMap<>(entries.size());
+		for (Entry<String, AtomicLong> entry : entries)
+			res.put(entry.getKey(), counts.get(entry.getKey()));
+		return res;
+	}
+
+	@Override
+	public String[] getTopQueriedMethods() {
+		Map<String, Long> queries = getMethodQueries();
+		String[] res = new String[Math.min(DEFAULT_TOP_METHODS, queries.size())];
+		int i = 0;
+		for (Entry<String, Long> entry : queries.entrySet()) {
+			if (i >= res.length)
+				break;
+			res[i++] = entry.getValue() + " " + entry.getKey();
+		}
+		return res;
+	}
+
+	/**
+	 * Creates a point-in-time copy of the current metrics
+	 * @return A snapshot of the current metrics
+	 */
+	public Snapshot snapshot() {
+		return new Snapshot(this);
+	}
+
+	@Override
+	public void reset() {
+		taintLatency.reset();
+		aliasLatency.reset();
+		worklistSizes.reset();
+		methodQueries.clear();
+		cacheRequests.set(0);
+		providerLoads.set(0);
+		providerLoadTime.set(0);
+		clientCodeSpawns.set(0);
+		userCodeTaints.set(0);
+	}
+
+	/**
+	 * Registers these metrics as an MBean with the platform MBean server
+	 * @param name The name under which to register the metrics. This allows
+	 * for distinguishing multiple taint wrappers in the same VM.
+	 * @return The object name under which the metrics have been registered
+	 */
+	public synchronized ObjectName registerMBean(String name) {
+		if (objectName != null)
+			return objectName;
+		try {
+			ObjectName on = new ObjectName(JMX_DOMAIN + ":type=SummaryTaintWrapper,name="
+					+ ObjectName.quote(name));
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, on);
+			objectName = on;
+			return on;
+		}
+		catch (JMException ex) {
+			throw new RuntimeException("Could not register summary taint wrapper metrics", ex);
+		}
+	}
+
+	/**
+	 * Removes these metrics from the platform MBean server if they have been
+	 * registered before
+	 */
+	public synchronized void unregisterMBean() {
+		if (objectName == null)
+			return;
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			if (server.isRegistered(objectName))
+				server.unregisterMBean(objectName);
+			objectName = null;
+		}
+		catch (JMException ex) {
+			throw new RuntimeException("Could not unregister summary taint wrapper metrics", ex);
+		}
+	}
+
+}
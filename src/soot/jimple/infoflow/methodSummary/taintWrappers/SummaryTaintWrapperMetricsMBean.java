@@ -0,0 +1,132 @@
+package soot.jimple.infoflow.methodSummary.taintWrappers;
+
+/**
+ * JMX management interface for the runtime metrics of the
+ * {@link SummaryTaintWrapper}
+ *
+ * @author Steven Arzt
+ *
+ */
+public interface SummaryTaintWrapperMetricsMBean {
+
+	/**
+	 * Gets the number of forward taint queries
+	 * @return The number of calls to getTaintsForMethod()
+	 */
+	public long getTaintQueries();
+
+	/**
+	 * Gets the number of alias queries
+	 * @return The number of calls to getAliasesForMethod()
+	 */
+	public long getAliasQueries();
+
+	/**
+	 * Gets the average latency of forward taint queries
+	 * @return The average latency of getTaintsForMethod() in microseconds
+	 */
+	public double getTaintLatencyMeanMicros();
+
+	/**
+	 * Gets the 99th percentile latency of forward taint queries
+	 * @return The upper bound of the 99th percentile latency of
+	 * getTaintsForMethod() in microseconds
+	 */
+	public long getTaintLatencyP99Micros();
+
+	/**
+	 * Gets the maximum latency of forward taint queries
+	 * @return The maximum latency of getTaintsForMethod() in microseconds
+	 */
+	public long getTaintLatencyMaxMicros();
+
+	/**
+	 * Gets the average latency of alias queries
+	 * @return The average latency of getAliasesForMethod() in microseconds
+	 */
+	public double getAliasLatencyMeanMicros();
+
+	/**
+	 * Gets the 99th percentile latency of alias queries
+	 * @return The upper bound of the 99th percentile latency of
+	 * getAliasesForMethod() in microseconds
+	 */
+	public long getAliasLatencyP99Micros();
+
+	/**
+	 * Gets the maximum latency of alias queries
+	 * @return The maximum latency of getAliasesForMethod() in microseconds
+	 */
+	public long getAliasLatencyMaxMicros();
+
+	/**
+	 * Gets the number of lookups in the method-to-flows cache
+	 * @return The number of lookups in the method-to-flows cache
+	 */
+	public long getCacheRequests();
+
+	/**
+	 * Gets the share of lookups in the method-to-flows cache that did not
+	 * require the summary provider
+	 * @return The hit rate of the method-to-flows cache between 0 and 1
+	 */
+	public double getCacheHitRate();
+
+	/**
+	 * Gets the number of times the summary provider was queried
+	 * @return The number of summary provider loads
+	 */
+	public long getProviderLoads();
+
+	/**
+	 * Gets the total time spent in the summary provider
+	 * @return The total time spent in the summary provider in milliseconds
+	 */
+	public long getProviderLoadTimeMillis();
+
+	/**
+	 * Gets the number of times the analysis was spawned into user code
+	 * @return The number of calls to spawnAnalysisIntoClientCode()
+	 */
+	public long getClientCodeSpawns();
+
+	/**
+	 * Gets the number of propagators that have been registered for the return
+	 * from user code in the current solver run
+	 * @return The number of registered user code propagators
+	 */
+	public long getUserCodeTaints();
+
+	/**
+	 * Gets the number of fixed-point iterations over summary flows
+	 * @return The number of calls to applyFlowsIterative()
+	 */
+	public long getFlowApplications();
+
+	/**
+	 * Gets the average peak worklist size in the fixed-point iterations over
+	 * summary flows
+	 * @return The average peak worklist size
+	 */
+	public double getWorklistSizeMean();
+
+	/**
+	 * Gets the largest worklist seen in a fixed-point iteration over summary
+	 * flows
+	 * @return The maximum worklist size
+	 */
+	public long getWorklistSizeMax();
+
+	/**
+	 * Gets the methods that have been queried most often together with their
+	 * query counts
+	 * @return The most frequently queried methods in descending order
+	 */
+	public String[] getTopQueriedMethods();
+
+	/**
+	 * Resets all metrics to zero
+	 */
+	public void reset();
+
+}
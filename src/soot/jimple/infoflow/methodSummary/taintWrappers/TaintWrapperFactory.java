@@ -15,10 +15,24 @@ public class TaintWrapperFactory {
 	
 	public static ITaintPropagationWrapper createTaintWrapper(
 			Collection<String> files) throws FileNotFoundException, XMLStreamException {
+		return createTaintWrapper(files, null);
+	}
+	
+	/**
+	 * Creates a new summary taint wrapper for the given summary files
+	 * @param files The summary files or directories to load
+	 * @param cacheSpec The specification of the method summary cache in the
+	 * format of Guava's CacheBuilderSpec, e.g.
+	 * "maximumSize=10000,expireAfterAccess=10m,recordStats". Pass null for
+	 * the default configuration.
+	 * @return The new summary taint wrapper
+	 */
+	public static ITaintPropagationWrapper createTaintWrapper(
+			Collection<String> files, String cacheSpec) throws FileNotFoundException, XMLStreamException {
 		List<File> fs = new LinkedList<File>();
 		for(String s : files)
 			fs.add(new File(s));
-		return new SummaryTaintWrapper(new LazySummaryProvider(fs));
+		return new SummaryTaintWrapper(new LazySummaryProvider(fs), cacheSpec);
 	}
 
 	public static ITaintPropagationWrapper createTaintWrapper(String f) throws FileNotFoundException, XMLStreamException {
@@ -26,7 +40,20 @@ public class TaintWrapperFactory {
 	}
 	
 	public static ITaintPropagationWrapper createTaintWrapper(File f){
-		return new SummaryTaintWrapper(new LazySummaryProvider(f));
+		return createTaintWrapper(f, null);
+	}
+	
+	/**
+	 * Creates a new summary taint wrapper for the given summary file or
+	 * directory
+	 * @param f The summary file or directory to load
+	 * @param cacheSpec The specification of the method summary cache in the
+	 * format of Guava's CacheBuilderSpec. Pass null for the default
+	 * configuration.
+	 * @return The new summary taint wrapper
+	 */
+	public static ITaintPropagationWrapper createTaintWrapper(File f, String cacheSpec){
+		return new SummaryTaintWrapper(new LazySummaryProvider(f), cacheSpec);
 	}
 
 }
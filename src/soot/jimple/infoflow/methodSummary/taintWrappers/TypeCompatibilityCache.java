@@ -0,0 +1,145 @@
+package soot.jimple.infoflow.methodSummary.taintWrappers;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import soot.Type;
+
+/**
+ * Concurrent cache for type compatibility checks. The cache is keyed by the
+ * numbers Soot assigns to types. Results are packed into bit vectors with two
+ * bits per type pair (known, compatible), where each vector covers 32
+ * consecutive target types. The vectors are distributed over a fixed number
+ * of stripes to reduce contention. The cache is only valid for the scene in
+ * which it has been filled.
+ *
+ * @author Steven Arzt
+ *
+ */
+public class TypeCompatibilityCache {
+
+	private static final int STRIPE_COUNT = 16;
+	private static final int TYPES_PER_ENTRY = 32;
+
+	/**
+	 * Result of a lookup if the type pair is not in the cache
+	 */
+	public static final int UNKNOWN = -1;
+
+	private final ConcurrentMap<Long, AtomicLong>[] stripes;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	@SuppressWarnings("unchecked")
+	public TypeCompatibilityCache() {
+		this.stripes = new ConcurrentMap[STRIPE_COUNT];
+		for (int i = 0; i < STRIPE_COUNT; i++)
+			this.stripes[i] = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * Gets the bit vector key for the given type pair
+	 * @param n1 The number of the first type
+	 * @param n2 The number of the second type
+	 * @return The key of the bit vector containing the given type pair
+	 */
+	private static long getKey(int n1, int n2) {
+		return ((long) n1 << 32) | (n2 / TYPES_PER_ENTRY);
+	}
+
+	/**
+	 * Gets the stripe in which the given key is stored
+	 * @param key The key
+	 * @return The stripe containing the given key
+	 */
+	private ConcurrentMap<Long, AtomicLong> getStripe(long key) {
+		int hash = (int) (key ^ (key >>> 32));
+		hash ^= (hash >>> 16);
+		return stripes[hash & (STRIPE_COUNT - 1)];
+	}
+
+	/**
+	 * Looks up whether the given types are compatible
+	 * @param t1 The first type
+	 * @param t2 The second type
+	 * @return 1 if the types are compatible, 0 if they are not compatible, or
+	 * UNKNOWN if the pair is not in the cache
+	 */
+	public int lookup(Type t1, Type t2) {
+		int n1 = t1.getNumber();
+		int n2 = t2.getNumber();
+		if (n1 <= 0 || n2 <= 0) {
+			misses.incrementAndGet();
+			return UNKNOWN;
+		}
+
+		long key = getKey(n1, n2);
+		AtomicLong entry = getStripe(key).get(key);
+		if (entry != null) {
+			long bits = entry.get() >>> (2 * (n2 % TYPES_PER_ENTRY));
+			if ((bits & 2) != 0) {
+				hits.incrementAndGet();
+				return (int) (bits & 1);
+			}
+		}
+		misses.incrementAndGet();
+		return UNKNOWN;
+	}
+
+	/**
+	 * Stores the compatibility of the given types
+	 * @param t1 The first type
+	 * @param t2 The second type
+	 * @param compatible True if the types are compatible, otherwise false
+	 */
+	public void store(Type t1, Type t2, boolean compatible) {
+		int n1 = t1.getNumber();
+		int n2 = t2.getNumber();
+		if (n1 <= 0 || n2 <= 0)
+			return;
+
+		long key = getKey(n1, n2);
+		ConcurrentMap<Long, AtomicLong> stripe = getStripe(key);
+		AtomicLong entry = stripe.get(key);
+		if (entry == null) {
+			entry = new AtomicLong();
+			AtomicLong oldEntry = stripe.putIfAbsent(key, entry);
+			if (oldEntry != null)
+				entry = oldEntry;
+		}
+
+		long newBits = (compatible ? 3L : 2L) << (2 * (n2 % TYPES_PER_ENTRY));
+		long oldValue;
+		do {
+			oldValue = entry.get();
+		} while (!entry.compareAndSet(oldValue, oldValue | newBits));
+	}
+
+	/**
+	 * Gets the number of type checks that were answered from the cache
+	 * @return The number of cache hits
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * Gets the number of type checks that had to be computed
+	 * @return The number of cache misses
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * Clears the cache. This must be done whenever the scene changes.
+	 */
+	public void clear() {
+		for (ConcurrentMap<Long, AtomicLong> stripe : stripes)
+			stripe.clear();
+		hits.set(0);
+		misses.set(0);
+	}
+
+}
@@ -0,0 +1,509 @@
+package soot.jimple.infoflow.methodSummary.xml;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+import soot.jimple.infoflow.methodSummary.data.summary.GapDefinition;
+import soot.jimple.infoflow.methodSummary.data.summary.MethodFlow;
+import soot.jimple.infoflow.methodSummary.data.summary.MethodSummaries;
+import soot.jimple.infoflow.util.SootMethodRepresentationParser;
+
+/**
+ * Index of the summary files in a directory. For every class, the manifest
+ * lists the summary file, its size, modification time and checksum, the methods with their number of
+ * flows, the gap targets, and the dependencies. Summary providers can answer
+ * class-level and method-level queries from the manifest without parsing the
+ * summary files.
+ *
+ * @author Steven Arzt
+ *
+ */
+public class SummaryManifest {
+
+	/**
+	 * The name of the manifest file in a summary directory
+	 */
+	public static final String MANIFEST_FILE_NAME = "summaries.manifest";
+
+	private static final int FILE_FORMAT_VERSION = 2;
+	private static final String CHECKSUM_ALGORITHM = "SHA-256";
+
+	private static final String TREE_MANIFEST = "manifest";
+	private static final String TREE_CLASS = "class";
+	private static final String TREE_METHOD = "method";
+	private static final String TREE_GAP = "gap";
+	private static final String TREE_DEPENDENCY = "dependency";
+
+	private static final String ATTRIBUTE_NAME = "name";
+	private static final String ATTRIBUTE_FILE = "file";
+	private static final String ATTRIBUTE_CHECKSUM = "checksum";
+	private static final String ATTRIBUTE_SIZE = "size";
+	private static final String ATTRIBUTE_MODIFIED = "modified";
+	private static final String ATTRIBUTE_FLOWS = "flows";
+
+	/**
+	 * The manifest data of a single class
+	 */
+	public static class ClassEntry {
+
+		private final String className;
+		private final String fileName;
+		private final String checksum;
+		private long fileSize = -1;
+		private long lastModified = -1;
+		private final Map<String, Integer> methodFlowCounts = new TreeMap<>();
+		private final Set<String> gapTargets = new TreeSet<>();
+		private final Set<String> dependencies = new TreeSet<>();
+
+		ClassEntry(String className, String fileName, String checksum) {
+			this.className = className;
+			this.fileName = fileName;
+			this.checksum = checksum;
+		}
+
+		/**
+		 * Gets the name of the class
+		 * @return The name of the class
+		 */
+		public String getClassName() {
+			return className;
+		}
+
+		/**
+		 * Gets the name of the summary file relative to the manifest
+		 * @return The name of the summary file
+		 */
+		public String getFileName() {
+			return fileName;
+		}
+
+		/**
+		 * Gets the checksum of the summary file
+		 * @return The hex-encoded SHA-256 checksum of the summary file
+		 */
+		public String getChecksum() {
+			return checksum;
+		}
+
+		/**
+		 * Gets the size of the summary file at the time the manifest was
+		 * created
+		 * @return The size of the summary file in bytes, or -1 if the size is
+		 * not known
+		 */
+		public long getFileSize() {
+			return fileSize;
+		}
+
+		/**
+		 * Gets the modification time of the summary file at the time the
+		 * manifest was created
+		 * @return The modification time of the summary file in milliseconds
+		 * since the epoch, or -1 if the modification time is not known
+		 */
+		public long getLastModified() {
+			return lastModified;
+		}
+
+		/**
+		 * Gets the number of flows in the method with the given subsignature
+		 * @param subSig The subsignature of the method
+		 * @return The number of flows in the given method, or zero if the
+		 * method has no flows
+		 */
+		public int getFlowCount(String subSig) {
+			Integer count = methodFlowCounts.get(subSig);
+			return count == null ? 0 : count;
+		}
+
+		/**
+		 * Gets the subsignatures of all methods with flows in this class
+		 * @return The subsignatures of all methods with flows
+		 */
+		public Set<String> getMethods() {
+			return Collections.unmodifiableSet(methodFlowCounts.keySet());
+		}
+
+		/**
+		 * Gets the signatures of the methods called in gaps in this class
+		 * @return The signatures of the gap targets
+		 */
+		public Set<String> getGapTargets() {
+			return Collections.unmodifiableSet(gapTargets);
+		}
+
+		/**
+		 * Gets the classes that are referenced by the summaries of this class,
+		 * but that do not have summaries on their own
+		 * @return The dependencies of this class
+		 */
+		public Set<String> getDependencies() {
+			return Collections.unmodifiableSet(dependencies);
+		}
+
+	}
+
+	private final Map<String, ClassEntry> classes = new TreeMap<>();
+
+	/**
+	 * Gets the manifest data of the given class
+	 * @param className The name of the class
+	 * @return The manifest data of the given class, or null if the class is
+	 * not in the manifest
+	 */
+	public ClassEntry getClassEntry(String className) {
+		return classes.get(className);
+	}
+
+	/**
+	 * Gets the names of all classes in this manifest
+	 * @return The names of all classes in this manifest
+	 */
+	public Set<String> getClasses() {
+		return Collections.unmodifiableSet(classes.keySet());
+	}
+
+	/**
+	 * Gets whether the given method in the given class has flows according to
+	 * this manifest
+	 * @param className The name of the class
+	 * @param subSig The subsignature of the method
+	 * @return True if the given method has flows, otherwise false
+	 */
+	public boolean hasFlows(String className, String subSig) {
+		ClassEntry entry = classes.get(className);
+		return entry != null && entry.getFlowCount(subSig) > 0;
+	}
+
+	/**
+	 * Adds the given class to this manifest
+	 * @param className The name of the class
+	 * @param fileName The name of the summary file relative to the manifest
+	 * @param checksum The checksum of the summary file
+	 * @param summaries The summaries of the class
+	 * @return The new manifest entry
+	 */
+	public ClassEntry addClass(String className, String fileName, String checksum,
+			MethodSummaries summaries) {
+		ClassEntry entry = new ClassEntry(className, fileName, checksum);
+		for (Map.Entry<String, Set<MethodFlow>> method : summaries.getFlows().entrySet())
+			entry.methodFlowCounts.put(method.getKey(), method.getValue().size());
+		for (GapDefinition gap : summaries.getAllGaps())
+			entry.gapTargets.add(gap.getSignature());
+		for (MethodFlow flow : summaries) {
+			addDependencies(entry, flow.source().getAccessPathTypes());
+			addDependencies(entry, flow.sink().getAccessPathTypes());
+		}
+		classes.put(className, entry);
+		return entry;
+	}
+
+	/**
+	 * Adds the reference types in the given access path to the dependencies of
+	 * the given class
+	 * @param entry The manifest entry of the class
+	 * @param types The types in the access path
+	 */
+	private void addDependencies(ClassEntry entry, String[] types) {
+		if (types == null)
+			return;
+		for (String type : types) {
+			while (type.endsWith("[]"))
+				type = type.substring(0, type.length() - 2);
+			if (type.indexOf('.') >= 0 && !type.equals(entry.className))
+				entry.dependencies.add(type);
+		}
+	}
+
+	/**
+	 * Removes all dependencies that have summaries in this manifest
+	 */
+	private void removeSummarizedDependencies() {
+		for (ClassEntry entry : classes.values())
+			entry.dependencies.removeAll(classes.keySet());
+	}
+
+	/**
+	 * Creates the manifest for all summary files in the given directory
+	 * @param dir The directory containing the summary files
+	 * @return The manifest for the given directory
+	 */
+	public static SummaryManifest create(File dir) throws XMLStreamException,
+			SummaryXMLException, IOException {
+		File[] files = dir.listFiles();
+		if (files == null)
+			throw new RuntimeException("Could not get files in directory " + dir);
+
+		XMLReader reader = new XMLReader();
+		SummaryManifest manifest = new SummaryManifest();
+		for (File f : files)
+			if (XMLReader.isSummaryFile(f)) {
+				ClassEntry entry = manifest.addClass(XMLReader.getClassName(f),
+						f.getName(), computeChecksum(f), reader.read(f));
+				entry.fileSize = f.length();
+				entry.lastModified = f.lastModified();
+			}
+		manifest.removeSummarizedDependencies();
+		return manifest;
+	}
+
+	/**
+	 * Computes the checksum of the given file
+	 * @param file The file for which to compute the checksum
+	 * @return The hex-encoded SHA-256 checksum of the given file
+	 * @throws IOException Thrown if the file could not be read
+	 */
+	public static String computeChecksum(File file) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance(CHECKSUM_ALGORITHM);
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+
+		InputStream in = new FileInputStream(file);
+		try {
+			byte[] buffer = new byte[8192];
+			int len;
+			while ((len = in.read(buffer)) > 0)
+				digest.update(buffer, 0, len);
+		}
+		finally {
+			in.close();
+		}
+
+		StringBuilder sb = new StringBuilder();
+		for (byte b : digest.digest())
+			sb.append(String.format("%02x", b & 0xff));
+		return sb.toString();
+	}
+
+	/**
+	 * Gets the classes whose summary files are missing or differ in size or
+	 * modification time from the data in this manifest. This check does not
+	 * read the summary files, so files that were changed without a change in
+	 * size or modification time are only found by
+	 * {@link #verifyChecksum(File, String)}.
+	 * @param dir The directory containing the summary files
+	 * @return The names of the classes whose summary files are missing or
+	 * have been modified
+	 */
+	public List<String> getStaleClasses(File dir) {
+		List<String> staleClasses = new ArrayList<>();
+		for (ClassEntry entry : classes.values()) {
+			File f = new File(dir, entry.getFileName());
+			if (!f.exists()
+					|| (entry.getFileSize() >= 0 && f.length() != entry.getFileSize())
+					|| (entry.getLastModified() >= 0 && f.lastModified() != entry.getLastModified()))
+				staleClasses.add(entry.getClassName());
+		}
+		return staleClasses;
+	}
+
+	/**
+	 * Gets the classes whose summary files no longer match the checksums in
+	 * this manifest. This check reads all summary files.
+	 * @param dir The directory containing the summary files
+	 * @return The names of the classes whose summary files are missing or
+	 * have been modified
+	 * @throws IOException Thrown if a summary file could not be read
+	 */
+	public List<String> getModifiedClasses(File dir) throws IOException {
+		List<String> modifiedClasses = new ArrayList<>();
+		for (ClassEntry entry : classes.values())
+			if (!verifyChecksum(dir, entry.getClassName()))
+				modifiedClasses.add(entry.getClassName());
+		return modifiedClasses;
+	}
+
+	/**
+	 * Checks whether the summary file of the given class still matches the
+	 * checksum in this manifest
+	 * @param dir The directory containing the summary files
+	 * @param className The name of the class
+	 * @return True if the summary file exists and matches the checksum in the
+	 * manifest, otherwise false
+	 * @throws IOException Thrown if the summary file could not be read
+	 */
+	public boolean verifyChecksum(File dir, String className) throws IOException {
+		ClassEntry entry = classes.get(className);
+		if (entry == null)
+			return false;
+		File f = new File(dir, entry.getFileName());
+		return f.exists() && computeChecksum(f).equals(entry.getChecksum());
+	}
+
+	/**
+	 * Writes this manifest into the given directory
+	 * @param dir The directory in which to write the manifest
+	 * @throws XMLStreamException Thrown if the XML data could not be written
+	 * @throws IOException Thrown if the manifest file could not be written
+	 */
+	public void write(File dir) throws XMLStreamException, IOException {
+		OutputStream out = new BufferedOutputStream(new FileOutputStream(
+				new File(dir, MANIFEST_FILE_NAME)));
+		try {
+			XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(
+					out, "UTF-8");
+			writer.writeStartDocument();
+			writer.writeStartElement(TREE_MANIFEST);
+			writer.writeAttribute(XMLConstants.ATTRIBUTE_FORMAT_VERSION, FILE_FORMAT_VERSION + "");
+
+			for (ClassEntry entry : classes.values()) {
+				writer.writeStartElement(TREE_CLASS);
+				writer.writeAttribute(ATTRIBUTE_NAME, entry.getClassName());
+				writer.writeAttribute(ATTRIBUTE_FILE, entry.getFileName());
+				writer.writeAttribute(ATTRIBUTE_CHECKSUM, entry.getChecksum());
+				writer.writeAttribute(ATTRIBUTE_SIZE, entry.getFileSize() + "");
+				writer.writeAttribute(ATTRIBUTE_MODIFIED, entry.getLastModified() + "");
+
+				for (Map.Entry<String, Integer> method : entry.methodFlowCounts.entrySet()) {
+					writer.writeEmptyElement(TREE_METHOD);
+					writer.writeAttribute(ATTRIBUTE_NAME, method.getKey());
+					writer.writeAttribute(ATTRIBUTE_FLOWS, method.getValue() + "");
+				}
+				for (String gapTarget : entry.gapTargets) {
+					writer.writeEmptyElement(TREE_GAP);
+					writer.writeAttribute(ATTRIBUTE_NAME, gapTarget);
+				}
+				for (String dependency : entry.dependencies) {
+					writer.writeEmptyElement(TREE_DEPENDENCY);
+					writer.writeAttribute(ATTRIBUTE_NAME, dependency);
+				}
+
+				writer.writeEndElement(); // close class
+			}
+
+			writer.writeEndDocument();
+			writer.close();
+		}
+		finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Reads the manifest in the given directory
+	 * @param dir The directory containing the manifest
+	 * @return The manifest in the given directory, or null if the directory
+	 * does not contain a manifest
+	 * @throws XMLStreamException Thrown if the manifest is malformed
+	 * @throws IOException Thrown if the manifest could not be read
+	 */
+	public static SummaryManifest read(File dir) throws XMLStreamException,
+			IOException {
+		File manifestFile = new File(dir, MANIFEST_FILE_NAME);
+		if (!manifestFile.exists())
+			return null;
+
+		SummaryManifest manifest = new SummaryManifest();
+		InputStream in = new BufferedInputStream(new FileInputStream(manifestFile));
+		XMLStreamReader reader = null;
+		try {
+			reader = XMLInputFactory.newInstance().createXMLStreamReader(in);
+			ClassEntry entry = null;
+			while (reader.hasNext()) {
+				if (reader.next() != XMLStreamConstants.START_ELEMENT)
+					continue;
+
+				String name = reader.getLocalName();
+				if (name.equals(TREE_CLASS)) {
+					entry = new ClassEntry(reader.getAttributeValue(null, ATTRIBUTE_NAME),
+							reader.getAttributeValue(null, ATTRIBUTE_FILE),
+							reader.getAttributeValue(null, ATTRIBUTE_CHECKSUM));
+					String size = reader.getAttributeValue(null, ATTRIBUTE_SIZE);
+					if (size != null)
+						entry.fileSize = Long.parseLong(size);
+					String modified = reader.getAttributeValue(null, ATTRIBUTE_MODIFIED);
+					if (modified != null)
+						entry.lastModified = Long.parseLong(modified);
+					manifest.classes.put(entry.getClassName(), entry);
+				}
+				else if (entry == null)
+					continue;
+				else if (name.equals(TREE_METHOD))
+					entry.methodFlowCounts.put(reader.getAttributeValue(null, ATTRIBUTE_NAME),
+							Integer.parseInt(reader.getAttributeValue(null, ATTRIBUTE_FLOWS)));
+				else if (name.equals(TREE_GAP))
+					entry.gapTargets.add(reader.getAttributeValue(null, ATTRIBUTE_NAME));
+				else if (name.equals(TREE_DEPENDENCY))
+					entry.dependencies.add(reader.getAttributeValue(null, ATTRIBUTE_NAME));
+			}
+		}
+		finally {
+			if (reader != null)
+				reader.close();
+			in.close();
+		}
+		return manifest;
+	}
+
+	/**
+	 * Gets the classes declaring the gap targets of the given class
+	 * @param className The name of the class
+	 * @return The classes that declare the methods called in the gaps of the
+	 * given class
+	 */
+	public Set<String> getGapTargetClasses(String className) {
+		ClassEntry entry = classes.get(className);
+		if (entry == null)
+			return Collections.emptySet();
+
+		Set<String> targetClasses = new TreeSet<>();
+		for (String gapTarget : entry.gapTargets)
+			targetClasses.add(SootMethodRepresentationParser.v()
+					.parseSootMethodString(gapTarget).getClassName());
+		return targetClasses;
+	}
+
+	public static void main(String[] args) throws XMLStreamException,
+			SummaryXMLException, IOException {
+		if (args.length < 1) {
+			System.out.println("Usage: java soot.jimple.infoflow.methodSummary.xml.SummaryManifest "
+					+ "<summary directory> [--verify]");
+			return;
+		}
+
+		File dir = new File(args[0]);
+		if (args.length > 1 && args[1].equalsIgnoreCase("--verify")) {
+			SummaryManifest manifest = read(dir);
+			if (manifest == null) {
+				System.out.println("No manifest found in " + dir);
+				return;
+			}
+			List<String> staleClasses = manifest.getModifiedClasses(dir);
+			for (String className : staleClasses)
+				System.out.println("Stale summary file for class " + className);
+			System.out.println(staleClasses.size() + " stale summary files");
+			return;
+		}
+
+		SummaryManifest manifest = create(dir);
+		manifest.write(dir);
+		System.out.println("Created manifest for " + manifest.getClasses().size() + " classes");
+	}
+
+}
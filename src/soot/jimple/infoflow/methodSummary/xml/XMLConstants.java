@@ -23,6 +23,9 @@ public class XMLConstants {
 	 * 		</methods>
 	 * </summary>
 	 */
+	public static final String FILE_EXTENSION = ".xml";
+	public static final String FILE_EXTENSION_COMPRESSED = ".xml.gz";
+	
 	public static final String TREE_SUMMARY = "summary";
 	public static final String TREE_METHODS = "methods";
 	public static final String TREE_METHOD = "method";
@@ -45,6 +48,8 @@ public class XMLConstants {
 	public static final String ATTRIBUTE_TAINT_SUB_FIELDS = "taintSubFields";
 	public static final String ATTRIBUTE_GAP = "gap";
 	public static final String ATTRIBUTE_IS_ALIAS = "isAlias";
+	public static final String ATTRIBUTE_ACCESSPATH_LENGTH = "accessPathLength";
+	public static final String ATTRIBUTE_APPROXIMATED = "approximated";
 	
 	public static final String VALUE_TRUE = "true";
 	public static final String VALUE_FALSE = "false";
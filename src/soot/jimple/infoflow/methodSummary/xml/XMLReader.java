@@ -1,23 +1,16 @@
 package soot.jimple.infoflow.methodSummary.xml;
 
-import static soot.jimple.infoflow.methodSummary.xml.XMLConstants.ATTRIBUTE_BASETYPE;
-import static soot.jimple.infoflow.methodSummary.xml.XMLConstants.ATTRIBUTE_FLOWTYPE;
-import static soot.jimple.infoflow.methodSummary.xml.XMLConstants.ATTRIBUTE_PARAMTER_INDEX;
-import static soot.jimple.infoflow.methodSummary.xml.XMLConstants.ATTRIBUTE_TAINT_SUB_FIELDS;
-import static soot.jimple.infoflow.methodSummary.xml.XMLConstants.TREE_FLOW;
-import static soot.jimple.infoflow.methodSummary.xml.XMLConstants.TREE_METHOD;
-import static soot.jimple.infoflow.methodSummary.xml.XMLConstants.TREE_SINK;
-import static soot.jimple.infoflow.methodSummary.xml.XMLConstants.TREE_SOURCE;
-import static soot.jimple.infoflow.methodSummary.xml.XMLConstants.VALUE_TRUE;
-
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
 
 import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 
@@ -30,16 +23,60 @@ import soot.jimple.infoflow.methodSummary.data.summary.SourceSinkType;
 
 public class XMLReader {
 	
+	private static final int BUFFER_SIZE = 64 * 1024;
+	
+	private final XMLInputFactory factory = XMLInputFactory.newInstance();
 	private boolean validateSummariesOnRead = false;
 	
 	private enum State{
 		summary, methods, method, flow, gaps, gap
 	}
-
+	
+	/**
+	 * The elements of the summary file format
+	 */
+	private enum Element {
+		summary, methods, method, flows, flow, source, sink, gaps, gap, unknown
+	}
+	
+	/**
+	 * The attributes of sources and sinks
+	 */
+	private enum Attribute {
+		flowType, parameterIndex, baseType, accessPath, accessPathTypes,
+		taintSubFields, gap, unknown
+	}
+	
+	/**
+	 * Mutable holder for the attributes of a source or sink. One instance is
+	 * reused for all sources and one for all sinks in a file.
+	 */
+	private static class SourceSinkBuilder {
+		
+		SourceSinkType type;
+		int parameterIdx;
+		String baseType;
+		String accessPath;
+		String accessPathTypes;
+		boolean taintSubFields;
+		int gapID;
+		
+		void reset() {
+			type = null;
+			parameterIdx = -1;
+			baseType = null;
+			accessPath = null;
+			accessPathTypes = null;
+			taintSubFields = false;
+			gapID = -1;
+		}
+	
+	}
+	
 	/**
 	 * Reads a summary xml file and returns the MethodSummaries which are saved
 	 * in that file
-	 * @param fileName The file from which to read the method summaries 
+	 * @param fileName The file from which to read the method summaries
 	 * @return The summary data object read from the given file
 	 * @return XMLStreamException Thrown in case of a syntax error in the input
 	 * file
@@ -47,122 +84,123 @@ public class XMLReader {
 	 */
 	public MethodSummaries read(File fileName) throws XMLStreamException,
 			SummaryXMLException, IOException{
+		InputStream in = openSummaryFile(fileName);
+		try {
+			return read(in);
+		}
+		finally {
+			in.close();
+		}
+	}
+	
+	/**
+	 * Reads the method summaries from the given stream. The stream is not
+	 * closed by this method.
+	 * @param in The stream from which to read the method summaries
+	 * @return The summary data object read from the given stream
+	 * @return XMLStreamException Thrown in case of a syntax error in the input
+	 * data
+	 */
+	public MethodSummaries read(InputStream in) throws XMLStreamException,
+			SummaryXMLException {
 		MethodSummaries summary = new MethodSummaries();
-		
-		InputStream in = null;
-		XMLStreamReader reader = null;
+		XMLStreamReader reader = factory.createXMLStreamReader(in);
 		try {
-			in = new FileInputStream(fileName);
-			reader = XMLInputFactory.newInstance().createXMLStreamReader(in);
-			
-			Map<String, String> sourceAttributes = new HashMap<String,String>();
-			Map<String, String> sinkAttributes = new HashMap<String,String>();
+			SourceSinkBuilder source = new SourceSinkBuilder();
+			SourceSinkBuilder sink = new SourceSinkBuilder();
 			
 			String currentMethod = "";
-			int currentID = -1;
 			boolean isAlias = false;
 			
 			State state = State.summary;
-			while(reader.hasNext()){
-				// Read the next tag
-				reader.next();
-				if(!reader.hasName())
+			while (reader.hasNext()) {
+				// We are only interested in the start and end of elements
+				int event = reader.next();
+				boolean isStart = event == XMLStreamConstants.START_ELEMENT;
+				if (!isStart && event != XMLStreamConstants.END_ELEMENT)
 					continue;
 				
-				if (reader.getLocalName().equals(XMLConstants.TREE_METHODS) && reader.isStartElement()) {
-					if (state == State.summary)
+				switch (getElement(reader.getLocalName())) {
+				case methods:
+					if (isStart && state == State.summary)
 						state = State.methods;
+					else if (!isStart && state == State.methods)
+						state = State.summary;
 					else
 						throw new SummaryXMLException();
-				}
-				else if (reader.getLocalName().equals(TREE_METHOD) && reader.isStartElement() ){
-					if(state == State.methods){
+					break;
+				case method:
+					if (isStart && state == State.methods) {
 						currentMethod = getAttributeByName(reader, XMLConstants.ATTRIBUTE_METHOD_SIG);
+						String apLength = getAttributeByName(reader,
+								XMLConstants.ATTRIBUTE_ACCESSPATH_LENGTH);
+						if (!apLength.isEmpty())
+							summary.setAccessPathLength(currentMethod, Integer.parseInt(apLength));
+						if (XMLConstants.VALUE_TRUE.equals(getAttributeByName(reader,
+								XMLConstants.ATTRIBUTE_APPROXIMATED)))
+							summary.markApproximated(currentMethod);
 						state = State.method;
-					}			
-					else
-						throw new SummaryXMLException();
-				}else if (reader.getLocalName().equals(TREE_METHOD) && reader.isEndElement() ){
-					if(state == State.method)
+					}
+					else if (!isStart && state == State.method)
 						state = State.methods;
 					else
 						throw new SummaryXMLException();
-				}
-				else if (reader.getLocalName().equals(TREE_FLOW) && reader.isStartElement()) {
-					if(state == State.method){
-						sourceAttributes.clear();
-						sinkAttributes.clear();
+					break;
+				case flow:
+					if (isStart && state == State.method) {
+						source.reset();
+						sink.reset();
 						state = State.flow;
-						String sAlias = getAttributeByName(reader, XMLConstants.ATTRIBUTE_IS_ALIAS);
-						isAlias = sAlias != null && sAlias.equals(XMLConstants.VALUE_TRUE);
+						isAlias = XMLConstants.VALUE_TRUE.equals(getAttributeByName(reader,
+								XMLConstants.ATTRIBUTE_IS_ALIAS));
 					}
-					else
-						throw new SummaryXMLException();
-				}
-				else if (reader.getLocalName().equals(TREE_SOURCE) && reader.isStartElement()){
-					if(state == State.flow){
-					for (int i = 0; i < reader.getAttributeCount(); i++)
-						sourceAttributes.put(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+					else if (!isStart && state == State.flow) {
+						state = State.method;
+						summary.addFlow(new MethodFlow(currentMethod,
+								createSource(summary, source),
+								createSink(summary, sink),
+								isAlias));
+						isAlias = false;
 					}
 					else
 						throw new SummaryXMLException();
-				}
-				else if(reader.getLocalName().equals(TREE_SINK) && reader.isStartElement()){
-					if(state == State.flow){
-					for (int i = 0; i < reader.getAttributeCount(); i++)
-						sinkAttributes.put(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+					break;
+				case source:
+					if (isStart) {
+						if (state != State.flow)
+							throw new SummaryXMLException();
+						readSourceSink(reader, source);
 					}
-					else
-						throw new SummaryXMLException();
-				}
-				else if(reader.getLocalName().equals(TREE_FLOW) && reader.isEndElement()){
-					if(state == State.flow){
-						state = State.method;					
-						MethodFlow flow = new MethodFlow(currentMethod,
-								createSource(summary, sourceAttributes),
-								createSink(summary, sinkAttributes),
-								isAlias);
-						summary.addFlow(flow);
-						
-						isAlias = false;
+					break;
+				case sink:
+					if (isStart) {
+						if (state != State.flow)
+							throw new SummaryXMLException();
+						readSourceSink(reader, sink);
 					}
-					else
-						throw new SummaryXMLException();
-				}
-				else if (reader.getLocalName().equals(XMLConstants.TREE_METHODS) && reader.isEndElement()) {
-					if (state == State.methods)
-						state = State.summary;
-					else
-						throw new SummaryXMLException();
-				}
-				else if(reader.getLocalName().equals(XMLConstants.TREE_GAPS) && reader.isStartElement()){
-					if(state == State.summary)
+					break;
+				case gaps:
+					if (isStart && state == State.summary)
 						state = State.gaps;
-					else
-						throw new SummaryXMLException();
-				}
-				else if(reader.getLocalName().equals(XMLConstants.TREE_GAPS) && reader.isEndElement()){
-					if(state == State.gaps)
+					else if (!isStart && state == State.gaps)
 						state = State.summary;
 					else
 						throw new SummaryXMLException();
-				}
-				else if(reader.getLocalName().equals(XMLConstants.TREE_GAP) && reader.isStartElement()){
-					if(state == State.gaps) {
-						currentMethod = getAttributeByName(reader, XMLConstants.ATTRIBUTE_METHOD_SIG);
-						currentID = Integer.valueOf(getAttributeByName(reader, XMLConstants.ATTRIBUTE_ID));
-						summary.getOrCreateGap(currentID, currentMethod);
+					break;
+				case gap:
+					if (isStart && state == State.gaps) {
+						String gapMethod = getAttributeByName(reader, XMLConstants.ATTRIBUTE_METHOD_SIG);
+						int gapID = Integer.parseInt(getAttributeByName(reader, XMLConstants.ATTRIBUTE_ID));
+						summary.getOrCreateGap(gapID, gapMethod);
 						state = State.gap;
 					}
-					else
-						throw new SummaryXMLException();
-				}
-				else if (reader.getLocalName().equals(XMLConstants.TREE_GAP) && reader.isEndElement()){
-					if(state == State.gap) {
+					else if (!isStart && state == State.gap)
 						state = State.gaps;
-					}
 					else
 						throw new SummaryXMLException();
+					break;
+				default:
+					break;
 				}
 			}
 			
@@ -174,14 +212,197 @@ public class XMLReader {
 			return summary;
 		}
 		finally {
-			if (reader != null)
-				reader.close();
-			if (in != null)
-				in.close();
+			reader.close();
 		}
 	}
-
-
+	
+	/**
+	 * Gets the element with the given local name. StAX parsers usually return
+	 * interned names, so we first check for identity and only fall back to a
+	 * string comparison if necessary.
+	 * @param name The local name of the element
+	 * @return The element with the given local name
+	 */
+	private static Element getElement(String name) {
+		if (name == XMLConstants.TREE_FLOW)
+			return Element.flow;
+		if (name == XMLConstants.TREE_SOURCE)
+			return Element.source;
+		if (name == XMLConstants.TREE_SINK)
+			return Element.sink;
+		if (name == XMLConstants.TREE_METHOD)
+			return Element.method;
+		
+		switch (name) {
+		case XMLConstants.TREE_SUMMARY:
+			return Element.summary;
+		case XMLConstants.TREE_METHODS:
+			return Element.methods;
+		case XMLConstants.TREE_METHOD:
+			return Element.method;
+		case XMLConstants.TREE_FLOWS:
+			return Element.flows;
+		case XMLConstants.TREE_FLOW:
+			return Element.flow;
+		case XMLConstants.TREE_SOURCE:
+			return Element.source;
+		case XMLConstants.TREE_SINK:
+			return Element.sink;
+		case XMLConstants.TREE_GAPS:
+			return Element.gaps;
+		case XMLConstants.TREE_GAP:
+			return Element.gap;
+		default:
+			return Element.unknown;
+		}
+	}
+	
+	/**
+	 * Gets the source or sink attribute with the given local name
+	 * @param name The local name of the attribute
+	 * @return The attribute with the given local name
+	 */
+	private static Attribute getAttribute(String name) {
+		if (name == XMLConstants.ATTRIBUTE_FLOWTYPE)
+			return Attribute.flowType;
+		if (name == XMLConstants.ATTRIBUTE_BASETYPE)
+			return Attribute.baseType;
+		
+		switch (name) {
+		case XMLConstants.ATTRIBUTE_FLOWTYPE:
+			return Attribute.flowType;
+		case XMLConstants.ATTRIBUTE_PARAMTER_INDEX:
+			return Attribute.parameterIndex;
+		case XMLConstants.ATTRIBUTE_BASETYPE:
+			return Attribute.baseType;
+		case XMLConstants.ATTRIBUTE_ACCESSPATH:
+			return Attribute.accessPath;
+		case XMLConstants.ATTRIBUTE_ACCESSPATHTYPES:
+			return Attribute.accessPathTypes;
+		case XMLConstants.ATTRIBUTE_TAINT_SUB_FIELDS:
+			return Attribute.taintSubFields;
+		case XMLConstants.ATTRIBUTE_GAP:
+			return Attribute.gap;
+		default:
+			return Attribute.unknown;
+		}
+	}
+	
+	/**
+	 * Reads the attributes of the current source or sink element into the
+	 * given builder
+	 * @param reader The reader from which to get the XML data
+	 * @param builder The builder in which to store the attributes
+	 * @throws SummaryXMLException Thrown if an attribute has an invalid value
+	 */
+	private void readSourceSink(XMLStreamReader reader, SourceSinkBuilder builder)
+			throws SummaryXMLException {
+		for (int i = 0; i < reader.getAttributeCount(); i++) {
+			String value = reader.getAttributeValue(i);
+			switch (getAttribute(reader.getAttributeLocalName(i))) {
+			case flowType:
+				builder.type = getSourceSinkType(value);
+				break;
+			case parameterIndex:
+				builder.parameterIdx = Integer.parseInt(value);
+				break;
+			case baseType:
+				builder.baseType = value;
+				break;
+			case accessPath:
+				builder.accessPath = value;
+				break;
+			case accessPathTypes:
+				builder.accessPathTypes = value;
+				break;
+			case taintSubFields:
+				builder.taintSubFields = XMLConstants.VALUE_TRUE.equals(value);
+				break;
+			case gap:
+				if (!value.isEmpty())
+					builder.gapID = Integer.parseInt(value);
+				break;
+			default:
+				break;
+			}
+		}
+	}
+	
+	/**
+	 * Gets the source or sink type with the given name
+	 * @param name The name of the source or sink type
+	 * @return The source or sink type with the given name
+	 * @throws SummaryXMLException Thrown if there is no source or sink type
+	 * with the given name
+	 */
+	private static SourceSinkType getSourceSinkType(String name)
+			throws SummaryXMLException {
+		switch (name) {
+		case "Field":
+			return SourceSinkType.Field;
+		case "Parameter":
+			return SourceSinkType.Parameter;
+		case "Return":
+			return SourceSinkType.Return;
+		case "GapBaseObject":
+			return SourceSinkType.GapBaseObject;
+		case "Custom":
+			return SourceSinkType.Custom;
+		default:
+			throw new SummaryXMLException("Invalid source or sink type " + name);
+		}
+	}
+	
+	/**
+	 * Opens the given summary file for reading. Files compressed with gzip are
+	 * detected by their header and decompressed transparently.
+	 * @param file The file to open
+	 * @return The stream from which to read the XML data
+	 * @throws IOException Thrown if the file could not be read
+	 */
+	private InputStream openSummaryFile(File file) throws IOException {
+		InputStream in = new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE);
+		try {
+			in.mark(2);
+			int magic = in.read() | (in.read() << 8);
+			in.reset();
+			if (magic == GZIPInputStream.GZIP_MAGIC)
+				return new GZIPInputStream(in, BUFFER_SIZE);
+			return in;
+		}
+		catch (IOException e) {
+			in.close();
+			throw e;
+		}
+	}
+	
+	/**
+	 * Checks whether the given file is a summary file, i.e., a plain or
+	 * compressed XML file
+	 * @param file The file to check
+	 * @return True if the given file is a summary file, otherwise false
+	 */
+	public static boolean isSummaryFile(File file) {
+		String name = file.getName();
+		return file.isFile() && (name.endsWith(XMLConstants.FILE_EXTENSION)
+				|| name.endsWith(XMLConstants.FILE_EXTENSION_COMPRESSED));
+	}
+	
+	/**
+	 * Gets the name of the class whose summaries are stored in the given file
+	 * @param file The summary file
+	 * @return The name of the class whose summaries are stored in the given
+	 * file
+	 */
+	public static String getClassName(File file) {
+		String name = file.getName();
+		if (name.endsWith(XMLConstants.FILE_EXTENSION_COMPRESSED))
+			return name.substring(0, name.length() - XMLConstants.FILE_EXTENSION_COMPRESSED.length());
+		if (name.endsWith(XMLConstants.FILE_EXTENSION))
+			return name.substring(0, name.length() - XMLConstants.FILE_EXTENSION.length());
+		return name;
+	}
+	
 	/**
 	 * Gets the value of the XML attribute with the specified id
 	 * @param reader The reader from which to get the XML data
@@ -204,38 +425,38 @@ public class XMLReader {
 	 * @throws SummaryXMLException
 	 */
 	private FlowSource createSource(MethodSummaries summary,
-			Map<String, String> attributes) throws SummaryXMLException{
-		if (isField(attributes)) {
+			SourceSinkBuilder attributes) throws SummaryXMLException{
+		if (attributes.type == SourceSinkType.Field) {
 			return new FlowSource(SourceSinkType.Field,
-					getBaseType(attributes),
-					getAccessPath(attributes),
-					getAccessPathTypes(attributes),
+					attributes.baseType,
+					parseAccessPath(attributes.accessPath),
+					parseAccessPath(attributes.accessPathTypes),
 					getGapDefinition(attributes, summary));
 		}
-		else if (isParameter(attributes)) {
+		else if (attributes.type == SourceSinkType.Parameter) {
 			return new FlowSource(SourceSinkType.Parameter,
-					paramterIdx(attributes),
-					getBaseType(attributes), 
-					getAccessPath(attributes),
-					getAccessPathTypes(attributes),
+					attributes.parameterIdx,
+					attributes.baseType,
+					parseAccessPath(attributes.accessPath),
+					parseAccessPath(attributes.accessPathTypes),
 					getGapDefinition(attributes, summary));
 		}
-		else if (isGapBaseObject(attributes)) {
+		else if (attributes.type == SourceSinkType.GapBaseObject) {
 			return new FlowSource(SourceSinkType.GapBaseObject,
-					getBaseType(attributes),
+					attributes.baseType,
 					getGapDefinition(attributes, summary));
 		}
-		else if (isReturn(attributes)) {
+		else if (attributes.type == SourceSinkType.Return) {
 			GapDefinition gap = getGapDefinition(attributes, summary);
 			if (gap == null)
 				throw new SummaryXMLException("Return values can only be "
 						+ "sources if they have a gap specification");
 			
 			return new FlowSource(SourceSinkType.Return,
-					getBaseType(attributes), 
-					getAccessPath(attributes),
-					getAccessPathTypes(attributes),
-					getGapDefinition(attributes, summary));
+					attributes.baseType,
+					parseAccessPath(attributes.accessPath),
+					parseAccessPath(attributes.accessPathTypes),
+					gap);
 		}
 		throw new SummaryXMLException("Invalid flow source definition");
 	}
@@ -248,111 +469,84 @@ public class XMLReader {
 	 * @throws SummaryXMLException
 	 */
 	private FlowSink createSink(MethodSummaries summary,
-			Map<String, String> attributes) throws SummaryXMLException{
-		if (isField(attributes)) {
+			SourceSinkBuilder attributes) throws SummaryXMLException{
+		if (attributes.type == SourceSinkType.Field) {
 			return new FlowSink(SourceSinkType.Field,
-					getBaseType(attributes),
-					getAccessPath(attributes),
-					getAccessPathTypes(attributes),
-					taintSubFields(attributes),
+					attributes.baseType,
+					parseAccessPath(attributes.accessPath),
+					parseAccessPath(attributes.accessPathTypes),
+					attributes.taintSubFields,
 					getGapDefinition(attributes, summary));
 		}
-		else if (isParameter(attributes)) {
+		else if (attributes.type == SourceSinkType.Parameter) {
 			return new FlowSink(SourceSinkType.Parameter,
-					paramterIdx(attributes),
-					getBaseType(attributes),
-					getAccessPath(attributes),
-					getAccessPathTypes(attributes),
-					taintSubFields(attributes),
+					attributes.parameterIdx,
+					attributes.baseType,
+					parseAccessPath(attributes.accessPath),
+					parseAccessPath(attributes.accessPathTypes),
+					attributes.taintSubFields,
 					getGapDefinition(attributes, summary));
 		}
-		else if (isReturn(attributes)) {
+		else if (attributes.type == SourceSinkType.Return) {
 			return new FlowSink(SourceSinkType.Return,
-					getBaseType(attributes),
-					getAccessPath(attributes),
-					getAccessPathTypes(attributes),
-					taintSubFields(attributes),
+					attributes.baseType,
+					parseAccessPath(attributes.accessPath),
+					parseAccessPath(attributes.accessPathTypes),
+					attributes.taintSubFields,
 					getGapDefinition(attributes, summary));
 		}
-		else if (isGapBaseObject(attributes)) {
+		else if (attributes.type == SourceSinkType.GapBaseObject) {
 			return new FlowSink(SourceSinkType.GapBaseObject,
 					-1,
-					getBaseType(attributes),
+					attributes.baseType,
 					false,
 					getGapDefinition(attributes, summary));
 		}
 		throw new SummaryXMLException();
 	}
 	
-	private boolean isReturn(Map<String, String> attributes){
-		return attributes.get(ATTRIBUTE_FLOWTYPE).equals(SourceSinkType.Return.toString());
-	}
-	
-	private boolean isField(Map<String, String> attributes){
-		return attributes.get(ATTRIBUTE_FLOWTYPE).equals(SourceSinkType.Field.toString());
-	}
-	
-	private String[] getAccessPath(Map<String, String> attributes){
-		String ap = attributes.get(XMLConstants.ATTRIBUTE_ACCESSPATH);
-		if(ap != null){
-			if(ap.length() > 3){
-				 String[] res = ap.substring(1, ap.length()-1).split(",");
-				 for(int i = 0; i < res.length; i++)
-					 res[i] = res[i].trim();
-				 return res;
-			}
-		}
-		return null;
-	}
-	
-	private String[] getAccessPathTypes(Map<String, String> attributes){
-		String ap = attributes.get(XMLConstants.ATTRIBUTE_ACCESSPATHTYPES);
-		if(ap != null){
-			if(ap.length() > 3){
-				 String[] res = ap.substring(1, ap.length()-1).split(",");
-				 for(int i = 0; i < res.length; i++)
-					 res[i] = res[i].trim();
-				 return res;
+	/**
+	 * Parses an access path of the form "[a, b, c]" into its elements
+	 * @param ap The textual representation of the access path
+	 * @return The elements of the given access path, or null if the access
+	 * path is empty
+	 */
+	private static String[] parseAccessPath(String ap) {
+		if (ap == null || ap.length() <= 3)
+			return null;
+		
+		// Find the bounds of the individual elements
+		final int end = ap.length() - 1;
+		List<String> res = new ArrayList<>(4);
+		int start = 1;
+		for (int i = 1; i <= end; i++) {
+			if (i == end || ap.charAt(i) == ',') {
+				int from = start;
+				int to = i;
+				while (from < to && ap.charAt(from) == ' ')
+					from++;
+				while (to > from && ap.charAt(to - 1) == ' ')
+					to--;
+				res.add(ap.substring(from, to));
+				start = i + 1;
 			}
 		}
-		return null;
-	}
-	
-	private boolean isParameter(Map<String, String> attributes){
-		return attributes.get(ATTRIBUTE_FLOWTYPE).equals(SourceSinkType.Parameter.toString());
-	}
-	
-	private boolean isGapBaseObject(Map<String, String> attributes){
-		return attributes.get(ATTRIBUTE_FLOWTYPE).equals(SourceSinkType.GapBaseObject.toString());
-	}
-
-	private int paramterIdx(Map<String, String> attributes){
-		return  Integer.parseInt(attributes.get(ATTRIBUTE_PARAMTER_INDEX));
-	}
-	
-	private String getBaseType(Map<String, String> attributes) {
-		return attributes.get(ATTRIBUTE_BASETYPE);
-	}
-	
-	private boolean taintSubFields(Map<String, String> attributes){
-		String val = attributes.get(ATTRIBUTE_TAINT_SUB_FIELDS);
-		return val != null && val.equals(VALUE_TRUE);
+		return res.toArray(new String[res.size()]);
 	}
 	
-	private GapDefinition getGapDefinition(Map<String, String> attributes,
+	private GapDefinition getGapDefinition(SourceSinkBuilder attributes,
 			MethodSummaries summary) {
-		String id = attributes.get(XMLConstants.ATTRIBUTE_GAP);
-		if (id == null  || id.isEmpty())
+		if (attributes.gapID < 0)
 			return null;
 		
 		// Do we already have a suitable gap definition?
-		GapDefinition gap = summary.getGap(Integer.parseInt(id));
+		GapDefinition gap = summary.getGap(attributes.gapID);
 		if (gap != null)
 			return gap;
 		
 		// We have not read in this gap definition yet and need to create a stub
 		// for the time being.
-		return summary.createTemporaryGap(Integer.parseInt(id));
+		return summary.createTemporaryGap(attributes.gapID);
 	}
 	
 	/**
@@ -363,6 +557,5 @@ public class XMLReader {
 	public void setValidateSummariesOnRead(boolean validateSummariesOnRead) {
 		this.validateSummariesOnRead = validateSummariesOnRead;
 	}
-	
-}
 
+}
@@ -11,13 +11,27 @@ import static soot.jimple.infoflow.methodSummary.xml.XMLConstants.TREE_SINK;
 import static soot.jimple.infoflow.methodSummary.xml.XMLConstants.TREE_SOURCE;
 import static soot.jimple.infoflow.methodSummary.xml.XMLConstants.VALUE_TRUE;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.OutputStream;
-import java.util.Arrays;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPOutputStream;
 
 import javax.xml.stream.XMLOutputFactory;
 import javax.xml.stream.XMLStreamException;
@@ -32,13 +46,86 @@ import soot.jimple.infoflow.methodSummary.data.summary.MethodSummaries;
 public class XMLWriter  {
 	
 	private final int FILE_FORMAT_VERSION = 101;
+	private static final int BUFFER_SIZE = 64 * 1024;
+	
+	private boolean compressOutput = false;
+	private int threadCount = Runtime.getRuntime().availableProcessors();
+	
+	/**
+	 * Total order on the flows of a method. The textual representation comes
+	 * first for a readable output. As it does not contain all data, the
+	 * remaining fields are compared afterwards, so that no two distinct flows
+	 * are considered equal.
+	 */
+	private static final Comparator<MethodFlow> FLOW_ORDER = new Comparator<MethodFlow>() {
+		
+		@Override
+		public int compare(MethodFlow f1, MethodFlow f2) {
+			int res = f1.toString().compareTo(f2.toString());
+			if (res != 0)
+				return res;
+			res = Boolean.compare(f1.isAlias(), f2.isAlias());
+			if (res != 0)
+				return res;
+			res = compareSourceSink(f1.source(), f2.source());
+			if (res != 0)
+				return res;
+			res = compareSourceSink(f1.sink(), f2.sink());
+			if (res != 0)
+				return res;
+			return Boolean.compare(f1.sink().taintSubFields(), f2.sink().taintSubFields());
+		}
+		
+		private int compareSourceSink(AbstractFlowSinkSource s1, AbstractFlowSinkSource s2) {
+			int res = s1.getType().compareTo(s2.getType());
+			if (res != 0)
+				return res;
+			res = Integer.compare(s1.getParameterIndex(), s2.getParameterIndex());
+			if (res != 0)
+				return res;
+			res = compareStrings(s1.getBaseType(), s2.getBaseType());
+			if (res != 0)
+				return res;
+			res = compareArrays(s1.getAccessPath(), s2.getAccessPath());
+			if (res != 0)
+				return res;
+			res = compareArrays(s1.getAccessPathTypes(), s2.getAccessPathTypes());
+			if (res != 0)
+				return res;
+			if (s1.getGap() == null || s2.getGap() == null)
+				return Boolean.compare(s1.getGap() != null, s2.getGap() != null);
+			res = Integer.compare(s1.getGap().getID(), s2.getGap().getID());
+			if (res != 0)
+				return res;
+			return compareStrings(s1.getGap().getSignature(), s2.getGap().getSignature());
+		}
+		
+		private int compareArrays(String[] a1, String[] a2) {
+			if (a1 == null || a2 == null)
+				return Boolean.compare(a1 != null, a2 != null);
+			for (int i = 0; i < Math.min(a1.length, a2.length); i++) {
+				int res = compareStrings(a1[i], a2[i]);
+				if (res != 0)
+					return res;
+			}
+			return Integer.compare(a1.length, a2.length);
+		}
+		
+		private int compareStrings(String s1, String s2) {
+			if (s1 == null || s2 == null)
+				return Boolean.compare(s1 != null, s2 != null);
+			return s1.compareTo(s2);
+		}
+		
+	};
 	
 	public XMLWriter(){
 		
 	}
 	
 	/**
-	 * Writes the given class summaries into files, one per class
+	 * Writes the given class summaries into files, one per class. The files
+	 * are independent of each other and are thus written in parallel.
 	 * @param file The target directory in which to place the class summary
 	 * files
 	 * @param summary The class summaries to write out
@@ -46,15 +133,63 @@ public class XMLWriter  {
 	 * found or created
 	 * @throws XMLStreamException Thrown if the XML data could not be written
 	 */
-	public void write(File file, ClassSummaries summary) 
+	public void write(final File file, final ClassSummaries summary) 
 			throws FileNotFoundException, XMLStreamException  {
-		for (String className : summary.getClasses()) {
-			String fileName = file.getAbsolutePath() + File.separatorChar
-					+ className + ".xml";
-			write(new File(fileName), summary.getClassSummaries(className));
+		if (threadCount <= 1 || summary.getClasses().size() <= 1) {
+			for (String className : summary.getClasses())
+				write(getSummaryFile(file, className), summary.getClassSummaries(className));
+			return;
+		}
+		
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(threadCount,
+				summary.getClasses().size()));
+		try {
+			List<Future<Void>> futures = new ArrayList<>();
+			for (final String className : summary.getClasses())
+				futures.add(executor.submit(new Callable<Void>() {
+					
+					@Override
+					public Void call() throws Exception {
+						write(getSummaryFile(file, className), summary.getClassSummaries(className));
+						return null;
+					}
+					
+				}));
+			
+			// Wait for all files and report the first failure
+			for (Future<Void> future : futures) {
+				try {
+					future.get();
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new RuntimeException("Interrupted while writing summaries", e);
+				}
+				catch (ExecutionException e) {
+					if (e.getCause() instanceof XMLStreamException)
+						throw (XMLStreamException) e.getCause();
+					if (e.getCause() instanceof FileNotFoundException)
+						throw (FileNotFoundException) e.getCause();
+					throw new RuntimeException(e.getCause());
+				}
+			}
+		}
+		finally {
+			executor.shutdown();
 		}
 	}
 	
+	/**
+	 * Gets the file in which to store the summaries of the given class
+	 * @param dir The target directory
+	 * @param className The name of the class
+	 * @return The file in which to store the summaries of the given class
+	 */
+	private File getSummaryFile(File dir, String className) {
+		return new File(dir, className + (compressOutput
+				? XMLConstants.FILE_EXTENSION_COMPRESSED : XMLConstants.FILE_EXTENSION));
+	}
+	
 	/**
 	 * Writes the given method summaries into the given XML file
 	 * @param file The XML file in which to write the summaries
@@ -69,10 +204,31 @@ public class XMLWriter  {
 		if (summary.isEmpty())
 			return;
 		
-		OutputStream out = new FileOutputStream(file);
-		XMLOutputFactory factory = XMLOutputFactory.newInstance();
-		XMLStreamWriter writer = factory.createXMLStreamWriter(out);
-		
+		OutputStream out = new BufferedOutputStream(Channels.newOutputStream(
+				new FileOutputStream(file).getChannel()), BUFFER_SIZE);
+		try {
+			if (compressOutput)
+				out = new GZIPOutputStream(out, BUFFER_SIZE);
+			XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(
+					out, "UTF-8");
+			writeSummaries(summary, writer);
+			writer.close();
+		}
+		catch (IOException e) {
+			throw new XMLStreamException(e);
+		}
+		finally {
+			try {
+				out.close();
+			}
+			catch (IOException e) {
+				throw new XMLStreamException(e);
+			}
+		}
+	}
+	
+	private void writeSummaries(MethodSummaries summary, XMLStreamWriter writer)
+			throws XMLStreamException {
 		writer.writeStartDocument();
 		writer.writeStartElement(XMLConstants.TREE_SUMMARY);
 		writer.writeAttribute(XMLConstants.ATTRIBUTE_FORMAT_VERSION, FILE_FORMAT_VERSION + "");
@@ -86,11 +242,12 @@ public class XMLWriter  {
 		writer.writeEndElement(); //end gaps tree
 		
 		writer.writeEndDocument();
-		writer.close();
 	}
 
 	private void writeGaps(MethodSummaries summary, XMLStreamWriter writer) throws XMLStreamException {
-		for (GapDefinition gap : summary.getGaps().values()) {
+		// Sort the gaps by ID to get a deterministic output
+		Map<Integer, GapDefinition> gaps = new TreeMap<>(summary.getGaps());
+		for (GapDefinition gap : gaps.values()) {
 			writer.writeStartElement(XMLConstants.TREE_GAP);
 			writer.writeAttribute(XMLConstants.ATTRIBUTE_ID, gap.getID() + "");			
 			writer.writeAttribute(XMLConstants.ATTRIBUTE_METHOD_SIG, gap.getSignature());
@@ -99,13 +256,23 @@ public class XMLWriter  {
 	}
 
 	private void writeMethodFlows(MethodSummaries summary, XMLStreamWriter writer) throws XMLStreamException {
-		for (Entry<String, Set<MethodFlow>> m : summary.getFlows().entrySet()) {
+		// Sort the methods and flows to get a deterministic output
+		Map<String, Set<MethodFlow>> methods = new TreeMap<>(summary.getFlows());
+		for (Entry<String, Set<MethodFlow>> m : methods.entrySet()) {
 			//write method sub tree
 			writer.writeStartElement(XMLConstants.TREE_METHOD);
 			writer.writeAttribute(XMLConstants.ATTRIBUTE_METHOD_SIG, m.getKey());
+			int apLength = summary.getAccessPathLength(m.getKey());
+			if (apLength >= 0)
+				writer.writeAttribute(XMLConstants.ATTRIBUTE_ACCESSPATH_LENGTH, apLength + "");
+			if (summary.isApproximated(m.getKey()))
+				writer.writeAttribute(XMLConstants.ATTRIBUTE_APPROXIMATED, VALUE_TRUE);
+			
+			List<MethodFlow> flows = new ArrayList<>(m.getValue());
+			Collections.sort(flows, FLOW_ORDER);
 			
 			writer.writeStartElement(TREE_FLOWS);
-			for (MethodFlow data : m.getValue())
+			for (MethodFlow data : flows)
 				if (!data.isCustom()) {
 					writer.writeStartElement(TREE_FLOW);				
 					writer.writeAttribute(XMLConstants.ATTRIBUTE_IS_ALIAS, data.isAlias() + "");
@@ -150,11 +317,57 @@ public class XMLWriter  {
 		
 		writer.writeAttribute(ATTRIBUTE_BASETYPE, currentFlow.getBaseType());
 		if(currentFlow.hasAccessPath() && currentFlow.getAccessPath() != null){
-			writer.writeAttribute(ATTRIBUTE_ACCESSPATH, Arrays.toString(currentFlow.getAccessPath()));
-			writer.writeAttribute(ATTRIBUTE_ACCESSPATHTYPES, Arrays.toString(currentFlow.getAccessPathTypes()));
+			writer.writeAttribute(ATTRIBUTE_ACCESSPATH, accessPathToString(currentFlow.getAccessPath()));
+			writer.writeAttribute(ATTRIBUTE_ACCESSPATHTYPES, accessPathToString(currentFlow.getAccessPathTypes()));
 		}
 		if(currentFlow.getGap() != null)
 			writer.writeAttribute(XMLConstants.ATTRIBUTE_GAP, currentFlow.getGap().getID() + "");
 	}
+	
+	/**
+	 * Converts the given access path into the textual representation used in
+	 * the summary files, i.e., "[a, b, c]"
+	 * @param accessPath The access path to convert
+	 * @return The textual representation of the given access path
+	 */
+	private String accessPathToString(String[] accessPath) {
+		if (accessPath == null)
+			return "null";
+		
+		int length = 2;
+		for (String field : accessPath)
+			length += (field == null ? 4 : field.length()) + 2;
+		
+		StringBuilder sb = new StringBuilder(length);
+		sb.append('[');
+		for (int i = 0; i < accessPath.length; i++) {
+			if (i > 0)
+				sb.append(", ");
+			sb.append(accessPath[i]);
+		}
+		sb.append(']');
+		return sb.toString();
+	}
+	
+	/**
+	 * Sets whether the summary files shall be compressed with gzip. Compressed
+	 * files are written with the extension ".xml.gz" and are read transparently
+	 * by the XMLReader.
+	 * @param compressOutput True if the summary files shall be compressed,
+	 * otherwise false
+	 */
+	public void setCompressOutput(boolean compressOutput) {
+		this.compressOutput = compressOutput;
+	}
+	
+	/**
+	 * Sets the number of threads to use for writing the summary files of
+	 * multiple classes
+	 * @param threadCount The number of threads to use for writing summary
+	 * files. A value of one writes all files sequentially.
+	 */
+	public void setThreadCount(int threadCount) {
+		this.threadCount = threadCount;
+	}
 
 }
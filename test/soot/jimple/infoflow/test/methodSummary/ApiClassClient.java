@@ -2,6 +2,8 @@ package soot.jimple.infoflow.test.methodSummary;
 
 
 public class ApiClassClient {
+	private IApiClass unknownApi;
+	
 	public Object source() {
 		return "99";
 	}
@@ -236,4 +238,30 @@ public class ApiClassClient {
 		sink(api.callToCall(new GapClass(), stringSource()));
 	}
 	
+	public void secondParameterFlow() {
+		ApiClass api = new ApiClass();
+		api.paraToVar(3, intSource());
+		Object tmp = api.getPrimitiveVariable();
+		sink(tmp);
+	}
+	
+	public void unmatchedBaseNoFlow() {
+		ApiClass api = new ApiClass();
+		String s = stringSource();
+		api.setStringField(s);
+		Object tmp = api.standardFlow2(3, 4);
+		sink(tmp);
+	}
+	
+public void unionNoCalleesFlow() {
+		Object tmp = unknownApi.noFlow(intSource());
+		sink(tmp);
+	}
+	
+	public void unionSingleCalleeNoFlow() {
+		IApiClass api = new ApiClass();
+		Object tmp = api.noFlow(intSource());
+		sink(tmp);
+	}
+	
 }
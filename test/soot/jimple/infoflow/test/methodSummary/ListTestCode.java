@@ -265,4 +265,24 @@ public class ListTestCode {
 		cm.publish(b);
 	}
 
+public void multipleImplementorsTest() {
+		List<String> list;
+		long kind = System.currentTimeMillis() % 3;
+		if (kind == 0)
+			list = new ArrayList<String>();
+		else if (kind == 1)
+			list = new LinkedList<String>();
+		else
+			list = new Stack<String>();
+		list.add(TelephonyManager.getDeviceId());
+		
+		// The summaries of removeAll() contain gaps for the calls to equals()
+		List<String> other = new ArrayList<String>();
+		other.add("neutral");
+		list.removeAll(other);
+		
+		ConnectionManager cm = new ConnectionManager();
+		cm.publish(list.get(0));
+	}
+
 }
@@ -0,0 +1,58 @@
+package soot.jimple.infoflow.test.methodSummary.junit;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+
+import org.junit.Test;
+
+import soot.jimple.infoflow.methodSummary.generator.ClassDependencyAnalysis;
+
+public class ClassDependencyAnalysisTests {
+
+	private static final String API_CLASS = "soot.jimple.infoflow.test.methodSummary.ApiClass";
+	private static final String DATA_CLASS = "soot.jimple.infoflow.test.methodSummary.Data";
+
+	private String getClasspath() throws IOException {
+		File testSrc1 = new File("testBin");
+		File testSrc2 = new File("build" + File.separator + "testclasses");
+		if (!(testSrc1.exists() || testSrc2.exists()))
+			fail("Test aborted - none of the test sources are available");
+		return testSrc1.getCanonicalPath() + File.pathSeparator
+				+ testSrc2.getCanonicalPath();
+	}
+
+	@Test
+	public void requiredClassesTest() throws IOException {
+		ClassDependencyAnalysis analysis = new ClassDependencyAnalysis(getClasspath());
+		try {
+			Set<String> classes = analysis.getRequiredClasses("<" + API_CLASS + ": "
+					+ DATA_CLASS + " standardFlow5(java.lang.Object)>",
+					Collections.<String>emptySet(), 0);
+			assertTrue(classes.contains(API_CLASS));
+			assertTrue(classes.contains(DATA_CLASS));
+			assertTrue(classes.contains("java.lang.Object"));
+
+			// Classes are only added for calls within the given depth
+			assertFalse(classes.contains("java.util.LinkedList"));
+		}
+		finally {
+			analysis.close();
+		}
+	}
+
+	@Test
+	public void packagesTest() {
+		Set<String> packages = ClassDependencyAnalysis.getPackages(
+				Arrays.asList(API_CLASS, DATA_CLASS, "java.lang.Object"));
+		assertTrue(packages.contains("soot.jimple.infoflow.test.methodSummary.*"));
+		assertTrue(packages.contains("java.lang.*"));
+	}
+
+}
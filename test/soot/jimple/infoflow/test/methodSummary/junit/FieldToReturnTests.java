@@ -13,6 +13,7 @@ import org.junit.Test;
 
 import soot.jimple.infoflow.InfoflowConfiguration;
 import soot.jimple.infoflow.methodSummary.data.summary.MethodFlow;
+import soot.jimple.infoflow.methodSummary.data.summary.MethodSummaries;
 import soot.jimple.infoflow.methodSummary.generator.SummaryGenerator;
 
 public class FieldToReturnTests extends TestHelper{
@@ -26,6 +27,27 @@ public class FieldToReturnTests extends TestHelper{
 	static final String DATA_FIELD = "<soot.jimple.infoflow.test.methodSummary.FieldToReturn: soot.jimple.infoflow.test.methodSummary.Data dataField>";
 	static final String INT_ARRAY = "<soot.jimple.infoflow.test.methodSummary.FieldToReturn: int[] intArray>";
 
+	@Test(timeout = 100000)
+	public void adaptiveAccessPathLength() {
+		SummaryGenerator sg = getSummary();
+		sg.getConfig().setMinAccessPathLength(1);
+		
+		// A nested field needs two fields in the access path, a third one
+		// does not add anything
+		String mSig = "<soot.jimple.infoflow.test.methodSummary.FieldToReturn: int fieldToReturn9()>";
+		MethodSummaries summaries = sg.createMethodSummary(getClasspath(), mSig);
+		assertEquals(2, summaries.getAccessPathLength("int fieldToReturn9()"));
+		assertTrue(containsFlow(summaries.getAllFlows(), Field, new String[] {DATA_FIELD, DATACLASS_INT_FIELD},
+				Return, new String[] {}));
+		assertEquals(1, summaries.getFlowCount());
+		
+		// A flat field does not need longer access paths
+		mSig = "<soot.jimple.infoflow.test.methodSummary.FieldToReturn: int fieldToReturn()>";
+		summaries = sg.createMethodSummary(getClasspath(), mSig);
+		assertEquals(1, summaries.getAccessPathLength("int fieldToReturn()"));
+		assertEquals(1, summaries.getFlowCount());
+	}
+
 	@Test(timeout = 100000)
 	public void fieldToReturn1() {
 		String mSig = "<soot.jimple.infoflow.test.methodSummary.FieldToReturn: int fieldToReturn()>";
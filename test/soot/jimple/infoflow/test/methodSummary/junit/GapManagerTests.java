@@ -0,0 +1,262 @@
+package soot.jimple.infoflow.test.methodSummary.junit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import soot.G;
+import soot.Local;
+import soot.Modifier;
+import soot.RefType;
+import soot.Scene;
+import soot.SootClass;
+import soot.SootMethod;
+import soot.Type;
+import soot.Value;
+import soot.ValueBox;
+import soot.VoidType;
+import soot.jimple.DefinitionStmt;
+import soot.jimple.InvokeExpr;
+import soot.jimple.Jimple;
+import soot.jimple.NullConstant;
+import soot.jimple.Stmt;
+import soot.jimple.infoflow.data.Abstraction;
+import soot.jimple.infoflow.data.AccessPathFactory;
+import soot.jimple.infoflow.methodSummary.data.summary.GapDefinition;
+import soot.jimple.infoflow.methodSummary.data.summary.MethodSummaries;
+import soot.jimple.infoflow.methodSummary.generator.GapManager;
+
+/**
+ * Tests that the indexed lookups of the gap manager give the same answers as
+ * scanning over all gap statements
+ *
+ * @author Steven Arzt
+ *
+ */
+public class GapManagerTests {
+
+	private static final int LOCAL_COUNT = 12;
+	private static final int GAP_COUNT = 40;
+
+	private RefType objectType;
+	private SootMethod callee;
+	private SootMethod constructor;
+	private List<Local> locals;
+
+	@Before
+	public void setUp() {
+		G.reset();
+		objectType = RefType.v("java.lang.Object");
+
+		SootClass calleeClass = new SootClass("test.Callee", Modifier.PUBLIC);
+		callee = new SootMethod("call", Arrays.<Type> asList(objectType, objectType),
+				objectType, Modifier.PUBLIC);
+		calleeClass.addMethod(callee);
+		constructor = new SootMethod("<init>", Collections.<Type> singletonList(objectType),
+				VoidType.v(), Modifier.PUBLIC);
+		calleeClass.addMethod(constructor);
+		Scene.v().addClass(calleeClass);
+
+		locals = new ArrayList<Local>();
+		for (int i = 0; i < LOCAL_COUNT; i++)
+			locals.add(Jimple.v().newLocal("l" + i, objectType));
+	}
+
+	/**
+	 * Creates a call to the gap method
+	 * @param base The base object of the call
+	 * @param arg0 The first argument
+	 * @param arg1 The second argument
+	 * @param result The local receiving the return value, or null to discard
+	 * the return value
+	 * @return The new call statement
+	 */
+	private Stmt createCall(Local base, Value arg0, Value arg1, Local result) {
+		InvokeExpr iexpr = Jimple.v().newVirtualInvokeExpr(base, callee.makeRef(),
+				Arrays.asList(arg0, arg1));
+		if (result == null)
+			return Jimple.v().newInvokeStmt(iexpr);
+		return Jimple.v().newAssignStmt(result, iexpr);
+	}
+
+	/**
+	 * Reference implementation that scans all gap statements for uses of the
+	 * given local
+	 */
+	private Set<GapDefinition> findUses(Map<Stmt, GapDefinition> gaps, Local local) {
+		Set<GapDefinition> res = null;
+		for (Stmt stmt : gaps.keySet())
+			for (ValueBox vb : stmt.getUseBoxes())
+				if (vb.getValue() == local) {
+					if (res == null)
+						res = new HashSet<GapDefinition>();
+					res.add(gaps.get(stmt));
+					break;
+				}
+		return res;
+	}
+
+	/**
+	 * Reference implementation that scans all gap statements for definitions
+	 * of the given local
+	 */
+	private Set<GapDefinition> findDefs(Map<Stmt, GapDefinition> gaps, Local local) {
+		Set<GapDefinition> res = null;
+		for (Stmt stmt : gaps.keySet())
+			if (stmt instanceof DefinitionStmt
+					&& ((DefinitionStmt) stmt).getLeftOp() == local) {
+				if (res == null)
+					res = new HashSet<GapDefinition>();
+				res.add(gaps.get(stmt));
+			}
+		return res;
+	}
+
+	/**
+	 * Copies the given set so that it can be compared with the result of the
+	 * reference implementation
+	 */
+	private Set<GapDefinition> copy(Set<GapDefinition> gaps) {
+		return gaps == null ? null : new HashSet<GapDefinition>(gaps);
+	}
+
+	/**
+	 * Checks all lookups of the gap manager against the reference
+	 * implementation
+	 */
+	private void checkLookups(GapManager gapManager, Map<Stmt, GapDefinition> gaps,
+			List<Local> toCheck) {
+		for (Local local : toCheck) {
+			Set<GapDefinition> uses = findUses(gaps, local);
+			Set<GapDefinition> defs = findDefs(gaps, local);
+			assertEquals(uses, copy(gapManager.getGapDefinitionsForLocalUse(local)));
+			assertEquals(defs, copy(gapManager.getGapDefinitionsForLocalDef(local)));
+			assertEquals(uses != null || defs != null,
+					gapManager.isLocalReferencedInGap(local));
+		}
+	}
+
+	@Test
+	public void lookupTest() {
+		GapManager gapManager = new GapManager();
+		MethodSummaries summaries = new MethodSummaries();
+		Map<Stmt, GapDefinition> gaps = new HashMap<Stmt, GapDefinition>();
+		Random rnd = new Random(42);
+
+		// Only use some of the locals in gaps, so that we also check locals
+		// that are not referenced at all
+		List<Local> gapLocals = locals.subList(0, LOCAL_COUNT - 3);
+		for (int i = 0; i < GAP_COUNT; i++) {
+			Local base = gapLocals.get(rnd.nextInt(gapLocals.size()));
+			Value arg0 = gapLocals.get(rnd.nextInt(gapLocals.size()));
+			Value arg1 = rnd.nextBoolean() ? NullConstant.v()
+					: gapLocals.get(rnd.nextInt(gapLocals.size()));
+			Local result = rnd.nextBoolean() ? null
+					: gapLocals.get(rnd.nextInt(gapLocals.size()));
+			Stmt stmt = createCall(base, arg0, arg1, result);
+			gaps.put(stmt, gapManager.getOrCreateGapForCall(summaries, stmt));
+
+			checkLookups(gapManager, gaps, locals);
+		}
+		for (Local local : locals.subList(LOCAL_COUNT - 3, LOCAL_COUNT))
+			assertFalse(gapManager.isLocalReferencedInGap(local));
+	}
+
+	@Test
+	public void sameCallTest() {
+		GapManager gapManager = new GapManager();
+		MethodSummaries summaries = new MethodSummaries();
+		Stmt stmt = createCall(locals.get(0), locals.get(1), locals.get(1), locals.get(2));
+
+		// Requesting the gap again must neither create a new gap nor add it to
+		// the indices twice
+		GapDefinition gd = gapManager.getOrCreateGapForCall(summaries, stmt);
+		assertSame(gd, gapManager.getOrCreateGapForCall(summaries, stmt));
+		assertSame(gd, gapManager.getGapForCall(stmt));
+		assertEquals(Collections.singleton(gd),
+				copy(gapManager.getGapDefinitionsForLocalUse(locals.get(1))));
+		assertEquals(Collections.singleton(gd),
+				copy(gapManager.getGapDefinitionsForLocalDef(locals.get(2))));
+		assertNull(gapManager.getGapDefinitionsForLocalDef(locals.get(1)));
+	}
+
+	@Test
+	public void resetTest() {
+		GapManager gapManager = new GapManager();
+		MethodSummaries summaries = new MethodSummaries();
+		Stmt stmt1 = createCall(locals.get(0), locals.get(1), NullConstant.v(), locals.get(2));
+		GapDefinition gd1 = gapManager.getOrCreateGapForCall(summaries, stmt1);
+		assertTrue(gapManager.isLocalReferencedInGap(locals.get(0)));
+
+		// Nothing of the previous method may be left after a reset
+		gapManager.reset();
+		assertNull(gapManager.getGapForCall(stmt1));
+		for (Local local : locals) {
+			assertFalse(gapManager.isLocalReferencedInGap(local));
+			assertNull(gapManager.getGapDefinitionsForLocalUse(local));
+			assertNull(gapManager.getGapDefinitionsForLocalDef(local));
+		}
+
+		// Gap IDs are not reused after a reset
+		Stmt stmt2 = createCall(locals.get(3), locals.get(4), NullConstant.v(), null);
+		GapDefinition gd2 = gapManager.getOrCreateGapForCall(summaries, stmt2);
+		assertTrue(gd1.getID() != gd2.getID());
+
+		Map<Stmt, GapDefinition> gaps = new HashMap<Stmt, GapDefinition>();
+		gaps.put(stmt2, gd2);
+		checkLookups(gapManager, gaps, locals);
+	}
+
+	@Test
+	public void needsGapConstructionTest() {
+		GapManager gapManager = new GapManager();
+		Local base = locals.get(0);
+		Local arg = locals.get(1);
+		Local unused = locals.get(2);
+		Stmt call = createCall(base, arg, NullConstant.v(), locals.get(3));
+		Stmt source = Jimple.v().newAssignStmt(unused, NullConstant.v());
+
+		// The checks below all decide before the callees are looked up, so we
+		// do not need a control flow graph
+		Abstraction unusedAbs = new Abstraction(
+				AccessPathFactory.v().createAccessPath(unused, true),
+				source, null, false, false);
+		assertFalse(gapManager.needsGapConstruction(call, unusedAbs, null));
+
+		// The return value is no input to the gap
+		Abstraction resultAbs = new Abstraction(
+				AccessPathFactory.v().createAccessPath(locals.get(3), true),
+				source, null, false, false);
+		assertFalse(gapManager.needsGapConstruction(call, resultAbs, null));
+
+		// A taint must not flow from a gap into the same gap again
+		Abstraction selfAbs = new Abstraction(
+				AccessPathFactory.v().createAccessPath(arg, true),
+				call, null, false, false);
+		assertFalse(gapManager.needsGapConstruction(call, selfAbs, null));
+
+		// Constructors never become gaps
+		Stmt init = Jimple.v().newInvokeStmt(Jimple.v().newSpecialInvokeExpr(
+				base, constructor.makeRef(), arg));
+		Abstraction argAbs = new Abstraction(
+				AccessPathFactory.v().createAccessPath(arg, true),
+				source, null, false, false);
+		assertFalse(gapManager.needsGapConstruction(init, argAbs, null));
+	}
+
+}
@@ -2,6 +2,7 @@ package soot.jimple.infoflow.test.methodSummary.junit;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static soot.jimple.infoflow.methodSummary.data.summary.SourceSinkType.Field;
 import static soot.jimple.infoflow.methodSummary.data.summary.SourceSinkType.Parameter;
 import static soot.jimple.infoflow.methodSummary.data.summary.SourceSinkType.Return;
 
@@ -14,6 +15,7 @@ import org.junit.Test;
 
 import soot.jimple.infoflow.InfoflowConfiguration;
 import soot.jimple.infoflow.methodSummary.data.summary.MethodFlow;
+import soot.jimple.infoflow.methodSummary.data.summary.MethodSummaries;
 import soot.jimple.infoflow.methodSummary.generator.SummaryGenerator;
 
 public class ParaToReturnTests extends TestHelper {
@@ -103,6 +105,28 @@ public class ParaToReturnTests extends TestHelper {
 		assertEquals(1,flow.size());
 	}
 	
+	@Test(timeout = 100000)
+	public void approximatedData() {
+		String mSig = "<soot.jimple.infoflow.test.methodSummary.ParaToReturn: java.lang.Object return6(soot.jimple.infoflow.test.methodSummary.Data)>";
+		SummaryGenerator sg = getSummary();
+		sg.getConfig().setPropagationBudget(1);
+		MethodSummaries summaries = sg.createMethodSummary(getClasspath(), mSig);
+		assertTrue(summaries.isApproximated("java.lang.Object return6(soot.jimple.infoflow.test.methodSummary.Data)"));
+
+		// Every source may flow into every sink including itself, and into
+		// all fields of the sink
+		Set<MethodFlow> flow = summaries.getAllFlows();
+		assertTrue(containsFlow(flow, Parameter, 0, new String[] {}, Return, new String[] {}));
+		assertTrue(containsFlow(flow, Parameter, 0, new String[] {}, Field, new String[] {}));
+		assertTrue(containsFlow(flow, Parameter, 0, new String[] {}, Parameter, 0, new String[] {}));
+		assertTrue(containsFlow(flow, Field, new String[] {}, Parameter, 0, new String[] {}));
+		assertTrue(containsFlow(flow, Field, new String[] {}, Return, new String[] {}));
+		assertTrue(containsFlow(flow, Field, new String[] {}, Field, new String[] {}));
+		assertEquals(6, flow.size());
+		for (MethodFlow mf : flow)
+			assertTrue(mf.sink().taintSubFields());
+	}
+
 	@Override
 	protected SummaryGenerator getSummary() {
 		SummaryGenerator sg = new SummaryGenerator();
@@ -0,0 +1,166 @@
+package soot.jimple.infoflow.test.methodSummary.junit;
+
+import static org.junit.Assert.assertEquals;
+import static soot.jimple.infoflow.test.methodSummary.junit.SummaryTestUtils.OBJECT;
+import static soot.jimple.infoflow.test.methodSummary.junit.SummaryTestUtils.createFieldToReturnFlow;
+import static soot.jimple.infoflow.test.methodSummary.junit.SummaryTestUtils.createGapToReturnFlow;
+import static soot.jimple.infoflow.test.methodSummary.junit.SummaryTestUtils.createParameterToGapFlow;
+import static soot.jimple.infoflow.test.methodSummary.junit.SummaryTestUtils.createParameterToReturnFlow;
+
+import org.junit.Test;
+
+import soot.jimple.infoflow.methodSummary.data.sourceSink.FlowSink;
+import soot.jimple.infoflow.methodSummary.data.sourceSink.FlowSource;
+import soot.jimple.infoflow.methodSummary.data.summary.ClassSummaries;
+import soot.jimple.infoflow.methodSummary.data.summary.GapDefinition;
+import soot.jimple.infoflow.methodSummary.data.summary.MethodFlow;
+import soot.jimple.infoflow.methodSummary.data.summary.MethodSummaries;
+import soot.jimple.infoflow.methodSummary.data.summary.SourceSinkType;
+
+/**
+ * Tests for the call position masks that the summary taint wrapper uses to
+ * skip call sites at which no summary flow can apply
+ *
+ * @author Steven Arzt
+ *
+ */
+public class PositionMaskTests {
+
+	private static final String METHOD = OBJECT + " method(" + OBJECT + "," + OBJECT + ")";
+	private static final String OTHER_METHOD = "void other()";
+	private static final String CALLEE = "<java.util.List: boolean add(" + OBJECT + ")>";
+
+	private static final long PARAM0 = MethodSummaries.getParameterPosition(0);
+	private static final long PARAM1 = MethodSummaries.getParameterPosition(1);
+
+	private MethodFlow flow(FlowSource source, FlowSink sink, boolean isAlias) {
+		return new MethodFlow(METHOD, source, sink, isAlias);
+	}
+
+	private FlowSource paramSource(int idx) {
+		return new FlowSource(SourceSinkType.Parameter, idx, OBJECT);
+	}
+
+	@Test
+	public void parameterPositionTest() {
+		// Parameters must neither collide with each other nor with the base
+		// object or the return value
+		long seen = MethodSummaries.POSITION_BASE | MethodSummaries.POSITION_RETURN;
+		for (int i = 0; i < 60; i++) {
+			long pos = MethodSummaries.getParameterPosition(i);
+			assertEquals(1, Long.bitCount(pos));
+			assertEquals(0, seen & pos);
+			seen |= pos;
+		}
+
+		// Parameters beyond the capacity of the mask share the highest bit,
+		// which must not be the sign bit
+		long last = MethodSummaries.getParameterPosition(60);
+		assertEquals(last, MethodSummaries.getParameterPosition(61));
+		assertEquals(last, MethodSummaries.getParameterPosition(1000));
+		assertEquals(0, seen & last);
+		assertEquals(0, last & Long.MIN_VALUE);
+	}
+
+	@Test
+	public void sourceMaskTest() {
+		MethodSummaries ms = new MethodSummaries();
+		assertEquals(0, ms.getSourcePositionMask(METHOD));
+
+		ms.addFlow(createParameterToReturnFlow(METHOD, 1, false));
+		assertEquals(PARAM1, ms.getSourcePositionMask(METHOD));
+
+		ms.addFlow(createFieldToReturnFlow(METHOD, "Test", "<Test: java.lang.Object f>",
+				OBJECT, OBJECT));
+		assertEquals(PARAM1 | MethodSummaries.POSITION_BASE,
+				ms.getSourcePositionMask(METHOD));
+
+		// Other methods are not affected
+		assertEquals(0, ms.getSourcePositionMask(OTHER_METHOD));
+	}
+
+	@Test
+	public void gapSourceTest() {
+		// Flows that start inside a gap can never match a taint at the call
+		// site
+		MethodSummaries ms = new MethodSummaries();
+		GapDefinition gap = ms.getOrCreateGap(0, CALLEE);
+		ms.addFlow(createGapToReturnFlow(METHOD, gap));
+		ms.addFlow(flow(new FlowSource(SourceSinkType.Parameter, 0, OBJECT, gap),
+				new FlowSink(SourceSinkType.Parameter, 1, OBJECT, false), false));
+		assertEquals(0, ms.getSourcePositionMask(METHOD));
+
+		// The flow into the gap starts at the call site
+		ms.addFlow(createParameterToGapFlow(METHOD, 0, gap));
+		assertEquals(PARAM0, ms.getSourcePositionMask(METHOD));
+	}
+
+	@Test
+	public void aliasSinkMaskTest() {
+		MethodSummaries ms = new MethodSummaries();
+
+		// Non-alias flows are never applied backwards
+		ms.addFlow(createParameterToReturnFlow(METHOD, 0, false));
+		assertEquals(0, ms.getAliasSinkPositionMask(METHOD));
+
+		ms.addFlow(flow(paramSource(0),
+				new FlowSink(SourceSinkType.Parameter, 1, OBJECT, false), true));
+		assertEquals(PARAM1, ms.getAliasSinkPositionMask(METHOD));
+
+		ms.addFlow(createParameterToReturnFlow(METHOD, 1, true));
+		assertEquals(PARAM1 | MethodSummaries.POSITION_RETURN,
+				ms.getAliasSinkPositionMask(METHOD));
+
+		// Alias flows that end inside a gap cannot be reversed at the call site
+		GapDefinition gap = ms.getOrCreateGap(0, CALLEE);
+		ms.addFlow(flow(paramSource(0),
+				new FlowSink(SourceSinkType.GapBaseObject, -1, OBJECT, false, gap), true));
+		assertEquals(PARAM1 | MethodSummaries.POSITION_RETURN,
+				ms.getAliasSinkPositionMask(METHOD));
+	}
+
+	@Test
+	public void invalidationTest() {
+		MethodSummaries ms = new MethodSummaries();
+		MethodFlow flow0 = createParameterToReturnFlow(METHOD, 0, true);
+		MethodFlow flow1 = flow(paramSource(1),
+				new FlowSink(SourceSinkType.Parameter, 0, OBJECT, false), true);
+		ms.addFlow(flow0);
+		assertEquals(PARAM0, ms.getSourcePositionMask(METHOD));
+		assertEquals(MethodSummaries.POSITION_RETURN, ms.getAliasSinkPositionMask(METHOD));
+
+		// The cached masks must follow changes to the flows
+		ms.addFlow(flow1);
+		assertEquals(PARAM0 | PARAM1, ms.getSourcePositionMask(METHOD));
+		assertEquals(MethodSummaries.POSITION_RETURN | PARAM0,
+				ms.getAliasSinkPositionMask(METHOD));
+
+		ms.remove(flow0);
+		assertEquals(PARAM1, ms.getSourcePositionMask(METHOD));
+		assertEquals(PARAM0, ms.getAliasSinkPositionMask(METHOD));
+
+		MethodSummaries other = new MethodSummaries();
+		other.addFlow(flow0);
+		ms.merge(other);
+		assertEquals(PARAM0 | PARAM1, ms.getSourcePositionMask(METHOD));
+	}
+
+	@Test
+	public void classSummariesMaskTest() {
+		MethodSummaries ms1 = new MethodSummaries();
+		ms1.addFlow(createParameterToReturnFlow(METHOD, 0, false));
+		MethodSummaries ms2 = new MethodSummaries();
+		ms2.addFlow(createParameterToReturnFlow(METHOD, 1, true));
+
+		ClassSummaries summaries = new ClassSummaries();
+		summaries.merge("test.Class1", ms1);
+		summaries.merge("test.Class2", ms2);
+
+		// The masks of all possible callee classes are combined
+		assertEquals(PARAM0 | PARAM1, summaries.getSourcePositionMask(METHOD));
+		assertEquals(MethodSummaries.POSITION_RETURN,
+				summaries.getAliasSinkPositionMask(METHOD));
+		assertEquals(0, summaries.getSourcePositionMask(OTHER_METHOD));
+	}
+
+}
@@ -0,0 +1,102 @@
+package soot.jimple.infoflow.test.methodSummary.junit;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import soot.jimple.infoflow.Infoflow;
+import soot.jimple.infoflow.config.IInfoflowConfig;
+import soot.jimple.infoflow.entryPointCreators.DefaultEntryPointCreator;
+import soot.jimple.infoflow.methodSummary.data.provider.LazySummaryProvider;
+import soot.jimple.infoflow.methodSummary.taintWrappers.SummaryTaintWrapper;
+import soot.options.Options;
+
+/**
+ * Benchmark that compares the startup time of the SummaryTaintWrapper when
+ * loading all summary classes and when only loading the classes the analysis
+ * can reach. Additional summary directories can be passed on the command line
+ * to simulate large summary sets.
+ *
+ * @author Steven Arzt
+ *
+ */
+public class StartupBenchmark {
+
+	private static final String ENTRY_POINT = "<soot.jimple.infoflow.test.methodSummary.ApiClassClient: void flow1()>";
+	private static final String SOURCE = "<soot.jimple.infoflow.test.methodSummary.ApiClassClient: java.lang.String stringSource()>";
+	private static final String SINK = "<soot.jimple.infoflow.test.methodSummary.ApiClassClient: void sink(java.lang.Object)>";
+
+	private static final int REPEAT_COUNT = 5;
+
+	public static void main(String[] args) throws IOException {
+		List<File> summaryDirs = new ArrayList<>();
+		summaryDirs.add(new File("./summariesJDK"));
+		summaryDirs.add(new File("./summariesAndroid"));
+		summaryDirs.add(new File("./testSummaries"));
+		for (String arg : args)
+			summaryDirs.add(new File(arg));
+
+		final String sep = System.getProperty("path.separator");
+		File f = new File(".");
+		String appPath = new File(f, "bin").getCanonicalPath()
+				+ sep + new File(f, "testBin").getCanonicalPath()
+				+ sep + new File(f, "build" + File.separator + "classes").getCanonicalPath()
+				+ sep + new File(f, "build" + File.separator + "testclasses").getCanonicalPath();
+		String libPath = System.getProperty("java.home") + File.separator + "lib"
+				+ File.separator + "rt.jar";
+
+		// Warm up the JIT before measuring
+		runAnalysis(summaryDirs, appPath, libPath, true);
+		runAnalysis(summaryDirs, appPath, libPath, false);
+
+		long eagerTime = 0;
+		long reachableTime = 0;
+		for (int i = 0; i < REPEAT_COUNT; i++) {
+			eagerTime += runAnalysis(summaryDirs, appPath, libPath, true);
+			reachableTime += runAnalysis(summaryDirs, appPath, libPath, false);
+		}
+
+		System.out.println("Average taint wrapper initialization time when loading all classes: "
+				+ (eagerTime / REPEAT_COUNT) + " ms");
+		System.out.println("Average taint wrapper initialization time when loading reachable classes: "
+				+ (reachableTime / REPEAT_COUNT) + " ms");
+	}
+
+	/**
+	 * Runs the data flow analysis on the test client
+	 * @param summaryDirs The directories containing the summaries
+	 * @param appPath The application classpath
+	 * @param libPath The library classpath
+	 * @param eager True to load all summary classes during initialization,
+	 * false to only load the classes the analysis can reach
+	 * @return The time it took to initialize the taint wrapper in milliseconds
+	 */
+	private static long runAnalysis(List<File> summaryDirs, String appPath,
+			String libPath, boolean eager) {
+		SummaryTaintWrapper wrapper = new SummaryTaintWrapper(
+				new LazySummaryProvider(summaryDirs));
+		wrapper.setEagerClassLoading(eager);
+
+		Infoflow infoflow = new Infoflow();
+		infoflow.setSootConfig(new IInfoflowConfig() {
+
+			@Override
+			public void setSootOptions(Options options) {
+				Options.v().set_allow_phantom_refs(true);
+				Options.v().set_ignore_classpath_errors(true);
+			}
+
+		});
+		infoflow.setTaintWrapper(wrapper);
+		infoflow.computeInfoflow(appPath, libPath,
+				new DefaultEntryPointCreator(Collections.singletonList(ENTRY_POINT)),
+				Collections.singletonList(SOURCE),
+				Collections.singletonList(SINK));
+		System.out.println("Loaded " + wrapper.getLoadedClassCount() + " classes with "
+				+ (eager ? "eager" : "reachability-based") + " class loading");
+		return wrapper.getInitializationTime();
+	}
+
+}
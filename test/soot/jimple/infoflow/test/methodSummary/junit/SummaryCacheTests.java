@@ -0,0 +1,113 @@
+package soot.jimple.infoflow.test.methodSummary.junit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static soot.jimple.infoflow.test.methodSummary.junit.SummaryTestUtils.createParameterToReturnFlow;
+import static soot.jimple.infoflow.test.methodSummary.junit.SummaryTestUtils.delete;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import soot.jimple.infoflow.methodSummary.data.summary.MethodSummaries;
+import soot.jimple.infoflow.methodSummary.generator.SummaryCache;
+import soot.jimple.infoflow.methodSummary.generator.SummaryGeneratorConfiguration;
+
+public class SummaryCacheTests {
+
+	private static final String METHOD = "<test.Box: java.lang.Object get(java.lang.Object)>";
+
+	private MethodSummaries createSummaries() {
+		MethodSummaries ms = new MethodSummaries();
+		ms.addFlow(createParameterToReturnFlow(METHOD, 0, false));
+		return ms;
+	}
+
+	@Test
+	public void roundTripTest() throws IOException {
+		File dir = Files.createTempDirectory("summaryCache").toFile();
+		SummaryCache cache = new SummaryCache(dir);
+
+		String key = "0123456789abcdef";
+		assertNull(cache.get(key));
+		cache.put(key, createSummaries());
+
+		MethodSummaries cached = cache.get(key);
+		assertNotNull(cached);
+		assertEquals(createSummaries().getAllFlows(), cached.getAllFlows());
+
+		// Methods without flows must be cached as well
+		cache.put("fedcba9876543210", new MethodSummaries());
+		MethodSummaries empty = cache.get("fedcba9876543210");
+		assertNotNull(empty);
+		assertTrue(empty.isEmpty());
+
+		assertEquals(2, cache.getHits());
+		assertEquals(1, cache.getMisses());
+
+		// Entries must be visible to other generator instances sharing the
+		// cache directory
+		SummaryCache otherCache = new SummaryCache(dir);
+		assertEquals(createSummaries().getAllFlows(), otherCache.get(key).getAllFlows());
+		assertNull(otherCache.get("0000000000000000"));
+		otherCache.close();
+		cache.close();
+		delete(dir);
+	}
+
+	@Test
+	public void configKeyTest() throws IOException {
+		File dir = Files.createTempDirectory("summaryCache").toFile();
+		File classpath = Files.createTempDirectory("classpath").toFile();
+		SummaryCache cache = new SummaryCache(dir);
+
+		SummaryGeneratorConfiguration config = new SummaryGeneratorConfiguration();
+		String key = computeKey(cache, classpath, config, "test.Config");
+		assertEquals(key, computeKey(cache, classpath, config, "test.Config"));
+
+		// Loading fewer classes can change the flows
+		config.setClassLoadingDepth(1);
+		String depthKey = computeKey(cache, classpath, config, "test.Config");
+		assertFalse(key.equals(depthKey));
+
+		// So can a different class frontend
+		config.setCacheClassFiles(!config.getCacheClassFiles());
+		assertFalse(depthKey.equals(computeKey(cache, classpath, config, "test.Config")));
+
+		// The same options under a different Soot configuration are a miss
+		config.setCacheClassFiles(!config.getCacheClassFiles());
+		assertEquals(depthKey, computeKey(cache, classpath, config, "test.Config"));
+		assertFalse(depthKey.equals(computeKey(cache, classpath, config, "test.OtherConfig")));
+
+		cache.close();
+		delete(dir);
+		delete(classpath);
+	}
+
+	private String computeKey(SummaryCache cache, File classpath,
+			SummaryGeneratorConfiguration config, String sootConfigId) {
+		return cache.computeKey(classpath.getAbsolutePath(), METHOD, null,
+				Collections.<String>emptySet(), config, null, sootConfigId);
+	}
+
+	@Test
+	public void evictionTest() throws IOException {
+		File dir = Files.createTempDirectory("summaryCache").toFile();
+		SummaryCache cache = new SummaryCache(dir, 1);
+
+		cache.put("a", createSummaries());
+		cache.put("b", createSummaries());
+
+		// The cache is too small to keep any non-empty entry
+		assertNull(cache.get("a"));
+		assertNull(cache.get("b"));
+		delete(dir);
+	}
+
+}
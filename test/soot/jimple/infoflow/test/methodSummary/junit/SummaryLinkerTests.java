@@ -0,0 +1,192 @@
+package soot.jimple.infoflow.test.methodSummary.junit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static soot.jimple.infoflow.test.methodSummary.junit.SummaryTestUtils.OBJECT;
+import static soot.jimple.infoflow.test.methodSummary.junit.SummaryTestUtils.createGapToReturnFlow;
+import static soot.jimple.infoflow.test.methodSummary.junit.SummaryTestUtils.createParameterToFieldFlow;
+import static soot.jimple.infoflow.test.methodSummary.junit.SummaryTestUtils.createParameterToGapFlow;
+import static soot.jimple.infoflow.test.methodSummary.junit.SummaryTestUtils.createParameterToReturnFlow;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+import soot.jimple.infoflow.methodSummary.data.sourceSink.FlowSink;
+import soot.jimple.infoflow.methodSummary.data.sourceSink.FlowSource;
+import soot.jimple.infoflow.methodSummary.data.summary.ClassSummaries;
+import soot.jimple.infoflow.methodSummary.data.summary.GapDefinition;
+import soot.jimple.infoflow.methodSummary.data.summary.MethodFlow;
+import soot.jimple.infoflow.methodSummary.data.summary.MethodSummaries;
+import soot.jimple.infoflow.methodSummary.data.summary.SourceSinkType;
+import soot.jimple.infoflow.methodSummary.linker.SummaryLinker;
+
+public class SummaryLinkerTests {
+	
+	private static final String CALLER_CLASS = "test.Caller";
+	private static final String CALLER_METHOD = "java.lang.Object call(java.lang.Object)";
+	private static final String TARGET_CLASS = "test.Target";
+	private static final String TARGET_METHOD = "java.lang.Object apply(java.lang.Object)";
+	private static final String SUB_CLASS = "test.SubTarget";
+	private static final String SUB_FIELD = "<test.SubTarget: java.lang.Object data>";
+	
+	private static final Map<String, Set<String>> NO_SUBCLASSES = Collections.emptyMap();
+	private static final Map<String, Set<String>> TARGET_SUBCLASSES = Collections.singletonMap(
+			TARGET_CLASS, Collections.singleton(SUB_CLASS));
+	
+	/**
+	 * Creates a caller that passes its parameter into a gap and returns the
+	 * return value of the gap
+	 * @param gapTarget The signature of the method called in the gap
+	 * @return The summaries of the caller class
+	 */
+	private MethodSummaries createCaller(String gapTarget) {
+		MethodSummaries caller = new MethodSummaries();
+		GapDefinition gap = caller.getOrCreateGap(1, gapTarget);
+		caller.addFlow(createParameterToGapFlow(CALLER_METHOD, 0, gap));
+		caller.addFlow(createGapToReturnFlow(CALLER_METHOD, gap));
+		return caller;
+	}
+	
+	@Test
+	public void closedGapTest() {
+		MethodSummaries target = new MethodSummaries();
+		target.addFlow(createParameterToReturnFlow(TARGET_METHOD, 0, false));
+		
+		ClassSummaries summaries = new ClassSummaries();
+		summaries.merge(CALLER_CLASS, createCaller("<" + TARGET_CLASS + ": " + TARGET_METHOD + ">"));
+		summaries.merge(TARGET_CLASS, target);
+		
+		SummaryLinker linker = new SummaryLinker(NO_SUBCLASSES);
+		ClassSummaries linked = linker.link(summaries);
+		assertEquals(1, linker.getInlinedGaps());
+		
+		MethodSummaries linkedCaller = linked.getClassSummaries(CALLER_CLASS);
+		assertTrue(linkedCaller.getGaps().isEmpty());
+		
+		Set<MethodFlow> flows = linkedCaller.getFlowsForMethod(CALLER_METHOD);
+		assertEquals(1, flows.size());
+		MethodFlow flow = flows.iterator().next();
+		assertTrue(flow.source().isParameter());
+		assertEquals(0, flow.source().getParameterIndex());
+		assertTrue(flow.sink().isReturn());
+		assertNull(flow.sink().getGap());
+	}
+	
+	@Test
+	public void openGapTest() {
+		ClassSummaries summaries = new ClassSummaries();
+		summaries.merge(CALLER_CLASS, createCaller("<" + TARGET_CLASS + ": " + TARGET_METHOD + ">"));
+		
+		SummaryLinker linker = new SummaryLinker(NO_SUBCLASSES);
+		ClassSummaries linked = linker.link(summaries);
+		assertEquals(0, linker.getInlinedGaps());
+		assertEquals(1, linker.getKeptGaps());
+		
+		MethodSummaries linkedCaller = linked.getClassSummaries(CALLER_CLASS);
+		assertEquals(1, linkedCaller.getGaps().size());
+		assertEquals(2, linkedCaller.getFlowsForMethod(CALLER_METHOD).size());
+	}
+	
+	@Test
+	public void metadataTest() {
+		MethodSummaries target = new MethodSummaries();
+		target.addFlow(new MethodFlow(TARGET_METHOD,
+				new FlowSource(SourceSinkType.Parameter, 0, OBJECT),
+				new FlowSink(SourceSinkType.Return, -1, OBJECT, true),
+				false));
+		target.markApproximated(TARGET_METHOD);
+		
+		MethodSummaries caller = createCaller("<" + TARGET_CLASS + ": " + TARGET_METHOD + ">");
+		caller.setAccessPathLength(CALLER_METHOD, 2);
+		
+		ClassSummaries summaries = new ClassSummaries();
+		summaries.merge(CALLER_CLASS, caller);
+		summaries.merge(TARGET_CLASS, target);
+		
+		SummaryLinker linker = new SummaryLinker(NO_SUBCLASSES);
+		ClassSummaries linked = linker.link(summaries);
+		assertEquals(1, linker.getInlinedGaps());
+		
+		// The caller keeps its access path length, but is now only as
+		// precise as the approximated target
+		MethodSummaries linkedCaller = linked.getClassSummaries(CALLER_CLASS);
+		assertEquals(2, linkedCaller.getAccessPathLength(CALLER_METHOD));
+		assertTrue(linkedCaller.isApproximated(CALLER_METHOD));
+		assertTrue(linked.getClassSummaries(TARGET_CLASS).isApproximated(TARGET_METHOD));
+	}
+	
+@Test
+	public void subclassTest() {
+		MethodSummaries target = new MethodSummaries();
+		target.addFlow(createParameterToReturnFlow(TARGET_METHOD, 0, false));
+		
+		// The subclass stores the parameter in a field instead
+		MethodSummaries subTarget = new MethodSummaries();
+		subTarget.addFlow(createParameterToFieldFlow(TARGET_METHOD, 0, SUB_CLASS, SUB_FIELD, OBJECT));
+		
+		// The caller returns the gap base object as well
+		MethodSummaries caller = createCaller("<" + TARGET_CLASS + ": " + TARGET_METHOD + ">");
+		GapDefinition gap = caller.getGap(1);
+		caller.addFlow(new MethodFlow(CALLER_METHOD,
+				new FlowSource(SourceSinkType.Field, TARGET_CLASS, gap),
+				new FlowSink(SourceSinkType.Return, -1, OBJECT, false),
+				false));
+		
+		ClassSummaries summaries = new ClassSummaries();
+		summaries.merge(CALLER_CLASS, caller);
+		summaries.merge(TARGET_CLASS, target);
+		summaries.merge(SUB_CLASS, subTarget);
+		
+		// Without the subclass, we only get the flow of the declared target
+		ClassSummaries linked = new SummaryLinker(NO_SUBCLASSES).link(summaries);
+		assertEquals(1, linked.getClassSummaries(CALLER_CLASS).getFlowsForMethod(CALLER_METHOD).size());
+		
+		// The call may be dispatched to the subclass as well
+		SummaryLinker linker = new SummaryLinker(TARGET_SUBCLASSES);
+		linked = linker.link(summaries);
+		assertEquals(1, linker.getInlinedGaps());
+		
+		MethodSummaries linkedCaller = linked.getClassSummaries(CALLER_CLASS);
+		assertTrue(linkedCaller.getGaps().isEmpty());
+		Set<MethodFlow> flows = linkedCaller.getFlowsForMethod(CALLER_METHOD);
+		assertEquals(2, flows.size());
+		boolean foundField = false;
+		for (MethodFlow flow : flows) {
+			assertTrue(flow.source().isParameter());
+			assertTrue(flow.sink().isReturn());
+			if (flow.sink().getAccessPathLength() == 1) {
+				assertEquals(SUB_FIELD, flow.sink().getAccessPath()[0]);
+				foundField = true;
+			}
+		}
+		assertTrue(foundField);
+	}
+	
+	@Test
+	public void openSubclassTest() {
+		MethodSummaries target = new MethodSummaries();
+		target.addFlow(createParameterToReturnFlow(TARGET_METHOD, 0, false));
+		
+		// The subclass calls back into another method
+		MethodSummaries subTarget = new MethodSummaries();
+		GapDefinition subGap = subTarget.getOrCreateGap(1, "<test.Callback: java.lang.Object run(java.lang.Object)>");
+		subTarget.addFlow(createParameterToGapFlow(TARGET_METHOD, 0, subGap));
+		
+		ClassSummaries summaries = new ClassSummaries();
+		summaries.merge(CALLER_CLASS, createCaller("<" + TARGET_CLASS + ": " + TARGET_METHOD + ">"));
+		summaries.merge(TARGET_CLASS, target);
+		summaries.merge(SUB_CLASS, subTarget);
+		
+		// The gap cannot be closed, because the call may be dispatched to
+		// the subclass
+		SummaryLinker linker = new SummaryLinker(TARGET_SUBCLASSES);
+		ClassSummaries linked = linker.link(summaries);
+		assertEquals(0, linker.getInlinedGaps());
+		assertEquals(1, linked.getClassSummaries(CALLER_CLASS).getGaps().size());
+	}
+	
+}
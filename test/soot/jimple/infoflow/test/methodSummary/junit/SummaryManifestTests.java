@@ -0,0 +1,153 @@
+package soot.jimple.infoflow.test.methodSummary.junit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static soot.jimple.infoflow.test.methodSummary.junit.SummaryTestUtils.createFieldToReturnFlow;
+import static soot.jimple.infoflow.test.methodSummary.junit.SummaryTestUtils.createParameterToFieldFlow;
+import static soot.jimple.infoflow.test.methodSummary.junit.SummaryTestUtils.createParameterToReturnFlow;
+import static soot.jimple.infoflow.test.methodSummary.junit.SummaryTestUtils.delete;
+import static soot.jimple.infoflow.test.methodSummary.junit.SummaryTestUtils.writeSummaries;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.junit.Test;
+
+import soot.jimple.infoflow.methodSummary.data.provider.LazySummaryProvider;
+import soot.jimple.infoflow.methodSummary.data.summary.ClassSummaries;
+import soot.jimple.infoflow.methodSummary.data.summary.MethodSummaries;
+import soot.jimple.infoflow.methodSummary.xml.SummaryManifest;
+import soot.jimple.infoflow.methodSummary.xml.SummaryXMLException;
+
+public class SummaryManifestTests {
+
+	private static final String CLASS_NAME = "test.Container";
+	private static final String PUT_METHOD = "void put(java.lang.Object)";
+	private static final String SIZE_METHOD = "int size()";
+	private static final String FIELD = "<test.Container: test.Node head>";
+
+	/**
+	 * Writes the summaries of a container class into the given directory and
+	 * creates a manifest for them
+	 * @param dir The target directory
+	 */
+	private void writeContainer(File dir) throws XMLStreamException,
+			SummaryXMLException, IOException {
+		MethodSummaries ms = new MethodSummaries();
+		ms.addFlow(createParameterToFieldFlow(PUT_METHOD, 0, CLASS_NAME, FIELD, "test.Node"));
+		writeSummaries(dir, CLASS_NAME, ms);
+		SummaryManifest.create(dir).write(dir);
+	}
+
+	@Test
+	public void manifestRoundTripTest() throws XMLStreamException,
+			SummaryXMLException, IOException {
+		File dir = Files.createTempDirectory("summaries").toFile();
+		writeContainer(dir);
+
+		SummaryManifest manifest = SummaryManifest.read(dir);
+		assertNotNull(manifest);
+		assertEquals(1, manifest.getClasses().size());
+
+		SummaryManifest.ClassEntry entry = manifest.getClassEntry(CLASS_NAME);
+		assertEquals(1, entry.getFlowCount(PUT_METHOD));
+		assertEquals(0, entry.getFlowCount(SIZE_METHOD));
+		assertTrue(entry.getDependencies().contains("test.Node"));
+		assertTrue(manifest.getStaleClasses(dir).isEmpty());
+
+		delete(dir);
+	}
+
+	@Test
+	public void providerUsesManifestTest() throws XMLStreamException,
+			SummaryXMLException, IOException {
+		File dir = Files.createTempDirectory("summaries").toFile();
+		writeContainer(dir);
+
+		LazySummaryProvider provider = new LazySummaryProvider(dir);
+		assertTrue(provider.supportsClass(CLASS_NAME));
+		assertFalse(provider.mayHaveFlows(CLASS_NAME, SIZE_METHOD));
+
+		// Methods without flows must not trigger parsing the summary file
+		assertNull(provider.getMethodFlows(CLASS_NAME, SIZE_METHOD));
+		assertTrue(provider.getSupportedClasses().isEmpty());
+
+		assertEquals(1, provider.getMethodFlows(CLASS_NAME, PUT_METHOD).size());
+		assertTrue(provider.getSupportedClasses().contains(CLASS_NAME));
+
+		delete(dir);
+	}
+
+	@Test
+	public void providerLoadsUnlistedFilesTest() throws XMLStreamException,
+			SummaryXMLException, IOException {
+		File dir = Files.createTempDirectory("summaries").toFile();
+		writeContainer(dir);
+
+		// A union summary written after the manifest
+		String unionClass = "test.Collection" + ClassSummaries.UNION_SUFFIX;
+		MethodSummaries ms = new MethodSummaries();
+		ms.addFlow(createParameterToReturnFlow(PUT_METHOD, 0, false));
+		writeSummaries(dir, unionClass, ms);
+
+		LazySummaryProvider provider = new LazySummaryProvider(dir);
+		assertTrue(provider.supportsClass(CLASS_NAME));
+		assertTrue(provider.supportsClass(unionClass));
+		assertEquals(1, provider.getMethodFlows(unionClass, PUT_METHOD).size());
+
+		delete(dir);
+	}
+
+	@Test
+	public void providerIgnoresStaleEntriesTest() throws XMLStreamException,
+			SummaryXMLException, IOException {
+		File dir = Files.createTempDirectory("summaries").toFile();
+		writeContainer(dir);
+
+		// Overwrite the summary file without refreshing the manifest
+		MethodSummaries ms = new MethodSummaries();
+		ms.addFlow(createFieldToReturnFlow(SIZE_METHOD, CLASS_NAME, FIELD, "test.Node", "int"));
+		writeSummaries(dir, CLASS_NAME, ms);
+		assertEquals(1, SummaryManifest.read(dir).getStaleClasses(dir).size());
+
+		// The manifest claims that size() has no flows, the file says otherwise
+		LazySummaryProvider provider = new LazySummaryProvider(dir);
+		assertTrue(provider.mayHaveFlows(CLASS_NAME, SIZE_METHOD));
+		assertEquals(1, provider.getMethodFlows(CLASS_NAME, SIZE_METHOD).size());
+
+		delete(dir);
+	}
+
+	@Test
+	public void providerVerifiesChecksumOnLoadTest() throws XMLStreamException,
+			SummaryXMLException, IOException {
+		File dir = Files.createTempDirectory("summaries").toFile();
+		writeContainer(dir);
+
+		// Rename the method without changing the size or the modification
+		// time of the summary file
+		File f = new File(dir, SummaryManifest.read(dir).getClassEntry(CLASS_NAME).getFileName());
+		long lastModified = f.lastModified();
+		String content = new String(Files.readAllBytes(f.toPath()), "UTF-8");
+		Files.write(f.toPath(), content.replace("void put(", "void pot(").getBytes("UTF-8"));
+		f.setLastModified(lastModified);
+		assertTrue(SummaryManifest.read(dir).getStaleClasses(dir).isEmpty());
+		assertEquals(1, SummaryManifest.read(dir).getModifiedClasses(dir).size());
+
+		// Loading the class uncovers the change and drops the manifest entry
+		LazySummaryProvider provider = new LazySummaryProvider(dir);
+		assertFalse(provider.mayHaveFlows(CLASS_NAME, "void pot(java.lang.Object)"));
+		assertNull(provider.getMethodFlows(CLASS_NAME, PUT_METHOD));
+		assertTrue(provider.mayHaveFlows(CLASS_NAME, "void pot(java.lang.Object)"));
+		assertEquals(1, provider.getMethodFlows(CLASS_NAME, "void pot(java.lang.Object)").size());
+
+		delete(dir);
+	}
+
+}
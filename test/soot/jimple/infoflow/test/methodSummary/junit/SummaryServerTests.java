@@ -0,0 +1,109 @@
+package soot.jimple.infoflow.test.methodSummary.junit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static soot.jimple.infoflow.test.methodSummary.junit.SummaryTestUtils.createParameterToFieldFlow;
+import static soot.jimple.infoflow.test.methodSummary.junit.SummaryTestUtils.createParameterToReturnFlow;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+import soot.jimple.infoflow.methodSummary.data.provider.MemorySummaryProvider;
+import soot.jimple.infoflow.methodSummary.data.provider.RemoteSummaryProvider;
+import soot.jimple.infoflow.methodSummary.data.sourceSink.FlowSink;
+import soot.jimple.infoflow.methodSummary.data.sourceSink.FlowSource;
+import soot.jimple.infoflow.methodSummary.data.summary.ClassSummaries;
+import soot.jimple.infoflow.methodSummary.data.summary.GapDefinition;
+import soot.jimple.infoflow.methodSummary.data.summary.MethodFlow;
+import soot.jimple.infoflow.methodSummary.data.summary.MethodSummaries;
+import soot.jimple.infoflow.methodSummary.data.summary.SourceSinkType;
+import soot.jimple.infoflow.methodSummary.server.SummaryServer;
+
+public class SummaryServerTests {
+
+	private static final String LIST_CLASS = "test.List";
+	private static final String MAP_CLASS = "test.Map";
+	private static final String ADD_METHOD = "void add(java.lang.Object)";
+	private static final String CALLBACK_METHOD = "void run(java.lang.Runnable)";
+	private static final String FIELD = "<test.List: java.lang.Object[] data>";
+
+	private ClassSummaries createSummaries() {
+		MethodSummaries listSummaries = new MethodSummaries();
+		listSummaries.addFlow(createParameterToFieldFlow(ADD_METHOD, 0, LIST_CLASS,
+				FIELD, "java.lang.Object[]"));
+
+		GapDefinition gap = listSummaries.getOrCreateGap(1, "<java.lang.Runnable: void run()>");
+		listSummaries.addFlow(new MethodFlow(CALLBACK_METHOD,
+				new FlowSource(SourceSinkType.Parameter, 0, "java.lang.Runnable"),
+				new FlowSink(SourceSinkType.GapBaseObject, -1, "java.lang.Runnable", false, gap),
+				false));
+
+		MethodSummaries mapSummaries = new MethodSummaries();
+		mapSummaries.addFlow(createParameterToReturnFlow(ADD_METHOD, 0, true));
+
+		ClassSummaries summaries = new ClassSummaries();
+		summaries.merge(LIST_CLASS, listSummaries);
+		summaries.merge(MAP_CLASS, mapSummaries);
+		return summaries;
+	}
+
+	@Test
+	public void remoteQueryTest() throws IOException {
+		ClassSummaries summaries = createSummaries();
+		MemorySummaryProvider local = new MemorySummaryProvider(summaries);
+
+		SummaryServer server = new SummaryServer(summaries, 0);
+		server.start();
+		RemoteSummaryProvider remote = new RemoteSummaryProvider(server.getPort());
+		try {
+			assertTrue(remote.supportsClass(LIST_CLASS));
+			assertFalse(remote.supportsClass("test.Unknown"));
+			assertNull(remote.getMethodFlows("test.Unknown", ADD_METHOD));
+
+			Set<String> classes = new HashSet<>();
+			classes.add(LIST_CLASS);
+			classes.add(MAP_CLASS);
+			for (String method : new String[] { ADD_METHOD, CALLBACK_METHOD }) {
+				assertEquals(local.getMethodFlows(classes, method).getAllFlows(),
+						remote.getMethodFlows(classes, method).getAllFlows());
+				assertEquals(local.getMethodFlows(LIST_CLASS, method),
+						remote.getMethodFlows(LIST_CLASS, method));
+			}
+
+			// The gap must survive the transfer
+			MethodFlow flow = remote.getMethodFlows(LIST_CLASS, CALLBACK_METHOD).iterator().next();
+			assertEquals("<java.lang.Runnable: void run()>", flow.sink().getGap().getSignature());
+
+			assertTrue(remote.getMethodFlows(Collections.singleton(MAP_CLASS),
+					CALLBACK_METHOD).getAllFlows().isEmpty());
+		} finally {
+			remote.close();
+			server.stop();
+		}
+	}
+
+	@Test
+	public void multipleClientsTest() throws IOException {
+		ClassSummaries summaries = createSummaries();
+		SummaryServer server = new SummaryServer(summaries, 0);
+		server.start();
+		RemoteSummaryProvider client1 = new RemoteSummaryProvider(server.getPort());
+		RemoteSummaryProvider client2 = new RemoteSummaryProvider(server.getPort());
+		try {
+			assertEquals(client1.getMethodFlows(MAP_CLASS, ADD_METHOD),
+					client2.getMethodFlows(MAP_CLASS, ADD_METHOD));
+			assertEquals(1, client1.getMethodFlows(MAP_CLASS, ADD_METHOD).size());
+		} finally {
+			client1.close();
+			client2.close();
+			server.stop();
+		}
+	}
+
+}
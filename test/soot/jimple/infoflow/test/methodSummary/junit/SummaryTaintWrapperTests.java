@@ -25,6 +25,7 @@ import soot.jimple.infoflow.Infoflow;
 import soot.jimple.infoflow.InfoflowConfiguration;
 import soot.jimple.infoflow.config.IInfoflowConfig;
 import soot.jimple.infoflow.entryPointCreators.DefaultEntryPointCreator;
+import soot.jimple.infoflow.methodSummary.data.summary.ClassSummaries;
 import soot.jimple.infoflow.methodSummary.taintWrappers.TaintWrapperFactory;
 import soot.jimple.infoflow.results.InfoflowResults;
 import soot.jimple.infoflow.taintWrappers.ITaintPropagationWrapper;
@@ -184,6 +185,26 @@ public class SummaryTaintWrapperTests {
 		testFlowForMethod("<soot.jimple.infoflow.test.methodSummary.ApiClassClient: void callToCall()>");
 	}
 	
+	@Test(timeout = 30000)
+	public void secondParameterFlow() {
+		testFlowForMethod("<soot.jimple.infoflow.test.methodSummary.ApiClassClient: void secondParameterFlow()>");
+	}
+	
+	@Test(timeout = 30000)
+	public void unmatchedBaseNoFlow() {
+		testNoFlowForMethod("<soot.jimple.infoflow.test.methodSummary.ApiClassClient: void unmatchedBaseNoFlow()>");
+	}
+	
+	@Test(timeout = 30000)
+	public void unionNoCalleesFlow() {
+		testFlowForMethod("<soot.jimple.infoflow.test.methodSummary.ApiClassClient: void unionNoCalleesFlow()>");
+	}
+	
+	@Test(timeout = 30000)
+	public void unionSingleCalleeNoFlow() {
+		testNoFlowForMethod("<soot.jimple.infoflow.test.methodSummary.ApiClassClient: void unionSingleCalleeNoFlow()>");
+	}
+	
 	private void testFlowForMethod(String m) {
 		Infoflow iFlow = null;
 		try {
@@ -259,6 +280,8 @@ public class SummaryTaintWrapperTests {
 		summaryFiles.add("./testSummaries/soot.jimple.infoflow.test.methodSummary.ApiClass.xml");
 		summaryFiles.add("./testSummaries/soot.jimple.infoflow.test.methodSummary.GapClass.xml");
 		summaryFiles.add("./testSummaries/soot.jimple.infoflow.test.methodSummary.Data.xml");
+		summaryFiles.add("./testSummaries/soot.jimple.infoflow.test.methodSummary.IApiClass"
+				+ ClassSummaries.UNION_SUFFIX + ".xml");
 		
 		summaryWrapper = TaintWrapperFactory.createTaintWrapper(summaryFiles);
 		result.setTaintWrapper(summaryWrapper);
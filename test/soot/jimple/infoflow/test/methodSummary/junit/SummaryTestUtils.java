@@ -0,0 +1,161 @@
+package soot.jimple.infoflow.test.methodSummary.junit;
+
+import java.io.File;
+import java.io.IOException;
+
+import javax.xml.stream.XMLStreamException;
+
+import soot.jimple.infoflow.methodSummary.data.sourceSink.FlowSink;
+import soot.jimple.infoflow.methodSummary.data.sourceSink.FlowSource;
+import soot.jimple.infoflow.methodSummary.data.summary.ClassSummaries;
+import soot.jimple.infoflow.methodSummary.data.summary.GapDefinition;
+import soot.jimple.infoflow.methodSummary.data.summary.MethodFlow;
+import soot.jimple.infoflow.methodSummary.data.summary.MethodSummaries;
+import soot.jimple.infoflow.methodSummary.data.summary.SourceSinkType;
+import soot.jimple.infoflow.methodSummary.xml.XMLWriter;
+
+/**
+ * Helper methods for tests that work on hand-written summaries instead of
+ * generating them from code
+ *
+ * @author Steven Arzt
+ *
+ */
+public class SummaryTestUtils {
+
+	public static final String OBJECT = "java.lang.Object";
+	public static final String LIST = "java.util.List";
+
+	private SummaryTestUtils() {
+	}
+
+	/**
+	 * Creates a flow from a method parameter to the return value
+	 * @param methodSig The subsignature of the method
+	 * @param paramIdx The index of the source parameter
+	 * @param isAlias True if the flow is an alias flow, otherwise false
+	 * @return The new flow
+	 */
+	public static MethodFlow createParameterToReturnFlow(String methodSig,
+			int paramIdx, boolean isAlias) {
+		return new MethodFlow(methodSig,
+				new FlowSource(SourceSinkType.Parameter, paramIdx, OBJECT),
+				new FlowSink(SourceSinkType.Return, -1, OBJECT, false),
+				isAlias);
+	}
+
+	/**
+	 * Creates a flow from a method parameter into a field of the base object
+	 * @param methodSig The subsignature of the method
+	 * @param paramIdx The index of the source parameter
+	 * @param className The name of the class declaring the method
+	 * @param field The signature of the target field
+	 * @param fieldType The type of the target field
+	 * @return The new flow
+	 */
+	public static MethodFlow createParameterToFieldFlow(String methodSig,
+			int paramIdx, String className, String field, String fieldType) {
+		return new MethodFlow(methodSig,
+				new FlowSource(SourceSinkType.Parameter, paramIdx, OBJECT),
+				new FlowSink(SourceSinkType.Field, className,
+						new String[] { field }, new String[] { fieldType }, true, null),
+				false);
+	}
+
+	/**
+	 * Creates a flow from a field of the base object to the return value
+	 * @param methodSig The subsignature of the method
+	 * @param className The name of the class declaring the method
+	 * @param field The signature of the source field
+	 * @param fieldType The type of the source field
+	 * @param returnType The return type of the method
+	 * @return The new flow
+	 */
+	public static MethodFlow createFieldToReturnFlow(String methodSig,
+			String className, String field, String fieldType, String returnType) {
+		return new MethodFlow(methodSig,
+				new FlowSource(SourceSinkType.Field, className,
+						new String[] { field }, new String[] { fieldType }, null),
+				new FlowSink(SourceSinkType.Return, -1, returnType, false),
+				false);
+	}
+
+	/**
+	 * Creates a flow from a method parameter into a parameter of a gap
+	 * @param methodSig The subsignature of the method
+	 * @param paramIdx The index of the source parameter
+	 * @param gap The gap into which the flow leads
+	 * @return The new flow
+	 */
+	public static MethodFlow createParameterToGapFlow(String methodSig,
+			int paramIdx, GapDefinition gap) {
+		return new MethodFlow(methodSig,
+				new FlowSource(SourceSinkType.Parameter, paramIdx, OBJECT),
+				new FlowSink(SourceSinkType.Parameter, paramIdx, OBJECT, false, gap),
+				false);
+	}
+
+	/**
+	 * Creates a flow from the return value of a gap to the return value of
+	 * the method
+	 * @param methodSig The subsignature of the method
+	 * @param gap The gap from which the flow originates
+	 * @return The new flow
+	 */
+	public static MethodFlow createGapToReturnFlow(String methodSig,
+			GapDefinition gap) {
+		return new MethodFlow(methodSig,
+				new FlowSource(SourceSinkType.Return, OBJECT, gap),
+				new FlowSink(SourceSinkType.Return, -1, OBJECT, false),
+				false);
+	}
+
+	/**
+	 * Creates summaries for the given number of classes. Every class has five
+	 * methods that store their parameter in a list field and return that
+	 * field.
+	 * @param classCount The number of classes
+	 * @return The summaries of the classes
+	 */
+	public static ClassSummaries createSummaries(int classCount) {
+		ClassSummaries summaries = new ClassSummaries();
+		for (int i = 0; i < classCount; i++) {
+			String className = "test.Class" + i;
+			String field = "<" + className + ": " + LIST + " data>";
+			MethodSummaries ms = new MethodSummaries();
+			for (int j = 0; j < 5; j++) {
+				String methodSig = OBJECT + " method" + j + "(" + OBJECT + ")";
+				ms.addFlow(createParameterToFieldFlow(methodSig, 0, LIST, field, LIST));
+				ms.addFlow(createFieldToReturnFlow(methodSig, LIST, field, LIST, OBJECT));
+			}
+			summaries.merge(className, ms);
+		}
+		return summaries;
+	}
+
+	/**
+	 * Writes the summaries of a single class into the given directory
+	 * @param dir The target directory
+	 * @param className The name of the class
+	 * @param ms The summaries of the class
+	 */
+	public static void writeSummaries(File dir, String className,
+			MethodSummaries ms) throws XMLStreamException, IOException {
+		ClassSummaries summaries = new ClassSummaries();
+		summaries.merge(className, ms);
+		new XMLWriter().write(dir, summaries);
+	}
+
+	/**
+	 * Deletes the given file. Directories are deleted with all their contents.
+	 * @param file The file or directory to delete
+	 */
+	public static void delete(File file) {
+		File[] children = file.listFiles();
+		if (children != null)
+			for (File child : children)
+				delete(child);
+		file.delete();
+	}
+
+}
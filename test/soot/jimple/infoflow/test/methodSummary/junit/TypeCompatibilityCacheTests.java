@@ -0,0 +1,187 @@
+package soot.jimple.infoflow.test.methodSummary.junit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import soot.FastHierarchy;
+import soot.G;
+import soot.RefType;
+import soot.Scene;
+import soot.SootClass;
+import soot.Type;
+import soot.jimple.infoflow.methodSummary.taintWrappers.TypeCompatibilityCache;
+import soot.options.Options;
+
+/**
+ * Tests that the type compatibility cache gives the same answers as the
+ * uncached checks on the class hierarchy
+ *
+ * @author Steven Arzt
+ *
+ */
+public class TypeCompatibilityCacheTests {
+
+	private static String appPath, libPath;
+
+	private static final String[] INITIAL_CLASSES = {
+		"java.lang.Object", "java.lang.String", "java.lang.Integer",
+		"java.util.ArrayList", "java.util.LinkedList", "java.util.HashMap",
+		"java.util.HashSet", "java.util.TreeMap",
+		"soot.jimple.infoflow.test.methodSummary.Data",
+		"soot.jimple.infoflow.test.methodSummary.Data2" };
+
+	private static final String LATER_CLASS = "soot.jimple.infoflow.test.methodSummary.ApiClass";
+	private static final String LATER_INTERFACE = "soot.jimple.infoflow.test.methodSummary.IApiClass";
+
+	@BeforeClass
+	public static void setUp() throws IOException {
+		final String sep = System.getProperty("path.separator");
+		File f = new File(".");
+		File testSrc1 = new File(f, "bin");
+		File testSrc2 = new File(f, "testBin");
+		File testSrc3 = new File(f, "build" + File.separator + "classes");
+		File testSrc4 = new File(f, "build" + File.separator + "testclasses");
+
+		if (!(testSrc1.exists()
+				|| testSrc2.exists()
+				|| testSrc3.exists()
+				|| testSrc4.exists())) {
+			fail("Test aborted - none of the test sources are available");
+		}
+
+		appPath = testSrc1.getCanonicalPath()
+				+ sep + testSrc2.getCanonicalPath()
+				+ sep + testSrc3.getCanonicalPath()
+				+ sep + testSrc4.getCanonicalPath();
+		libPath = System.getProperty("java.home") + File.separator + "lib" + File.separator + "rt.jar";
+	}
+
+	@Before
+	public void resetSoot() {
+		G.reset();
+		Options.v().set_soot_classpath(appPath + System.getProperty("path.separator") + libPath);
+		Options.v().set_allow_phantom_refs(true);
+		for (String className : INITIAL_CLASSES)
+			Scene.v().forceResolve(className, SootClass.HIERARCHY);
+	}
+
+	/**
+	 * Checks the given types the same way the summary taint wrapper does if
+	 * the result is not cached
+	 * @param fh The hierarchy to use
+	 * @param t1 The first type
+	 * @param t2 The second type
+	 * @return True if the types are compatible, otherwise false
+	 */
+	private boolean isCompatible(FastHierarchy fh, Type t1, Type t2) {
+		return fh.canStoreType(t1, t2) || fh.canStoreType(t2, t1);
+	}
+
+	/**
+	 * Gets the types of all classes that are currently in the scene
+	 * @return The types of all classes in the scene
+	 */
+	private List<Type> getSceneTypes() {
+		List<Type> types = new ArrayList<Type>();
+		for (SootClass sc : Scene.v().getClasses())
+			types.add(sc.getType());
+		return types;
+	}
+
+	/**
+	 * Fills the cache with all pairs of the given types and checks that each
+	 * pair was unknown before
+	 * @param cache The cache to fill
+	 * @param fh The hierarchy to use
+	 * @param types The types to check
+	 */
+	private void fillCache(TypeCompatibilityCache cache, FastHierarchy fh, List<Type> types) {
+		for (Type t1 : types)
+			for (Type t2 : types) {
+				if (cache.lookup(t1, t2) != TypeCompatibilityCache.UNKNOWN)
+					continue;
+				cache.store(t1, t2, isCompatible(fh, t1, t2));
+			}
+	}
+
+	/**
+	 * Checks that the cached answers for all pairs of the given types match
+	 * the uncached checks
+	 * @param cache The cache to check
+	 * @param fh The hierarchy to use
+	 * @param types The types to check
+	 */
+	private void checkCache(TypeCompatibilityCache cache, FastHierarchy fh, List<Type> types) {
+		for (Type t1 : types)
+			for (Type t2 : types) {
+				int expected = isCompatible(fh, t1, t2) ? 1 : 0;
+				assertEquals("Wrong answer for " + t1 + " and " + t2,
+						expected, cache.lookup(t1, t2));
+			}
+	}
+
+	@Test(timeout = 300000)
+	public void matchesHierarchyTest() {
+		FastHierarchy fh = Scene.v().getOrMakeFastHierarchy();
+		List<Type> types = getSceneTypes();
+
+		// We need more types than fit into a single bit vector
+		assertTrue(types.size() > 32);
+
+		TypeCompatibilityCache cache = new TypeCompatibilityCache();
+		for (Type t1 : types)
+			for (Type t2 : types)
+				assertEquals(TypeCompatibilityCache.UNKNOWN, cache.lookup(t1, t2));
+		cache.clear();
+
+		fillCache(cache, fh, types);
+		checkCache(cache, fh, types);
+
+		int pairs = types.size() * types.size();
+		assertEquals(pairs, cache.getMisses());
+		assertEquals(pairs, cache.getHits());
+	}
+
+	@Test(timeout = 300000)
+	public void classLoadedLaterTest() {
+		FastHierarchy fh = Scene.v().getOrMakeFastHierarchy();
+		List<Type> initialTypes = getSceneTypes();
+		TypeCompatibilityCache cache = new TypeCompatibilityCache();
+		fillCache(cache, fh, initialTypes);
+
+		// Load a new class and its interface into the scene
+		assertTrue(!Scene.v().containsClass(LATER_CLASS));
+		SootClass laterClass = Scene.v().forceResolve(LATER_CLASS, SootClass.HIERARCHY);
+		RefType laterType = laterClass.getType();
+		RefType laterInterface = RefType.v(LATER_INTERFACE);
+
+		// The new types must not share cache entries with the old ones
+		for (Type t : initialTypes) {
+			assertEquals(TypeCompatibilityCache.UNKNOWN, cache.lookup(laterType, t));
+			assertEquals(TypeCompatibilityCache.UNKNOWN, cache.lookup(t, laterType));
+		}
+
+		// Rebuild the hierarchy for the new class and check again
+		Scene.v().releaseFastHierarchy();
+		fh = Scene.v().getOrMakeFastHierarchy();
+		List<Type> allTypes = getSceneTypes();
+		fillCache(cache, fh, allTypes);
+		checkCache(cache, fh, allTypes);
+
+		assertEquals(1, cache.lookup(laterType, laterInterface));
+		assertEquals(1, cache.lookup(laterType, RefType.v("java.lang.Object")));
+		assertEquals(0, cache.lookup(laterType,
+				RefType.v("soot.jimple.infoflow.test.methodSummary.Data")));
+	}
+
+}
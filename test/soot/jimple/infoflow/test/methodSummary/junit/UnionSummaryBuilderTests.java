@@ -0,0 +1,161 @@
+package soot.jimple.infoflow.test.methodSummary.junit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static soot.jimple.infoflow.test.methodSummary.junit.SummaryTestUtils.OBJECT;
+import static soot.jimple.infoflow.test.methodSummary.junit.SummaryTestUtils.createParameterToGapFlow;
+import static soot.jimple.infoflow.test.methodSummary.junit.SummaryTestUtils.createParameterToReturnFlow;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import soot.G;
+import soot.Scene;
+import soot.SootClass;
+import soot.jimple.infoflow.methodSummary.data.sourceSink.FlowSink;
+import soot.jimple.infoflow.methodSummary.data.sourceSink.FlowSource;
+import soot.jimple.infoflow.methodSummary.data.summary.ClassSummaries;
+import soot.jimple.infoflow.methodSummary.data.summary.GapDefinition;
+import soot.jimple.infoflow.methodSummary.data.summary.MethodFlow;
+import soot.jimple.infoflow.methodSummary.data.summary.MethodSummaries;
+import soot.jimple.infoflow.methodSummary.data.summary.SourceSinkType;
+import soot.jimple.infoflow.methodSummary.linker.UnionSummaryBuilder;
+import soot.options.Options;
+
+/**
+ * Tests for building the union summaries of interfaces from the summaries of
+ * their implementors
+ *
+ * @author Steven Arzt
+ *
+ */
+public class UnionSummaryBuilderTests {
+
+	private static String libPath;
+
+	private static final String LIST = "java.util.List";
+	private static final String ARRAY_LIST = "java.util.ArrayList";
+	private static final String LINKED_LIST = "java.util.LinkedList";
+	private static final String UNION = ClassSummaries.getUnionClassName(LIST);
+
+	private static final String GET_METHOD = "java.lang.Object get(int)";
+	private static final String REMOVE_METHOD = "java.lang.Object remove(int)";
+	private static final String TRIM_METHOD = "void trimToSize()";
+
+	@BeforeClass
+	public static void setUp() throws IOException {
+		libPath = System.getProperty("java.home") + File.separator + "lib" + File.separator + "rt.jar";
+	}
+
+	@Before
+	public void resetSoot() {
+		G.reset();
+		Options.v().set_soot_classpath(libPath);
+		Options.v().set_allow_phantom_refs(true);
+		Scene.v().forceResolve(ARRAY_LIST, SootClass.HIERARCHY);
+		Scene.v().forceResolve(LINKED_LIST, SootClass.HIERARCHY);
+	}
+
+	/**
+	 * Builds the union summaries of java.util.List from the given summaries of
+	 * ArrayList and LinkedList
+	 * @param arrayList The summaries of java.util.ArrayList
+	 * @param linkedList The summaries of java.util.LinkedList
+	 * @return The union summaries for java.util.List
+	 */
+	private MethodSummaries buildListUnion(MethodSummaries arrayList,
+			MethodSummaries linkedList) {
+		ClassSummaries summaries = new ClassSummaries();
+		summaries.merge(ARRAY_LIST, arrayList);
+		summaries.merge(LINKED_LIST, linkedList);
+
+		ClassSummaries unions = new UnionSummaryBuilder(Collections.singleton(LIST))
+				.buildUnions(summaries);
+		assertEquals(Collections.singleton(UNION), unions.getClasses());
+		return unions.getClassSummaries(UNION);
+	}
+
+	@Test
+	public void deduplicationTest() {
+		MethodSummaries arrayList = new MethodSummaries();
+		arrayList.addFlow(createParameterToReturnFlow(GET_METHOD, 0, false));
+		arrayList.addFlow(createParameterToReturnFlow(TRIM_METHOD, 0, false));
+		MethodSummaries linkedList = new MethodSummaries();
+		linkedList.addFlow(createParameterToReturnFlow(GET_METHOD, 0, true));
+
+		// Equal flows are merged, the alias flow is kept. Methods that cannot
+		// be called on the interface are not part of the union.
+		MethodSummaries union = buildListUnion(arrayList, linkedList);
+		Set<MethodFlow> flows = union.getFlowsForMethod(GET_METHOD);
+		assertEquals(1, flows.size());
+		assertTrue(flows.iterator().next().isAlias());
+		assertNull(union.getFlowsForMethod(TRIM_METHOD));
+	}
+
+	@Test
+	public void subsumptionTest() {
+		MethodSummaries arrayList = new MethodSummaries();
+		arrayList.addFlow(createParameterToReturnFlow(GET_METHOD, 0, false));
+		MethodSummaries linkedList = new MethodSummaries();
+		linkedList.addFlow(new MethodFlow(GET_METHOD,
+				new FlowSource(SourceSinkType.Parameter, 0, OBJECT),
+				new FlowSink(SourceSinkType.Return, -1, OBJECT, true),
+				false));
+
+		// The flow that taints all sub-fields covers the precise one
+		MethodSummaries union = buildListUnion(arrayList, linkedList);
+		Set<MethodFlow> flows = union.getFlowsForMethod(GET_METHOD);
+		assertEquals(1, flows.size());
+		assertTrue(flows.iterator().next().sink().taintSubFields());
+	}
+
+	@Test
+	public void gapRenumberingTest() {
+		String arrayListTarget = "<java.util.Comparator: int compare(java.lang.Object,java.lang.Object)>";
+		String linkedListTarget = "<java.lang.Object: int hashCode()>";
+		String unusedTarget = "<java.lang.Runnable: void run()>";
+
+		// Both classes use the same gap ID for different targets
+		MethodSummaries arrayList = new MethodSummaries();
+		arrayList.addFlow(createParameterToGapFlow(GET_METHOD, 0,
+				arrayList.getOrCreateGap(1, arrayListTarget)));
+		arrayList.addFlow(createParameterToGapFlow(TRIM_METHOD, 0,
+				arrayList.getOrCreateGap(2, unusedTarget)));
+		MethodSummaries linkedList = new MethodSummaries();
+		linkedList.addFlow(createParameterToGapFlow(REMOVE_METHOD, 0,
+				linkedList.getOrCreateGap(1, linkedListTarget)));
+
+		MethodSummaries union = buildListUnion(arrayList, linkedList);
+		Set<Integer> gapIDs = new HashSet<>();
+		Set<String> gapTargets = new HashSet<>();
+		for (GapDefinition gap : union.getAllGaps()) {
+			gapIDs.add(gap.getID());
+			gapTargets.add(gap.getSignature());
+		}
+		assertEquals(2, gapIDs.size());
+		assertEquals(2, gapTargets.size());
+		assertTrue(gapTargets.contains(arrayListTarget));
+		assertTrue(gapTargets.contains(linkedListTarget));
+
+		// The flows must reference the renumbered gaps
+		for (MethodFlow flow : union) {
+			GapDefinition gap = flow.sink().getGap();
+			assertNotNull(gap);
+			if (union.getGap(gap.getID()) != gap)
+				fail("Flow references a gap that is not part of the union");
+		}
+		assertEquals(linkedListTarget, union.getFlowsForMethod(REMOVE_METHOD)
+				.iterator().next().sink().getGap().getSignature());
+	}
+
+}
@@ -1,5 +1,8 @@
 package soot.jimple.infoflow.test.methodSummary.junit;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.util.ArrayList;
@@ -10,7 +13,9 @@ import javax.xml.stream.XMLStreamException;
 import org.junit.Test;
 
 import soot.jimple.infoflow.Infoflow;
+import soot.jimple.infoflow.methodSummary.taintWrappers.SummaryTaintWrapper;
 import soot.jimple.infoflow.methodSummary.taintWrappers.TaintWrapperFactory;
+import soot.jimple.infoflow.results.InfoflowResults;
 import soot.jimple.infoflow.taintWrappers.ITaintPropagationWrapper;
 
 public class WrapperListTests extends JUnitTests {
@@ -171,6 +176,38 @@ public class WrapperListTests extends JUnitTests {
 		negativeCheckInfoflow(infoflow);
 	}
 	
+	@Test
+	public void parallelFlowApplicationTest() {
+		InfoflowResults sequentialResults = runMultipleImplementorsTest(0);
+		InfoflowResults parallelResults = runMultipleImplementorsTest(1);
+		assertTrue(sequentialResults.size() > 0);
+		assertEquals(sequentialResults.size(), parallelResults.size());
+		assertTrue(parallelResults.isPathBetweenMethods(sink, sourceDeviceId));
+	}
+	
+	/**
+	 * Runs the data flow analysis on a list that can have one of several
+	 * summarized implementations
+	 * @param threshold The minimum number of classes for which the flows are
+	 * applied in parallel, or zero to always apply them sequentially
+	 * @return The results of the data flow analysis
+	 */
+	private InfoflowResults runMultipleImplementorsTest(int threshold) {
+		soot.G.reset();
+		SummaryTaintWrapper summaryWrapper = (SummaryTaintWrapper) TaintWrapperFactory.createTaintWrapper(files);
+		summaryWrapper.setParallelFlowApplicationThreshold(threshold);
+		
+		Infoflow infoflow = initInfoflow();
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.methodSummary.ListTestCode: void multipleImplementorsTest()>");
+		infoflow.setTaintWrapper(summaryWrapper);
+		infoflow.computeInfoflow(appPath, libPath, epoints, sources, sinks);
+		summaryWrapper.close();
+		
+		assertTrue(infoflow.isResultAvailable());
+		return infoflow.getResults();
+	}
+	
     protected Infoflow initInfoflow(){
     	return initInfoflow(false);
     }
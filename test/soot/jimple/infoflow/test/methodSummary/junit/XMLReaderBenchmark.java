@@ -0,0 +1,71 @@
+package soot.jimple.infoflow.test.methodSummary.junit;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.stream.XMLStreamException;
+
+import soot.jimple.infoflow.methodSummary.xml.SummaryXMLException;
+import soot.jimple.infoflow.methodSummary.xml.XMLReader;
+
+/**
+ * Benchmark for the XMLReader. Reads all summary files in a directory
+ * repeatedly and reports the throughput and the allocation per flow.
+ *
+ * @author Steven Arzt
+ *
+ */
+public class XMLReaderBenchmark {
+
+	private static final int WARMUP_ITERATIONS = 10;
+	private static final int MEASUREMENT_ITERATIONS = 20;
+
+	public static void main(String[] args) throws XMLStreamException,
+			SummaryXMLException, IOException {
+		File dir = new File(args.length > 0 ? args[0] : "./summariesAndroid");
+		List<File> files = new ArrayList<>();
+		for (File f : dir.listFiles())
+			if (XMLReader.isSummaryFile(f))
+				files.add(f);
+
+		XMLReader reader = new XMLReader();
+		for (int i = 0; i < WARMUP_ITERATIONS; i++)
+			readAll(reader, files);
+
+		com.sun.management.ThreadMXBean threadBean =
+				(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long threadID = Thread.currentThread().getId();
+		long beforeBytes = threadBean.getThreadAllocatedBytes(threadID);
+		long beforeTime = System.nanoTime();
+
+		long flowCount = 0;
+		for (int i = 0; i < MEASUREMENT_ITERATIONS; i++)
+			flowCount += readAll(reader, files);
+
+		long time = System.nanoTime() - beforeTime;
+		long bytes = threadBean.getThreadAllocatedBytes(threadID) - beforeBytes;
+
+		System.out.println("Read " + files.size() + " files with " + (flowCount / MEASUREMENT_ITERATIONS)
+				+ " flows per iteration");
+		System.out.println("Throughput: " + (flowCount * 1000000000L / time) + " flows/s");
+		System.out.println("Allocation: " + (bytes / flowCount) + " bytes/flow");
+	}
+
+	/**
+	 * Reads all of the given summary files
+	 * @param reader The reader to use
+	 * @param files The files to read
+	 * @return The number of flows that were read
+	 */
+	private static long readAll(XMLReader reader, List<File> files)
+			throws XMLStreamException, SummaryXMLException, IOException {
+		long flowCount = 0;
+		for (File f : files)
+			flowCount += reader.read(f).getFlowCount();
+		return flowCount;
+	}
+
+}
@@ -0,0 +1,165 @@
+package soot.jimple.infoflow.test.methodSummary.junit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static soot.jimple.infoflow.test.methodSummary.junit.SummaryTestUtils.LIST;
+import static soot.jimple.infoflow.test.methodSummary.junit.SummaryTestUtils.OBJECT;
+import static soot.jimple.infoflow.test.methodSummary.junit.SummaryTestUtils.createParameterToGapFlow;
+import static soot.jimple.infoflow.test.methodSummary.junit.SummaryTestUtils.createSummaries;
+import static soot.jimple.infoflow.test.methodSummary.junit.SummaryTestUtils.delete;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.junit.Test;
+
+import soot.jimple.infoflow.methodSummary.data.provider.LazySummaryProvider;
+import soot.jimple.infoflow.methodSummary.data.summary.ClassSummaries;
+import soot.jimple.infoflow.methodSummary.data.summary.MethodSummaries;
+import soot.jimple.infoflow.methodSummary.xml.SummaryXMLException;
+import soot.jimple.infoflow.methodSummary.xml.XMLReader;
+import soot.jimple.infoflow.methodSummary.xml.XMLWriter;
+
+public class XMLWriterTests {
+
+	@Test
+	public void compressedRoundTripTest() throws IOException, XMLStreamException,
+			SummaryXMLException {
+		File dir = Files.createTempDirectory("summaries").toFile();
+		File plainDir = Files.createTempDirectory("summaries").toFile();
+		ClassSummaries summaries = createSummaries(20);
+
+		XMLWriter writer = new XMLWriter();
+		writer.setCompressOutput(true);
+		writer.write(dir, summaries);
+		new XMLWriter().write(plainDir, summaries);
+
+		XMLReader reader = new XMLReader();
+		File[] files = dir.listFiles();
+		assertEquals(20, files.length);
+		for (File f : files) {
+			assertTrue(f.getName().endsWith(".xml.gz"));
+			assertTrue(XMLReader.isSummaryFile(f));
+
+			String className = XMLReader.getClassName(f);
+			MethodSummaries expected = summaries.getClassSummaries(className);
+			MethodSummaries actual = reader.read(f);
+			assertEquals(expected.getAllFlows(), actual.getAllFlows());
+
+			// Compression must actually save space
+			File plainFile = new File(plainDir, className + ".xml");
+			assertTrue(f.length() < plainFile.length());
+		}
+
+		// The provider must answer queries from compressed files just like
+		// from plain ones
+		LazySummaryProvider compressedProvider = new LazySummaryProvider(dir);
+		LazySummaryProvider plainProvider = new LazySummaryProvider(plainDir);
+		String methodSig = OBJECT + " method3(" + OBJECT + ")";
+		assertEquals(2, compressedProvider.getMethodFlows("test.Class7", methodSig).size());
+		assertEquals(plainProvider.getMethodFlows("test.Class7", methodSig),
+				compressedProvider.getMethodFlows("test.Class7", methodSig));
+		assertFalse(compressedProvider.supportsClass("test.Class20"));
+
+		delete(dir);
+		delete(plainDir);
+	}
+
+	@Test
+	public void accessPathLengthRoundTripTest() throws IOException, XMLStreamException,
+			SummaryXMLException {
+		File dir = Files.createTempDirectory("summaries").toFile();
+		ClassSummaries summaries = createSummaries(1);
+		MethodSummaries ms = summaries.getClassSummaries("test.Class0");
+		ms.setAccessPathLength(OBJECT + " method0(" + OBJECT + ")", 2);
+
+		new XMLWriter().write(dir, summaries);
+
+		File f = new File(dir, "test.Class0.xml");
+		MethodSummaries actual = new XMLReader().read(f);
+		assertEquals(2, actual.getAccessPathLength(OBJECT + " method0(" + OBJECT + ")"));
+		assertEquals(-1, actual.getAccessPathLength(OBJECT + " method1(" + OBJECT + ")"));
+
+		// The access path length must reach the taint wrapper through the
+		// provider
+		String methodSig = OBJECT + " method0(" + OBJECT + ")";
+		ClassSummaries provided = new LazySummaryProvider(dir).getMethodFlows(
+				Collections.singleton("test.Class0"), methodSig);
+		assertEquals(2, provided.getClassSummaries("test.Class0").getAccessPathLength(methodSig));
+		delete(dir);
+	}
+
+	@Test
+	public void approximatedRoundTripTest() throws IOException, XMLStreamException,
+			SummaryXMLException {
+		File dir = Files.createTempDirectory("summaries").toFile();
+		ClassSummaries summaries = createSummaries(1);
+		summaries.getClassSummaries("test.Class0").markApproximated(
+				OBJECT + " method0(" + OBJECT + ")");
+
+		new XMLWriter().write(dir, summaries);
+
+		File f = new File(dir, "test.Class0.xml");
+		MethodSummaries actual = new XMLReader().read(f);
+		assertTrue(actual.isApproximated(OBJECT + " method0(" + OBJECT + ")"));
+		assertFalse(actual.isApproximated(OBJECT + " method1(" + OBJECT + ")"));
+
+		// The flag must reach the taint wrapper through the provider
+		String methodSig = OBJECT + " method0(" + OBJECT + ")";
+		ClassSummaries provided = new LazySummaryProvider(dir).getMethodFlows(
+				Collections.singleton("test.Class0"), methodSig);
+		assertTrue(provided.getClassSummaries("test.Class0").isApproximated(methodSig));
+		delete(dir);
+	}
+
+	@Test
+	public void distinctGapFlowsTest() throws IOException, XMLStreamException,
+			SummaryXMLException {
+		File dir = Files.createTempDirectory("summaries").toFile();
+		String methodSig = OBJECT + " method(" + OBJECT + ")";
+		String calleeSig = "<" + LIST + ": boolean add(" + OBJECT + ")>";
+
+		// Two calls to the same callee only differ in the gap ID
+		MethodSummaries ms = new MethodSummaries();
+		for (int gapId = 0; gapId < 2; gapId++)
+			ms.addFlow(createParameterToGapFlow(methodSig, 0,
+					ms.getOrCreateGap(gapId, calleeSig)));
+		ClassSummaries summaries = new ClassSummaries();
+		summaries.merge("test.Class0", ms);
+
+		new XMLWriter().write(dir, summaries);
+
+		File f = new File(dir, "test.Class0.xml");
+		MethodSummaries actual = new XMLReader().read(f);
+		assertEquals(2, actual.getFlowCount());
+		assertEquals(ms.getAllFlows(), actual.getAllFlows());
+		delete(dir);
+	}
+
+	@Test
+	public void deterministicOutputTest() throws IOException, XMLStreamException {
+		File dir1 = Files.createTempDirectory("summaries").toFile();
+		File dir2 = Files.createTempDirectory("summaries").toFile();
+		ClassSummaries summaries = createSummaries(10);
+
+		XMLWriter sequentialWriter = new XMLWriter();
+		sequentialWriter.setThreadCount(1);
+		sequentialWriter.write(dir1, summaries);
+		new XMLWriter().write(dir2, summaries);
+
+		for (File f1 : dir1.listFiles()) {
+			File f2 = new File(dir2, f1.getName());
+			assertArrayEquals(Files.readAllBytes(f1.toPath()),
+					Files.readAllBytes(f2.toPath()));
+		}
+		delete(dir1);
+		delete(dir2);
+	}
+
+}